@@ -37,8 +37,16 @@ public interface CassandraConfiguration extends Configuration {
     String CASSANDRA_REPLICATION_FACTOR_VALUE_PROPERTY_NAME = "workflow.cassandra.replicaton.factor.value";
     int CASSANDRA_REPLICATION_FACTOR_VALUE_DEFAULT_VALUE = 3;
 
+    // the max number of tasks per shard of a workflow, 0 to keep all the tasks in the first shard. Tasks are sharded by
+    // sequence number, so the workflows running when sharding is enabled must have fewer tasks than the shard size
     String CASSANDRA_SHARD_SIZE_PROPERTY_KEY = "workflow.cassandra.shard.size";
-    int CASSANDRA_SHARD_SIZE_DEFAULT_VALUE = 100;
+    int CASSANDRA_SHARD_SIZE_DEFAULT_VALUE = 0;
+
+    String CASSANDRA_MAX_CONCURRENT_REQUESTS_PROPERTY_NAME = "workflow.cassandra.max.concurrent.requests";
+    int CASSANDRA_MAX_CONCURRENT_REQUESTS_DEFAULT_VALUE = 100;
+
+    String CASSANDRA_INDEX_BUCKETS_PROPERTY_NAME = "workflow.cassandra.index.buckets";
+    int CASSANDRA_INDEX_BUCKETS_DEFAULT_VALUE = 8;
 
     default String getHostAddress() {
         return getProperty(CASSANDRA_HOST_ADDRESS_PROPERTY_NAME, CASSANDRA_HOST_ADDRESS_DEFAULT_VALUE);
@@ -60,6 +68,14 @@ public interface CassandraConfiguration extends Configuration {
         return getIntProperty(CASSANDRA_SHARD_SIZE_PROPERTY_KEY, CASSANDRA_SHARD_SIZE_DEFAULT_VALUE);
     }
 
+    default int getMaxConcurrentRequests() {
+        return getIntProperty(CASSANDRA_MAX_CONCURRENT_REQUESTS_PROPERTY_NAME, CASSANDRA_MAX_CONCURRENT_REQUESTS_DEFAULT_VALUE);
+    }
+
+    default int getIndexBuckets() {
+        return getIntProperty(CASSANDRA_INDEX_BUCKETS_PROPERTY_NAME, CASSANDRA_INDEX_BUCKETS_DEFAULT_VALUE);
+    }
+
     default String getReplicationStrategy() {
         return getProperty(CASSANDRA_REPLICATION_STRATEGY_PROPERTY_NAME, CASSANDRA_REPLICATION_STRATEGY_DEFAULT_VALUE);
     }
@@ -16,29 +16,53 @@
 package com.netflix.conductor.dao.cassandra;
 
 import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TableMetadata;
 import com.datastax.driver.core.schemabuilder.SchemaBuilder;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.netflix.conductor.cassandra.CassandraConfiguration;
+import com.netflix.conductor.core.utils.PayloadSerializer;
 import com.netflix.conductor.metrics.Monitors;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
 
+import static com.netflix.conductor.util.Constants.BUCKET_KEY;
 import static com.netflix.conductor.util.Constants.DAO_NAME;
+import static com.netflix.conductor.util.Constants.DOMAIN_KEY;
 import static com.netflix.conductor.util.Constants.ENTITY_KEY;
+import static com.netflix.conductor.util.Constants.EVENT_EXECUTION_ID_KEY;
+import static com.netflix.conductor.util.Constants.EVENT_HANDLER_NAME_KEY;
+import static com.netflix.conductor.util.Constants.EVENT_NAME_KEY;
+import static com.netflix.conductor.util.Constants.MESSAGE_ID_KEY;
 import static com.netflix.conductor.util.Constants.PAYLOAD_KEY;
+import static com.netflix.conductor.util.Constants.QUEUE_NAME_KEY;
 import static com.netflix.conductor.util.Constants.SHARD_ID_KEY;
+import static com.netflix.conductor.util.Constants.TABLE_EVENT_EXECUTIONS;
+import static com.netflix.conductor.util.Constants.TABLE_PENDING_WORKFLOWS;
+import static com.netflix.conductor.util.Constants.TABLE_POLL_DATA;
+import static com.netflix.conductor.util.Constants.TABLE_TASKS_IN_PROGRESS;
 import static com.netflix.conductor.util.Constants.TABLE_TASK_LOOKUP;
+import static com.netflix.conductor.util.Constants.TABLE_TASK_RATE_LIMIT;
 import static com.netflix.conductor.util.Constants.TABLE_WORKFLOWS;
+import static com.netflix.conductor.util.Constants.TASK_DEF_NAME_KEY;
 import static com.netflix.conductor.util.Constants.TASK_ID_KEY;
 import static com.netflix.conductor.util.Constants.TOTAL_PARTITIONS_KEY;
 import static com.netflix.conductor.util.Constants.TOTAL_TASKS_KEY;
+import static com.netflix.conductor.util.Constants.WINDOW_START_KEY;
 import static com.netflix.conductor.util.Constants.WORKFLOW_ID_KEY;
+import static com.netflix.conductor.util.Constants.WORKFLOW_NAME_KEY;
 
 /**
  * Creates the keyspace and tables.
@@ -60,13 +84,62 @@ import static com.netflix.conductor.util.Constants.WORKFLOW_ID_KEY;
  * CREATE TABLE IF NOT EXISTS conductor.task_lookup(
  * task_id uuid,
  * workflow_id uuid,
+ * shard_id int,
  * PRIMARY KEY (task_id)
  * );
+ * <p>
+ * CREATE TABLE IF NOT EXISTS conductor.pending_workflows(
+ * workflow_name text,
+ * bucket int,
+ * workflow_id uuid,
+ * PRIMARY KEY ((workflow_name, bucket), workflow_id)
+ * );
+ * <p>
+ * CREATE TABLE IF NOT EXISTS conductor.tasks_in_progress(
+ * task_def_name text,
+ * bucket int,
+ * task_id uuid,
+ * workflow_id uuid,
+ * PRIMARY KEY ((task_def_name, bucket), task_id)
+ * );
+ * <p>
+ * CREATE TABLE IF NOT EXISTS conductor.task_rate_limit(
+ * task_def_name text,
+ * window_start bigint,
+ * task_id uuid,
+ * PRIMARY KEY ((task_def_name, window_start), task_id)
+ * );
+ * <p>
+ * CREATE TABLE IF NOT EXISTS conductor.poll_data(
+ * queue_name text,
+ * domain text,
+ * payload text,
+ * PRIMARY KEY (queue_name, domain)
+ * );
+ * <p>
+ * CREATE TABLE IF NOT EXISTS conductor.event_executions(
+ * event_handler_name text,
+ * event_name text,
+ * message_id text,
+ * event_execution_id text,
+ * payload text,
+ * PRIMARY KEY ((event_handler_name, event_name, message_id), event_execution_id)
+ * );
+ * <p>
+ * The pending workflows of a type, and the in progress tasks of a definition, are spread across
+ * {@link CassandraConfiguration#getIndexBuckets()} partitions by id. The tasks counted against a rate limit are
+ * partitioned by time window, and expire with it.
+ * <p>
+ * The tasks of a workflow are spread across the shards by their sequence number, {@link CassandraConfiguration#getShardSize()}
+ * tasks per shard. The workflow, with the total number of tasks and shards, is stored in the first shard.
  */
 public class CassandraBaseDAO {
     private static final Logger LOGGER = LoggerFactory.getLogger(CassandraBaseDAO.class);
 
     private final ObjectMapper objectMapper;
+    private final PayloadSerializer payloadSerializer;
+    // bounds the statements executed asynchronously, across the callers
+    private final Semaphore inFlightRequests;
 
     protected final Session session;
     protected final CassandraConfiguration config;
@@ -74,7 +147,9 @@ public class CassandraBaseDAO {
     public CassandraBaseDAO(Session session, ObjectMapper objectMapper, CassandraConfiguration config) {
         this.session = session;
         this.objectMapper = objectMapper;
+        this.payloadSerializer = new PayloadSerializer(objectMapper, config);
         this.config = config;
+        this.inFlightRequests = new Semaphore(Math.max(1, config.getMaxConcurrentRequests()));
 
         init();
     }
@@ -84,6 +159,12 @@ public class CassandraBaseDAO {
             session.execute(getCreateKeyspaceStatement());
             session.execute(getCreateWorkflowsTableStatement());
             session.execute(getCreateTaskLookupTableStatement());
+            addTaskLookupShardColumn();
+            session.execute(getCreatePendingWorkflowsTableStatement());
+            session.execute(getCreateTasksInProgressTableStatement());
+            session.execute(getCreateTaskRateLimitTableStatement());
+            session.execute(getCreatePollDataTableStatement());
+            session.execute(getCreateEventExecutionsTableStatement());
             LOGGER.info("CassandraDAO initialization complete! Tables created!");
         } catch (Exception e) {
             LOGGER.error("Error initializing and setting up keyspace and table in cassandra", e);
@@ -118,9 +199,101 @@ public class CassandraBaseDAO {
                 .ifNotExists()
                 .addPartitionKey(TASK_ID_KEY, DataType.uuid())
                 .addColumn(WORKFLOW_ID_KEY, DataType.uuid())
+                .addColumn(SHARD_ID_KEY, DataType.cint())
+                .getQueryString();
+    }
+
+    private String getCreatePendingWorkflowsTableStatement() {
+        return SchemaBuilder.createTable(config.getCassandraKeyspace(), TABLE_PENDING_WORKFLOWS)
+                .ifNotExists()
+                .addPartitionKey(WORKFLOW_NAME_KEY, DataType.text())
+                .addPartitionKey(BUCKET_KEY, DataType.cint())
+                .addClusteringColumn(WORKFLOW_ID_KEY, DataType.uuid())
+                .getQueryString();
+    }
+
+    private String getCreateTasksInProgressTableStatement() {
+        return SchemaBuilder.createTable(config.getCassandraKeyspace(), TABLE_TASKS_IN_PROGRESS)
+                .ifNotExists()
+                .addPartitionKey(TASK_DEF_NAME_KEY, DataType.text())
+                .addPartitionKey(BUCKET_KEY, DataType.cint())
+                .addClusteringColumn(TASK_ID_KEY, DataType.uuid())
+                .addColumn(WORKFLOW_ID_KEY, DataType.uuid())
+                .getQueryString();
+    }
+
+    private String getCreateTaskRateLimitTableStatement() {
+        return SchemaBuilder.createTable(config.getCassandraKeyspace(), TABLE_TASK_RATE_LIMIT)
+                .ifNotExists()
+                .addPartitionKey(TASK_DEF_NAME_KEY, DataType.text())
+                .addPartitionKey(WINDOW_START_KEY, DataType.bigint())
+                .addClusteringColumn(TASK_ID_KEY, DataType.uuid())
+                .getQueryString();
+    }
+
+    private String getCreatePollDataTableStatement() {
+        return SchemaBuilder.createTable(config.getCassandraKeyspace(), TABLE_POLL_DATA)
+                .ifNotExists()
+                .addPartitionKey(QUEUE_NAME_KEY, DataType.text())
+                .addClusteringColumn(DOMAIN_KEY, DataType.text())
+                .addColumn(PAYLOAD_KEY, DataType.text())
                 .getQueryString();
     }
 
+    private String getCreateEventExecutionsTableStatement() {
+        return SchemaBuilder.createTable(config.getCassandraKeyspace(), TABLE_EVENT_EXECUTIONS)
+                .ifNotExists()
+                .addPartitionKey(EVENT_HANDLER_NAME_KEY, DataType.text())
+                .addPartitionKey(EVENT_NAME_KEY, DataType.text())
+                .addPartitionKey(MESSAGE_ID_KEY, DataType.text())
+                .addClusteringColumn(EVENT_EXECUTION_ID_KEY, DataType.text())
+                .addColumn(PAYLOAD_KEY, DataType.text())
+                .getQueryString();
+    }
+
+    /**
+     * Adds the shard_id column to a task_lookup table created before the tasks were sharded. The tasks looked up
+     * without a shard_id are in the first shard.
+     */
+    private void addTaskLookupShardColumn() {
+        KeyspaceMetadata keyspace = session.getCluster().getMetadata().getKeyspace(config.getCassandraKeyspace());
+        TableMetadata taskLookup = keyspace == null ? null : keyspace.getTable(TABLE_TASK_LOOKUP);
+        if (taskLookup != null && taskLookup.getColumn(SHARD_ID_KEY) == null) {
+            session.execute(SchemaBuilder.alterTable(config.getCassandraKeyspace(), TABLE_TASK_LOOKUP)
+                    .addColumn(SHARD_ID_KEY)
+                    .type(DataType.cint())
+                    .getQueryString());
+        }
+    }
+
+    /**
+     * Executes the statement asynchronously, waiting if the max number of statements are already in flight.
+     *
+     * @see CassandraConfiguration#getMaxConcurrentRequests()
+     */
+    ResultSetFuture executeAsync(Statement statement) {
+        inFlightRequests.acquireUninterruptibly();
+        try {
+            ResultSetFuture future = session.executeAsync(statement);
+            future.addListener(inFlightRequests::release, MoreExecutors.directExecutor());
+            return future;
+        } catch (RuntimeException e) {
+            inFlightRequests.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Executes the statements in parallel, and waits for all of them.
+     *
+     * @throws com.datastax.driver.core.exceptions.DriverException the error of the first statement that failed
+     */
+    void executeAll(List<? extends Statement> statements) {
+        List<ResultSetFuture> futures = new ArrayList<>(statements.size());
+        statements.forEach(statement -> futures.add(executeAsync(statement)));
+        futures.forEach(ResultSetFuture::getUninterruptibly);
+    }
+
     String toJson(Object value) {
         try {
             return objectMapper.writeValueAsString(value);
@@ -129,9 +302,25 @@ public class CassandraBaseDAO {
         }
     }
 
+    /**
+     * Serializes the tasks and the workflows in the configured payload format.
+     *
+     * @see PayloadSerializer
+     */
+    String serialize(Object value) {
+        try {
+            return payloadSerializer.serialize(value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the JSON documents, and the payloads written by {@link #serialize(Object)}.
+     */
     <T> T readValue(String json, Class<T> clazz) {
         try {
-            return objectMapper.readValue(json, clazz);
+            return payloadSerializer.deserialize(json, clazz);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -15,8 +15,10 @@ package com.netflix.conductor.dao.cassandra;
 import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
@@ -25,6 +27,7 @@ import com.netflix.conductor.cassandra.CassandraConfiguration;
 import com.netflix.conductor.common.metadata.events.EventExecution;
 import com.netflix.conductor.common.metadata.tasks.PollData;
 import com.netflix.conductor.common.metadata.tasks.Task;
+import com.netflix.conductor.common.metadata.tasks.TaskDef;
 import com.netflix.conductor.common.run.Workflow;
 import com.netflix.conductor.core.execution.ApplicationException;
 import com.netflix.conductor.dao.ExecutionDAO;
@@ -35,18 +38,27 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+import static com.netflix.conductor.util.Constants.DEFAULT_POLL_DATA_DOMAIN;
 import static com.netflix.conductor.util.Constants.DEFAULT_SHARD_ID;
 import static com.netflix.conductor.util.Constants.DEFAULT_TOTAL_PARTITIONS;
 import static com.netflix.conductor.util.Constants.ENTITY_KEY;
 import static com.netflix.conductor.util.Constants.ENTITY_TYPE_TASK;
 import static com.netflix.conductor.util.Constants.ENTITY_TYPE_WORKFLOW;
+import static com.netflix.conductor.util.Constants.EVENT_EXECUTION_ID_KEY;
 import static com.netflix.conductor.util.Constants.PAYLOAD_KEY;
+import static com.netflix.conductor.util.Constants.SHARD_ID_KEY;
 import static com.netflix.conductor.util.Constants.TOTAL_PARTITIONS_KEY;
 import static com.netflix.conductor.util.Constants.TOTAL_TASKS_KEY;
 import static com.netflix.conductor.util.Constants.WORKFLOW_ID_KEY;
@@ -58,21 +70,40 @@ public class CassandraExecutionDAO extends CassandraBaseDAO implements Execution
 
     private final PreparedStatement insertWorkflowStatement;
     private final PreparedStatement insertTaskStatement;
+    private final PreparedStatement insertPendingWorkflowStatement;
+    private final PreparedStatement insertTaskInProgressStatement;
+    private final PreparedStatement insertTaskRateLimitStatement;
+    private final PreparedStatement insertPollDataStatement;
+    private final PreparedStatement insertEventExecutionStatement;
 
     private final PreparedStatement selectTotalStatement;
     private final PreparedStatement selectTaskStatement;
     private final PreparedStatement selectWorkflowStatement;
     private final PreparedStatement selectWorkflowWithTasksStatement;
     private final PreparedStatement selectTaskLookupStatement;
+    private final PreparedStatement selectPendingWorkflowsStatement;
+    private final PreparedStatement selectPendingWorkflowCountStatement;
+    private final PreparedStatement selectTasksInProgressCountStatement;
+    private final PreparedStatement selectTaskRateLimitCountStatement;
+    private final PreparedStatement selectPollDataStatement;
+    private final PreparedStatement selectAllPollDataStatement;
+    private final PreparedStatement selectEventExecutionsStatement;
 
     private final PreparedStatement updateWorkflowStatement;
     private final PreparedStatement updateTotalTasksStatement;
     private final PreparedStatement updateTotalPartitionsStatement;
+    private final PreparedStatement updateNullTotalPartitionsStatement;
     private final PreparedStatement updateTaskLookupStatement;
+    private final PreparedStatement updateEventExecutionStatement;
 
     private final PreparedStatement deleteWorkflowStatement;
     private final PreparedStatement deleteTaskStatement;
     private final PreparedStatement deleteTaskLookupStatement;
+    private final PreparedStatement deletePendingWorkflowStatement;
+    private final PreparedStatement deleteTaskInProgressStatement;
+    private final PreparedStatement deleteEventExecutionStatement;
+
+    private final int indexBuckets;
 
     @Inject
     public CassandraExecutionDAO(Session session, ObjectMapper objectMapper, CassandraConfiguration config, Statements statements) {
@@ -80,21 +111,40 @@ public class CassandraExecutionDAO extends CassandraBaseDAO implements Execution
 
         this.insertWorkflowStatement = session.prepare(statements.getInsertWorkflowStatement());
         this.insertTaskStatement = session.prepare(statements.getInsertTaskStatement());
+        this.insertPendingWorkflowStatement = session.prepare(statements.getInsertPendingWorkflowStatement());
+        this.insertTaskInProgressStatement = session.prepare(statements.getInsertTaskInProgressStatement());
+        this.insertTaskRateLimitStatement = session.prepare(statements.getInsertTaskRateLimitStatement());
+        this.insertPollDataStatement = session.prepare(statements.getInsertPollDataStatement());
+        this.insertEventExecutionStatement = session.prepare(statements.getInsertEventExecutionStatement());
 
         this.selectTotalStatement = session.prepare(statements.getSelectTotalStatement());
         this.selectTaskStatement = session.prepare(statements.getSelectTaskStatement());
         this.selectWorkflowStatement = session.prepare(statements.getSelectWorkflowStatement());
         this.selectWorkflowWithTasksStatement = session.prepare(statements.getSelectWorkflowWithTasksStatement());
         this.selectTaskLookupStatement = session.prepare(statements.getSelectTaskFromLookupTableStatement());
+        this.selectPendingWorkflowsStatement = session.prepare(statements.getSelectPendingWorkflowsStatement());
+        this.selectPendingWorkflowCountStatement = session.prepare(statements.getSelectPendingWorkflowCountStatement());
+        this.selectTasksInProgressCountStatement = session.prepare(statements.getSelectTasksInProgressCountStatement());
+        this.selectTaskRateLimitCountStatement = session.prepare(statements.getSelectTaskRateLimitCountStatement());
+        this.selectPollDataStatement = session.prepare(statements.getSelectPollDataStatement());
+        this.selectAllPollDataStatement = session.prepare(statements.getSelectAllPollDataStatement());
+        this.selectEventExecutionsStatement = session.prepare(statements.getSelectEventExecutionsStatement());
 
         this.updateWorkflowStatement = session.prepare(statements.getUpdateWorkflowStatement());
         this.updateTotalTasksStatement = session.prepare(statements.getUpdateTotalTasksStatement());
         this.updateTotalPartitionsStatement = session.prepare(statements.getUpdateTotalPartitionsStatement());
+        this.updateNullTotalPartitionsStatement = session.prepare(statements.getUpdateNullTotalPartitionsStatement());
         this.updateTaskLookupStatement = session.prepare(statements.getUpdateTaskLookupStatement());
+        this.updateEventExecutionStatement = session.prepare(statements.getUpdateEventExecutionStatement());
 
         this.deleteWorkflowStatement = session.prepare(statements.getDeleteWorkflowStatement());
         this.deleteTaskStatement = session.prepare(statements.getDeleteTaskStatement());
         this.deleteTaskLookupStatement = session.prepare(statements.getDeleteTaskLookupStatement());
+        this.deletePendingWorkflowStatement = session.prepare(statements.getDeletePendingWorkflowStatement());
+        this.deleteTaskInProgressStatement = session.prepare(statements.getDeleteTaskInProgressStatement());
+        this.deleteEventExecutionStatement = session.prepare(statements.getDeleteEventExecutionStatement());
+
+        this.indexBuckets = Math.max(1, config.getIndexBuckets());
     }
 
     @Override
@@ -118,10 +168,13 @@ public class CassandraExecutionDAO extends CassandraBaseDAO implements Execution
     /**
      * Inserts tasks into the Cassandra datastore.
      * <b>Note:</b>
-     * Creates the task_id to workflow_id mapping in the task_lookup table first.
-     * Once this succeeds, inserts the tasks into the workflows table. Tasks belonging to the same shard are created using batch statements.
+     * Creates the task_id to workflow_id and shard_id mapping in the task_lookup table first, in parallel.
+     * Once this succeeds, inserts the tasks into the workflows table, and updates the total tasks of the workflow, in parallel.
+     * Tasks belonging to the same shard are created using unlogged batch statements, as they are in the same partition.
+     * The total partitions of the workflow is then raised if the tasks are in a new shard.
      *
      * @param tasks tasks to be created
+     * @see #getShardId(Task)
      */
     @Override
     public List<Task> createTasks(List<Task> tasks) {
@@ -130,27 +183,38 @@ public class CassandraExecutionDAO extends CassandraBaseDAO implements Execution
         try {
             WorkflowMetadata workflowMetadata = getWorkflowMetadata(workflowId);
             int totalTasks = workflowMetadata.getTotalTasks() + tasks.size();
-            // TODO: write into multiple shards based on number of tasks
+            TreeMap<Integer, List<Task>> tasksByShard = tasks.stream()
+                    .collect(Collectors.groupingBy(this::getShardId, TreeMap::new, Collectors.toList()));
+            int lastShardId = tasksByShard.lastKey();
 
-            // update the task_lookup table
-            tasks.forEach(task -> {
+            // update the task_lookup table, and the in progress tasks
+            List<Statement> taskLookups = new ArrayList<>(tasks.size());
+            tasksByShard.forEach((shardId, shardTasks) -> shardTasks.forEach(task -> {
                 task.setScheduledTime(System.currentTimeMillis());
-                session.execute(updateTaskLookupStatement.bind(UUID.fromString(workflowId), UUID.fromString(task.getTaskId())));
-            });
-
-            // update all the tasks in the workflow using batch
-            BatchStatement batchStatement = new BatchStatement();
-            tasks.forEach(task -> {
-                String taskPayload = toJson(task);
-                batchStatement.add(insertTaskStatement.bind(UUID.fromString(workflowId), DEFAULT_SHARD_ID, task.getTaskId(), taskPayload));
-                recordCassandraDaoRequests("createTask", task.getTaskType(), task.getWorkflowType());
-                recordCassandraDaoPayloadSize("createTask", taskPayload.length(), task.getTaskType(), task.getWorkflowType());
+                taskLookups.add(updateTaskLookupStatement.bind(UUID.fromString(workflowId), shardId, UUID.fromString(task.getTaskId())));
+                if (task.getStatus() == Task.Status.IN_PROGRESS) {
+                    taskLookups.add(getTaskInProgressStatement(task));
+                }
+            }));
+            executeAll(taskLookups);
+
+            // update the tasks of each shard using batch, and the total tasks for the workflow
+            List<Statement> writes = new ArrayList<>(tasksByShard.size() + 1);
+            tasksByShard.forEach((shardId, shardTasks) -> {
+                BatchStatement batchStatement = new BatchStatement(BatchStatement.Type.UNLOGGED);
+                shardTasks.forEach(task -> {
+                    String taskPayload = serialize(task);
+                    batchStatement.add(insertTaskStatement.bind(UUID.fromString(workflowId), shardId, task.getTaskId(), taskPayload));
+                    recordCassandraDaoRequests("createTask", task.getTaskType(), task.getWorkflowType());
+                    recordCassandraDaoPayloadSize("createTask", taskPayload.length(), task.getTaskType(), task.getWorkflowType());
+                });
+                writes.add(batchStatement);
             });
-            batchStatement.add(updateTotalTasksStatement.bind(totalTasks, UUID.fromString(workflowId), DEFAULT_SHARD_ID));
-            session.execute(batchStatement);
-
-            // update the total tasks and partitions for the workflow
-            session.execute(updateTotalPartitionsStatement.bind(DEFAULT_TOTAL_PARTITIONS, totalTasks, UUID.fromString(workflowId)));
+            writes.add(updateTotalTasksStatement.bind(totalTasks, UUID.fromString(workflowId), DEFAULT_SHARD_ID));
+            executeAll(writes);
+            if (lastShardId > workflowMetadata.getTotalPartitions()) {
+                raiseTotalPartitions(workflowId, lastShardId);
+            }
 
             return tasks;
         } catch (ApplicationException e) {
@@ -166,15 +230,8 @@ public class CassandraExecutionDAO extends CassandraBaseDAO implements Execution
     @Override
     public void updateTask(Task task) {
         try {
-            task.setUpdateTime(System.currentTimeMillis());
-            if (task.getStatus().isTerminal() && task.getEndTime() == 0) {
-                task.setEndTime(System.currentTimeMillis());
-            }
-            // TODO: calculate the shard number the task belongs to
-            String taskPayload = toJson(task);
-            recordCassandraDaoRequests("updateTask", task.getTaskType(), task.getWorkflowType());
-            recordCassandraDaoPayloadSize("updateTask", taskPayload.length(), task.getTaskType(), task.getWorkflowType());
-            session.execute(insertTaskStatement.bind(UUID.fromString(task.getWorkflowInstanceId()), DEFAULT_SHARD_ID, task.getTaskId(), taskPayload));
+            int shardId = lookupShardIds(Collections.singletonList(task)).get(task.getTaskId());
+            executeAll(Arrays.asList(getUpdateTaskStatement(task, shardId), getTaskInProgressStatement(task)));
         } catch (Exception e) {
             Monitors.error(CLASS_NAME, "updateTask");
             String errorMsg = String.format("Error updating task: %s in workflow: %s", task.getTaskId(), task.getWorkflowInstanceId());
@@ -184,48 +241,114 @@ public class CassandraExecutionDAO extends CassandraBaseDAO implements Execution
     }
 
     /**
-     * This is a dummy implementation and this feature is not implemented
-     * for Cassandra backed Conductor
+     * Checks the number of in progress tasks of the definition against its concurrency limit. The check is not
+     * atomic with the update of the task, so concurrent polls may exceed the limit by the number of pollers.
      */
     @Override
     public boolean exceedsInProgressLimit(Task task) {
-        throw new UnsupportedOperationException("This method is not implemented in CassandraExecutionDAO. Please use ExecutionDAOFacade instead.");
+        int limit = task.getTaskDefinition().map(TaskDef::concurrencyLimit).orElse(0);
+        if (limit <= 0) {
+            return false;
+        }
+        long current = getInProgressTaskCount(task.getTaskDefName());
+        if (current >= limit) {
+            LOGGER.info("Task execution count limited. task - {}:{}, limit: {}, current: {}", task.getTaskId(), task.getTaskDefName(), limit, current);
+            Monitors.recordTaskConcurrentExecutionLimited(task.getTaskDefName(), limit);
+            return true;
+        }
+        return false;
     }
 
     /**
-     * This is a dummy implementation and this feature is not implemented
-     * for Cassandra backed Conductor
+     * Counts the tasks of the definition in the current fixed window of rateLimitFrequencyInSeconds. The window is a
+     * partition of the task_rate_limit table, and its rows expire once the window is over. The check and the count
+     * of the task are not atomic, so concurrent polls may exceed the limit by the number of pollers.
      */
     @Override
     public boolean exceedsRateLimitPerFrequency(Task task) {
-        throw new UnsupportedOperationException("This method is not implemented in CassandraExecutionDAO. Please use ExecutionDAOFacade instead.");
+        int rateLimitPerFrequency = task.getRateLimitPerFrequency();
+        int rateLimitFrequencyInSeconds = task.getRateLimitFrequencyInSeconds();
+        if (rateLimitPerFrequency <= 0 || rateLimitFrequencyInSeconds <= 0) {
+            return false;
+        }
+        try {
+            long windowSizeMillis = rateLimitFrequencyInSeconds * 1000L;
+            long windowStart = System.currentTimeMillis() / windowSizeMillis * windowSizeMillis;
+            recordCassandraDaoRequests("exceedsRateLimitPerFrequency", task.getTaskType(), task.getWorkflowType());
+            long current = session.execute(selectTaskRateLimitCountStatement.bind(task.getTaskDefName(), windowStart)).one().getLong(0);
+            if (current >= rateLimitPerFrequency) {
+                LOGGER.info("Task: {} with rateLimitPerFrequency: {} and rateLimitFrequencyInSeconds: {} is out of bounds of rate limit with current count {}",
+                        task.getTaskId(), rateLimitPerFrequency, rateLimitFrequencyInSeconds, current);
+                Monitors.recordTaskRateLimited(task.getTaskDefName(), rateLimitPerFrequency);
+                return true;
+            }
+            session.execute(insertTaskRateLimitStatement.bind(task.getTaskDefName(), windowStart, UUID.fromString(task.getTaskId()), rateLimitFrequencyInSeconds));
+            return false;
+        } catch (Exception e) {
+            Monitors.error(CLASS_NAME, "exceedsRateLimitPerFrequency");
+            String errorMsg = String.format("Failed to check the rate limit of task: %s", task.getTaskId());
+            LOGGER.error(errorMsg, e);
+            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, errorMsg, e);
+        }
     }
 
+    /**
+     * Updates the tasks in parallel, once their shards are read from the task_lookup table. Tasks belonging to the
+     * same shard of a workflow are updated using unlogged batch statements, as they are in the same partition.
+     *
+     * @param tasks tasks to be updated
+     */
     @Override
     public void updateTasks(List<Task> tasks) {
-        tasks.forEach(this::updateTask);
+        if (tasks.size() == 1) {
+            updateTask(tasks.get(0));
+            return;
+        }
+        try {
+            Map<String, Integer> shardIds = lookupShardIds(tasks);
+            List<Statement> writes = new ArrayList<>();
+            tasks.stream()
+                    .collect(Collectors.groupingBy(Task::getWorkflowInstanceId, Collectors.groupingBy(task -> shardIds.get(task.getTaskId()))))
+                    .forEach((workflowId, tasksByShard) -> tasksByShard.forEach((shardId, shardTasks) -> {
+                        if (shardTasks.size() == 1) {
+                            writes.add(getUpdateTaskStatement(shardTasks.get(0), shardId));
+                        } else {
+                            BatchStatement batchStatement = new BatchStatement(BatchStatement.Type.UNLOGGED);
+                            shardTasks.forEach(task -> batchStatement.add(getUpdateTaskStatement(task, shardId)));
+                            writes.add(batchStatement);
+                        }
+                    }));
+            tasks.forEach(task -> writes.add(getTaskInProgressStatement(task)));
+            executeAll(writes);
+        } catch (Exception e) {
+            Monitors.error(CLASS_NAME, "updateTasks");
+            String errorMsg = String.format("Error updating tasks: %s", tasks.stream().map(Task::getTaskId).collect(Collectors.toList()));
+            LOGGER.error(errorMsg, e);
+            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, errorMsg, e);
+        }
     }
 
     @Override
     public void removeTask(String taskId) {
-        Task task = getTask(taskId);
+        Row taskLookup = lookupTask(taskId);
+        Task task = taskLookup == null ? null : getTask(taskId, taskLookup);
         if (task == null) {
             LOGGER.warn("No such task by id {}", taskId);
             return;
         }
-        removeTask(task);
+        removeTask(task, getLookupShardId(taskLookup));
     }
 
     @Override
     public Task getTask(String taskId) {
-        try {
-            String workflowId = lookupWorkflowIdFromTaskId(taskId);
-            if (workflowId == null) {
-                return null;
-            }
-            // TODO: implement for query against multiple shards
+        Row taskLookup = lookupTask(taskId);
+        return taskLookup == null ? null : getTask(taskId, taskLookup);
+    }
 
-            ResultSet resultSet = session.execute(selectTaskStatement.bind(UUID.fromString(workflowId), DEFAULT_SHARD_ID, taskId));
+    private Task getTask(String taskId, Row taskLookup) {
+        try {
+            UUID workflowId = taskLookup.getUUID(WORKFLOW_ID_KEY);
+            ResultSet resultSet = session.execute(selectTaskStatement.bind(workflowId, getLookupShardId(taskLookup), taskId));
             return Optional.ofNullable(resultSet.one())
                     .map(row -> {
                         Task task = readValue(row.getString(PAYLOAD_KEY), Task.class);
@@ -275,11 +398,14 @@ public class CassandraExecutionDAO extends CassandraBaseDAO implements Execution
             workflow.setCreateTime(System.currentTimeMillis());
             List<Task> tasks = workflow.getTasks();
             workflow.setTasks(new LinkedList<>());
-            String payload = toJson(workflow);
+            String payload = serialize(workflow);
 
             recordCassandraDaoRequests("createWorkflow", "n/a", workflow.getWorkflowName());
             recordCassandraDaoPayloadSize("createWorkflow", payload.length(), "n/a", workflow.getWorkflowName());
-            session.execute(insertWorkflowStatement.bind(UUID.fromString(workflow.getWorkflowId()), 1, "", payload, 0, 1));
+            List<Statement> writes = new ArrayList<>(2);
+            writes.add(insertWorkflowStatement.bind(UUID.fromString(workflow.getWorkflowId()), 1, "", payload, 0, 1));
+            getPendingWorkflowStatement(workflow).ifPresent(writes::add);
+            executeAll(writes);
 
             workflow.setTasks(tasks);
             return workflow.getWorkflowId();
@@ -300,10 +426,13 @@ public class CassandraExecutionDAO extends CassandraBaseDAO implements Execution
             }
             List<Task> tasks = workflow.getTasks();
             workflow.setTasks(new LinkedList<>());
-            String payload = toJson(workflow);
+            String payload = serialize(workflow);
             recordCassandraDaoRequests("createWorkflow", "n/a", workflow.getWorkflowName());
             recordCassandraDaoPayloadSize("createWorkflow", payload.length(), "n/a", workflow.getWorkflowName());
-            session.execute(updateWorkflowStatement.bind(payload, UUID.fromString(workflow.getWorkflowId())));
+            List<Statement> writes = new ArrayList<>(2);
+            writes.add(updateWorkflowStatement.bind(payload, UUID.fromString(workflow.getWorkflowId())));
+            getPendingWorkflowStatement(workflow).ifPresent(writes::add);
+            executeAll(writes);
             workflow.setTasks(tasks);
             return workflow.getWorkflowId();
         } catch (Exception e) {
@@ -318,9 +447,22 @@ public class CassandraExecutionDAO extends CassandraBaseDAO implements Execution
     public void removeWorkflow(String workflowId) {
         Workflow workflow = getWorkflow(workflowId, true);
 
-        // TODO: calculate number of shards and iterate
         try {
             recordCassandraDaoRequests("removeWorkflow", "n/a", workflow.getWorkflowName());
+            int totalPartitions = getWorkflowMetadata(workflowId).getTotalPartitions();
+            // the other shards and the task lookups are removed in parallel, then the first shard holding the workflow
+            List<Statement> deletes = new ArrayList<>();
+            for (int shardId = DEFAULT_SHARD_ID + 1; shardId <= totalPartitions; shardId++) {
+                deletes.add(deleteWorkflowStatement.bind(UUID.fromString(workflowId), shardId));
+            }
+            workflow.getTasks().forEach(task -> {
+                deletes.add(getDeleteTaskLookupStatement(task));
+                deletes.add(getDeleteTaskInProgressStatement(task));
+            });
+            if (workflow.getWorkflowName() != null) {
+                deletes.add(getDeletePendingWorkflowStatement(workflow.getWorkflowName(), workflowId));
+            }
+            executeAll(deletes);
             session.execute(deleteWorkflowStatement.bind(UUID.fromString(workflowId), DEFAULT_SHARD_ID));
         } catch (Exception e) {
             Monitors.error(CLASS_NAME, "removeWorkflow");
@@ -328,16 +470,19 @@ public class CassandraExecutionDAO extends CassandraBaseDAO implements Execution
             LOGGER.error(errorMsg, e);
             throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, errorMsg);
         }
-        workflow.getTasks().forEach(this::removeTaskLookup);
     }
 
-    /**
-     * This is a dummy implementation and this feature is not implemented
-     * for Cassandra backed Conductor
-     */
     @Override
     public void removeFromPendingWorkflow(String workflowType, String workflowId) {
-        throw new UnsupportedOperationException("This method is not implemented in CassandraExecutionDAO. Please use ExecutionDAOFacade instead.");
+        try {
+            recordCassandraDaoRequests("removeFromPendingWorkflow", "n/a", workflowType);
+            session.execute(getDeletePendingWorkflowStatement(workflowType, workflowId));
+        } catch (Exception e) {
+            Monitors.error(CLASS_NAME, "removeFromPendingWorkflow");
+            String errorMsg = String.format("Failed to remove workflow: %s from the pending workflows of: %s", workflowId, workflowType);
+            LOGGER.error(errorMsg, e);
+            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, errorMsg, e);
+        }
     }
 
     @Override
@@ -359,6 +504,18 @@ public class CassandraExecutionDAO extends CassandraBaseDAO implements Execution
                     LOGGER.info("Workflow {} not found in datastore", workflowId);
                     return null;
                 }
+                // the other shards are read in parallel, once the first one gives their number
+                int totalPartitions = rows.get(0).isNull(TOTAL_PARTITIONS_KEY) ? DEFAULT_TOTAL_PARTITIONS : rows.get(0).getInt(TOTAL_PARTITIONS_KEY);
+                if (totalPartitions > DEFAULT_TOTAL_PARTITIONS) {
+                    List<ResultSetFuture> shards = new ArrayList<>();
+                    for (int shardId = DEFAULT_SHARD_ID + 1; shardId <= totalPartitions; shardId++) {
+                        shards.add(executeAsync(selectWorkflowWithTasksStatement.bind(UUID.fromString(workflowId), shardId)));
+                    }
+                    rows = new ArrayList<>(rows);
+                    for (ResultSetFuture shard : shards) {
+                        rows.addAll(shard.getUninterruptibly().all());
+                    }
+                }
                 for (Row row : rows) {
                     String entityKey = row.getString(ENTITY_KEY);
                     if (ENTITY_TYPE_WORKFLOW.equals(entityKey)) {
@@ -397,39 +554,46 @@ public class CassandraExecutionDAO extends CassandraBaseDAO implements Execution
     }
 
     /**
-     * This is a dummy implementation and this feature is not implemented
-     * for Cassandra backed Conductor
+     * Reads the buckets of the pending workflows of the type in parallel.
      */
     @Override
     public List<String> getRunningWorkflowIds(String workflowName) {
-        throw new UnsupportedOperationException("This method is not implemented in CassandraExecutionDAO. Please use ExecutionDAOFacade instead.");
+        Preconditions.checkNotNull(workflowName, "workflowName cannot be null");
+        try {
+            recordCassandraDaoRequests("getRunningWorkflowIds", "n/a", workflowName);
+            List<String> workflowIds = new ArrayList<>();
+            for (ResultSetFuture bucket : queryBuckets(selectPendingWorkflowsStatement, workflowName)) {
+                bucket.getUninterruptibly().forEach(row -> workflowIds.add(row.getUUID(WORKFLOW_ID_KEY).toString()));
+            }
+            return workflowIds;
+        } catch (Exception e) {
+            Monitors.error(CLASS_NAME, "getRunningWorkflowIds");
+            String errorMsg = String.format("Failed to get the running workflows of: %s", workflowName);
+            LOGGER.error(errorMsg, e);
+            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, errorMsg, e);
+        }
     }
 
-    /**
-     * This is a dummy implementation and this feature is not implemented
-     * for Cassandra backed Conductor
-     */
     @Override
     public List<Workflow> getPendingWorkflowsByType(String workflowName) {
-        throw new UnsupportedOperationException("This method is not implemented in CassandraExecutionDAO. Please use ExecutionDAOFacade instead.");
+        return getRunningWorkflowIds(workflowName).stream()
+                .map(workflowId -> getWorkflow(workflowId, true))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
-    /**
-     * This is a dummy implementation and this feature is not implemented
-     * for Cassandra backed Conductor
-     */
     @Override
     public long getPendingWorkflowCount(String workflowName) {
-        throw new UnsupportedOperationException("This method is not implemented in CassandraExecutionDAO. Please use ExecutionDAOFacade instead.");
+        Preconditions.checkNotNull(workflowName, "workflowName cannot be null");
+        recordCassandraDaoRequests("getPendingWorkflowCount", "n/a", workflowName);
+        return count(selectPendingWorkflowCountStatement, workflowName, "getPendingWorkflowCount");
     }
 
-    /**
-     * This is a dummy implementation and this feature is not implemented
-     * for Cassandra backed Conductor
-     */
     @Override
     public long getInProgressTaskCount(String taskDefName) {
-        throw new UnsupportedOperationException("This method is not implemented in CassandraExecutionDAO. Please use ExecutionDAOFacade instead.");
+        Preconditions.checkNotNull(taskDefName, "taskDefName cannot be null");
+        recordCassandraDaoRequests("getInProgressTaskCount", taskDefName, "n/a");
+        return count(selectTasksInProgressCountStatement, taskDefName, "getInProgressTaskCount");
     }
 
     /**
@@ -456,84 +620,156 @@ public class CassandraExecutionDAO extends CassandraBaseDAO implements Execution
     }
 
     /**
-     * This is a dummy implementation and this feature is not implemented
-     * for Cassandra backed Conductor
+     * Adds the event execution with a lightweight transaction, so that an event execution is added once.
      */
     @Override
     public boolean addEventExecution(EventExecution ee) {
-        throw new UnsupportedOperationException("This method is not implemented in CassandraExecutionDAO. Please use ExecutionDAOFacade instead.");
+        try {
+            String payload = toJson(ee);
+            recordCassandraDaoEventRequests("addEventExecution", ee.getEvent());
+            recordCassandraDaoPayloadSize("addEventExecution", payload.length(), ee.getEvent(), "n/a");
+            return session.execute(insertEventExecutionStatement.bind(ee.getName(), ee.getEvent(), ee.getMessageId(), ee.getId(), payload))
+                    .wasApplied();
+        } catch (Exception e) {
+            Monitors.error(CLASS_NAME, "addEventExecution");
+            String errorMsg = String.format("Failed to add event execution: %s", ee.getId());
+            LOGGER.error(errorMsg, e);
+            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, errorMsg, e);
+        }
     }
 
-    /**
-     * This is a dummy implementation and this feature is not implemented
-     * for Cassandra backed Conductor
-     */
     @Override
     public void updateEventExecution(EventExecution ee) {
-        throw new UnsupportedOperationException("This method is not implemented in CassandraExecutionDAO. Please use ExecutionDAOFacade instead.");
+        try {
+            String payload = toJson(ee);
+            recordCassandraDaoEventRequests("updateEventExecution", ee.getEvent());
+            recordCassandraDaoPayloadSize("updateEventExecution", payload.length(), ee.getEvent(), "n/a");
+            session.execute(updateEventExecutionStatement.bind(payload, ee.getName(), ee.getEvent(), ee.getMessageId(), ee.getId()));
+        } catch (Exception e) {
+            Monitors.error(CLASS_NAME, "updateEventExecution");
+            String errorMsg = String.format("Failed to update event execution: %s", ee.getId());
+            LOGGER.error(errorMsg, e);
+            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, errorMsg, e);
+        }
     }
 
-    /**
-     * This is a dummy implementation and this feature is not implemented
-     * for Cassandra backed Conductor
-     */
     @Override
     public void removeEventExecution(EventExecution ee) {
-        throw new UnsupportedOperationException("This method is not implemented in CassandraExecutionDAO. Please use ExecutionDAOFacade instead.");
+        try {
+            recordCassandraDaoEventRequests("removeEventExecution", ee.getEvent());
+            session.execute(deleteEventExecutionStatement.bind(ee.getName(), ee.getEvent(), ee.getMessageId(), ee.getId()));
+        } catch (Exception e) {
+            Monitors.error(CLASS_NAME, "removeEventExecution");
+            String errorMsg = String.format("Failed to remove event execution: %s", ee.getId());
+            LOGGER.error(errorMsg, e);
+            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, errorMsg, e);
+        }
     }
 
     /**
-     * This is a dummy implementation and this feature is not implemented
-     * for Cassandra backed Conductor
+     * Returns the executions of the message by the event handler, in the order they were added, the execution ids
+     * being messageId_0, messageId_1... as set by the EventProcessor.
      */
     @Override
     public List<EventExecution> getEventExecutions(String eventHandlerName, String eventName, String messageId, int max) {
-        throw new UnsupportedOperationException("This method is not implemented in CassandraExecutionDAO. Please use ExecutionDAOFacade instead.");
+        try {
+            recordCassandraDaoEventRequests("getEventExecution", eventHandlerName);
+            Map<String, String> payloads = new HashMap<>();
+            session.execute(selectEventExecutionsStatement.bind(eventHandlerName, eventName, messageId))
+                    .forEach(row -> payloads.put(row.getString(EVENT_EXECUTION_ID_KEY), row.getString(PAYLOAD_KEY)));
+            List<EventExecution> executions = new LinkedList<>();
+            for (int i = 0; i < max; i++) {
+                String payload = payloads.get(messageId + "_" + i);
+                if (payload == null) {
+                    break;
+                }
+                recordCassandraDaoPayloadSize("getEventExecution", payload.length(), eventHandlerName, "n/a");
+                executions.add(readValue(payload, EventExecution.class));
+            }
+            return executions;
+        } catch (Exception e) {
+            Monitors.error(CLASS_NAME, "getEventExecutions");
+            String errorMsg = String.format("Failed to get event executions of: %s", eventHandlerName);
+            LOGGER.error(errorMsg, e);
+            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, errorMsg, e);
+        }
     }
 
-    /**
-     * This is a dummy implementation and this feature is not implemented
-     * for Cassandra backed Conductor
-     */
     @Override
     public void updateLastPoll(String taskDefName, String domain, String workerId) {
-        throw new UnsupportedOperationException("This method is not implemented in CassandraExecutionDAO. Please use ExecutionDAOFacade instead.");
+        Preconditions.checkNotNull(taskDefName, "taskDefName name cannot be null");
+        updateLastPolls(Collections.singletonList(new PollData(taskDefName, domain, workerId, System.currentTimeMillis())));
     }
 
     /**
-     * This is a dummy implementation and this feature is not implemented
-     * for Cassandra backed Conductor
+     * Writes the poll data of the queues and domains in parallel.
      */
+    @Override
+    public void updateLastPolls(List<PollData> pollData) {
+        pollData.forEach(data -> Preconditions.checkNotNull(data.getQueueName(), "taskDefName name cannot be null"));
+        try {
+            List<Statement> writes = new ArrayList<>(pollData.size());
+            pollData.forEach(data -> {
+                String payload = toJson(data);
+                recordCassandraDaoRequests("updatePollData");
+                recordCassandraDaoPayloadSize("updatePollData", payload.length(), "n/a", "n/a");
+                writes.add(insertPollDataStatement.bind(data.getQueueName(), getPollDataDomain(data.getDomain()), payload));
+            });
+            executeAll(writes);
+        } catch (Exception e) {
+            Monitors.error(CLASS_NAME, "updateLastPolls");
+            String errorMsg = String.format("Failed to update the poll data of: %s", pollData.stream().map(PollData::getQueueName).collect(Collectors.toList()));
+            LOGGER.error(errorMsg, e);
+            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, errorMsg, e);
+        }
+    }
+
     @Override
     public PollData getPollData(String taskDefName, String domain) {
-        throw new UnsupportedOperationException("This method is not implemented in CassandraExecutionDAO. Please use ExecutionDAOFacade instead.");
+        Preconditions.checkNotNull(taskDefName, "taskDefName name cannot be null");
+        try {
+            recordCassandraDaoRequests("getPollData");
+            return Optional.ofNullable(session.execute(selectPollDataStatement.bind(taskDefName, getPollDataDomain(domain))).one())
+                    .map(row -> readValue(row.getString(PAYLOAD_KEY), PollData.class))
+                    .orElse(null);
+        } catch (Exception e) {
+            Monitors.error(CLASS_NAME, "getPollData");
+            String errorMsg = String.format("Failed to get the poll data of: %s", taskDefName);
+            LOGGER.error(errorMsg, e);
+            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, errorMsg, e);
+        }
     }
 
-    /**
-     * This is a dummy implementation and this feature is not implemented
-     * for Cassandra backed Conductor
-     */
     @Override
     public List<PollData> getPollData(String taskDefName) {
-        throw new UnsupportedOperationException("This method is not implemented in CassandraExecutionDAO. Please use ExecutionDAOFacade instead.");
+        Preconditions.checkNotNull(taskDefName, "taskDefName name cannot be null");
+        try {
+            recordCassandraDaoRequests("getPollData");
+            return session.execute(selectAllPollDataStatement.bind(taskDefName)).all().stream()
+                    .map(row -> readValue(row.getString(PAYLOAD_KEY), PollData.class))
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            Monitors.error(CLASS_NAME, "getPollData");
+            String errorMsg = String.format("Failed to get the poll data of: %s", taskDefName);
+            LOGGER.error(errorMsg, e);
+            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, errorMsg, e);
+        }
     }
 
-    private void removeTask(Task task) {
-        // TODO: calculate shard number based on seq and maxTasksPerShard
+    private void removeTask(Task task, int shardId) {
         try {
             // get total tasks for this workflow
             WorkflowMetadata workflowMetadata = getWorkflowMetadata(task.getWorkflowInstanceId());
             int totalTasks = workflowMetadata.getTotalTasks();
 
-            // remove from task_lookup table
-            removeTaskLookup(task);
-
             recordCassandraDaoRequests("removeTask", task.getTaskType(), task.getWorkflowType());
-            // delete task from workflows table and decrement total tasks by 1
-            BatchStatement batchStatement = new BatchStatement();
-            batchStatement.add(deleteTaskStatement.bind(UUID.fromString(task.getWorkflowInstanceId()), DEFAULT_SHARD_ID, task.getTaskId()));
+            // delete task from workflows table and decrement total tasks by 1, the batch is logged if the task is not in the first shard
+            BatchStatement batchStatement = new BatchStatement(shardId == DEFAULT_SHARD_ID ? BatchStatement.Type.UNLOGGED : BatchStatement.Type.LOGGED);
+            batchStatement.add(deleteTaskStatement.bind(UUID.fromString(task.getWorkflowInstanceId()), shardId, task.getTaskId()));
             batchStatement.add(updateTotalTasksStatement.bind(totalTasks - 1, UUID.fromString(task.getWorkflowInstanceId()), DEFAULT_SHARD_ID));
-            session.execute(batchStatement);
+
+            // remove from task_lookup table and the in progress tasks in parallel
+            executeAll(Arrays.asList(getDeleteTaskLookupStatement(task), getDeleteTaskInProgressStatement(task), batchStatement));
         } catch (Exception e) {
             Monitors.error(CLASS_NAME, "removeTask");
             String errorMsg = String.format("Failed to remove task: %s", task.getTaskId());
@@ -542,9 +778,107 @@ public class CassandraExecutionDAO extends CassandraBaseDAO implements Execution
         }
     }
 
-    private void removeTaskLookup(Task task) {
+    private Statement getDeleteTaskLookupStatement(Task task) {
         recordCassandraDaoRequests("removeTaskLookup", task.getTaskType(), task.getWorkflowType());
-        session.execute(deleteTaskLookupStatement.bind(UUID.fromString(task.getTaskId())));
+        return deleteTaskLookupStatement.bind(UUID.fromString(task.getTaskId()));
+    }
+
+    /**
+     * @return the statement adding the task to the in progress tasks of its definition, or removing it if the task is
+     * not in progress
+     */
+    private Statement getTaskInProgressStatement(Task task) {
+        if (task.getStatus() == Task.Status.IN_PROGRESS) {
+            return insertTaskInProgressStatement.bind(task.getTaskDefName(), getBucket(task.getTaskId()),
+                    UUID.fromString(task.getTaskId()), UUID.fromString(task.getWorkflowInstanceId()));
+        }
+        return getDeleteTaskInProgressStatement(task);
+    }
+
+    private Statement getDeleteTaskInProgressStatement(Task task) {
+        return deleteTaskInProgressStatement.bind(task.getTaskDefName(), getBucket(task.getTaskId()), UUID.fromString(task.getTaskId()));
+    }
+
+    /**
+     * @return the statement adding the workflow to the pending workflows of its type, or removing it if the workflow
+     * has completed, none if the workflow has no type
+     */
+    private Optional<Statement> getPendingWorkflowStatement(Workflow workflow) {
+        if (workflow.getWorkflowName() == null) {
+            return Optional.empty();
+        }
+        if (workflow.getStatus().isTerminal()) {
+            return Optional.of(getDeletePendingWorkflowStatement(workflow.getWorkflowName(), workflow.getWorkflowId()));
+        }
+        return Optional.of(insertPendingWorkflowStatement.bind(workflow.getWorkflowName(), getBucket(workflow.getWorkflowId()),
+                UUID.fromString(workflow.getWorkflowId())));
+    }
+
+    private Statement getDeletePendingWorkflowStatement(String workflowName, String workflowId) {
+        return deletePendingWorkflowStatement.bind(workflowName, getBucket(workflowId), UUID.fromString(workflowId));
+    }
+
+    /**
+     * @return the bucket of the pending workflow or in progress task indexes the entity with the given id is in
+     */
+    @VisibleForTesting
+    int getBucket(String id) {
+        return Math.floorMod(id.hashCode(), indexBuckets);
+    }
+
+    /**
+     * Runs the statement against every bucket of the index partition, in parallel.
+     */
+    private List<ResultSetFuture> queryBuckets(PreparedStatement statement, String name) {
+        List<ResultSetFuture> buckets = new ArrayList<>(indexBuckets);
+        for (int bucket = 0; bucket < indexBuckets; bucket++) {
+            buckets.add(executeAsync(statement.bind(name, bucket)));
+        }
+        return buckets;
+    }
+
+    private long count(PreparedStatement statement, String name, String action) {
+        try {
+            long count = 0;
+            for (ResultSetFuture bucket : queryBuckets(statement, name)) {
+                count += bucket.getUninterruptibly().one().getLong(0);
+            }
+            return count;
+        } catch (Exception e) {
+            Monitors.error(CLASS_NAME, action);
+            String errorMsg = String.format("Failed to count the entries of: %s", name);
+            LOGGER.error(errorMsg, e);
+            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, errorMsg, e);
+        }
+    }
+
+    private String getPollDataDomain(String domain) {
+        return domain == null ? DEFAULT_POLL_DATA_DOMAIN : domain;
+    }
+
+    private Statement getUpdateTaskStatement(Task task, int shardId) {
+        task.setUpdateTime(System.currentTimeMillis());
+        if (task.getStatus().isTerminal() && task.getEndTime() == 0) {
+            task.setEndTime(System.currentTimeMillis());
+        }
+        String taskPayload = serialize(task);
+        recordCassandraDaoRequests("updateTask", task.getTaskType(), task.getWorkflowType());
+        recordCassandraDaoPayloadSize("updateTask", taskPayload.length(), task.getTaskType(), task.getWorkflowType());
+        return insertTaskStatement.bind(UUID.fromString(task.getWorkflowInstanceId()), shardId, task.getTaskId(), taskPayload);
+    }
+
+    /**
+     * Raises the total partitions of the workflow using lightweight transactions, so that concurrent creations of
+     * tasks never lower it. The workflows created before the tasks were sharded may have no total partitions.
+     */
+    private void raiseTotalPartitions(String workflowId, int totalPartitions) {
+        UUID workflowUUID = UUID.fromString(workflowId);
+        ResultSet resultSet = session.execute(updateTotalPartitionsStatement.bind(totalPartitions, workflowUUID, totalPartitions));
+        if (!resultSet.wasApplied() && resultSet.one().isNull(TOTAL_PARTITIONS_KEY)
+                && !session.execute(updateNullTotalPartitionsStatement.bind(totalPartitions, workflowUUID)).wasApplied()) {
+            // the total partitions was set by a concurrent creation of tasks in the meantime
+            session.execute(updateTotalPartitionsStatement.bind(totalPartitions, workflowUUID, totalPartitions));
+        }
     }
 
     @VisibleForTesting
@@ -580,13 +914,60 @@ public class CassandraExecutionDAO extends CassandraBaseDAO implements Execution
                 }).orElseThrow(() -> new ApplicationException(ApplicationException.Code.NOT_FOUND, String.format("Workflow with id: %s not found in data store", workflowId)));
     }
 
+    /**
+     * The shard a task is created in is given by its sequence number. As the shard size may change, the shard is
+     * recorded in the task_lookup table, which is what updates and removals of the task use. The tasks are not sharded
+     * if the shard size is not positive.
+     *
+     * @param task the task
+     * @return the id of the shard the task is created in
+     * @see #lookupShardIds(List)
+     */
+    @VisibleForTesting
+    int getShardId(Task task) {
+        int shardSize = config.getShardSize();
+        if (shardSize <= 0 || task.getSeq() <= 0) {
+            return DEFAULT_SHARD_ID;
+        }
+        return DEFAULT_SHARD_ID + (task.getSeq() - 1) / shardSize;
+    }
+
+    /**
+     * @return the shard of the task in the task_lookup table, the tasks created before the tasks were sharded have no
+     * shard_id, and are in the first shard
+     */
+    private int getLookupShardId(Row taskLookup) {
+        return taskLookup.isNull(SHARD_ID_KEY) ? DEFAULT_SHARD_ID : taskLookup.getInt(SHARD_ID_KEY);
+    }
+
+    /**
+     * Reads the shards of the tasks from the task_lookup table, in parallel. The tasks not in the table yet are in the
+     * shard given by their sequence number.
+     *
+     * @return the shard ids by task id
+     */
+    private Map<String, Integer> lookupShardIds(List<Task> tasks) {
+        Map<String, ResultSetFuture> lookups = new HashMap<>();
+        tasks.forEach(task -> lookups.put(task.getTaskId(), executeAsync(selectTaskLookupStatement.bind(UUID.fromString(task.getTaskId())))));
+        Map<String, Integer> shardIds = new HashMap<>();
+        tasks.forEach(task -> {
+            Row taskLookup = lookups.get(task.getTaskId()).getUninterruptibly().one();
+            shardIds.put(task.getTaskId(), taskLookup == null ? getShardId(task) : getLookupShardId(taskLookup));
+        });
+        return shardIds;
+    }
+
     @VisibleForTesting
     String lookupWorkflowIdFromTaskId(String taskId) {
+        return Optional.ofNullable(lookupTask(taskId))
+                .map(row -> row.getUUID(WORKFLOW_ID_KEY).toString())
+                .orElse(null);
+    }
+
+    private Row lookupTask(String taskId) {
         try {
             ResultSet resultSet = session.execute(selectTaskLookupStatement.bind(UUID.fromString(taskId)));
-            return Optional.ofNullable(resultSet.one())
-                    .map(row -> row.getUUID(WORKFLOW_ID_KEY).toString())
-                    .orElse(null);
+            return resultSet.one();
         } catch (Exception e) {
             Monitors.error(CLASS_NAME, "lookupWorkflowIdFromTaskId");
             String errorMsg = String.format("Failed to lookup workflowId from taskId: %s", taskId);
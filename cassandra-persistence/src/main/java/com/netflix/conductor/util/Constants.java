@@ -18,6 +18,11 @@ public interface Constants {
 
     String TABLE_WORKFLOWS = "workflows";
     String TABLE_TASK_LOOKUP = "task_lookup";
+    String TABLE_PENDING_WORKFLOWS = "pending_workflows";
+    String TABLE_TASKS_IN_PROGRESS = "tasks_in_progress";
+    String TABLE_TASK_RATE_LIMIT = "task_rate_limit";
+    String TABLE_POLL_DATA = "poll_data";
+    String TABLE_EVENT_EXECUTIONS = "event_executions";
 
     String WORKFLOW_ID_KEY = "workflow_id";
     String SHARD_ID_KEY = "shard_id";
@@ -26,11 +31,23 @@ public interface Constants {
     String PAYLOAD_KEY = "payload";
     String TOTAL_TASKS_KEY = "total_tasks";
     String TOTAL_PARTITIONS_KEY = "total_partitions";
+    String WORKFLOW_NAME_KEY = "workflow_name";
+    String TASK_DEF_NAME_KEY = "task_def_name";
+    String BUCKET_KEY = "bucket";
+    String WINDOW_START_KEY = "window_start";
+    String QUEUE_NAME_KEY = "queue_name";
+    String DOMAIN_KEY = "domain";
+    String EVENT_HANDLER_NAME_KEY = "event_handler_name";
+    String EVENT_NAME_KEY = "event_name";
+    String MESSAGE_ID_KEY = "message_id";
+    String EVENT_EXECUTION_ID_KEY = "event_execution_id";
 
     String ENTITY_TYPE_WORKFLOW = "workflow";
     String ENTITY_TYPE_TASK = "task";
 
     int DEFAULT_SHARD_ID = 1;
     int DEFAULT_TOTAL_PARTITIONS = 1;
+
+    String DEFAULT_POLL_DATA_DOMAIN = "DEFAULT";
 }
 
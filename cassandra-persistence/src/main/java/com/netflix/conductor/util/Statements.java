@@ -19,39 +19,72 @@ import javax.inject.Inject;
 
 import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.lt;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.set;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.ttl;
+import static com.netflix.conductor.util.Constants.BUCKET_KEY;
+import static com.netflix.conductor.util.Constants.DOMAIN_KEY;
 import static com.netflix.conductor.util.Constants.ENTITY_KEY;
 import static com.netflix.conductor.util.Constants.ENTITY_TYPE_TASK;
 import static com.netflix.conductor.util.Constants.ENTITY_TYPE_WORKFLOW;
+import static com.netflix.conductor.util.Constants.EVENT_EXECUTION_ID_KEY;
+import static com.netflix.conductor.util.Constants.EVENT_HANDLER_NAME_KEY;
+import static com.netflix.conductor.util.Constants.EVENT_NAME_KEY;
+import static com.netflix.conductor.util.Constants.MESSAGE_ID_KEY;
 import static com.netflix.conductor.util.Constants.PAYLOAD_KEY;
+import static com.netflix.conductor.util.Constants.QUEUE_NAME_KEY;
 import static com.netflix.conductor.util.Constants.SHARD_ID_KEY;
+import static com.netflix.conductor.util.Constants.TABLE_EVENT_EXECUTIONS;
+import static com.netflix.conductor.util.Constants.TABLE_PENDING_WORKFLOWS;
+import static com.netflix.conductor.util.Constants.TABLE_POLL_DATA;
+import static com.netflix.conductor.util.Constants.TABLE_TASKS_IN_PROGRESS;
 import static com.netflix.conductor.util.Constants.TABLE_TASK_LOOKUP;
+import static com.netflix.conductor.util.Constants.TABLE_TASK_RATE_LIMIT;
 import static com.netflix.conductor.util.Constants.TABLE_WORKFLOWS;
+import static com.netflix.conductor.util.Constants.TASK_DEF_NAME_KEY;
 import static com.netflix.conductor.util.Constants.TASK_ID_KEY;
 import static com.netflix.conductor.util.Constants.TOTAL_PARTITIONS_KEY;
 import static com.netflix.conductor.util.Constants.TOTAL_TASKS_KEY;
+import static com.netflix.conductor.util.Constants.WINDOW_START_KEY;
 import static com.netflix.conductor.util.Constants.WORKFLOW_ID_KEY;
+import static com.netflix.conductor.util.Constants.WORKFLOW_NAME_KEY;
 
 /**
  * DML statements
  * <p>
  * INSERT INTO conductor.workflows (workflow_id,shard_id,task_id,entity,payload,total_tasks,total_partitions) VALUES (?,?,?,'workflow',?,?,?);
  * INSERT INTO conductor.workflows (workflow_id,shard_id,task_id,entity,payload) VALUES (?,?,?,'task',?);
+ * INSERT INTO conductor.pending_workflows (workflow_name,bucket,workflow_id) VALUES (?,?,?);
+ * INSERT INTO conductor.tasks_in_progress (task_def_name,bucket,task_id,workflow_id) VALUES (?,?,?,?);
+ * INSERT INTO conductor.task_rate_limit (task_def_name,window_start,task_id) VALUES (?,?,?) USING TTL ?;
+ * INSERT INTO conductor.poll_data (queue_name,domain,payload) VALUES (?,?,?);
+ * INSERT INTO conductor.event_executions (event_handler_name,event_name,message_id,event_execution_id,payload) VALUES (?,?,?,?,?) IF NOT EXISTS;
  * <p>
  * SELECT total_tasks,total_partitions FROM conductor.workflows WHERE workflow_id=? AND shard_id=1;
  * SELECT payload FROM conductor.workflows WHERE workflow_id=? AND shard_id=? AND entity='task' AND task_id=?;
  * SELECT payload FROM conductor.workflows WHERE workflow_id=? AND shard_id=1 AND entity='workflow';
  * SELECT * FROM conductor.workflows WHERE workflow_id=? AND shard_id=?;
- * SELECT workflow_id FROM conductor.task_lookup WHERE task_id=?;
+ * SELECT workflow_id,shard_id FROM conductor.task_lookup WHERE task_id=?;
+ * SELECT workflow_id FROM conductor.pending_workflows WHERE workflow_name=? AND bucket=?;
+ * SELECT count(*) FROM conductor.pending_workflows WHERE workflow_name=? AND bucket=?;
+ * SELECT count(*) FROM conductor.tasks_in_progress WHERE task_def_name=? AND bucket=?;
+ * SELECT count(*) FROM conductor.task_rate_limit WHERE task_def_name=? AND window_start=?;
+ * SELECT payload FROM conductor.poll_data WHERE queue_name=? AND domain=?;
+ * SELECT payload FROM conductor.poll_data WHERE queue_name=?;
+ * SELECT event_execution_id,payload FROM conductor.event_executions WHERE event_handler_name=? AND event_name=? AND message_id=?;
  * <p>
  * UPDATE conductor.workflows SET payload=? WHERE workflow_id=? AND shard_id=1 AND entity='workflow' AND task_id='';
  * UPDATE conductor.workflows SET total_tasks=? WHERE workflow_id=? AND shard_id=?;
  * UPDATE conductor.workflows SET total_partitions=?,total_tasks=? WHERE workflow_id=? AND shard_id=1;
- * UPDATE conductor.task_lookup SET workflow_id=? WHERE task_id=?;
+ * UPDATE conductor.task_lookup SET workflow_id=?,shard_id=? WHERE task_id=?;
+ * UPDATE conductor.event_executions SET payload=? WHERE event_handler_name=? AND event_name=? AND message_id=? AND event_execution_id=?;
  * <p>
  * DELETE FROM conductor.workflows WHERE workflow_id=? AND shard_id=?;
  * DELETE FROM conductor.workflows WHERE workflow_id=? AND shard_id=? AND entity='task' AND task_id=?;
  * DELETE FROM conductor.task_lookup WHERE task_id=?;
+ * DELETE FROM conductor.pending_workflows WHERE workflow_name=? AND bucket=? AND workflow_id=?;
+ * DELETE FROM conductor.tasks_in_progress WHERE task_def_name=? AND bucket=? AND task_id=?;
+ * DELETE FROM conductor.event_executions WHERE event_handler_name=? AND event_name=? AND message_id=? AND event_execution_id=?;
  */
 public class Statements {
     private final String keyspace;
@@ -91,6 +124,66 @@ public class Statements {
                 .getQueryString();
     }
 
+    /**
+     * @return cql query statement to add a workflow to the pending workflows of its type in the "pending_workflows" table
+     */
+    public String getInsertPendingWorkflowStatement() {
+        return QueryBuilder.insertInto(keyspace, TABLE_PENDING_WORKFLOWS)
+                .value(WORKFLOW_NAME_KEY, bindMarker())
+                .value(BUCKET_KEY, bindMarker())
+                .value(WORKFLOW_ID_KEY, bindMarker())
+                .getQueryString();
+    }
+
+    /**
+     * @return cql query statement to add a task to the in progress tasks of its definition in the "tasks_in_progress" table
+     */
+    public String getInsertTaskInProgressStatement() {
+        return QueryBuilder.insertInto(keyspace, TABLE_TASKS_IN_PROGRESS)
+                .value(TASK_DEF_NAME_KEY, bindMarker())
+                .value(BUCKET_KEY, bindMarker())
+                .value(TASK_ID_KEY, bindMarker())
+                .value(WORKFLOW_ID_KEY, bindMarker())
+                .getQueryString();
+    }
+
+    /**
+     * @return cql query statement to count a task in the rate limit window of its definition in the "task_rate_limit" table
+     */
+    public String getInsertTaskRateLimitStatement() {
+        return QueryBuilder.insertInto(keyspace, TABLE_TASK_RATE_LIMIT)
+                .value(TASK_DEF_NAME_KEY, bindMarker())
+                .value(WINDOW_START_KEY, bindMarker())
+                .value(TASK_ID_KEY, bindMarker())
+                .using(ttl(bindMarker()))
+                .getQueryString();
+    }
+
+    /**
+     * @return cql query statement to insert or replace the poll data of a queue and domain into the "poll_data" table
+     */
+    public String getInsertPollDataStatement() {
+        return QueryBuilder.insertInto(keyspace, TABLE_POLL_DATA)
+                .value(QUEUE_NAME_KEY, bindMarker())
+                .value(DOMAIN_KEY, bindMarker())
+                .value(PAYLOAD_KEY, bindMarker())
+                .getQueryString();
+    }
+
+    /**
+     * @return cql query statement to insert a new event execution into the "event_executions" table, if it does not exist
+     */
+    public String getInsertEventExecutionStatement() {
+        return QueryBuilder.insertInto(keyspace, TABLE_EVENT_EXECUTIONS)
+                .value(EVENT_HANDLER_NAME_KEY, bindMarker())
+                .value(EVENT_NAME_KEY, bindMarker())
+                .value(MESSAGE_ID_KEY, bindMarker())
+                .value(EVENT_EXECUTION_ID_KEY, bindMarker())
+                .value(PAYLOAD_KEY, bindMarker())
+                .ifNotExists()
+                .getQueryString();
+    }
+
     // Select Statements
 
     /**
@@ -142,15 +235,95 @@ public class Statements {
     }
 
     /**
-     * @return cql query statement to retrieve the workflow_id for a particular task_id from the "task_lookup" table
+     * @return cql query statement to retrieve the workflow_id and shard_id for a particular task_id from the "task_lookup" table
      */
     public String getSelectTaskFromLookupTableStatement() {
-        return QueryBuilder.select(WORKFLOW_ID_KEY)
+        return QueryBuilder.select(WORKFLOW_ID_KEY, SHARD_ID_KEY)
                 .from(keyspace, TABLE_TASK_LOOKUP)
                 .where(eq(TASK_ID_KEY, bindMarker()))
                 .getQueryString();
     }
 
+    /**
+     * @return cql query statement to retrieve the pending workflows of a type in a bucket from the "pending_workflows" table
+     */
+    public String getSelectPendingWorkflowsStatement() {
+        return QueryBuilder.select(WORKFLOW_ID_KEY)
+                .from(keyspace, TABLE_PENDING_WORKFLOWS)
+                .where(eq(WORKFLOW_NAME_KEY, bindMarker()))
+                .and(eq(BUCKET_KEY, bindMarker()))
+                .getQueryString();
+    }
+
+    /**
+     * @return cql query statement to count the pending workflows of a type in a bucket in the "pending_workflows" table
+     */
+    public String getSelectPendingWorkflowCountStatement() {
+        return QueryBuilder.select()
+                .countAll()
+                .from(keyspace, TABLE_PENDING_WORKFLOWS)
+                .where(eq(WORKFLOW_NAME_KEY, bindMarker()))
+                .and(eq(BUCKET_KEY, bindMarker()))
+                .getQueryString();
+    }
+
+    /**
+     * @return cql query statement to count the in progress tasks of a definition in a bucket in the "tasks_in_progress" table
+     */
+    public String getSelectTasksInProgressCountStatement() {
+        return QueryBuilder.select()
+                .countAll()
+                .from(keyspace, TABLE_TASKS_IN_PROGRESS)
+                .where(eq(TASK_DEF_NAME_KEY, bindMarker()))
+                .and(eq(BUCKET_KEY, bindMarker()))
+                .getQueryString();
+    }
+
+    /**
+     * @return cql query statement to count the tasks of a definition in a rate limit window in the "task_rate_limit" table
+     */
+    public String getSelectTaskRateLimitCountStatement() {
+        return QueryBuilder.select()
+                .countAll()
+                .from(keyspace, TABLE_TASK_RATE_LIMIT)
+                .where(eq(TASK_DEF_NAME_KEY, bindMarker()))
+                .and(eq(WINDOW_START_KEY, bindMarker()))
+                .getQueryString();
+    }
+
+    /**
+     * @return cql query statement to retrieve the poll data of a queue and domain from the "poll_data" table
+     */
+    public String getSelectPollDataStatement() {
+        return QueryBuilder.select(PAYLOAD_KEY)
+                .from(keyspace, TABLE_POLL_DATA)
+                .where(eq(QUEUE_NAME_KEY, bindMarker()))
+                .and(eq(DOMAIN_KEY, bindMarker()))
+                .getQueryString();
+    }
+
+    /**
+     * @return cql query statement to retrieve the poll data of a queue for all the domains from the "poll_data" table
+     */
+    public String getSelectAllPollDataStatement() {
+        return QueryBuilder.select(PAYLOAD_KEY)
+                .from(keyspace, TABLE_POLL_DATA)
+                .where(eq(QUEUE_NAME_KEY, bindMarker()))
+                .getQueryString();
+    }
+
+    /**
+     * @return cql query statement to retrieve the executions of an event handler for a message from the "event_executions" table
+     */
+    public String getSelectEventExecutionsStatement() {
+        return QueryBuilder.select(EVENT_EXECUTION_ID_KEY, PAYLOAD_KEY)
+                .from(keyspace, TABLE_EVENT_EXECUTIONS)
+                .where(eq(EVENT_HANDLER_NAME_KEY, bindMarker()))
+                .and(eq(EVENT_NAME_KEY, bindMarker()))
+                .and(eq(MESSAGE_ID_KEY, bindMarker()))
+                .getQueryString();
+    }
+
     // Update Statements
 
     /**
@@ -178,27 +351,53 @@ public class Statements {
     }
 
     /**
-     * @return cql query statement to update the total_partitions for a workflow in the "workflows" table
+     * @return cql query statement to raise the total_partitions for a workflow in the "workflows" table, if it is lower
      */
     public String getUpdateTotalPartitionsStatement() {
         return QueryBuilder.update(keyspace, TABLE_WORKFLOWS)
                 .with(set(TOTAL_PARTITIONS_KEY, bindMarker()))
-                .and(set(TOTAL_TASKS_KEY, bindMarker()))
                 .where(eq(WORKFLOW_ID_KEY, bindMarker()))
                 .and(eq(SHARD_ID_KEY, 1))
+                .onlyIf(lt(TOTAL_PARTITIONS_KEY, bindMarker()))
                 .getQueryString();
     }
 
     /**
-     * @return cql query statement to add a new task_id to workflow_id mapping to the "task_lookup" table
+     * @return cql query statement to set the total_partitions for a workflow in the "workflows" table, if it has none
+     */
+    public String getUpdateNullTotalPartitionsStatement() {
+        return QueryBuilder.update(keyspace, TABLE_WORKFLOWS)
+                .with(set(TOTAL_PARTITIONS_KEY, bindMarker()))
+                .where(eq(WORKFLOW_ID_KEY, bindMarker()))
+                .and(eq(SHARD_ID_KEY, 1))
+                .onlyIf(eq(TOTAL_PARTITIONS_KEY, null))
+                .getQueryString();
+    }
+
+    /**
+     * @return cql query statement to add a new task_id to workflow_id and shard_id mapping to the "task_lookup" table
      */
     public String getUpdateTaskLookupStatement() {
         return QueryBuilder.update(keyspace, TABLE_TASK_LOOKUP)
                 .with(set(WORKFLOW_ID_KEY, bindMarker()))
+                .and(set(SHARD_ID_KEY, bindMarker()))
                 .where(eq(TASK_ID_KEY, bindMarker()))
                 .getQueryString();
     }
 
+    /**
+     * @return cql query statement to update an event execution in the "event_executions" table
+     */
+    public String getUpdateEventExecutionStatement() {
+        return QueryBuilder.update(keyspace, TABLE_EVENT_EXECUTIONS)
+                .with(set(PAYLOAD_KEY, bindMarker()))
+                .where(eq(EVENT_HANDLER_NAME_KEY, bindMarker()))
+                .and(eq(EVENT_NAME_KEY, bindMarker()))
+                .and(eq(MESSAGE_ID_KEY, bindMarker()))
+                .and(eq(EVENT_EXECUTION_ID_KEY, bindMarker()))
+                .getQueryString();
+    }
+
     // Delete statements
 
     /**
@@ -234,4 +433,41 @@ public class Statements {
                 .and(eq(TASK_ID_KEY, bindMarker()))
                 .getQueryString();
     }
+
+    /**
+     * @return cql query statement to remove a workflow from the pending workflows of its type in the "pending_workflows" table
+     */
+    public String getDeletePendingWorkflowStatement() {
+        return QueryBuilder.delete()
+                .from(keyspace, TABLE_PENDING_WORKFLOWS)
+                .where(eq(WORKFLOW_NAME_KEY, bindMarker()))
+                .and(eq(BUCKET_KEY, bindMarker()))
+                .and(eq(WORKFLOW_ID_KEY, bindMarker()))
+                .getQueryString();
+    }
+
+    /**
+     * @return cql query statement to remove a task from the in progress tasks of its definition in the "tasks_in_progress" table
+     */
+    public String getDeleteTaskInProgressStatement() {
+        return QueryBuilder.delete()
+                .from(keyspace, TABLE_TASKS_IN_PROGRESS)
+                .where(eq(TASK_DEF_NAME_KEY, bindMarker()))
+                .and(eq(BUCKET_KEY, bindMarker()))
+                .and(eq(TASK_ID_KEY, bindMarker()))
+                .getQueryString();
+    }
+
+    /**
+     * @return cql query statement to delete an event execution from the "event_executions" table
+     */
+    public String getDeleteEventExecutionStatement() {
+        return QueryBuilder.delete()
+                .from(keyspace, TABLE_EVENT_EXECUTIONS)
+                .where(eq(EVENT_HANDLER_NAME_KEY, bindMarker()))
+                .and(eq(EVENT_NAME_KEY, bindMarker()))
+                .and(eq(MESSAGE_ID_KEY, bindMarker()))
+                .and(eq(EVENT_EXECUTION_ID_KEY, bindMarker()))
+                .getQueryString();
+    }
 }
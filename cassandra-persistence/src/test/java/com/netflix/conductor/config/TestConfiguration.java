@@ -146,6 +146,16 @@ public class TestConfiguration implements CassandraConfiguration {
         return "junit";
     }
 
+    @Override
+    public int getMaxConcurrentRequests() {
+        return CASSANDRA_MAX_CONCURRENT_REQUESTS_DEFAULT_VALUE;
+    }
+
+    @Override
+    public int getIndexBuckets() {
+        return CASSANDRA_INDEX_BUCKETS_DEFAULT_VALUE;
+    }
+
     @Override
     public String getReplicationStrategy() {
         return CASSANDRA_REPLICATION_STRATEGY_DEFAULT_VALUE;
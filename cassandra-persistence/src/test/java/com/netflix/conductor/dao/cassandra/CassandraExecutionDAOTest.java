@@ -14,7 +14,11 @@ package com.netflix.conductor.dao.cassandra;
 
 import com.datastax.driver.core.Session;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.conductor.common.metadata.events.EventExecution;
+import com.netflix.conductor.common.metadata.tasks.PollData;
 import com.netflix.conductor.common.metadata.tasks.Task;
+import com.netflix.conductor.common.metadata.tasks.TaskDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowTask;
 import com.netflix.conductor.common.run.Workflow;
 import com.netflix.conductor.common.utils.JsonMapperProvider;
 import com.netflix.conductor.config.TestConfiguration;
@@ -30,13 +34,16 @@ import org.junit.rules.ExpectedException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 
 import static com.netflix.conductor.dao.cassandra.CassandraBaseDAO.WorkflowMetadata;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class CassandraExecutionDAOTest {
     private final TestConfiguration testConfiguration = new TestConfiguration();
@@ -256,4 +263,242 @@ public class CassandraExecutionDAOTest {
         foundId = executionDAO.lookupWorkflowIdFromTaskId(task2Id);
         assertNull(foundId);
     }
+
+    @Test
+    public void testTasksAcrossShards() {
+        TestConfiguration shardedConfiguration = new TestConfiguration() {
+            @Override
+            public int getShardSize() {
+                return 2;
+            }
+        };
+        CassandraExecutionDAO shardedExecutionDAO = new CassandraExecutionDAO(embeddedCassandra.getSession(), objectMapper,
+                shardedConfiguration, new Statements(shardedConfiguration));
+
+        String workflowId = IDGenerator.generate();
+        Workflow workflow = new Workflow();
+        workflow.setWorkflowId(workflowId);
+        workflow.setInput(new HashMap<>());
+        workflow.setStatus(Workflow.WorkflowStatus.RUNNING);
+        shardedExecutionDAO.createWorkflow(workflow);
+
+        // 2 tasks per shard, the 5 tasks are in 3 shards
+        List<Task> taskList = new ArrayList<>();
+        for (int seq = 1; seq <= 5; seq++) {
+            Task task = new Task();
+            task.setWorkflowInstanceId(workflowId);
+            task.setTaskType("task" + seq);
+            task.setReferenceTaskName("task" + seq);
+            task.setStatus(Task.Status.SCHEDULED);
+            task.setTaskId(IDGenerator.generate());
+            task.setSeq(seq);
+            taskList.add(task);
+        }
+        shardedExecutionDAO.createTasks(taskList.subList(0, 3));
+        shardedExecutionDAO.createTasks(taskList.subList(3, 5));
+        assertEquals(1, shardedExecutionDAO.getShardId(taskList.get(1)));
+        assertEquals(2, shardedExecutionDAO.getShardId(taskList.get(2)));
+        assertEquals(3, shardedExecutionDAO.getShardId(taskList.get(4)));
+
+        WorkflowMetadata workflowMetadata = shardedExecutionDAO.getWorkflowMetadata(workflowId);
+        assertEquals(5, workflowMetadata.getTotalTasks());
+        assertEquals(3, workflowMetadata.getTotalPartitions());
+
+        // the tasks are read from all the shards
+        Workflow found = shardedExecutionDAO.getWorkflow(workflowId, true);
+        assertEquals(5, found.getTasks().size());
+        taskList.forEach(task -> assertEquals(task, found.getTaskByRefName(task.getReferenceTaskName())));
+        assertEquals(taskList.get(4), shardedExecutionDAO.getTask(taskList.get(4).getTaskId()));
+
+        // update a task in a shard other than the first one
+        Task task5 = taskList.get(4);
+        task5.setStatus(Task.Status.COMPLETED);
+        shardedExecutionDAO.updateTask(task5);
+        assertEquals(task5, shardedExecutionDAO.getTask(task5.getTaskId()));
+        assertEquals(5, shardedExecutionDAO.getWorkflow(workflowId, true).getTasks().size());
+
+        // update tasks of several shards, batched by shard
+        taskList.subList(0, 3).forEach(task -> task.setStatus(Task.Status.IN_PROGRESS));
+        shardedExecutionDAO.updateTasks(taskList.subList(0, 3));
+        Workflow updated = shardedExecutionDAO.getWorkflow(workflowId, true);
+        taskList.forEach(task -> assertEquals(task, updated.getTaskByRefName(task.getReferenceTaskName())));
+
+        // the tasks stay in their shards once the shard size changes, and the total partitions is not lowered
+        TestConfiguration reshardedConfiguration = new TestConfiguration() {
+            @Override
+            public int getShardSize() {
+                return 10;
+            }
+        };
+        CassandraExecutionDAO reshardedExecutionDAO = new CassandraExecutionDAO(embeddedCassandra.getSession(), objectMapper,
+                reshardedConfiguration, new Statements(reshardedConfiguration));
+        task5.setStatus(Task.Status.FAILED);
+        reshardedExecutionDAO.updateTask(task5);
+        assertEquals(task5, reshardedExecutionDAO.getTask(task5.getTaskId()));
+        assertEquals(5, reshardedExecutionDAO.getWorkflow(workflowId, true).getTasks().size());
+
+        Task task6 = new Task();
+        task6.setWorkflowInstanceId(workflowId);
+        task6.setTaskType("task6");
+        task6.setReferenceTaskName("task6");
+        task6.setStatus(Task.Status.SCHEDULED);
+        task6.setTaskId(IDGenerator.generate());
+        task6.setSeq(6);
+        reshardedExecutionDAO.createTasks(Collections.singletonList(task6));
+        assertEquals(3, reshardedExecutionDAO.getWorkflowMetadata(workflowId).getTotalPartitions());
+        assertEquals(6, reshardedExecutionDAO.getWorkflow(workflowId, true).getTasks().size());
+        reshardedExecutionDAO.removeTask(task6.getTaskId());
+        assertNull(reshardedExecutionDAO.getTask(task6.getTaskId()));
+
+        // remove a task in a shard other than the first one
+        shardedExecutionDAO.removeTask(taskList.get(3).getTaskId());
+        assertNull(shardedExecutionDAO.getTask(taskList.get(3).getTaskId()));
+        assertEquals(4, shardedExecutionDAO.getWorkflow(workflowId, true).getTasks().size());
+        assertEquals(4, shardedExecutionDAO.getWorkflowMetadata(workflowId).getTotalTasks());
+
+        // remove the workflow from all the shards
+        shardedExecutionDAO.removeWorkflow(workflowId);
+        assertNull(shardedExecutionDAO.getWorkflow(workflowId, true));
+        assertNull(shardedExecutionDAO.getTask(task5.getTaskId()));
+        assertNull(shardedExecutionDAO.lookupWorkflowIdFromTaskId(task5.getTaskId()));
+    }
+
+    @Test
+    public void testPendingWorkflows() {
+        String workflowName = "pending_workflow";
+        List<String> workflowIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Workflow workflow = new Workflow();
+            workflow.setWorkflowId(IDGenerator.generate());
+            workflow.setWorkflowType(workflowName);
+            workflow.setStatus(Workflow.WorkflowStatus.RUNNING);
+            executionDAO.createWorkflow(workflow);
+            workflowIds.add(workflow.getWorkflowId());
+        }
+        assertEquals(3, executionDAO.getPendingWorkflowCount(workflowName));
+        assertTrue(executionDAO.getRunningWorkflowIds(workflowName).containsAll(workflowIds));
+        assertEquals(3, executionDAO.getPendingWorkflowsByType(workflowName).size());
+
+        // a completed workflow is no longer pending
+        Workflow completed = executionDAO.getWorkflow(workflowIds.get(0), false);
+        completed.setStatus(Workflow.WorkflowStatus.COMPLETED);
+        executionDAO.updateWorkflow(completed);
+        assertEquals(2, executionDAO.getPendingWorkflowCount(workflowName));
+
+        executionDAO.removeFromPendingWorkflow(workflowName, workflowIds.get(1));
+        assertEquals(Collections.singletonList(workflowIds.get(2)), executionDAO.getRunningWorkflowIds(workflowName));
+
+        executionDAO.removeWorkflow(workflowIds.get(2));
+        assertEquals(0, executionDAO.getPendingWorkflowCount(workflowName));
+    }
+
+    @Test
+    public void testInProgressTasks() {
+        String workflowId = IDGenerator.generate();
+        Workflow workflow = new Workflow();
+        workflow.setWorkflowId(workflowId);
+        workflow.setStatus(Workflow.WorkflowStatus.RUNNING);
+        executionDAO.createWorkflow(workflow);
+
+        TaskDef taskDef = new TaskDef("in_progress_task");
+        taskDef.setConcurrentExecLimit(2);
+        WorkflowTask workflowTask = new WorkflowTask();
+        workflowTask.setTaskDefinition(taskDef);
+
+        List<Task> tasks = new ArrayList<>();
+        for (int seq = 1; seq <= 3; seq++) {
+            Task task = new Task();
+            task.setWorkflowInstanceId(workflowId);
+            task.setTaskType(taskDef.getName());
+            task.setReferenceTaskName("task" + seq);
+            task.setStatus(Task.Status.SCHEDULED);
+            task.setTaskId(IDGenerator.generate());
+            task.setSeq(seq);
+            task.setWorkflowTask(workflowTask);
+            tasks.add(task);
+        }
+        tasks.get(0).setStatus(Task.Status.IN_PROGRESS);
+        executionDAO.createTasks(tasks);
+        assertEquals(1, executionDAO.getInProgressTaskCount(taskDef.getName()));
+        assertFalse(executionDAO.exceedsInProgressLimit(tasks.get(1)));
+
+        tasks.get(1).setStatus(Task.Status.IN_PROGRESS);
+        executionDAO.updateTask(tasks.get(1));
+        assertEquals(2, executionDAO.getInProgressTaskCount(taskDef.getName()));
+        assertTrue(executionDAO.exceedsInProgressLimit(tasks.get(2)));
+
+        // a completed task is no longer in progress
+        tasks.get(0).setStatus(Task.Status.COMPLETED);
+        executionDAO.updateTasks(Collections.singletonList(tasks.get(0)));
+        assertEquals(1, executionDAO.getInProgressTaskCount(taskDef.getName()));
+        assertFalse(executionDAO.exceedsInProgressLimit(tasks.get(2)));
+
+        executionDAO.removeTask(tasks.get(1).getTaskId());
+        assertEquals(0, executionDAO.getInProgressTaskCount(taskDef.getName()));
+    }
+
+    @Test
+    public void testExceedsRateLimitPerFrequency() {
+        Task task = new Task();
+        task.setTaskType("rate_limited_task");
+        task.setRateLimitPerFrequency(0);
+        task.setRateLimitFrequencyInSeconds(60);
+        task.setTaskId(IDGenerator.generate());
+        assertFalse(executionDAO.exceedsRateLimitPerFrequency(task));
+
+        task.setRateLimitPerFrequency(2);
+        assertFalse(executionDAO.exceedsRateLimitPerFrequency(task));
+        task.setTaskId(IDGenerator.generate());
+        assertFalse(executionDAO.exceedsRateLimitPerFrequency(task));
+        task.setTaskId(IDGenerator.generate());
+        assertTrue(executionDAO.exceedsRateLimitPerFrequency(task));
+    }
+
+    @Test
+    public void testPollData() {
+        executionDAO.updateLastPoll("poll_task", null, "worker1");
+        PollData pollData = executionDAO.getPollData("poll_task", null);
+        assertNotNull(pollData);
+        assertEquals("worker1", pollData.getWorkerId());
+
+        executionDAO.updateLastPolls(Arrays.asList(new PollData("poll_task", "domain1", "worker2", System.currentTimeMillis()),
+                new PollData("poll_task", null, "worker3", System.currentTimeMillis())));
+        assertEquals("worker3", executionDAO.getPollData("poll_task", null).getWorkerId());
+        assertEquals("worker2", executionDAO.getPollData("poll_task", "domain1").getWorkerId());
+        assertEquals(2, executionDAO.getPollData("poll_task").size());
+        assertNull(executionDAO.getPollData("poll_task", "domain2"));
+    }
+
+    @Test
+    public void testEventExecutions() {
+        String messageId = IDGenerator.generate();
+        EventExecution eventExecution1 = createEventExecution(messageId + "_0", messageId);
+        assertTrue(executionDAO.addEventExecution(eventExecution1));
+        // an event execution is only added once
+        assertFalse(executionDAO.addEventExecution(eventExecution1));
+        EventExecution eventExecution2 = createEventExecution(messageId + "_1", messageId);
+        assertTrue(executionDAO.addEventExecution(eventExecution2));
+
+        List<EventExecution> eventExecutions = executionDAO.getEventExecutions("handler", "event", messageId, 5);
+        assertEquals(2, eventExecutions.size());
+        assertEquals(eventExecution1.getId(), eventExecutions.get(0).getId());
+        assertEquals(eventExecution2.getId(), eventExecutions.get(1).getId());
+        assertEquals(1, executionDAO.getEventExecutions("handler", "event", messageId, 1).size());
+
+        eventExecution1.setStatus(EventExecution.Status.COMPLETED);
+        executionDAO.updateEventExecution(eventExecution1);
+        assertEquals(EventExecution.Status.COMPLETED,
+                executionDAO.getEventExecutions("handler", "event", messageId, 1).get(0).getStatus());
+
+        executionDAO.removeEventExecution(eventExecution2);
+        assertEquals(1, executionDAO.getEventExecutions("handler", "event", messageId, 5).size());
+    }
+
+    private EventExecution createEventExecution(String id, String messageId) {
+        EventExecution eventExecution = new EventExecution(id, messageId);
+        eventExecution.setName("handler");
+        eventExecution.setEvent("event");
+        eventExecution.setStatus(EventExecution.Status.IN_PROGRESS);
+        return eventExecution;
+    }
 }
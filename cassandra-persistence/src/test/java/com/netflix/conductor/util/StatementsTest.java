@@ -28,6 +28,36 @@ public class StatementsTest {
         assertEquals(statement, statements.getInsertTaskStatement());
     }
 
+    @Test
+    public void testGetInsertPendingWorkflowStatement() {
+        String statement = "INSERT INTO junit.pending_workflows (workflow_name,bucket,workflow_id) VALUES (?,?,?);";
+        assertEquals(statement, statements.getInsertPendingWorkflowStatement());
+    }
+
+    @Test
+    public void testGetInsertTaskInProgressStatement() {
+        String statement = "INSERT INTO junit.tasks_in_progress (task_def_name,bucket,task_id,workflow_id) VALUES (?,?,?,?);";
+        assertEquals(statement, statements.getInsertTaskInProgressStatement());
+    }
+
+    @Test
+    public void testGetInsertTaskRateLimitStatement() {
+        String statement = "INSERT INTO junit.task_rate_limit (task_def_name,window_start,task_id) VALUES (?,?,?) USING TTL ?;";
+        assertEquals(statement, statements.getInsertTaskRateLimitStatement());
+    }
+
+    @Test
+    public void testGetInsertPollDataStatement() {
+        String statement = "INSERT INTO junit.poll_data (queue_name,domain,payload) VALUES (?,?,?);";
+        assertEquals(statement, statements.getInsertPollDataStatement());
+    }
+
+    @Test
+    public void testGetInsertEventExecutionStatement() {
+        String statement = "INSERT INTO junit.event_executions (event_handler_name,event_name,message_id,event_execution_id,payload) VALUES (?,?,?,?,?) IF NOT EXISTS;";
+        assertEquals(statement, statements.getInsertEventExecutionStatement());
+    }
+
     @Test
     public void testGetSelectTotalStatement() {
         String statement = "SELECT total_tasks,total_partitions FROM junit.workflows WHERE workflow_id=? AND shard_id=1;";
@@ -54,10 +84,52 @@ public class StatementsTest {
 
     @Test
     public void testGetSelectTaskFromLookupTableStatement() {
-        String statement = "SELECT workflow_id FROM junit.task_lookup WHERE task_id=?;";
+        String statement = "SELECT workflow_id,shard_id FROM junit.task_lookup WHERE task_id=?;";
         assertEquals(statement, statements.getSelectTaskFromLookupTableStatement());
     }
 
+    @Test
+    public void testGetSelectPendingWorkflowsStatement() {
+        String statement = "SELECT workflow_id FROM junit.pending_workflows WHERE workflow_name=? AND bucket=?;";
+        assertEquals(statement, statements.getSelectPendingWorkflowsStatement());
+    }
+
+    @Test
+    public void testGetSelectPendingWorkflowCountStatement() {
+        String statement = "SELECT count(*) FROM junit.pending_workflows WHERE workflow_name=? AND bucket=?;";
+        assertEquals(statement, statements.getSelectPendingWorkflowCountStatement());
+    }
+
+    @Test
+    public void testGetSelectTasksInProgressCountStatement() {
+        String statement = "SELECT count(*) FROM junit.tasks_in_progress WHERE task_def_name=? AND bucket=?;";
+        assertEquals(statement, statements.getSelectTasksInProgressCountStatement());
+    }
+
+    @Test
+    public void testGetSelectTaskRateLimitCountStatement() {
+        String statement = "SELECT count(*) FROM junit.task_rate_limit WHERE task_def_name=? AND window_start=?;";
+        assertEquals(statement, statements.getSelectTaskRateLimitCountStatement());
+    }
+
+    @Test
+    public void testGetSelectPollDataStatement() {
+        String statement = "SELECT payload FROM junit.poll_data WHERE queue_name=? AND domain=?;";
+        assertEquals(statement, statements.getSelectPollDataStatement());
+    }
+
+    @Test
+    public void testGetSelectAllPollDataStatement() {
+        String statement = "SELECT payload FROM junit.poll_data WHERE queue_name=?;";
+        assertEquals(statement, statements.getSelectAllPollDataStatement());
+    }
+
+    @Test
+    public void testGetSelectEventExecutionsStatement() {
+        String statement = "SELECT event_execution_id,payload FROM junit.event_executions WHERE event_handler_name=? AND event_name=? AND message_id=?;";
+        assertEquals(statement, statements.getSelectEventExecutionsStatement());
+    }
+
     @Test
     public void testGetUpdateWorkflowStatement() {
         String statement = "UPDATE junit.workflows SET payload=? WHERE workflow_id=? AND shard_id=1 AND entity='workflow' AND task_id='';";
@@ -72,16 +144,28 @@ public class StatementsTest {
 
     @Test
     public void testGetUpdateTotalPartitionsStatement() {
-        String statement = "UPDATE junit.workflows SET total_partitions=?,total_tasks=? WHERE workflow_id=? AND shard_id=1;";
+        String statement = "UPDATE junit.workflows SET total_partitions=? WHERE workflow_id=? AND shard_id=1 IF total_partitions<?;";
         assertEquals(statement, statements.getUpdateTotalPartitionsStatement());
     }
 
+    @Test
+    public void testGetUpdateNullTotalPartitionsStatement() {
+        String statement = "UPDATE junit.workflows SET total_partitions=? WHERE workflow_id=? AND shard_id=1 IF total_partitions=null;";
+        assertEquals(statement, statements.getUpdateNullTotalPartitionsStatement());
+    }
+
     @Test
     public void testGetUpdateTaskLookupStatement() {
-        String statement = "UPDATE junit.task_lookup SET workflow_id=? WHERE task_id=?;";
+        String statement = "UPDATE junit.task_lookup SET workflow_id=?,shard_id=? WHERE task_id=?;";
         assertEquals(statement, statements.getUpdateTaskLookupStatement());
     }
 
+    @Test
+    public void testGetUpdateEventExecutionStatement() {
+        String statement = "UPDATE junit.event_executions SET payload=? WHERE event_handler_name=? AND event_name=? AND message_id=? AND event_execution_id=?;";
+        assertEquals(statement, statements.getUpdateEventExecutionStatement());
+    }
+
     @Test
     public void testGetDeleteWorkflowStatement() {
         String statement = "DELETE FROM junit.workflows WHERE workflow_id=? AND shard_id=?;";
@@ -99,4 +183,22 @@ public class StatementsTest {
         String statement = "DELETE FROM junit.workflows WHERE workflow_id=? AND shard_id=? AND entity='task' AND task_id=?;";
         assertEquals(statement, statements.getDeleteTaskStatement());
     }
+
+    @Test
+    public void testGetDeletePendingWorkflowStatement() {
+        String statement = "DELETE FROM junit.pending_workflows WHERE workflow_name=? AND bucket=? AND workflow_id=?;";
+        assertEquals(statement, statements.getDeletePendingWorkflowStatement());
+    }
+
+    @Test
+    public void testGetDeleteTaskInProgressStatement() {
+        String statement = "DELETE FROM junit.tasks_in_progress WHERE task_def_name=? AND bucket=? AND task_id=?;";
+        assertEquals(statement, statements.getDeleteTaskInProgressStatement());
+    }
+
+    @Test
+    public void testGetDeleteEventExecutionStatement() {
+        String statement = "DELETE FROM junit.event_executions WHERE event_handler_name=? AND event_name=? AND message_id=? AND event_execution_id=?;";
+        assertEquals(statement, statements.getDeleteEventExecutionStatement());
+    }
 }
\ No newline at end of file
@@ -24,6 +24,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.conductor.common.metadata.tasks.Task;
 import com.netflix.conductor.common.metadata.tasks.Task.Status;
 import com.netflix.conductor.common.run.Workflow;
@@ -48,6 +49,13 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Viren
@@ -75,6 +83,8 @@ public class HttpTask extends WorkflowSystemTask {
 	protected Configuration config;
 	
 	private String requestParameter;
+
+	private volatile ExecutorService asyncExecutor;
 	
 	@Inject
 	public HttpTask(RestClientManager rcm, Configuration config) {
@@ -91,12 +101,56 @@ public class HttpTask extends WorkflowSystemTask {
 	
 	@Override
 	public void start(Workflow workflow, Task task, WorkflowExecutor executor) {
+		Input input = getInput(task);
+		if(input == null) {
+			return;
+		}
+		
+		try {
+			HttpResponse response = httpCall(input);
+			onResponse(task, response);
+		}catch(Exception e) {
+			onError(task, input, e);
+		}
+	}
+
+	/**
+	 * Makes the http call on the http task executor, so that the system task worker threads are not blocked
+	 * while waiting for the response.
+	 */
+	@Override
+	public CompletionStage<Void> startAsync(Workflow workflow, Task task, WorkflowExecutor executor) {
+		Input input = getInput(task);
+		if(input == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return httpCall(input);
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		}, getAsyncExecutor()).handle((response, error) -> {
+			if(error != null) {
+				onError(task, input, error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+			} else {
+				onResponse(task, response);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * @return the input of the http task, null if it is invalid in which case the task is failed
+	 */
+	private Input getInput(Task task) {
 		Object request = task.getInputData().get(requestParameter);
 		task.setWorkerId(config.getServerId());
 		if(request == null) {
 			task.setReasonForIncompletion(MISSING_REQUEST);
 			task.setStatus(Status.FAILED);
-			return;
+			return null;
 		}
 		
 		Input input = om.convertValue(request, Input.class);
@@ -104,39 +158,60 @@ public class HttpTask extends WorkflowSystemTask {
 			String reason = "Missing HTTP URI.  See documentation for HttpTask for required input parameters";
 			task.setReasonForIncompletion(reason);
 			task.setStatus(Status.FAILED);
-			return;
+			return null;
 		}
 		
 		if(input.getMethod() == null) {
 			String reason = "No HTTP method specified";
 			task.setReasonForIncompletion(reason);
 			task.setStatus(Status.FAILED);
-			return;
+			return null;
 		}
-		
-		try {
-			HttpResponse response = httpCall(input);
-			logger.info("response {}, {}", response.statusCode, response.body);
-			if(response.statusCode > 199 && response.statusCode < 300) {
-				task.setStatus(Status.COMPLETED);
+		return input;
+	}
+
+	private void onResponse(Task task, HttpResponse response) {
+		logger.info("response {}, {}", response.statusCode, response.body);
+		if(response.statusCode > 199 && response.statusCode < 300) {
+			task.setStatus(Status.COMPLETED);
+		} else {
+			if(response.body != null) {
+				task.setReasonForIncompletion(response.body.toString());
 			} else {
-				if(response.body != null) {
-					task.setReasonForIncompletion(response.body.toString());
-				} else {
-					task.setReasonForIncompletion("No response from the remote service");
-				}
-				task.setStatus(Status.FAILED);
-			}
-			if(response != null) {
-				task.getOutputData().put("response", response.asMap());
+				task.setReasonForIncompletion("No response from the remote service");
 			}
-			
-		}catch(Exception e) {
-			logger.error(String.format("Failed to invoke http task - uri: %s, vipAddress: %s", input.getUri(), input.getVipAddress()), e);
 			task.setStatus(Status.FAILED);
-			task.setReasonForIncompletion("Failed to invoke http task due to: " + e.toString());
-			task.getOutputData().put("response", e.toString());
 		}
+		task.getOutputData().put("response", response.asMap());
+	}
+
+	private void onError(Task task, Input input, Throwable e) {
+		logger.error(String.format("Failed to invoke http task - uri: %s, vipAddress: %s", input.getUri(), input.getVipAddress()), e);
+		task.setStatus(Status.FAILED);
+		task.setReasonForIncompletion("Failed to invoke http task due to: " + e.toString());
+		task.getOutputData().put("response", e.toString());
+	}
+
+	/**
+	 * The calls wait in a bounded queue when all the threads are busy. Once the queue is full, the calls are made on
+	 * the calling system task worker thread, which slows down the polling of http tasks until the backlog drains.
+	 */
+	private ExecutorService getAsyncExecutor() {
+		if(asyncExecutor == null) {
+			synchronized (this) {
+				if(asyncExecutor == null) {
+					int threadCount = Math.max(1, config.getIntProperty("http.task.async.thread.count", 200));
+					int queueSize = Math.max(1, config.getIntProperty("http.task.async.queue.size", 1000));
+					ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS,
+							new LinkedBlockingQueue<>(queueSize), new ThreadFactoryBuilder().setNameFormat(getName() + "-async-%d").setDaemon(true).build(),
+							new ThreadPoolExecutor.CallerRunsPolicy());
+					// the threads are only kept while there are calls in flight
+					executor.allowCoreThreadTimeOut(true);
+					asyncExecutor = executor;
+				}
+			}
+		}
+		return asyncExecutor;
 	}
 
 	/**
@@ -231,6 +306,11 @@ public class HttpTask extends WorkflowSystemTask {
 	public boolean isAsync() {
 		return true;
 	}
+
+	@Override
+	public boolean isNonBlocking() {
+		return true;
+	}
 	
 	@Override
 	public int getRetryTimeInSecond() {
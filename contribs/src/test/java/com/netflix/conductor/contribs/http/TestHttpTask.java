@@ -30,6 +30,7 @@ import com.netflix.conductor.core.execution.DeciderService;
 import com.netflix.conductor.core.execution.ParametersUtils;
 import com.netflix.conductor.core.execution.WorkflowExecutor;
 import com.netflix.conductor.core.execution.mapper.TaskMapper;
+import com.netflix.conductor.core.metadata.CompiledWorkflowDefCache;
 import com.netflix.conductor.core.utils.ExternalPayloadStorageUtils;
 import com.netflix.conductor.dao.QueueDAO;
 import org.eclipse.jetty.server.Request;
@@ -50,6 +51,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
@@ -238,6 +240,29 @@ public class TestHttpTask {
         assertEquals(JSON_RESPONSE, objectMapper.writeValueAsString(map));
     }
 
+    @Test
+    public void testStartAsync() throws Exception {
+
+        Task task = new Task();
+        Input input = new Input();
+        input.setUri("http://localhost:7009/json");
+        input.setMethod("GET");
+        task.getInputData().put(HttpTask.REQUEST_PARAMETER_NAME, input);
+
+        assertTrue(httpTask.isNonBlocking());
+        httpTask.startAsync(workflow, task, workflowExecutor).toCompletableFuture().get(5, TimeUnit.SECONDS);
+        Map<String, Object> hr = (Map<String, Object>) task.getOutputData().get("response");
+        assertEquals(Task.Status.COMPLETED, task.getStatus());
+        assertEquals(JSON_RESPONSE, objectMapper.writeValueAsString(hr.get("body")));
+
+        Task failedTask = new Task();
+        input.setUri("http://localhost:7009/failure");
+        failedTask.getInputData().put(HttpTask.REQUEST_PARAMETER_NAME, input);
+        httpTask.startAsync(workflow, failedTask, workflowExecutor).toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(Task.Status.FAILED, failedTask.getStatus());
+        assertEquals(ERROR_RESPONSE, failedTask.getReasonForIncompletion());
+    }
+
     @Test
     public void testExecute() {
 
@@ -292,7 +317,7 @@ public class TestHttpTask {
         ParametersUtils parametersUtils = mock(ParametersUtils.class);
 
         Map<String, TaskMapper> taskMappers = new HashMap<>();
-        new DeciderService(parametersUtils, queueDAO, externalPayloadStorageUtils, taskMappers).decide(workflow);
+        new DeciderService(parametersUtils, queueDAO, externalPayloadStorageUtils, taskMappers, new CompiledWorkflowDefCache(config)).decide(workflow);
 
         System.out.println(workflow.getTasks());
         System.out.println(workflow.getStatus());
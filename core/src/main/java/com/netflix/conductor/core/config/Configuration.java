@@ -31,6 +31,9 @@ public interface Configuration {
     // FIXME This really should be typed correctly.
     String SWEEP_DISABLE_DEFAULT_VALUE = "false";
 
+    String DECIDER_QUEUE_SHARDS_PROPERTY_NAME = "decider.queue.shards";
+    int DECIDER_QUEUE_SHARDS_DEFAULT_VALUE = 1;
+
     String DISABLE_ASYNC_WORKERS_PROPERTY_NAME = "conductor.disable.async.workers";
     // FIXME This really should be typed correctly.
     String DISABLE_ASYNC_WORKERS_DEFAULT_VALUE = "false";
@@ -75,6 +78,14 @@ public interface Configuration {
      */
     boolean disableSweep();
 
+    /**
+     * @return the number of queues the workflows to be swept are partitioned into, by workflow id. All the server
+     * nodes must use the same value.
+     */
+    default int getDeciderQueueShards() {
+        return Math.max(1, getIntProperty(DECIDER_QUEUE_SHARDS_PROPERTY_NAME, DECIDER_QUEUE_SHARDS_DEFAULT_VALUE));
+    }
+
 
     /**
      * @return when set to true, the background task workers executing async system tasks (eg HTTP) are disabled
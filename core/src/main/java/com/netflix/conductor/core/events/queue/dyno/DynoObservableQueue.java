@@ -70,10 +70,9 @@ public class DynoObservableQueue implements ObservableQueue {
 
     @Override
     public List<String> ack(List<Message> messages) {
-        for (Message msg : messages) {
-            queueDAO.remove(queueName, msg.getId());
-        }
-        return messages.stream().map(Message::getId).collect(Collectors.toList());
+        List<String> messageIds = messages.stream().map(Message::getId).collect(Collectors.toList());
+        queueDAO.remove(queueName, messageIds);
+        return messageIds;
     }
 
     public void setUnackTimeout(Message message, long unackTimeout) {
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.execution;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import com.netflix.conductor.common.metadata.tasks.Task;
+import com.netflix.conductor.common.run.Workflow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * An input template parsed once into literal and expression nodes.
+ * <p>
+ * Templates are resolved against a {@link Workflow} without building the document of all of its tasks: only the
+ * parameters of the workflow and of the tasks actually referenced by the expressions are read.
+ * The resolved values are the same as the ones produced by {@link ParametersUtils#getTaskInputV2}.
+ */
+class CompiledTemplate {
+
+    static final Configuration JSON_PATH_CONFIGURATION = Configuration.defaultConfiguration()
+            .addOptions(Option.SUPPRESS_EXCEPTIONS);
+
+    private static final Pattern SEGMENTS = Pattern.compile("(?=\\$\\{)|(?<=\\})");
+    private static final Pattern SIMPLE_ROOT = Pattern.compile("[\\w-]+");
+    private static final String WORKFLOW_ROOT = "workflow";
+
+    private final MapNode template;
+
+    private CompiledTemplate(MapNode template) {
+        this.template = template;
+    }
+
+    /**
+     * @param template     the input template, with only JSON types as values
+     * @param systemValues the value of the environment variable, or else of the system property, with a given name
+     */
+    static CompiledTemplate compile(Map<String, Object> template, Function<String, String> systemValues) {
+        return new CompiledTemplate(new MapNode(template, systemValues));
+    }
+
+    Map<String, Object> resolve(Workflow workflow, String taskId) {
+        return template.resolve(new Context(workflow, taskId));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Node compileValue(Object value, Function<String, String> systemValues) {
+        if (value instanceof String) {
+            return compileExpression((String) value, systemValues);
+        } else if (value instanceof Map) {
+            return new MapNode((Map<String, Object>) value, systemValues);
+        } else if (value instanceof List) {
+            return new ListNode((List<?>) value, systemValues);
+        }
+        return new LiteralNode(value);
+    }
+
+    private static Node compileExpression(String value, Function<String, String> systemValues) {
+        String[] values = SEGMENTS.split(value);
+        List<Node> segments = new ArrayList<>(values.length);
+        boolean hasPath = false;
+        for (String segment : values) {
+            if (segment.startsWith("${") && segment.endsWith("}")) {
+                segments.add(new PathNode(segment, systemValues));
+                hasPath = true;
+            } else {
+                segments.add(new LiteralNode(segment));
+            }
+        }
+        if (!hasPath) {
+            return new LiteralNode(value);
+        }
+        return segments.size() == 1 ? segments.get(0) : new ExpressionNode(segments);
+    }
+
+    private interface Node {
+        Object resolve(Context context);
+    }
+
+    private static class LiteralNode implements Node {
+
+        private final Object value;
+
+        private LiteralNode(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object resolve(Context context) {
+            return value;
+        }
+    }
+
+    private static class MapNode implements Node {
+
+        private final Map<String, Node> entries = new LinkedHashMap<>();
+
+        private MapNode(Map<String, Object> map, Function<String, String> systemValues) {
+            map.forEach((key, value) -> entries.put(key, compileValue(value, systemValues)));
+        }
+
+        @Override
+        public Map<String, Object> resolve(Context context) {
+            Map<String, Object> resolved = new LinkedHashMap<>();
+            entries.forEach((key, node) -> resolved.put(key, node.resolve(context)));
+            return resolved;
+        }
+    }
+
+    private static class ListNode implements Node {
+
+        private final List<Node> items = new ArrayList<>();
+
+        private ListNode(List<?> list, Function<String, String> systemValues) {
+            list.forEach(item -> items.add(compileValue(item, systemValues)));
+        }
+
+        @Override
+        public Object resolve(Context context) {
+            List<Object> resolved = new LinkedList<>();
+            items.forEach(node -> resolved.add(node.resolve(context)));
+            return resolved;
+        }
+    }
+
+    /**
+     * A string made of several literal and path segments, resolved to the concatenation of their values.
+     */
+    private static class ExpressionNode implements Node {
+
+        private final List<Node> segments;
+
+        private ExpressionNode(List<Node> segments) {
+            this.segments = segments;
+        }
+
+        @Override
+        public Object resolve(Context context) {
+            StringBuilder resolved = new StringBuilder();
+            for (Node segment : segments) {
+                Object value = segment.resolve(context);
+                if (value != null) {
+                    resolved.append(value.toString());
+                }
+            }
+            return resolved.toString();
+        }
+    }
+
+    /**
+     * A ${...} expression: either a system parameter, an environment variable or system property, or a JSONPath
+     * evaluated against the workflow and its tasks. Environment variables and system properties are resolved when
+     * the template is compiled.
+     */
+    private static class PathNode implements Node {
+
+        private final String expression;
+        private final String path;
+        private final boolean systemParameter;
+        private final JsonPath jsonPath;
+        private final String root;
+        private final String systemValue;
+
+        private PathNode(String expression, Function<String, String> systemValues) {
+            this.expression = expression;
+            this.path = expression.substring(2, expression.length() - 1);
+            this.systemParameter = isSystemParameter(path);
+            this.systemValue = systemValues.apply(path);
+            this.jsonPath = compilePath(path);
+            this.root = getRoot(path);
+        }
+
+        @Override
+        public Object resolve(Context context) {
+            if (ParametersUtils.SystemParameters.CPEWF_TASK_ID.name().equals(path)) {
+                return context.taskId == null ? expression : context.taskId;
+            }
+            if (systemValue != null) {
+                return systemValue;
+            }
+            if (systemParameter) {
+                return expression;
+            }
+            // an invalid path is reported when it is evaluated, not when the template is compiled
+            JsonPath compiled = jsonPath == null ? JsonPath.compile(path) : jsonPath;
+            return compiled.read(context.getDocument(root), JSON_PATH_CONFIGURATION);
+        }
+
+        private static boolean isSystemParameter(String path) {
+            for (ParametersUtils.SystemParameters systemParameter : ParametersUtils.SystemParameters.values()) {
+                if (systemParameter.name().equals(path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static JsonPath compilePath(String path) {
+            try {
+                return JsonPath.compile(path);
+            } catch (InvalidPathException e) {
+                return null;
+            }
+        }
+
+        /**
+         * @return the workflow or task reference name the path is rooted at, null if the path may read from more
+         * than one of them (deep scans, filters referring to the document root, etc.)
+         */
+        private static String getRoot(String path) {
+            String relativePath = path.startsWith("$.") ? path.substring(2) : path;
+            if (relativePath.indexOf('$') >= 0) {
+                return null;
+            }
+            int end = relativePath.length();
+            int dot = relativePath.indexOf('.');
+            int bracket = relativePath.indexOf('[');
+            if (dot >= 0) {
+                end = dot;
+            }
+            if (bracket >= 0 && bracket < end) {
+                end = bracket;
+            }
+            String root = relativePath.substring(0, end);
+            return SIMPLE_ROOT.matcher(root).matches() ? root : null;
+        }
+    }
+
+    /**
+     * The document the paths are evaluated against, populated on demand.
+     */
+    private static class Context {
+
+        private final Workflow workflow;
+        private final String taskId;
+        private final Map<String, Object> document = new HashMap<>();
+        private final Set<String> resolvedRoots = new HashSet<>();
+        private Map<String, Task> tasksByRefName;
+        private boolean complete;
+
+        private Context(Workflow workflow, String taskId) {
+            this.workflow = workflow;
+            this.taskId = taskId;
+        }
+
+        private Map<String, Object> getDocument(String root) {
+            if (root == null) {
+                if (!complete) {
+                    resolveRoot(WORKFLOW_ROOT);
+                    getTasksByRefName().keySet().forEach(this::resolveRoot);
+                    complete = true;
+                }
+            } else {
+                resolveRoot(root);
+            }
+            return document;
+        }
+
+        private void resolveRoot(String root) {
+            if (!resolvedRoots.add(root)) {
+                return;
+            }
+            Task task = getTasksByRefName().get(root);
+            if (task != null) {
+                document.put(root, getTaskParams(task));
+            } else if (WORKFLOW_ROOT.equals(root)) {
+                document.put(root, getWorkflowParams(workflow));
+            }
+        }
+
+        private Map<String, Task> getTasksByRefName() {
+            if (tasksByRefName == null) {
+                tasksByRefName = new HashMap<>();
+                // the last task with a given reference name wins, same as Workflow#getTaskByRefName
+                workflow.getTasks().forEach(task -> tasksByRefName.put(task.getReferenceTaskName(), task));
+            }
+            return tasksByRefName;
+        }
+    }
+
+    private static Map<String, Object> getWorkflowParams(Workflow workflow) {
+        Map<String, Object> workflowParams = new HashMap<>();
+        workflowParams.put("input", workflow.getInput());
+        workflowParams.put("output", workflow.getOutput());
+        workflowParams.put("status", workflow.getStatus());
+        workflowParams.put("workflowId", workflow.getWorkflowId());
+        workflowParams.put("parentWorkflowId", workflow.getParentWorkflowId());
+        workflowParams.put("parentWorkflowTaskId", workflow.getParentWorkflowTaskId());
+        workflowParams.put("workflowType", workflow.getWorkflowName());
+        workflowParams.put("version", workflow.getWorkflowVersion());
+        workflowParams.put("correlationId", workflow.getCorrelationId());
+        workflowParams.put("reasonForIncompletion", workflow.getReasonForIncompletion());
+        workflowParams.put("schemaVersion", workflow.getSchemaVersion());
+        return workflowParams;
+    }
+
+    private static Map<String, Object> getTaskParams(Task task) {
+        Map<String, Object> taskParams = new HashMap<>();
+        taskParams.put("input", task.getInputData());
+        taskParams.put("output", task.getOutputData());
+        taskParams.put("taskType", task.getTaskType());
+        if (task.getStatus() != null) {
+            taskParams.put("status", task.getStatus().toString());
+        }
+        taskParams.put("referenceTaskName", task.getReferenceTaskName());
+        taskParams.put("retryCount", task.getRetryCount());
+        taskParams.put("correlationId", task.getCorrelationId());
+        taskParams.put("pollCount", task.getPollCount());
+        taskParams.put("taskDefName", task.getTaskDefName());
+        taskParams.put("scheduledTime", task.getScheduledTime());
+        taskParams.put("startTime", task.getStartTime());
+        taskParams.put("endTime", task.getEndTime());
+        taskParams.put("workflowInstanceId", task.getWorkflowInstanceId());
+        taskParams.put("taskId", task.getTaskId());
+        taskParams.put("reasonForIncompletion", task.getReasonForIncompletion());
+        taskParams.put("callbackAfterSeconds", task.getCallbackAfterSeconds());
+        taskParams.put("workerId", task.getWorkerId());
+        return taskParams;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.execution;
+
+import com.netflix.conductor.metrics.Monitors;
+
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Serializes the evaluation of a workflow by the decider, per workflow id, within this server.
+ * <p>
+ * The first caller for a given workflow id becomes the owner and runs the decide. Any request for the same workflow
+ * that arrives while the owner is running (from the sweeper, a task update, a system task worker or the API) is
+ * recorded and returns immediately; once the owner finishes, all such recorded requests are collapsed into a single
+ * follow-up run by the owner.
+ */
+@Singleton
+public class DecideCoordinator {
+
+    private static final String CLASS_NAME = DecideCoordinator.class.getSimpleName();
+
+    /**
+     * Workflow ids currently being decided, mapped to the number of requests received while the decide was running.
+     */
+    private final Map<String, Integer> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Runs the decider for the given workflow, or coalesces the request into a running one.
+     *
+     * @param workflowId the id of the workflow to be decided
+     * @param decider    the decide to be run, returning true if the workflow has completed
+     * @return the result of the last decide run by this caller, or false if the request was coalesced into a decide
+     * already running on another caller
+     */
+    public boolean decide(String workflowId, Supplier<Boolean> decider) {
+        return decide(workflowId, decider, () -> {});
+    }
+
+    /**
+     * Runs the decider for the given workflow, or coalesces the request into a running one.
+     *
+     * @param workflowId    the id of the workflow to be decided
+     * @param decider       the decide to be run, returning true if the workflow has completed
+     * @param afterDecide run by the owner after each decide run, before the follow-up run or before the workflow is
+     *                    released to the other callers
+     * @return the result of the last decide run by this caller, or false if the request was coalesced into a decide
+     * already running on another caller
+     */
+    public boolean decide(String workflowId, Supplier<Boolean> decider, Runnable afterDecide) {
+        boolean[] owner = new boolean[1];
+        pending.compute(workflowId, (id, requests) -> {
+            if (requests == null) {
+                owner[0] = true;
+                return 0;
+            }
+            return requests + 1;
+        });
+
+        if (!owner[0]) {
+            coalesced.incrementAndGet();
+            Monitors.recordDecideCoalesced();
+            return false;
+        }
+
+        boolean completed = false;
+        boolean released = false;
+        try {
+            do {
+                executed.incrementAndGet();
+                Monitors.recordDecideExecuted();
+                completed = decider.get();
+                afterDecide.run();
+            } while (hasFollowUp(workflowId));
+            released = true;
+        } finally {
+            if (!released) {
+                // requests recorded during a failed decide are dropped, the sweeper will pick up the workflow again
+                pending.remove(workflowId);
+                Monitors.error(CLASS_NAME, "decide");
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * @return true if a decide for this workflow is currently running within this server
+     */
+    public boolean isRunning(String workflowId) {
+        return pending.containsKey(workflowId);
+    }
+
+    /**
+     * @return the number of decide runs executed
+     */
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    /**
+     * @return the number of decide requests collapsed into a running or follow-up decide
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Consumes the requests recorded while the decide was running, releasing the workflow if there are none.
+     *
+     * @return true if a follow-up decide has to be run
+     */
+    private boolean hasFollowUp(String workflowId) {
+        boolean[] followUp = new boolean[1];
+        pending.compute(workflowId, (id, requests) -> {
+            if (requests != null && requests > 0) {
+                followUp[0] = true;
+                return 0;
+            }
+            return null;
+        });
+        return followUp[0];
+    }
+}
@@ -27,6 +27,8 @@ import com.netflix.conductor.common.run.Workflow.WorkflowStatus;
 import com.netflix.conductor.common.utils.ExternalPayloadStorage;
 import com.netflix.conductor.core.execution.mapper.TaskMapper;
 import com.netflix.conductor.core.execution.mapper.TaskMapperContext;
+import com.netflix.conductor.core.metadata.CompiledWorkflowDef;
+import com.netflix.conductor.core.metadata.CompiledWorkflowDefCache;
 import com.netflix.conductor.core.utils.ExternalPayloadStorageUtils;
 import com.netflix.conductor.core.utils.IDGenerator;
 import com.netflix.conductor.core.utils.QueueUtils;
@@ -39,8 +41,10 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -70,21 +74,23 @@ public class DeciderService {
     private final QueueDAO queueDAO;
     private final ParametersUtils parametersUtils;
     private final ExternalPayloadStorageUtils externalPayloadStorageUtils;
+    private final CompiledWorkflowDefCache compiledWorkflowDefCache;
 
     private final Map<String, TaskMapper> taskMappers;
 
-
     @SuppressWarnings("ConstantConditions")
     private final Predicate<Task> isNonPendingTask = task -> !task.isRetried() && !task.getStatus().equals(SKIPPED) && !task.isExecuted() || SystemTaskType.isBuiltIn(task.getTaskType());
 
     @Inject
     public DeciderService(ParametersUtils parametersUtils, QueueDAO queueDAO,
                           ExternalPayloadStorageUtils externalPayloadStorageUtils,
-                          @Named("TaskMappers") Map<String, TaskMapper> taskMappers) {
+                          @Named("TaskMappers") Map<String, TaskMapper> taskMappers,
+                          CompiledWorkflowDefCache compiledWorkflowDefCache) {
         this.queueDAO = queueDAO;
         this.parametersUtils = parametersUtils;
         this.taskMappers = taskMappers;
         this.externalPayloadStorageUtils = externalPayloadStorageUtils;
+        this.compiledWorkflowDefCache = compiledWorkflowDefCache;
     }
 
     //QQ public method validation of the input params
@@ -92,13 +98,12 @@ public class DeciderService {
 
         //In case of a new workflow the list of tasks will be empty
         final List<Task> tasks = workflow.getTasks();
-        //In case of a new workflow the list of executedTasks will also be empty
-        List<Task> executedTasks = tasks.stream()
-                .filter(t -> !t.getStatus().equals(SKIPPED) && !t.getStatus().equals(READY_FOR_RERUN) && !t.isExecuted())
-                .collect(Collectors.toList());
+        //In case of a new workflow there will be no executed tasks
+        boolean hasExecutedTasks = tasks.stream()
+                .anyMatch(t -> !t.getStatus().equals(SKIPPED) && !t.getStatus().equals(READY_FOR_RERUN) && !t.isExecuted());
 
         List<Task> tasksToBeScheduled = new LinkedList<>();
-        if (executedTasks.isEmpty()) {
+        if (!hasExecutedTasks) {
             //this is the flow that the new workflow will go through
             tasksToBeScheduled = startWorkflow(workflow);
             if (tasksToBeScheduled == null) {
@@ -126,18 +131,23 @@ public class DeciderService {
         // Filter the list of tasks and include only tasks that are not retried, not executed
         // marked to be skipped and not part of System tasks that is DECISION, FORK, JOIN
         // This list will be empty for a new workflow being started
-        List<Task> pendingTasks = workflow.getTasks()
-                .stream()
-                .filter(isNonPendingTask)
-                .collect(Collectors.toList());
+        List<Task> pendingTasks = new ArrayList<>();
 
         // Get all the tasks that are ready to rerun or not marked to be skipped
         // This list will be empty for a new workflow
-        Set<String> executedTaskRefNames = workflow.getTasks()
-                .stream()
-                .filter(Task::isExecuted)
-                .map(Task::getReferenceTaskName)
-                .collect(Collectors.toSet());
+        Set<String> executedTaskRefNames = new HashSet<>();
+
+        // Both sets are built in a single pass over the tasks of the workflow. Tasks already marked as executed were
+        // evaluated by a previous decide and are not evaluated again, but the pass itself is still linear in the
+        // number of tasks, since the tasks still in progress have to be checked for timeouts on every decide
+        for (Task task : workflow.getTasks()) {
+            if (isNonPendingTask.test(task)) {
+                pendingTasks.add(task);
+            }
+            if (task.isExecuted()) {
+                executedTaskRefNames.add(task.getReferenceTaskName());
+            }
+        }
 
         Map<String, Task> tasksToBeScheduled = new LinkedHashMap<>();
 
@@ -166,7 +176,7 @@ public class DeciderService {
             if (!pendingTask.getStatus().isSuccessful()) {
                 WorkflowTask workflowTask = pendingTask.getWorkflowTask();
                 if (workflowTask == null) {
-                    workflowTask = workflow.getWorkflowDefinition().getTaskByRefName(pendingTask.getReferenceTaskName());
+                    workflowTask = compiledWorkflowDefCache.get(workflow.getWorkflowDefinition()).getTaskByRefName(pendingTask.getReferenceTaskName());
                 }
                 if (workflowTask != null && workflowTask.isOptional()) {
                     pendingTask.setStatus(COMPLETED_WITH_ERRORS);
@@ -224,10 +234,11 @@ public class DeciderService {
                 throw new TerminateWorkflowException("No tasks found to be executed", WorkflowStatus.COMPLETED);
             }
 
+            CompiledWorkflowDef compiledWorkflowDef = compiledWorkflowDefCache.get(workflowDef);
             WorkflowTask taskToSchedule = workflowDef.getTasks().get(0); //Nothing is running yet - so schedule the first task
             //Loop until a non-skipped task is found
             while (isTaskSkipped(taskToSchedule, workflow)) {
-                taskToSchedule = workflowDef.getNextTask(taskToSchedule.getTaskReferenceName());
+                taskToSchedule = compiledWorkflowDef.getNextTask(taskToSchedule.getTaskReferenceName());
             }
 
             //In case of a new workflow a the first non-skippable task will be scheduled
@@ -292,29 +303,34 @@ public class DeciderService {
         }
 
         Map<String, Status> taskStatusMap = new HashMap<>();
-        workflow.getTasks().forEach(task -> taskStatusMap.put(task.getReferenceTaskName(), task.getStatus()));
+        allTasks.forEach(task -> taskStatusMap.put(task.getReferenceTaskName(), task.getStatus()));
+
+        // the cheaper checks go first, walking the blueprint is only needed when every task is terminal
+        boolean noPendingTasks = taskStatusMap.values()
+                .stream()
+                .allMatch(Status::isTerminal);
+        if (!noPendingTasks) {
+            return false;
+        }
 
         List<WorkflowTask> workflowTasks = workflow.getWorkflowDefinition().getTasks();
-        boolean allCompletedSuccessfully = workflowTasks.stream().parallel().allMatch(wftask -> {
+        boolean allCompletedSuccessfully = workflowTasks.stream().allMatch(wftask -> {
             Status status = taskStatusMap.get(wftask.getTaskReferenceName());
             return status != null && status.isSuccessful() && status.isTerminal();
         });
+        if (!allCompletedSuccessfully) {
+            return false;
+        }
 
-        boolean noPendingTasks = taskStatusMap.values()
-                .stream()
-                .allMatch(Status::isTerminal);
-
-        boolean noPendingSchedule = workflow.getTasks().stream().parallel().filter(wftask -> {
-            String next = getNextTasksToBeScheduled(workflow, wftask);
+        return allTasks.stream().noneMatch(task -> {
+            String next = getNextTasksToBeScheduled(workflow, task);
             return next != null && !taskStatusMap.containsKey(next);
-        }).collect(Collectors.toList()).isEmpty();
-
-        return allCompletedSuccessfully && noPendingTasks && noPendingSchedule;
+        });
     }
 
     @VisibleForTesting
     List<Task> getNextTask(Workflow workflow, Task task) {
-        final WorkflowDef workflowDef = workflow.getWorkflowDefinition();
+        final CompiledWorkflowDef workflowDef = compiledWorkflowDefCache.get(workflow.getWorkflowDefinition());
 
         // Get the following task after the last completed task
         if (SystemTaskType.is(task.getTaskType()) && SystemTaskType.DECISION.name().equals(task.getTaskType())) {
@@ -336,7 +352,7 @@ public class DeciderService {
     }
 
     private String getNextTasksToBeScheduled(Workflow workflow, Task task) {
-        final WorkflowDef def = workflow.getWorkflowDefinition();
+        final CompiledWorkflowDef def = compiledWorkflowDefCache.get(workflow.getWorkflowDefinition());
 
         String taskReferenceName = task.getReferenceTaskName();
         WorkflowTask taskToSchedule = def.getNextTask(taskReferenceName);
@@ -389,7 +405,7 @@ public class DeciderService {
         }
         if (workflowTask != null && workflow.getSchemaVersion() > 1) {
             Workflow workflowInstance = populateWorkflowAndTaskData(workflow);
-            Map<String, Object> taskInput = parametersUtils.getTaskInputV2(workflowTask.getInputParameters(), workflowInstance, rescheduled.getTaskId(), taskDefinition);
+            Map<String, Object> taskInput = parametersUtils.getTaskInputV2(workflowTask, workflowInstance, rescheduled.getTaskId(), taskDefinition);
             rescheduled.getInputData().putAll(taskInput);
         }
         externalPayloadStorageUtils.verifyAndUpload(rescheduled, ExternalPayloadStorage.PayloadType.TASK_INPUT);
@@ -519,7 +535,7 @@ public class DeciderService {
     public List<Task> getTasksToBeScheduled(Workflow workflow,
                                             WorkflowTask taskToSchedule, int retryCount, String retriedTaskId) {
         workflow = populateWorkflowAndTaskData(workflow);
-        Map<String, Object> input = parametersUtils.getTaskInput(taskToSchedule.getInputParameters(),
+        Map<String, Object> input = parametersUtils.getTaskInput(taskToSchedule,
                 workflow, null, null);
 
         TaskType taskType = TaskType.USER_DEFINED;
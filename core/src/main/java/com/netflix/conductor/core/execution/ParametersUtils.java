@@ -17,34 +17,54 @@ package com.netflix.conductor.core.execution;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.Option;
 import com.netflix.conductor.common.metadata.tasks.Task;
 import com.netflix.conductor.common.metadata.tasks.TaskDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowTask;
 import com.netflix.conductor.common.run.Workflow;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Used to parse and resolve the JSONPath bindings in the workflow and task definitions.
  */
 public class ParametersUtils {
 
+    private static final int COMPILED_TEMPLATES_CACHE_SIZE = 10_000;
+    private static final int SYSTEM_VALUES_CACHE_SIZE = 10_000;
+
     private ObjectMapper objectMapper = new ObjectMapper();
 
     private TypeReference<Map<String, Object>> map = new TypeReference<Map<String, Object>>() {
     };
 
+    // the compiled templates by workflow definition and task reference name
+    private final Cache<String, CachedTemplate> compiledTemplates = CacheBuilder.newBuilder()
+            .maximumSize(COMPILED_TEMPLATES_CACHE_SIZE)
+            .build();
+
+    // the environment variables and system properties the expressions refer to, looked up once
+    private final Cache<String, Optional<String>> systemValues = CacheBuilder.newBuilder()
+            .maximumSize(SYSTEM_VALUES_CACHE_SIZE)
+            .build();
+
     public enum SystemParameters {
         CPEWF_TASK_ID,
         NETFLIX_ENV,
@@ -62,68 +82,71 @@ public class ParametersUtils {
         return getTaskInputV1(workflow, inputParams);
     }
 
+    /**
+     * Same as {@link #getTaskInput(Map, Workflow, TaskDef, String)} with the input parameters of the workflow task,
+     * the template being compiled once per workflow definition and task reference name.
+     */
+    public Map<String, Object> getTaskInput(WorkflowTask workflowTask, Workflow workflow,
+                                            TaskDef taskDefinition, String taskId) {
+        if (workflow.getSchemaVersion() > 1) {
+            return getTaskInputV2(workflowTask, workflow, taskId, taskDefinition);
+        }
+        return getTaskInputV1(workflow, workflowTask.getInputParameters());
+    }
+
     public Map<String, Object> getTaskInputV2(Map<String, Object> input, Workflow workflow,
                                               String taskId, TaskDef taskDefinition) {
-        Map<String, Object> inputParams;
+        Map<String, Object> inputTemplate = taskDefinition == null ? null : taskDefinition.getInputTemplate();
+        return compile(input, inputTemplate).resolve(workflow, taskId);
+    }
+
+    /**
+     * Same as {@link #getTaskInputV2(Map, Workflow, String, TaskDef)} with the input parameters of the workflow task.
+     * The compiled template is looked up by the workflow definition and task reference name, and reused for as long
+     * as the input parameters and the task definition input template are unchanged.
+     */
+    public Map<String, Object> getTaskInputV2(WorkflowTask workflowTask, Workflow workflow,
+                                              String taskId, TaskDef taskDefinition) {
+        Map<String, Object> input = workflowTask.getInputParameters();
+        Map<String, Object> inputTemplate = taskDefinition == null ? null : taskDefinition.getInputTemplate();
+        String key = workflow.getWorkflowName() + ":" + workflow.getWorkflowVersion() + ":" + workflowTask.getTaskReferenceName();
+        CachedTemplate cachedTemplate = compiledTemplates.getIfPresent(key);
+        if (cachedTemplate == null || !cachedTemplate.isFor(input, inputTemplate)) {
+            cachedTemplate = new CachedTemplate(input, inputTemplate, compile(input, inputTemplate));
+            compiledTemplates.put(key, cachedTemplate);
+        }
+        return cachedTemplate.compiledTemplate.resolve(workflow, taskId);
+    }
 
+    private CompiledTemplate compile(Map<String, Object> input, Map<String, Object> inputTemplate) {
+        Map<String, Object> inputParams;
         if (input != null) {
             inputParams = clone(input);
         } else {
             inputParams = new HashMap<>();
         }
-        if (taskDefinition != null && taskDefinition.getInputTemplate() != null) {
-            inputParams.putAll(clone(taskDefinition.getInputTemplate()));
+        if (inputTemplate != null) {
+            inputParams.putAll(clone(inputTemplate));
         }
+        return CompiledTemplate.compile(inputParams, this::getSystemValue);
+    }
 
-        Map<String, Map<String, Object>> inputMap = new HashMap<>();
-
-        Map<String, Object> workflowParams = new HashMap<>();
-        workflowParams.put("input", workflow.getInput());
-        workflowParams.put("output", workflow.getOutput());
-        workflowParams.put("status", workflow.getStatus());
-        workflowParams.put("workflowId", workflow.getWorkflowId());
-        workflowParams.put("parentWorkflowId", workflow.getParentWorkflowId());
-        workflowParams.put("parentWorkflowTaskId", workflow.getParentWorkflowTaskId());
-        workflowParams.put("workflowType", workflow.getWorkflowName());
-        workflowParams.put("version", workflow.getWorkflowVersion());
-        workflowParams.put("correlationId", workflow.getCorrelationId());
-        workflowParams.put("reasonForIncompletion", workflow.getReasonForIncompletion());
-        workflowParams.put("schemaVersion", workflow.getSchemaVersion());
-
-        inputMap.put("workflow", workflowParams);
-
-        //For new workflow being started the list of tasks will be empty
-        workflow.getTasks().stream()
-                .map(Task::getReferenceTaskName)
-                .map(workflow::getTaskByRefName)
-                .forEach(task -> {
-                    Map<String, Object> taskParams = new HashMap<>();
-                    taskParams.put("input", task.getInputData());
-                    taskParams.put("output", task.getOutputData());
-                    taskParams.put("taskType", task.getTaskType());
-                    if (task.getStatus() != null) {
-                        taskParams.put("status", task.getStatus().toString());
-                    }
-                    taskParams.put("referenceTaskName", task.getReferenceTaskName());
-                    taskParams.put("retryCount", task.getRetryCount());
-                    taskParams.put("correlationId", task.getCorrelationId());
-                    taskParams.put("pollCount", task.getPollCount());
-                    taskParams.put("taskDefName", task.getTaskDefName());
-                    taskParams.put("scheduledTime", task.getScheduledTime());
-                    taskParams.put("startTime", task.getStartTime());
-                    taskParams.put("endTime", task.getEndTime());
-                    taskParams.put("workflowInstanceId", task.getWorkflowInstanceId());
-                    taskParams.put("taskId", task.getTaskId());
-                    taskParams.put("reasonForIncompletion", task.getReasonForIncompletion());
-                    taskParams.put("callbackAfterSeconds", task.getCallbackAfterSeconds());
-                    taskParams.put("workerId", task.getWorkerId());
-                    inputMap.put(task.getReferenceTaskName(), taskParams);
-                });
-
-        Configuration option = Configuration.defaultConfiguration()
-                .addOptions(Option.SUPPRESS_EXCEPTIONS);
-        DocumentContext documentContext = JsonPath.parse(inputMap, option);
-        return replace(inputParams, documentContext, taskId);
+    /**
+     * @return the value of the environment variable, or else of the system property, with the given name
+     */
+    private String getSystemValue(String name) {
+        try {
+            return systemValues.get(name, () -> Optional.ofNullable(Optional.ofNullable(System.getenv(name))
+                    .orElseGet(() -> System.getProperty(name))))
+                    .orElse(null);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @VisibleForTesting
+    long getCompiledTemplateCount() {
+        return compiledTemplates.size();
     }
 
     //deep clone using json - POJO
@@ -239,11 +262,7 @@ public class ParametersUtils {
         if ("CPEWF_TASK_ID".equals(sysParam)) {
             return taskId;
         }
-        String value = System.getenv(sysParam);
-        if (value == null) {
-            value = System.getProperty(sysParam);
-        }
-        return value;
+        return getSystemValue(sysParam);
     }
 
     private boolean contains(String test) {
@@ -252,10 +271,7 @@ public class ParametersUtils {
                 return true;
             }
         }
-        String value = Optional.ofNullable(System.getProperty(test))
-                .orElseGet(() -> Optional.ofNullable(System.getenv(test))
-                        .orElse(null));
-        return value != null;
+        return getSystemValue(test) != null;
     }
 
     @Deprecated
@@ -291,4 +307,44 @@ public class ParametersUtils {
         });
         return input;
     }
+
+    /**
+     * A compiled template along with the input parameters and input template it was compiled from.
+     */
+    private static class CachedTemplate {
+
+        private final Map<String, Object> input;
+        private final Map<String, Object> inputTemplate;
+        private final CompiledTemplate compiledTemplate;
+
+        private CachedTemplate(Map<String, Object> input, Map<String, Object> inputTemplate, CompiledTemplate compiledTemplate) {
+            // the definitions may be modified once the template is cached, so these are copies
+            this.input = copyMap(input);
+            this.inputTemplate = copyMap(inputTemplate);
+            this.compiledTemplate = compiledTemplate;
+        }
+
+        private boolean isFor(Map<String, Object> input, Map<String, Object> inputTemplate) {
+            return Objects.equals(this.input, input) && Objects.equals(this.inputTemplate, inputTemplate);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<String, Object> copyMap(Map<String, Object> map) {
+            return map == null ? null : (Map<String, Object>) copyValue(map);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Object copyValue(Object value) {
+            if (value instanceof Map) {
+                Map<Object, Object> copy = new HashMap<>();
+                ((Map<Object, Object>) value).forEach((k, v) -> copy.put(k, copyValue(v)));
+                return copy;
+            } else if (value instanceof List) {
+                List<Object> copy = new ArrayList<>();
+                ((List<Object>) value).forEach(v -> copy.add(copyValue(v)));
+                return copy;
+            }
+            return value;
+        }
+    }
 }
@@ -17,6 +17,7 @@ import com.google.common.base.Preconditions;
 import com.netflix.conductor.annotations.Trace;
 import com.netflix.conductor.common.metadata.tasks.PollData;
 import com.netflix.conductor.common.metadata.tasks.Task;
+import com.netflix.conductor.common.metadata.tasks.TaskExecLog;
 import com.netflix.conductor.common.metadata.tasks.TaskResult;
 import com.netflix.conductor.common.metadata.workflow.RerunWorkflowRequest;
 import com.netflix.conductor.common.metadata.workflow.SkipTaskRequest;
@@ -46,10 +47,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -66,6 +70,7 @@ import static com.netflix.conductor.core.execution.ApplicationException.Code.INV
 import static com.netflix.conductor.core.execution.ApplicationException.Code.NOT_FOUND;
 import static java.util.Comparator.comparingInt;
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.maxBy;
 
 /**
@@ -82,11 +87,15 @@ public class WorkflowExecutor {
     private final Configuration config;
     private final MetadataMapperService metadataMapperService;
     private final ExecutionDAOFacade executionDAOFacade;
+    private final DecideCoordinator decideCoordinator;
 
     private WorkflowStatusListener workflowStatusListener;
 
     private int activeWorkerLastPollInSecs;
-    public static final String DECIDER_QUEUE = "_deciderQueue";
+    private final int deciderQueueShards;
+    public static final String DECIDER_QUEUE = QueueUtils.DECIDER_QUEUE;
+
+    private static final CompletionStage<Void> COMPLETED_STAGE = CompletableFuture.completedFuture(null);
 
     @Inject
     public WorkflowExecutor(
@@ -96,6 +105,7 @@ public class WorkflowExecutor {
             MetadataMapperService metadataMapperService,
             WorkflowStatusListener workflowStatusListener,
             ExecutionDAOFacade executionDAOFacade,
+            DecideCoordinator decideCoordinator,
             Configuration config
     ) {
         this.deciderService = deciderService;
@@ -104,7 +114,9 @@ public class WorkflowExecutor {
         this.config = config;
         this.metadataMapperService = metadataMapperService;
         this.executionDAOFacade = executionDAOFacade;
+        this.decideCoordinator = decideCoordinator;
         this.activeWorkerLastPollInSecs = config.getIntProperty("tasks.active.worker.lastpoll", 10);
+        this.deciderQueueShards = config.getDeciderQueueShards();
         this.workflowStatusListener = workflowStatusListener;
     }
 
@@ -533,7 +545,7 @@ public class WorkflowExecutor {
             decide(parent.getWorkflowId());
         }
         Monitors.recordWorkflowCompletion(workflow.getWorkflowName(), workflow.getEndTime() - workflow.getStartTime(), wf.getOwnerApp());
-        queueDAO.remove(DECIDER_QUEUE, workflow.getWorkflowId());    //remove from the sweep queue
+        queueDAO.remove(getDeciderQueueName(workflow.getWorkflowId()), workflow.getWorkflowId());    //remove from the sweep queue
 
         if (wf.getWorkflowDefinition().isWorkflowStatusListenerEnabled()) {
             workflowStatusListener.onWorkflowCompleted(wf);
@@ -626,7 +638,7 @@ public class WorkflowExecutor {
             }
         }
 
-        queueDAO.remove(DECIDER_QUEUE, workflow.getWorkflowId());    //remove from the sweep queue
+        queueDAO.remove(getDeciderQueueName(workflow.getWorkflowId()), workflow.getWorkflowId());    //remove from the sweep queue
         executionDAOFacade.removeFromPendingWorkflow(workflow.getWorkflowName(), workflow.getWorkflowId());
 
         // Send to atlas
@@ -648,6 +660,73 @@ public class WorkflowExecutor {
         }
 
         String workflowId = taskResult.getWorkflowInstanceId();
+        Workflow workflowInstance = getWorkflowForUpdate(workflowId);
+        Task task = executionDAOFacade.getTaskById(taskResult.getTaskId());
+
+        TaskUpdates taskUpdates = new TaskUpdates();
+        applyTaskResult(workflowInstance, task, taskResult, taskUpdates);
+        flushTaskUpdates(workflowInstance, taskUpdates);
+    }
+
+    /**
+     * Updates the tasks with the given results. The results are grouped by workflow: each workflow is loaded once,
+     * all its results are applied and written together, and the workflow is decided once.
+     * <p>
+     * The results of a workflow are not affected by a failure to update another workflow. Once all the workflows
+     * have been processed, the first failure is rethrown, and the batch can be retried since the results already
+     * applied are ignored as updates of terminal tasks.
+     *
+     * @param taskResults the results of the tasks, of one or more workflows
+     */
+    public void updateTasks(List<TaskResult> taskResults) {
+        if (taskResults == null || taskResults.stream().anyMatch(Objects::isNull)) {
+            LOGGER.info("null task given for update");
+            throw new ApplicationException(Code.INVALID_INPUT, "Task object is null");
+        }
+
+        Map<String, List<TaskResult>> taskResultsByWorkflow = taskResults.stream()
+                .collect(groupingBy(TaskResult::getWorkflowInstanceId, LinkedHashMap::new, Collectors.toList()));
+
+        ApplicationException failure = null;
+        List<String> failedWorkflowIds = new ArrayList<>();
+        for (Map.Entry<String, List<TaskResult>> entry : taskResultsByWorkflow.entrySet()) {
+            try {
+                updateTasks(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                LOGGER.error("Error updating the tasks of workflow: {}", entry.getKey(), e);
+                failedWorkflowIds.add(entry.getKey());
+                if (failure == null) {
+                    failure = e instanceof ApplicationException ? (ApplicationException) e
+                            : new ApplicationException(Code.INTERNAL_ERROR, e.getMessage(), e);
+                }
+            }
+        }
+        if (failure != null) {
+            String errorMsg = String.format("Unable to update the tasks of workflows: %s, %s", failedWorkflowIds, failure.getMessage());
+            throw new ApplicationException(failure.getCode(), errorMsg, failure);
+        }
+    }
+
+    private void updateTasks(String workflowId, List<TaskResult> taskResults) {
+        Workflow workflowInstance = getWorkflowForUpdate(workflowId);
+
+        // the tasks are loaded along with the workflow
+        Map<String, Task> tasksById = new HashMap<>();
+        workflowInstance.getTasks().forEach(task -> tasksById.put(task.getTaskId(), task));
+
+        TaskUpdates taskUpdates = new TaskUpdates();
+        for (TaskResult taskResult : taskResults) {
+            Task task = tasksById.get(taskResult.getTaskId());
+            if (task == null) {
+                task = Optional.ofNullable(executionDAOFacade.getTaskById(taskResult.getTaskId()))
+                        .orElseThrow(() -> new ApplicationException(NOT_FOUND, String.format("No such task found by id: %s", taskResult.getTaskId())));
+            }
+            applyTaskResult(workflowInstance, task, taskResult, taskUpdates);
+        }
+        flushTaskUpdates(workflowInstance, taskUpdates);
+    }
+
+    private Workflow getWorkflowForUpdate(String workflowId) {
         Workflow workflowInstance = executionDAOFacade.getWorkflowById(workflowId, true);
 
         // FIXME Backwards compatibility for legacy workflows already running.
@@ -655,15 +734,19 @@ public class WorkflowExecutor {
         if (workflowInstance.getWorkflowDefinition() == null) {
             workflowInstance = metadataMapperService.populateWorkflowWithDefinitions(workflowInstance);
         }
+        return workflowInstance;
+    }
 
-        Task task = executionDAOFacade.getTaskById(taskResult.getTaskId());
-
+    /**
+     * Applies the result to the task, the writes and queue operations are recorded in the given updates.
+     */
+    private void applyTaskResult(Workflow workflowInstance, Task task, TaskResult taskResult, TaskUpdates taskUpdates) {
         LOGGER.debug("Task: {} belonging to Workflow {} being updated", task, workflowInstance);
 
         String taskQueueName = QueueUtils.getQueueName(task);
         if (workflowInstance.getStatus().isTerminal()) {
             // Workflow is in terminal state
-            queueDAO.remove(taskQueueName, taskResult.getTaskId());
+            taskUpdates.queueOperations.add(() -> queueDAO.remove(taskQueueName, taskResult.getTaskId()));
             LOGGER.debug("Workflow: {} is in terminal state Task: {} removed from Queue: {} during update task", workflowInstance, task, taskQueueName);
             if (!task.getStatus().isTerminal()) {
                 task.setStatus(COMPLETED);
@@ -673,7 +756,7 @@ public class WorkflowExecutor {
             task.setExternalOutputPayloadStoragePath(taskResult.getExternalOutputPayloadStoragePath());
             task.setReasonForIncompletion(taskResult.getReasonForIncompletion());
             task.setWorkerId(taskResult.getWorkerId());
-            executionDAOFacade.updateTask(task);
+            taskUpdates.addTask(task);
             String msg = String.format("Workflow %s is already completed as %s, task=%s, reason=%s",
                     workflowInstance.getWorkflowId(), workflowInstance.getStatus(), task.getTaskType(), workflowInstance.getReasonForIncompletion());
             LOGGER.info(msg);
@@ -683,7 +766,7 @@ public class WorkflowExecutor {
 
         if (task.getStatus().isTerminal()) {
             // Task was already updated....
-            queueDAO.remove(taskQueueName, taskResult.getTaskId());
+            taskUpdates.queueOperations.add(() -> queueDAO.remove(taskQueueName, taskResult.getTaskId()));
             LOGGER.debug("Task: {} is in terminal state and is removed from the queue {} ", task, taskQueueName);
             String msg = String.format("Task is already completed as %s@%d, workflow status=%s, workflowId=%s, taskId=%s",
                     task.getStatus(), task.getEndTime(), workflowInstance.getStatus(), workflowInstance.getWorkflowId(), task.getTaskId());
@@ -702,44 +785,65 @@ public class WorkflowExecutor {
 
         if (task.getStatus().isTerminal()) {
             task.setEndTime(System.currentTimeMillis());
+            taskUpdates.completedTasks.add(task);
         }
 
-        executionDAOFacade.updateTask(task);
+        taskUpdates.addTask(task);
+        taskUpdates.decide = true;
 
         //If the task has failed update the failed task reference name in the workflow.
         //This gives the ability to look at workflow and see what tasks have failed at a high level.
         if (FAILED.equals(task.getStatus()) || FAILED_WITH_TERMINAL_ERROR.equals(task.getStatus())) {
             workflowInstance.getFailedReferenceTaskNames().add(task.getReferenceTaskName());
-            executionDAOFacade.updateWorkflow(workflowInstance);
+            taskUpdates.workflowUpdated = true;
             LOGGER.debug("Task: {} has a {} status and the Workflow has been updated with failed task reference", task, task.getStatus());
         }
 
         taskResult.getLogs().forEach(taskExecLog -> taskExecLog.setTaskId(task.getTaskId()));
-        executionDAOFacade.addTaskExecLog(taskResult.getLogs());
+        taskUpdates.logs.addAll(taskResult.getLogs());
 
         switch (task.getStatus()) {
             case COMPLETED:
             case CANCELED:
             case FAILED:
             case FAILED_WITH_TERMINAL_ERROR:
-                queueDAO.remove(taskQueueName, taskResult.getTaskId());
+                taskUpdates.queueOperations.add(() -> queueDAO.remove(taskQueueName, taskResult.getTaskId()));
                 LOGGER.debug("Task: {} removed from taskQueue: {} since the task status is {}", task, taskQueueName, task.getStatus().name());
                 break;
             case IN_PROGRESS:
                 // put it back in queue based on callbackAfterSeconds
                 long callBack = taskResult.getCallbackAfterSeconds();
-                queueDAO.remove(taskQueueName, task.getTaskId());
-                LOGGER.debug("Task: {} removed from taskQueue: {} since the task status is {}", task, taskQueueName, task.getStatus().name());
-                queueDAO.push(taskQueueName, task.getTaskId(), callBack); // Milliseconds
+                taskUpdates.queueOperations.add(() -> {
+                    queueDAO.remove(taskQueueName, task.getTaskId());
+                    queueDAO.push(taskQueueName, task.getTaskId(), callBack); // Milliseconds
+                });
                 LOGGER.debug("Task: {} pushed back to taskQueue: {} since the task status is {} with callbackAfterSeconds: {}", task, taskQueueName, task.getStatus().name(), callBack);
                 break;
             default:
                 break;
         }
+    }
 
-        decide(workflowId);
+    /**
+     * Writes the tasks, the workflow and the logs, then applies the queue operations and decides the workflow.
+     */
+    private void flushTaskUpdates(Workflow workflowInstance, TaskUpdates taskUpdates) {
+        if (!taskUpdates.tasks.isEmpty()) {
+            executionDAOFacade.updateTasks(new ArrayList<>(taskUpdates.tasks.values()));
+        }
+        if (taskUpdates.workflowUpdated) {
+            executionDAOFacade.updateWorkflow(workflowInstance);
+        }
+        if (!taskUpdates.logs.isEmpty()) {
+            executionDAOFacade.addTaskExecLog(taskUpdates.logs);
+        }
+        taskUpdates.queueOperations.forEach(Runnable::run);
 
-        if (task.getStatus().isTerminal()) {
+        if (taskUpdates.decide) {
+            decide(workflowInstance.getWorkflowId());
+        }
+
+        for (Task task : taskUpdates.completedTasks) {
             long duration = getTaskDuration(0, task);
             long lastDuration = task.getEndTime() - task.getStartTime();
             Monitors.recordTaskExecutionTime(task.getTaskDefName(), duration, true, task.getStatus());
@@ -747,12 +851,35 @@ public class WorkflowExecutor {
         }
     }
 
+    /**
+     * The writes and queue operations resulting from applying task results to a workflow.
+     */
+    private static class TaskUpdates {
+        // a task updated more than once is written once
+        private final Map<String, Task> tasks = new LinkedHashMap<>();
+        private final List<TaskExecLog> logs = new ArrayList<>();
+        private final List<Runnable> queueOperations = new ArrayList<>();
+        private final List<Task> completedTasks = new ArrayList<>();
+        private boolean workflowUpdated;
+        private boolean decide;
+
+        private void addTask(Task task) {
+            tasks.put(task.getTaskId(), task);
+        }
+    }
+
     public Task getTask(String taskId) {
         return Optional.ofNullable(executionDAOFacade.getTaskById(taskId))
                 .map(metadataMapperService::populateTaskWithDefinition)
                 .orElse(null);
     }
 
+    public List<Task> getTasks(List<String> taskIds) {
+        return executionDAOFacade.getTasks(taskIds).stream()
+                .map(metadataMapperService::populateTaskWithDefinition)
+                .collect(Collectors.toList());
+    }
+
     public List<Task> getTasks(String taskType, String startKey, int count) {
         return executionDAOFacade.getTasksByName(taskType, startKey, count);
     }
@@ -776,11 +903,39 @@ public class WorkflowExecutor {
     }
 
     /**
+     * Evaluates the state of the workflow. Concurrent requests to decide the same workflow are serialized and
+     * collapsed into a single follow-up evaluation by the {@link DecideCoordinator}.
+     * <p>
+     * The workflow and task updates of each run of the decide and the decides it triggers on this thread are buffered
+     * by the {@link ExecutionDAOFacade}, and written once each after the run, so that a follow-up run reads the updates
+     * that requested it. If the decide fails, the updates still buffered are discarded, and the workflow is decided
+     * again from its last written state.
+     *
      * @param workflowId ID of the workflow to evaluate the state for
-     * @return true if the workflow has completed (success or failed), false otherwise.
+     * @return true if the workflow has completed (success or failed), false otherwise or if the request was
+     * coalesced into an evaluation already in progress.
      * @throws ApplicationException If there was an error - caller should retry in this case.
      */
     public boolean decide(String workflowId) {
+        boolean buffering = executionDAOFacade.openWriteBuffer(workflowId);
+        boolean decided = false;
+        try {
+            boolean completed = decideCoordinator.decide(workflowId, () -> decideWorkflow(workflowId),
+                    executionDAOFacade::flushWriteBuffer);
+            decided = true;
+            return completed;
+        } finally {
+            if (buffering) {
+                if (decided) {
+                    executionDAOFacade.closeWriteBuffer();
+                } else {
+                    executionDAOFacade.discardWriteBuffer();
+                }
+            }
+        }
+    }
+
+    private boolean decideWorkflow(String workflowId) {
 
         // If it is a new workflow, the tasks will be still empty even though include tasks is true
         Workflow workflow = executionDAOFacade.getWorkflowById(workflowId, true);
@@ -830,21 +985,21 @@ public class WorkflowExecutor {
             stateChanged = scheduleTask(workflow, tasksToBeScheduled) || stateChanged;
 
             if (!outcome.tasksToBeUpdated.isEmpty()) {
-                for (Task task : tasksToBeUpdated) {
-                    if (task.getStatus() != null && (!task.getStatus().equals(Task.Status.IN_PROGRESS)
-                            || !task.getStatus().equals(Task.Status.SCHEDULED))) {
-                        queueDAO.remove(QueueUtils.getQueueName(task), task.getTaskId());
-                    }
-                }
+                tasksToBeUpdated.stream()
+                        .filter(task -> task.getStatus() != null && (!task.getStatus().equals(Task.Status.IN_PROGRESS)
+                                || !task.getStatus().equals(Task.Status.SCHEDULED)))
+                        .collect(groupingBy(QueueUtils::getQueueName, mapping(Task::getTaskId, Collectors.toList())))
+                        .forEach(queueDAO::remove);
             }
 
             if (!outcome.tasksToBeUpdated.isEmpty() || !tasksToBeScheduled.isEmpty()) {
                 executionDAOFacade.updateTasks(tasksToBeUpdated);
                 executionDAOFacade.updateWorkflow(workflow);
-                queueDAO.push(DECIDER_QUEUE, workflow.getWorkflowId(), config.getSweepFrequency());
+                queueDAO.push(getDeciderQueueName(workflow.getWorkflowId()), workflow.getWorkflowId(), config.getSweepFrequency());
             }
 
             if (stateChanged) {
+                // coalesced into a follow-up run of the ongoing decide
                 decide(workflowId);
             }
 
@@ -972,6 +1127,20 @@ public class WorkflowExecutor {
 
     //Executes the async system task
     public void executeSystemTask(WorkflowSystemTask systemTask, String taskId, int unackTimeout) {
+        executeSystemTask(systemTask, taskId, unackTimeout, false);
+    }
+
+    /**
+     * Executes the async system task, starting it with {@link WorkflowSystemTask#startAsync} so that the calling
+     * thread is not blocked while the task is being started.
+     *
+     * @return a stage completed once the task has been started and updated
+     */
+    public CompletionStage<Void> executeSystemTaskAsync(WorkflowSystemTask systemTask, String taskId, int unackTimeout) {
+        return executeSystemTask(systemTask, taskId, unackTimeout, true);
+    }
+
+    private CompletionStage<Void> executeSystemTask(WorkflowSystemTask systemTask, String taskId, int unackTimeout, boolean async) {
         try {
             Task task = executionDAOFacade.getTaskById(taskId);
             LOGGER.info("Task: {} fetched from execution DAO for taskId: {}", task, taskId);
@@ -979,7 +1148,7 @@ public class WorkflowExecutor {
                 //Tune the SystemTaskWorkerCoordinator's queues - if the queue size is very big this can happen!
                 LOGGER.info("Task {}/{} was already completed.", task.getTaskType(), task.getTaskId());
                 queueDAO.remove(QueueUtils.getQueueName(task), task.getTaskId());
-                return;
+                return COMPLETED_STAGE;
             }
 
             String workflowId = task.getWorkflowInstanceId();
@@ -997,18 +1166,18 @@ public class WorkflowExecutor {
                 }
                 executionDAOFacade.updateTask(task);
                 queueDAO.remove(QueueUtils.getQueueName(task), task.getTaskId());
-                return;
+                return COMPLETED_STAGE;
             }
 
             if (task.getStatus().equals(SCHEDULED)) {
                 if (executionDAOFacade.exceedsInProgressLimit(task)) {
                     //to do add a metric to record this
                     LOGGER.warn("Concurrent Execution limited for {}:{}", taskId, task.getTaskDefName());
-                    return;
+                    return COMPLETED_STAGE;
                 }
                 if (task.getRateLimitPerFrequency() > 0 && executionDAOFacade.exceedsRateLimitPerFrequency(task)) {
                     LOGGER.warn("RateLimit Execution limited for {}:{}, limit:{}", taskId, task.getTaskDefName(), task.getRateLimitPerFrequency());
-                    return;
+                    return COMPLETED_STAGE;
                 }
             }
 
@@ -1018,9 +1187,14 @@ public class WorkflowExecutor {
             task.setPollCount(task.getPollCount() + 1);
             executionDAOFacade.updateTask(task);
 
+            CompletionStage<Void> execution = COMPLETED_STAGE;
             switch (task.getStatus()) {
                 case SCHEDULED:
-                    systemTask.start(workflow, task, this);
+                    if (async) {
+                        execution = systemTask.startAsync(workflow, task, this);
+                    } else {
+                        systemTask.start(workflow, task, this);
+                    }
                     break;
 
                 case IN_PROGRESS:
@@ -1030,15 +1204,27 @@ public class WorkflowExecutor {
                     break;
             }
 
-            if (!task.getStatus().isTerminal()) {
-                task.setCallbackAfterSeconds(unackTimeout);
-            }
+            return execution.handle((ignored, error) -> {
+                if (error != null) {
+                    LOGGER.error("Error executing system task - {}, with id: {}", systemTask, taskId, error);
+                    return null;
+                }
+                try {
+                    if (!task.getStatus().isTerminal()) {
+                        task.setCallbackAfterSeconds(unackTimeout);
+                    }
 
-            updateTask(new TaskResult(task));
-            LOGGER.info("Done Executing {}/{}-{} op={}", task.getTaskType(), task.getTaskId(), task.getStatus(), task.getOutputData().toString());
+                    updateTask(new TaskResult(task));
+                    LOGGER.info("Done Executing {}/{}-{} op={}", task.getTaskType(), task.getTaskId(), task.getStatus(), task.getOutputData().toString());
+                } catch (Exception e) {
+                    LOGGER.error("Error executing system task - {}, with id: {}", systemTask, taskId, e);
+                }
+                return null;
+            });
 
         } catch (Exception e) {
             LOGGER.error("Error executing system task - {}, with id: {}", systemTask, taskId, e);
+            return COMPLETED_STAGE;
         }
     }
 
@@ -1165,10 +1351,28 @@ public class WorkflowExecutor {
         return startedSystemTasks;
     }
 
+    /**
+     * Adds the tasks to their queues with one remove per queue, and one push per queue and callback.
+     */
     private void addTaskToQueue(final List<Task> tasks) {
-        for (Task task : tasks) {
-            addTaskToQueue(task);
+        if (tasks.isEmpty()) {
+            return;
         }
+        Map<String, Map<Long, List<String>>> taskIdsByQueue = tasks.stream()
+                .collect(groupingBy(QueueUtils::getQueueName,
+                        groupingBy((Task task) -> Math.max(0, task.getCallbackAfterSeconds()), mapping(Task::getTaskId, Collectors.toList()))));
+        taskIdsByQueue.forEach((taskQueueName, taskIdsByCallback) -> {
+            List<String> taskIds = taskIdsByCallback.values().stream()
+                    .flatMap(List::stream)
+                    .collect(Collectors.toList());
+            queueDAO.remove(taskQueueName, taskIds);
+            taskIdsByCallback.forEach((callBack, ids) -> queueDAO.push(taskQueueName, ids, callBack));
+            LOGGER.debug("Added tasks {} to queue {}", taskIds, taskQueueName);
+        });
+    }
+
+    private String getDeciderQueueName(String workflowId) {
+        return QueueUtils.getDeciderQueueName(workflowId, deciderQueueShards);
     }
 
     private void terminate(final Workflow workflow, TerminateWorkflowException tw) {
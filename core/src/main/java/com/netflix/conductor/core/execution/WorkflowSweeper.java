@@ -18,25 +18,49 @@
  */
 package com.netflix.conductor.core.execution;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.netflix.conductor.core.WorkflowContext;
 import com.netflix.conductor.core.config.Configuration;
 import com.netflix.conductor.core.execution.ApplicationException.Code;
+import com.netflix.conductor.core.utils.QueueUtils;
 import com.netflix.conductor.dao.QueueDAO;
 import com.netflix.conductor.metrics.Monitors;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
+ * Sweeps the workflows queued in the decider queues.
+ * <p>
+ * The decider queue is partitioned into {@link Configuration#getDeciderQueueShards()} shards by workflow id, and
+ * the shards owned by this node (all of them unless <code>workflow.sweeper.shards</code> lists a subset) are popped
+ * together, with a single multi-queue pop. Polling is pipelined: the workflows popped are decided in the background
+ * and the shards are polled again at the next interval without waiting for the previous batch to complete, as long
+ * as there are sweeper threads available. The number of workflows popped per poll and shard adapts to the depth of
+ * the shard and to the time taken to decide a workflow. As soon as a workflow has been decided, its unack timeout is extended if it is still running, or
+ * it is removed from the queue if it is done, along with the other workflows of its batch decided in the meantime.
+ *
  * @author Viren
  * @author Vikram
  *
@@ -54,6 +78,15 @@ public class WorkflowSweeper {
 
 	private int executorThreadPoolSize;
 
+	private int pollIntervalMs;
+
+	private Semaphore capacity;
+
+	private List<Shard> shards;
+
+	// the number of polls so far, polled by a single thread
+	private int pollCount;
+
 	private static final String className = WorkflowSweeper.class.getSimpleName();
 
 	@Inject
@@ -61,10 +94,18 @@ public class WorkflowSweeper {
 		this.config = config;
 		this.queueDAO = queueDAO;
 		this.executorThreadPoolSize = config.getIntProperty("workflow.sweeper.thread.count", 5);
+		this.pollIntervalMs = Math.max(1, config.getIntProperty("workflow.sweeper.poll.interval.ms", 500));
 		if(this.executorThreadPoolSize > 0) {
 			this.executorService = Executors.newFixedThreadPool(executorThreadPoolSize);
+			// at most a batch being decided and a batch waiting for a worker, across all the shards
+			int maxInProgress = 2 * executorThreadPoolSize;
+			this.capacity = new Semaphore(maxInProgress);
+			List<String> queueNames = QueueUtils.getDeciderQueueNames(config.getDeciderQueueShards());
+			this.shards = getOwnedShards(config).stream()
+					.map(shard -> new Shard(queueNames.get(shard), executorThreadPoolSize, maxInProgress, pollIntervalMs))
+					.collect(Collectors.toList());
 			init(workflowExecutor);
-			logger.info("Workflow Sweeper Initialized");
+			logger.info("Workflow Sweeper Initialized, sweeping {}", shards.stream().map(Shard::getQueueName).collect(Collectors.toList()));
 		} else {
 			logger.warn("Workflow sweeper is DISABLED");
 		}
@@ -80,57 +121,277 @@ public class WorkflowSweeper {
 					logger.info("Workflow sweep is disabled.");
 					return;
 				}
-				List<String> workflowIds = queueDAO.pop(WorkflowExecutor.DECIDER_QUEUE, 2 * executorThreadPoolSize, 2000);
-				int currentQueueSize = queueDAO.getSize(WorkflowExecutor.DECIDER_QUEUE);
-				logger.debug("Sweeper's current deciderqueue size: {}.", currentQueueSize);
-				int retrievedWorkflows = (workflowIds != null) ? workflowIds.size() : 0;
-				logger.debug("Sweeper retrieved {} workflows from the decider queue.", retrievedWorkflows);
-
-				sweep(workflowIds, workflowExecutor);
+				poll(shards, workflowExecutor);
 			} catch (Exception e) {
 				Monitors.error(className, "sweep");
 				logger.error("Error when sweeping workflow", e);
 			}
-		}, 500, 500, TimeUnit.MILLISECONDS);
+		}, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
 	}
 
-	public void sweep(List<String> workflowIds, WorkflowExecutor workflowExecutor) throws Exception {
+	/**
+	 * Pops the shards with a single pop, each up to its batch size, the shards first in line taking the free
+	 * capacity first. The first shard in line changes at each poll, so that no shard is starved.
+	 */
+	@VisibleForTesting
+	void poll(List<Shard> shards, WorkflowExecutor workflowExecutor) {
+		List<Shard> polled = new ArrayList<>(shards);
+		Collections.rotate(polled, -(pollCount++ % polled.size()));
+		Map<String, Integer> batchSizes = new LinkedHashMap<>();
+		int available = capacity.availablePermits();
+		for (Shard shard : polled) {
+			String queueName = shard.getQueueName();
+			int currentQueueSize = queueDAO.getSize(queueName);
+			logger.debug("Sweeper's current {} size: {}.", queueName, currentQueueSize);
 
-		List<Future<?>> futures = new LinkedList<>();
-		for (String workflowId : workflowIds) {
-			Future<?> future = executorService.submit(() -> {
-				try {
+			int batchSize = Math.min(shard.getBatchSize(currentQueueSize), available);
+			Monitors.recordDeciderQueueDepth(queueName, currentQueueSize);
+			Monitors.recordSweeperInProgress(queueName, shard.getInProgress());
+			Monitors.recordSweeperBatchSize(queueName, batchSize);
+			if (batchSize > 0) {
+				batchSizes.put(queueName, batchSize);
+				available -= batchSize;
+			}
+		}
+		int batchSize = batchSizes.values().stream().mapToInt(Integer::intValue).sum();
+		if (batchSize <= 0 || !capacity.tryAcquire(batchSize)) {
+			return;
+		}
 
-					WorkflowContext workflowContext = new WorkflowContext(config.getAppId());
-					WorkflowContext.set(workflowContext);
-					if(logger.isDebugEnabled()) {
-						logger.debug("Running sweeper for workflow {}", workflowId);
-					}
-					boolean done = workflowExecutor.decide(workflowId);
-					if(!done) {
-						queueDAO.setUnackTimeout(WorkflowExecutor.DECIDER_QUEUE, workflowId, config.getSweepFrequency() * 1000);
-					} else {
-						queueDAO.remove(WorkflowExecutor.DECIDER_QUEUE, workflowId);
-					}
-
-				} catch (ApplicationException e) {
-					if(e.getCode().equals(Code.NOT_FOUND)) {
-						logger.error("Workflow NOT found for id: " + workflowId, e);
-						queueDAO.remove(WorkflowExecutor.DECIDER_QUEUE, workflowId);
-					}
-
-				} catch (Exception e) {
-					Monitors.error(className, "sweep");
-					logger.error("Error running sweep for " + workflowId, e);
+		Map<String, List<String>> workflowIds;
+		try {
+			workflowIds = queueDAO.pop(batchSizes, 200);
+		} catch (RuntimeException e) {
+			capacity.release(batchSize);
+			throw e;
+		}
+		int retrievedWorkflows = workflowIds.values().stream().mapToInt(List::size).sum();
+		logger.debug("Sweeper retrieved {} workflows from {}.", retrievedWorkflows, batchSizes.keySet());
+		capacity.release(batchSize - retrievedWorkflows);
+
+		int remaining = retrievedWorkflows;
+		for (Shard shard : polled) {
+			String queueName = shard.getQueueName();
+			List<String> shardWorkflowIds = workflowIds.getOrDefault(queueName, Collections.emptyList());
+			if (shardWorkflowIds.isEmpty()) {
+				continue;
+			}
+			SweepResults results = new SweepResults(queueName);
+			for (String workflowId : shardWorkflowIds) {
+				shard.started();
+				try {
+					executorService.submit(() -> {
+						long start = System.currentTimeMillis();
+						try {
+							sweep(results, workflowId, workflowExecutor);
+							results.flush();
+						} finally {
+							long duration = System.currentTimeMillis() - start;
+							shard.completed(duration);
+							capacity.release();
+							Monitors.recordSweeperDecideTime(queueName, duration);
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					// the workflows will be popped again once their unack timeout expires
+					shard.cancelled();
+					capacity.release(remaining);
+					throw e;
 				}
-			});
-			futures.add(future);
+				remaining--;
+			}
 		}
+	}
+
+	public void sweep(List<String> workflowIds, WorkflowExecutor workflowExecutor) throws Exception {
+
+		Map<String, List<String>> workflowIdsByQueue = workflowIds.stream()
+				.collect(Collectors.groupingBy(workflowId -> QueueUtils.getDeciderQueueName(workflowId, config.getDeciderQueueShards())));
+		List<Future<?>> futures = new LinkedList<>();
+		List<SweepResults> sweepResults = new LinkedList<>();
+		workflowIdsByQueue.forEach((queueName, queuedWorkflowIds) -> {
+			SweepResults results = new SweepResults(queueName);
+			sweepResults.add(results);
+			for (String workflowId : queuedWorkflowIds) {
+				Future<?> future = executorService.submit(() -> sweep(results, workflowId, workflowExecutor));
+				futures.add(future);
+			}
+		});
 
 		for (Future<?> future : futures) {
 			future.get();
 		}
+		// the caller is waiting for all the workflows anyway, so each queue is updated once
+		sweepResults.forEach(SweepResults::flush);
+
+	}
+
+	private void sweep(SweepResults results, String workflowId, WorkflowExecutor workflowExecutor) {
+		try {
+
+			WorkflowContext workflowContext = new WorkflowContext(config.getAppId());
+			WorkflowContext.set(workflowContext);
+			if(logger.isDebugEnabled()) {
+				logger.debug("Running sweeper for workflow {}", workflowId);
+			}
+			boolean done = workflowExecutor.decide(workflowId);
+			if(!done) {
+				results.pending(workflowId);
+			} else {
+				results.done(workflowId);
+			}
+
+		} catch (ApplicationException e) {
+			if(e.getCode().equals(Code.NOT_FOUND)) {
+				logger.error("Workflow NOT found for id: " + workflowId, e);
+				results.done(workflowId);
+			}
+
+		} catch (Exception e) {
+			Monitors.error(className, "sweep");
+			logger.error("Error running sweep for " + workflowId, e);
+		}
+	}
+
+	/**
+	 * @return the shards listed in <code>workflow.sweeper.shards</code>, all of them if none is listed, as indices in
+	 * {@link QueueUtils#getDeciderQueueNames(int)}
+	 */
+	@VisibleForTesting
+	static List<Integer> getOwnedShards(Configuration config) {
+		int shards = Math.max(1, config.getDeciderQueueShards());
+		String ownedShards = config.getProperty("workflow.sweeper.shards", "");
+		List<Integer> owned = Arrays.stream(StringUtils.defaultString(ownedShards).split(","))
+				.map(String::trim)
+				.filter(StringUtils::isNumeric)
+				.map(Integer::valueOf)
+				.filter(shard -> shard < shards)
+				.distinct()
+				.collect(Collectors.toList());
+		if (owned.isEmpty()) {
+			if (StringUtils.isNotBlank(ownedShards)) {
+				logger.warn("No valid shard in workflow.sweeper.shards: {}, sweeping all the {} shards", ownedShards, shards);
+			}
+			for (int shard = 0; shard < shards; shard++) {
+				owned.add(shard);
+			}
+		}
+		return owned;
+	}
 
+	/**
+	 * The outcomes of the workflows decided from a decider queue, waiting to be applied to the queue. The workflows
+	 * still running are hidden for another sweep period, and the workflows done are removed from the queue, with one
+	 * bulk queue operation each for all the outcomes recorded since the previous flush.
+	 */
+	private class SweepResults {
+
+		private final String queueName;
+		private final Queue<String> pendingWorkflowIds = new ConcurrentLinkedQueue<>();
+		private final Queue<String> doneWorkflowIds = new ConcurrentLinkedQueue<>();
+
+		SweepResults(String queueName) {
+			this.queueName = queueName;
+		}
+
+		void pending(String workflowId) {
+			pendingWorkflowIds.add(workflowId);
+		}
+
+		void done(String workflowId) {
+			doneWorkflowIds.add(workflowId);
+		}
+
+		/**
+		 * Applies the outcomes recorded so far. Each outcome is drained by exactly one of the threads flushing
+		 * concurrently, so a workflow is never updated twice nor left behind.
+		 */
+		void flush() {
+			List<String> pending = drain(pendingWorkflowIds);
+			List<String> done = drain(doneWorkflowIds);
+			try {
+				if (!pending.isEmpty()) {
+					queueDAO.setUnackTimeout(queueName, pending, config.getSweepFrequency() * 1000);
+				}
+				if (!done.isEmpty()) {
+					queueDAO.remove(queueName, done);
+				}
+			} catch (Exception e) {
+				// the workflows not updated will be popped again once their unack timeout expires
+				Monitors.error(className, "sweep");
+				logger.error("Error updating {} after sweeping {} and {}", queueName, pending, done, e);
+			}
+		}
+
+		private List<String> drain(Queue<String> workflowIds) {
+			List<String> drained = new ArrayList<>();
+			String workflowId;
+			while ((workflowId = workflowIds.poll()) != null) {
+				drained.add(workflowId);
+			}
+			return drained;
+		}
+	}
+
+	/**
+	 * A decider queue polled by this sweeper, along with the state used to size its batches.
+	 */
+	@VisibleForTesting
+	static class Shard {
+
+		private static final double LATENCY_SMOOTHING_FACTOR = 0.2;
+
+		private final String queueName;
+		private final int threadCount;
+		private final int maxBatchSize;
+		private final int pollIntervalMs;
+		private final AtomicInteger inProgress = new AtomicInteger();
+		private volatile double averageDecideTimeMs = -1;
+
+		Shard(String queueName, int threadCount, int maxBatchSize, int pollIntervalMs) {
+			this.queueName = queueName;
+			this.threadCount = threadCount;
+			this.maxBatchSize = maxBatchSize;
+			this.pollIntervalMs = pollIntervalMs;
+		}
+
+		String getQueueName() {
+			return queueName;
+		}
+
+		int getInProgress() {
+			return inProgress.get();
+		}
+
+		/**
+		 * @return the number of workflows the sweeper threads can decide until the next poll, given the average time
+		 * taken to decide a workflow, bounded by the depth of the queue and the workflows already in progress
+		 */
+		int getBatchSize(int queueDepth) {
+			int batchSize = maxBatchSize;
+			if (averageDecideTimeMs > 0) {
+				batchSize = (int) Math.min(maxBatchSize, Math.max(1, threadCount * pollIntervalMs / averageDecideTimeMs));
+			}
+			batchSize = Math.min(batchSize, maxBatchSize - inProgress.get());
+			return Math.max(0, Math.min(batchSize, queueDepth));
+		}
+
+		void started() {
+			inProgress.incrementAndGet();
+		}
+
+		void cancelled() {
+			inProgress.decrementAndGet();
+		}
+
+		synchronized void completed(long decideTimeMs) {
+			inProgress.decrementAndGet();
+			if (averageDecideTimeMs < 0) {
+				averageDecideTimeMs = decideTimeMs;
+			} else {
+				averageDecideTimeMs += LATENCY_SMOOTHING_FACTOR * (decideTimeMs - averageDecideTimeMs);
+			}
+		}
 	}
 
 }
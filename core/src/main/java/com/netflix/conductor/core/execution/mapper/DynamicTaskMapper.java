@@ -71,7 +71,7 @@ public class DynamicTaskMapper implements TaskMapper {
         TaskDef taskDefinition = getDynamicTaskDefinition(taskToSchedule);
         taskToSchedule.setTaskDefinition(taskDefinition);
 
-        Map<String, Object> input = parametersUtils.getTaskInput(taskToSchedule.getInputParameters(), workflowInstance,
+        Map<String, Object> input = parametersUtils.getTaskInput(taskToSchedule, workflowInstance,
                 taskDefinition, taskMapperContext.getTaskId());
         Task dynamicTask = new Task();
         dynamicTask.setStartDelayInSeconds(taskToSchedule.getStartDelay());
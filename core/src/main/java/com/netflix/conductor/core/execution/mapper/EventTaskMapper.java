@@ -49,7 +49,7 @@ public class EventTaskMapper implements TaskMapper {
         String taskId = taskMapperContext.getTaskId();
 
         taskToSchedule.getInputParameters().put("sink", taskToSchedule.getSink());
-        Map<String, Object> eventTaskInput = parametersUtils.getTaskInputV2(taskToSchedule.getInputParameters(),
+        Map<String, Object> eventTaskInput = parametersUtils.getTaskInputV2(taskToSchedule,
                 workflowInstance, taskId, null);
         String sink = (String) eventTaskInput.get("sink");
 
@@ -236,7 +236,7 @@ public class ForkJoinDynamicTaskMapper implements TaskMapper {
     Pair<List<WorkflowTask>, Map<String, Map<String, Object>>> getDynamicForkTasksAndInput(WorkflowTask taskToSchedule, Workflow workflowInstance,
                                                                                            String dynamicForkTaskParam) throws TerminateWorkflowException {
 
-        Map<String, Object> input = parametersUtils.getTaskInput(taskToSchedule.getInputParameters(), workflowInstance, null, null);
+        Map<String, Object> input = parametersUtils.getTaskInput(taskToSchedule, workflowInstance, null, null);
         Object dynamicForkTasksJson = input.get(dynamicForkTaskParam);
         List<WorkflowTask> dynamicForkWorkflowTasks = objectMapper.convertValue(dynamicForkTasksJson, ListOfWorkflowTasks);
         for (WorkflowTask workflowTask : dynamicForkWorkflowTasks) {
@@ -264,7 +264,7 @@ public class ForkJoinDynamicTaskMapper implements TaskMapper {
     @VisibleForTesting
     Pair<List<WorkflowTask>, Map<String, Map<String, Object>>> getDynamicForkJoinTasksAndInput(WorkflowTask taskToSchedule, Workflow workflowInstance) throws TerminateWorkflowException {
         String dynamicForkJoinTaskParam = taskToSchedule.getDynamicForkJoinTasksParam();
-        Map<String, Object> input = parametersUtils.getTaskInput(taskToSchedule.getInputParameters(), workflowInstance, null, null);
+        Map<String, Object> input = parametersUtils.getTaskInput(taskToSchedule, workflowInstance, null, null);
         Object paramValue = input.get(dynamicForkJoinTaskParam);
         DynamicForkJoinTaskList dynamicForkJoinTaskList = objectMapper.convertValue(paramValue, DynamicForkJoinTaskList.class);
 
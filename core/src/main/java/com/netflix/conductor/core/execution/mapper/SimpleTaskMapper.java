@@ -72,7 +72,7 @@ public class SimpleTaskMapper implements TaskMapper {
                     return new TerminateWorkflowException(reason);
                 });
 
-        Map<String, Object> input = parametersUtils.getTaskInput(taskToSchedule.getInputParameters(), workflowInstance, taskDefinition, taskMapperContext.getTaskId());
+        Map<String, Object> input = parametersUtils.getTaskInput(taskToSchedule, workflowInstance, taskDefinition, taskMapperContext.getTaskId());
         Task simpleTask = new Task();
         simpleTask.setStartDelayInSeconds(taskToSchedule.getStartDelay());
         simpleTask.setTaskId(taskMapperContext.getTaskId());
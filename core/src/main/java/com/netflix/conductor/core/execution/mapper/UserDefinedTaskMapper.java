@@ -73,7 +73,7 @@ public class UserDefinedTaskMapper implements TaskMapper {
                             return new TerminateWorkflowException(reason);
                         }));
 
-        Map<String, Object> input = parametersUtils.getTaskInputV2(taskToSchedule.getInputParameters(), workflowInstance, taskId, taskDefinition);
+        Map<String, Object> input = parametersUtils.getTaskInputV2(taskToSchedule, workflowInstance, taskId, taskDefinition);
 
         Task userDefinedTask = new Task();
         userDefinedTask.setTaskType(taskToSchedule.getType());
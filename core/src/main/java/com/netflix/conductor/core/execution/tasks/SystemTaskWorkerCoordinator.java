@@ -28,19 +28,30 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * Polls the queues of the async system tasks and executes the tasks polled.
+ * <p>
+ * The executions are scheduled fairly across the system task types, see {@link SystemTaskWorkerPool}. The share
+ * of each task type is set with <code>workflow.system.task.worker.&lt;task type&gt;.weight</code> and
+ * <code>workflow.system.task.worker.&lt;task type&gt;.thread.count</code>. The poll interval of a task type backs
+ * off exponentially while its queue is empty, up to <code>workflow.system.task.worker.poll.interval.max</code>.
+ * <p>
+ * When <code>workflow.system.task.worker.async.enabled</code> is set, the system tasks that are
+ * {@link WorkflowSystemTask#isNonBlocking() non blocking} are started with
+ * {@link WorkflowSystemTask#startAsync}: the worker threads are released as soon as the task is started, and up to
+ * <code>workflow.system.task.worker.async.max.in.flight</code> tasks may be in flight across all the task types.
+ *
  * @author Viren
  *
  */
@@ -53,7 +64,11 @@ public class SystemTaskWorkerCoordinator {
 
 	private WorkflowExecutor workflowExecutor;
 
-	private ExecutorService executorService;
+	private SystemTaskWorkerPool workerPool;
+
+	private ScheduledExecutorService pollerService;
+
+	private int threadCount;
 
 	private int workerQueueSize;
 
@@ -63,15 +78,21 @@ public class SystemTaskWorkerCoordinator {
 	//Interval in ms at which the polling is done
 	private int pollInterval;
 
-	private LinkedBlockingQueue<Runnable> workerQueue;
+	//Interval in ms the polling backs off to when the queue is empty
+	private int maxPollInterval;
 
 	private int unackTimeout;
 
+	private boolean asyncEnabled;
+
+	//Permits for the tasks started asynchronously and not completed yet
+	private Semaphore inFlightPermits;
+
 	private Configuration config;
 
 	private static BlockingQueue<WorkflowSystemTask> queue = new LinkedBlockingQueue<>();
 
-	private static Set<WorkflowSystemTask> listeningTasks = new HashSet<>();
+	private static Set<WorkflowSystemTask> listeningTasks = ConcurrentHashMap.newKeySet();
 
 	private static final String className = SystemTaskWorkerCoordinator.class.getName();
 
@@ -81,17 +102,19 @@ public class SystemTaskWorkerCoordinator {
 		this.workflowExecutor = workflowExecutor;
 		this.config = config;
 		this.unackTimeout = config.getIntProperty("workflow.system.task.worker.callback.seconds", 30);
-		int threadCount = config.getIntProperty("workflow.system.task.worker.thread.count", 10);
+		this.threadCount = config.getIntProperty("workflow.system.task.worker.thread.count", 10);
 		this.pollCount = config.getIntProperty("workflow.system.task.worker.poll.count", 10);
 		this.pollInterval = config.getIntProperty("workflow.system.task.worker.poll.interval", 50);
+		this.maxPollInterval = Math.max(pollInterval, config.getIntProperty("workflow.system.task.worker.poll.interval.max", 1000));
 		this.workerQueueSize = config.getIntProperty("workflow.system.task.worker.queue.size", 100);
-		this.workerQueue = new LinkedBlockingQueue<>(workerQueueSize);
+		this.asyncEnabled = config.getBooleanProperty("workflow.system.task.worker.async.enabled", false);
+		this.inFlightPermits = new Semaphore(Math.max(1, config.getIntProperty("workflow.system.task.worker.async.max.in.flight", 1000)));
 		if(threadCount > 0) {
 			ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("system-task-worker-%d").build();
-			this.executorService = new ThreadPoolExecutor(threadCount, threadCount,
-	                0L, TimeUnit.MILLISECONDS,
-	                workerQueue,
-	                threadFactory);
+			this.workerPool = new SystemTaskWorkerPool(threadCount, threadFactory);
+			int pollerThreadCount = Math.max(1, config.getIntProperty("workflow.system.task.worker.poller.thread.count", 2));
+			this.pollerService = Executors.newScheduledThreadPool(pollerThreadCount,
+					new ThreadFactoryBuilder().setNameFormat("system-task-poller-%d").build());
 			new Thread(this::listen).start();
 			logger.info("System Task Worker initialized with {} threads and a callback time of {} seconds and queue size: {} with pollCount: {} and poll interval: {}", threadCount, unackTimeout, workerQueueSize, pollCount, pollInterval);
 		} else {
@@ -109,9 +132,8 @@ public class SystemTaskWorkerCoordinator {
 			//noinspection InfiniteLoopStatement
 			for(;;) {
 				WorkflowSystemTask workflowSystemTask = queue.poll(60, TimeUnit.SECONDS);
-				if(workflowSystemTask != null && workflowSystemTask.isAsync() && !listeningTasks.contains(workflowSystemTask)) {
+				if(workflowSystemTask != null && workflowSystemTask.isAsync() && listeningTasks.add(workflowSystemTask)) {
 					listen(workflowSystemTask);
-					listeningTasks.add(workflowSystemTask);
 				}
 			}
 		}catch(InterruptedException ie) {
@@ -121,22 +143,33 @@ public class SystemTaskWorkerCoordinator {
 	}
 
 	private void listen(WorkflowSystemTask systemTask) {
-		Executors.newSingleThreadScheduledExecutor().scheduleWithFixedDelay(() -> pollAndExecute(systemTask), 1000, pollInterval, TimeUnit.MILLISECONDS);
-		logger.info("Started listening for system task: {}", systemTask.getName());
+		String taskName = systemTask.getName();
+		int weight = config.getIntProperty("workflow.system.task.worker." + taskName + ".weight", 1);
+		int maxWorkers = config.getIntProperty("workflow.system.task.worker." + taskName + ".thread.count", threadCount);
+		workerPool.register(taskName, weight, maxWorkers, workerQueueSize);
+		pollerService.schedule(new Poller(systemTask), 1000, TimeUnit.MILLISECONDS);
+		logger.info("Started listening for system task: {} with weight: {} and max workers: {}", taskName, weight, maxWorkers);
 	}
 
-	private void pollAndExecute(WorkflowSystemTask systemTask) {
+	/**
+	 * @return the number of tasks polled, -1 if the workers are busy
+	 */
+	private int pollAndExecute(WorkflowSystemTask systemTask) {
 		String taskName = systemTask.getName();
 		try {
 			if(config.disableAsyncWorkers()) {
 				logger.warn("System Task Worker is DISABLED.  Not polling for system task: {}", taskName);
-				return;
+				return 0;
 			}
+			boolean async = asyncEnabled && systemTask.isNonBlocking();
 			// get the remaining capacity of worker queue to prevent queue full exception
-			int realPollCount = Math.min(workerQueue.remainingCapacity(), pollCount);
+			int realPollCount = Math.min(workerPool.remainingCapacity(taskName), pollCount);
+			if (async) {
+				realPollCount = Math.min(realPollCount, inFlightPermits.availablePermits());
+			}
 			if (realPollCount <= 0) {
-                logger.warn("All workers are busy, not polling. queue size: {}, max: {}, task:{}", workerQueue.size(), workerQueueSize, taskName);
-                return;
+				logger.warn("All workers are busy, not polling. max queue size: {}, task:{}", workerQueueSize, taskName);
+				return -1;
 			}
 
 			List<String> polledTaskIds = queueDAO.pop(taskName, realPollCount, 200);
@@ -144,15 +177,64 @@ public class SystemTaskWorkerCoordinator {
 			logger.debug("Polling for {}, got {} tasks", taskName, polledTaskIds.size());
 			for(String taskId : polledTaskIds) {
 				logger.debug("Task: {} of type: {} being sent to the workflow executor", taskId, taskName);
-				try {
-					executorService.submit(()-> workflowExecutor.executeSystemTask(systemTask, taskId, unackTimeout));
-				} catch(RejectedExecutionException ree) {
-					logger.warn("Queue full for workers. Size: {}, task:{}", workerQueue.size(), taskName);
+				if (async) {
+					executeAsync(systemTask, taskId);
+				} else if (!workerPool.submit(taskName, () -> workflowExecutor.executeSystemTask(systemTask, taskId, unackTimeout))) {
+					logger.warn("Queue full for workers. max queue size: {}, task:{}", workerQueueSize, taskName);
 				}
 			}
+			return polledTaskIds.size();
 		} catch (Exception e) {
 			Monitors.error(className, "pollAndExecute");
 			logger.error("Error executing system task:{}", taskName, e);
+			return 0;
+		}
+	}
+
+	private void executeAsync(WorkflowSystemTask systemTask, String taskId) {
+		String taskName = systemTask.getName();
+		if (!inFlightPermits.tryAcquire()) {
+			Monitors.recordSystemTaskWorkerRejected(taskName);
+			logger.warn("Too many tasks in flight, task: {}", taskName);
+			return;
+		}
+		boolean submitted = workerPool.submit(taskName, () -> {
+			try {
+				workflowExecutor.executeSystemTaskAsync(systemTask, taskId, unackTimeout)
+						.whenComplete((ignored, error) -> inFlightPermits.release());
+			} catch (RuntimeException e) {
+				inFlightPermits.release();
+				throw e;
+			}
+		});
+		if (!submitted) {
+			inFlightPermits.release();
+			logger.warn("Queue full for workers. max queue size: {}, task:{}", workerQueueSize, taskName);
+		}
+	}
+
+	/**
+	 * Polls the queue of a system task, backing off while the queue is empty.
+	 */
+	private class Poller implements Runnable {
+
+		private final WorkflowSystemTask systemTask;
+
+		private int interval = pollInterval;
+
+		private Poller(WorkflowSystemTask systemTask) {
+			this.systemTask = systemTask;
+		}
+
+		@Override
+		public void run() {
+			try {
+				int polled = pollAndExecute(systemTask);
+				// the queue is polled again as soon as the workers are available
+				interval = polled != 0 ? pollInterval : Math.min(maxPollInterval, Math.max(1, interval) * 2);
+			} finally {
+				pollerService.schedule(this, interval, TimeUnit.MILLISECONDS);
+			}
 		}
 	}
-}	
+}
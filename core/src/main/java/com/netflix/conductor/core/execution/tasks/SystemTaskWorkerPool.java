@@ -0,0 +1,240 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.execution.tasks;
+
+import com.netflix.conductor.metrics.Monitors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The worker threads executing the system tasks, shared by all the system task types.
+ * <p>
+ * Each task type has its own bounded queue of pending executions. Idle workers pick the next execution across the
+ * task types using a smooth weighted round robin, so that a flood of one task type does not starve the others:
+ * while other task types have executions pending, a task type is limited to its weighted share of the workers.
+ * A task type with no competition can use all the workers, i.e. idle workers steal work from the busy task types.
+ * Regardless of the competition, a task type never uses more than its own maximum number of workers.
+ */
+class SystemTaskWorkerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(SystemTaskWorkerPool.class);
+
+    private static final String className = SystemTaskWorkerPool.class.getName();
+
+    private final int threadCount;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition workAvailable = lock.newCondition();
+
+    private final Map<String, Lane> lanes = new HashMap<>();
+
+    private final List<Lane> laneList = new ArrayList<>();
+
+    SystemTaskWorkerPool(int threadCount, ThreadFactory threadFactory) {
+        this.threadCount = threadCount;
+        for (int i = 0; i < threadCount; i++) {
+            threadFactory.newThread(this::work).start();
+        }
+    }
+
+    /**
+     * @param taskType   the system task type
+     * @param weight     the relative share of the workers the task type gets when competing with other task types
+     * @param maxWorkers the maximum number of workers executing the task type at any time
+     * @param queueSize  the maximum number of pending executions of the task type
+     */
+    void register(String taskType, int weight, int maxWorkers, int queueSize) {
+        lock.lock();
+        try {
+            if (!lanes.containsKey(taskType)) {
+                Lane lane = new Lane(taskType, Math.max(1, weight), Math.max(1, maxWorkers), Math.max(1, queueSize));
+                lanes.put(taskType, lane);
+                laneList.add(lane);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of executions of the task type that can be submitted without being rejected
+     */
+    int remainingCapacity(String taskType) {
+        lock.lock();
+        try {
+            Lane lane = getLane(taskType);
+            return lane.queueSize - lane.pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return false if the queue of the task type is full
+     */
+    boolean submit(String taskType, Runnable execution) {
+        lock.lock();
+        try {
+            Lane lane = getLane(taskType);
+            if (lane.pending.size() >= lane.queueSize) {
+                Monitors.recordSystemTaskWorkerRejected(taskType);
+                return false;
+            }
+            lane.pending.add(new Execution(execution));
+            Monitors.recordSystemTaskWorkerQueueDepth(taskType, lane.pending.size());
+            workAvailable.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Lane getLane(String taskType) {
+        Lane lane = lanes.get(taskType);
+        if (lane == null) {
+            throw new IllegalStateException("No workers registered for system task: " + taskType);
+        }
+        return lane;
+    }
+
+    private void work() {
+        //noinspection InfiniteLoopStatement
+        for (;;) {
+            Lane lane;
+            Execution execution;
+            lock.lock();
+            try {
+                while ((lane = select()) == null) {
+                    workAvailable.await();
+                }
+                execution = lane.pending.poll();
+                lane.running++;
+            } catch (InterruptedException e) {
+                logger.warn("System task worker interrupted", e);
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            long start = System.currentTimeMillis();
+            Monitors.recordSystemTaskWorkerQueueWait(lane.taskType, start - execution.submitTime);
+            try {
+                execution.runnable.run();
+            } catch (Throwable t) {
+                // an error must not kill the worker, the pool has a fixed number of threads
+                Monitors.error(className, "execute");
+                logger.error("Error executing system task: {}", lane.taskType, t);
+            } finally {
+                Monitors.recordSystemTaskWorkerExecutionTime(lane.taskType, System.currentTimeMillis() - start);
+                lock.lock();
+                try {
+                    lane.running--;
+                    // the share of the other task types may have changed
+                    workAvailable.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Smooth weighted round robin among the task types with pending executions and workers available.
+     * Must be called holding the lock.
+     *
+     * @return the task type to execute next, null if there is none
+     */
+    private Lane select() {
+        int competingWeight = 0;
+        for (Lane lane : laneList) {
+            if (!lane.pending.isEmpty() || lane.running > 0) {
+                competingWeight += lane.weight;
+            }
+        }
+
+        Lane selected = null;
+        int eligibleWeight = 0;
+        for (Lane lane : laneList) {
+            if (lane.pending.isEmpty() || lane.running >= getLimit(lane, competingWeight)) {
+                continue;
+            }
+            lane.currentWeight += lane.weight;
+            eligibleWeight += lane.weight;
+            if (selected == null || lane.currentWeight > selected.currentWeight) {
+                selected = lane;
+            }
+        }
+        if (selected != null) {
+            selected.currentWeight -= eligibleWeight;
+        }
+        return selected;
+    }
+
+    private int getLimit(Lane lane, int competingWeight) {
+        int limit = threadCount;
+        if (hasCompetition(lane)) {
+            // rounded up, so that every task type gets at least one worker
+            limit = (threadCount * lane.weight + competingWeight - 1) / competingWeight;
+        }
+        return Math.min(limit, lane.maxWorkers);
+    }
+
+    private boolean hasCompetition(Lane lane) {
+        for (Lane other : laneList) {
+            if (other != lane && !other.pending.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Lane {
+
+        private final String taskType;
+        private final int weight;
+        private final int maxWorkers;
+        private final int queueSize;
+        private final Queue<Execution> pending = new ArrayDeque<>();
+        private int running;
+        private int currentWeight;
+
+        private Lane(String taskType, int weight, int maxWorkers, int queueSize) {
+            this.taskType = taskType;
+            this.weight = weight;
+            this.maxWorkers = maxWorkers;
+            this.queueSize = queueSize;
+        }
+    }
+
+    private static class Execution {
+
+        private final Runnable runnable;
+        private final long submitTime = System.currentTimeMillis();
+
+        private Execution(Runnable runnable) {
+            this.runnable = runnable;
+        }
+    }
+}
@@ -21,6 +21,8 @@ package com.netflix.conductor.core.execution.tasks;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import com.netflix.conductor.common.metadata.tasks.Task;
 import com.netflix.conductor.common.run.Workflow;
@@ -51,6 +53,20 @@ public class WorkflowSystemTask {
 	public void start(Workflow workflow, Task task, WorkflowExecutor executor) {
 		//Do nothing unless overridden by the task implementation
 	}
+
+	/**
+	 * Start the task execution without blocking the calling thread.  The task is updated once the returned stage
+	 * completes, a stage completed exceptionally leaves the task to be retried.
+	 * @param workflow Workflow for which the task is being started
+	 * @param task Instance of the Task
+	 * @param executor Workflow Executor
+	 * @return a stage completed once the task has been started
+	 * @see #isNonBlocking()
+	 */
+	public CompletionStage<Void> startAsync(Workflow workflow, Task task, WorkflowExecutor executor) {
+		start(workflow, task, executor);
+		return CompletableFuture.completedFuture(null);
+	}
 	
 	/**
 	 * 
@@ -79,6 +95,15 @@ public class WorkflowSystemTask {
 	public boolean isAsync() {
 		return false;
 	}
+
+	/**
+	 *
+	 * @return True if {@link #startAsync(Workflow, Task, WorkflowExecutor)} is implemented without blocking, so that the
+	 * task can be started without holding a system task worker thread.
+	 */
+	public boolean isNonBlocking() {
+		return false;
+	}
 	
 	/**
 	 * 
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.metadata;
+
+import com.netflix.conductor.common.metadata.workflow.TaskType;
+import com.netflix.conductor.common.metadata.workflow.WorkflowDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowTask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pre-computed view of a {@link WorkflowDef} providing lookups of the task graph that do not depend on the number of
+ * tasks of the definition.
+ * <p>
+ * The graph itself (successor edges and the location of each task in the definition) is expressed in terms of task
+ * reference names and positions, is immutable and is shared by all the instances of a definition with the same name
+ * and version. The {@link WorkflowTask}s returned are always the ones of the definition instance this view was
+ * created for, since they are mutated while tasks are being scheduled: a task is resolved by walking its location
+ * in the instance.
+ * <p>
+ * A lookup whose location does not match the instance, e.g. an ad-hoc definition reusing the name and version of a
+ * registered one, falls back to a graph compiled from the instance itself.
+ *
+ * @see CompiledWorkflowDefCache
+ */
+public class CompiledWorkflowDef {
+
+    private static final String DEFAULT_CASE = "";
+
+    private final WorkflowDef workflowDef;
+    private final Graph graph;
+
+    // compiled from the definition instance once it does not match the shared graph
+    private CompiledWorkflowDef fallback;
+
+    CompiledWorkflowDef(WorkflowDef workflowDef, Graph graph) {
+        this.workflowDef = workflowDef;
+        this.graph = graph;
+    }
+
+    /**
+     * @return the task with the given reference name, equivalent to {@link WorkflowDef#getTaskByRefName(String)}
+     */
+    public WorkflowTask getTaskByRefName(String taskReferenceName) {
+        if (fallback == null) {
+            WorkflowTask workflowTask = lookup(taskReferenceName);
+            if (fallback == null) {
+                return workflowTask;
+            }
+        }
+        return fallback.getTaskByRefName(taskReferenceName);
+    }
+
+    /**
+     * @return the task following the one with the given reference name, equivalent to
+     * {@link WorkflowDef#getNextTask(String)}. Tasks that are not part of the definition (e.g. dynamically forked
+     * tasks) have no successor.
+     */
+    public WorkflowTask getNextTask(String taskReferenceName) {
+        if (fallback == null) {
+            // the successor only depends on the lists the task is nested in, which the lookup of the task checks
+            WorkflowTask workflowTask = lookup(taskReferenceName);
+            if (fallback == null) {
+                String next = workflowTask == null ? null : graph.nextTasks.get(taskReferenceName);
+                return next == null ? null : getTaskByRefName(next);
+            }
+        }
+        return fallback.getNextTask(taskReferenceName);
+    }
+
+    /**
+     * Resolves the task in the definition instance, and falls back to a graph compiled from the instance if it does
+     * not match the shared graph.
+     */
+    private WorkflowTask lookup(String taskReferenceName) {
+        Location location = graph.locations.get(taskReferenceName);
+        if (location == null) {
+            // not part of the definition (e.g. dynamically forked tasks), unless the definition has other tasks
+            if (workflowDef.getTasks().size() != graph.size) {
+                fallback = compile(workflowDef);
+            }
+            return null;
+        }
+        WorkflowTask workflowTask = location.resolve(workflowDef);
+        if (workflowTask == null) {
+            fallback = compile(workflowDef);
+        }
+        return workflowTask;
+    }
+
+    /**
+     * Same as the children of a {@link WorkflowTask}: the cases followed by the default case of a decision, or the
+     * branches of a fork, by the key of the branch within the task.
+     */
+    private static Map<String, List<WorkflowTask>> branches(WorkflowTask workflowTask) {
+        Map<String, List<WorkflowTask>> branches = new LinkedHashMap<>();
+        if (TaskType.DECISION.name().equals(workflowTask.getType())) {
+            if (workflowTask.getDecisionCases() != null) {
+                workflowTask.getDecisionCases().forEach((caseValue, branch) -> branches.put("case:" + caseValue, branch));
+            }
+            if (workflowTask.getDefaultCase() != null) {
+                branches.put(DEFAULT_CASE, workflowTask.getDefaultCase());
+            }
+        } else if (TaskType.FORK_JOIN.name().equals(workflowTask.getType()) && workflowTask.getForkTasks() != null) {
+            for (int i = 0; i < workflowTask.getForkTasks().size(); i++) {
+                branches.put("fork:" + i, workflowTask.getForkTasks().get(i));
+            }
+        }
+        return branches;
+    }
+
+    private static List<WorkflowTask> branch(WorkflowTask workflowTask, String key) {
+        return branches(workflowTask).get(key);
+    }
+
+    /**
+     * The position of a task in a definition: the branch key, the size of the list and the index in the list at each
+     * level of nesting, the top level list having no branch key.
+     */
+    private static class Location {
+
+        private final String taskReferenceName;
+        private final String[] branchKeys;
+        private final int[] sizes;
+        private final int[] indexes;
+
+        private Location(String taskReferenceName, String[] branchKeys, int[] sizes, int[] indexes) {
+            this.taskReferenceName = taskReferenceName;
+            this.branchKeys = branchKeys;
+            this.sizes = sizes;
+            this.indexes = indexes;
+        }
+
+        /**
+         * @return the task at this location in the definition, null if the definition does not match
+         */
+        private WorkflowTask resolve(WorkflowDef workflowDef) {
+            List<WorkflowTask> workflowTasks = workflowDef.getTasks();
+            WorkflowTask workflowTask = null;
+            for (int level = 0; level < indexes.length; level++) {
+                if (level > 0) {
+                    workflowTasks = branch(workflowTask, branchKeys[level]);
+                }
+                if (workflowTasks == null || workflowTasks.size() != sizes[level]) {
+                    return null;
+                }
+                workflowTask = workflowTasks.get(indexes[level]);
+            }
+            return workflowTask != null && taskReferenceName.equals(workflowTask.getTaskReferenceName()) ? workflowTask : null;
+        }
+    }
+
+    /**
+     * The task graph of a definition, in terms of task reference names.
+     */
+    static class Graph {
+
+        private final int size;
+        private final Map<String, String> nextTasks;
+        private final Map<String, Location> locations;
+
+        Graph(WorkflowDef workflowDef) {
+            Map<String, String> nextTasks = new HashMap<>();
+            Map<String, Location> locations = new HashMap<>();
+
+            // the first task with a given reference name wins, same as WorkflowDef#getTaskByRefName
+            locate(workflowDef.getTasks(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), null, locations);
+
+            for (String taskReferenceName : locations.keySet()) {
+                // the successors are resolved once per definition, using the same traversal as the definition itself
+                WorkflowTask next = workflowDef.getNextTask(taskReferenceName);
+                if (next != null) {
+                    nextTasks.put(taskReferenceName, next.getTaskReferenceName());
+                }
+            }
+
+            this.size = workflowDef.getTasks().size();
+            this.nextTasks = Collections.unmodifiableMap(nextTasks);
+            this.locations = Collections.unmodifiableMap(locations);
+        }
+
+        private static void locate(List<WorkflowTask> workflowTasks, List<String> branchKeys, List<Integer> sizes,
+                                   List<Integer> indexes, String branchKey, Map<String, Location> locations) {
+            branchKeys.add(branchKey);
+            sizes.add(workflowTasks.size());
+            for (int i = 0; i < workflowTasks.size(); i++) {
+                WorkflowTask workflowTask = workflowTasks.get(i);
+                indexes.add(i);
+                locations.putIfAbsent(workflowTask.getTaskReferenceName(), new Location(workflowTask.getTaskReferenceName(),
+                        branchKeys.toArray(new String[0]),
+                        sizes.stream().mapToInt(Integer::intValue).toArray(),
+                        indexes.stream().mapToInt(Integer::intValue).toArray()));
+                branches(workflowTask).forEach((key, branch) -> locate(branch, branchKeys, sizes, indexes, key, locations));
+                indexes.remove(indexes.size() - 1);
+            }
+            branchKeys.remove(branchKeys.size() - 1);
+            sizes.remove(sizes.size() - 1);
+        }
+    }
+
+    /**
+     * Compiles the given definition without caching the graph.
+     */
+    public static CompiledWorkflowDef compile(WorkflowDef workflowDef) {
+        return new CompiledWorkflowDef(workflowDef, new Graph(workflowDef));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.metadata;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.netflix.conductor.common.metadata.workflow.WorkflowDef;
+import com.netflix.conductor.core.config.Configuration;
+import com.netflix.conductor.core.execution.ApplicationException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Caches the task graphs of the workflow definitions, by name and version.
+ * <p>
+ * A graph is compiled once per definition, and shared by all the instances of the definition, i.e. by all the
+ * workflows of the same definition. It is invalidated when the definition is updated or removed through the
+ * {@link com.netflix.conductor.service.MetadataService}, and a lookup in a definition that no longer matches the graph
+ * (e.g. updated on another server, or an ad-hoc definition with the same name and version) falls back to compiling
+ * the definition instance.
+ */
+@Singleton
+public class CompiledWorkflowDefCache {
+
+    static final String CACHE_SIZE_PROPERTY_NAME = "workflow.def.compiled.cache.size";
+    private static final int CACHE_SIZE_DEFAULT_VALUE = 1000;
+
+    private final Cache<String, CompiledWorkflowDef.Graph> graphs;
+
+    @Inject
+    public CompiledWorkflowDefCache(Configuration config) {
+        this.graphs = CacheBuilder.newBuilder()
+                .maximumSize(config.getIntProperty(CACHE_SIZE_PROPERTY_NAME, CACHE_SIZE_DEFAULT_VALUE))
+                .build();
+    }
+
+    /**
+     * @param workflowDef the workflow definition
+     * @return the compiled view of the given definition instance
+     */
+    public CompiledWorkflowDef get(WorkflowDef workflowDef) {
+        if (workflowDef.getName() == null) {
+            return CompiledWorkflowDef.compile(workflowDef);
+        }
+        try {
+            return new CompiledWorkflowDef(workflowDef, graphs.get(workflowDef.key(), () -> new CompiledWorkflowDef.Graph(workflowDef)));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            String errorMsg = String.format("Unable to compile workflow definition: %s", workflowDef.key());
+            throw new ApplicationException(ApplicationException.Code.INTERNAL_ERROR, errorMsg, e.getCause());
+        }
+    }
+
+    /**
+     * Drops the graph of the definition, to be called when the definition is updated or removed.
+     *
+     * @param name    the name of the workflow definition
+     * @param version the version of the workflow definition
+     */
+    public void invalidate(String name, int version) {
+        graphs.invalidate(WorkflowDef.getKey(name, version));
+    }
+
+    @VisibleForTesting
+    long getGraphCount() {
+        return graphs.size();
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.metadata;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.netflix.conductor.common.metadata.tasks.TaskDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowTask;
+import com.netflix.conductor.core.config.Configuration;
+import com.netflix.conductor.core.execution.ApplicationException;
+import com.netflix.conductor.core.execution.ApplicationException.Code;
+import com.netflix.conductor.dao.MetadataDAO;
+import com.netflix.conductor.metrics.Monitors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+
+/**
+ * Cache of the workflow definitions, and of the workflow tasks they contain, by content hash.
+ * <p>
+ * When <code>workflow.persist.definition.references</code> is set, the persisted workflows and tasks refer to their
+ * definitions by content hash, and the definitions are rehydrated from this cache when read:
+ * <ul>
+ * <li>a workflow refers to a snapshot of its definition, stored once per content hash with the
+ * {@link MetadataDAO}. The snapshots are kept when the definition is updated or removed, so a running workflow
+ * keeps the definition it was started with</li>
+ * <li>a task refers to its workflow task when it is part of the definition of its workflow, the workflow tasks of the
+ * dynamic tasks are persisted with the task</li>
+ * </ul>
+ * On a cache miss, a workflow definition is loaded from its snapshot, and a workflow task is loaded from the
+ * definition of its workflow.
+ * <p>
+ * The content hash of a workflow definition is computed once per instance, when it is first written or when it is
+ * read from its snapshot.
+ */
+@Singleton
+public class DefinitionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefinitionCache.class);
+
+    private static final String className = DefinitionCache.class.getSimpleName();
+
+    public static final String DEFINITION_REFERENCES_PROPERTY_NAME = "workflow.persist.definition.references";
+
+    private final MetadataDAO metadataDAO;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectWriter hashWriter;
+
+    private final boolean enabled;
+
+    // the serialized workflow definitions by content hash
+    private final Cache<String, byte[]> workflowDefs;
+
+    // the serialized workflow tasks by workflow name and content hash
+    private final Cache<String, byte[]> workflowTasks;
+
+    // the content hash of the definitions already cached
+    private final Cache<String, Boolean> cachedDefinitions;
+
+    // the content hash of the definitions whose snapshot is stored
+    private final Cache<String, Boolean> storedDefinitions;
+
+    // the content hash of the workflow definitions, by instance
+    private final Cache<WorkflowDef, String> instanceHashes;
+
+    @Inject
+    public DefinitionCache(MetadataDAO metadataDAO, ObjectMapper objectMapper, Configuration config) {
+        this.metadataDAO = metadataDAO;
+        this.objectMapper = objectMapper;
+        // the content hash must not depend on the iteration order of the maps
+        this.hashWriter = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        this.enabled = config.getBooleanProperty(DEFINITION_REFERENCES_PROPERTY_NAME, false);
+        int cacheSize = config.getIntProperty("workflow.definition.cache.size", 10_000);
+        this.workflowDefs = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+        this.workflowTasks = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+        this.cachedDefinitions = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+        this.storedDefinitions = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+        // weak keys are compared by identity
+        this.instanceHashes = CacheBuilder.newBuilder().weakKeys().build();
+    }
+
+    /**
+     * @return true if the persisted workflows and tasks refer to their definitions
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Caches the workflow definition, and the workflow tasks it contains.
+     *
+     * @return the content hash of the workflow definition
+     */
+    public String cacheWorkflowDef(String workflowName, WorkflowDef workflowDef) {
+        String hash = instanceHashes.getIfPresent(workflowDef);
+        if (hash == null) {
+            byte[] bytes = serialize(workflowDef);
+            hash = hash(bytes);
+            cacheWorkflowDef(workflowName, workflowDef, hash, bytes);
+            instanceHashes.put(workflowDef, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Stores the snapshot of the workflow definition, if not stored yet.
+     *
+     * @return the content hash of the workflow definition
+     */
+    public String storeWorkflowDef(WorkflowDef workflowDef) {
+        String hash = cacheWorkflowDef(workflowDef.getName(), workflowDef);
+        if (storedDefinitions.getIfPresent(hash) == null) {
+            metadataDAO.createWorkflowDefSnapshot(hash, workflowDef);
+            storedDefinitions.put(hash, true);
+        }
+        return hash;
+    }
+
+    /**
+     * @return the workflow definition with the given content hash, from its snapshot if it is not cached
+     */
+    public WorkflowDef getWorkflowDef(String name, int version, String hash) {
+        byte[] bytes = workflowDefs.getIfPresent(hash);
+        WorkflowDef workflowDef;
+        if (bytes == null) {
+            workflowDef = metadataDAO.getWorkflowDefSnapshot(hash)
+                    .orElseThrow(() -> {
+                        Monitors.error(className, "getWorkflowDef");
+                        logger.error("No snapshot of the definition of workflow: {}, version: {} with hash: {}", name, version, hash);
+                        return new ApplicationException(Code.NOT_FOUND,
+                                String.format("No snapshot of the definition of workflow: %s, version: %d", name, version));
+                    });
+            cacheWorkflowDef(name, workflowDef, hash, serialize(workflowDef));
+            storedDefinitions.put(hash, true);
+        } else {
+            workflowDef = deserialize(bytes, WorkflowDef.class);
+        }
+        instanceHashes.put(workflowDef, hash);
+        return workflowDef;
+    }
+
+    /**
+     * @return the content hash of the workflow task, if it is part of a cached definition of the workflow,
+     * null otherwise
+     */
+    public String getWorkflowTaskHash(String workflowName, WorkflowTask workflowTask) {
+        String hash = hash(serialize(workflowTask));
+        return workflowTasks.getIfPresent(workflowTaskKey(workflowName, hash)) == null ? null : hash;
+    }
+
+    /**
+     * @return the workflow task with the given content hash, null if it is not cached
+     */
+    public WorkflowTask getWorkflowTask(String workflowName, String hash) {
+        byte[] bytes = workflowTasks.getIfPresent(workflowTaskKey(workflowName, hash));
+        return bytes == null ? null : deserialize(bytes, WorkflowTask.class);
+    }
+
+    /**
+     * @return the workflow task with the given content hash, looked up in the workflow definition if it is not
+     * cached, null if it is not part of the workflow definition
+     */
+    public WorkflowTask getWorkflowTask(String workflowName, WorkflowDef workflowDef, String hash) {
+        WorkflowTask workflowTask = getWorkflowTask(workflowName, hash);
+        if (workflowTask == null) {
+            cacheWorkflowTasks(workflowName, workflowDef);
+            workflowTask = getWorkflowTask(workflowName, hash);
+        }
+        return workflowTask;
+    }
+
+    /**
+     * @return the fields of the workflow task, and of its task definition, the DAOs use when persisting a task
+     */
+    public static WorkflowTask toReference(WorkflowTask workflowTask) {
+        WorkflowTask reference = new WorkflowTask();
+        reference.setName(workflowTask.getName());
+        reference.setTaskReferenceName(workflowTask.getTaskReferenceName());
+        reference.setType(workflowTask.getType());
+        TaskDef taskDefinition = workflowTask.getTaskDefinition();
+        if (taskDefinition != null) {
+            TaskDef taskDefinitionReference = new TaskDef(taskDefinition.getName());
+            taskDefinitionReference.setConcurrentExecLimit(taskDefinition.getConcurrentExecLimit());
+            taskDefinitionReference.setRateLimitPerFrequency(taskDefinition.getRateLimitPerFrequency());
+            taskDefinitionReference.setRateLimitFrequencyInSeconds(taskDefinition.getRateLimitFrequencyInSeconds());
+            reference.setTaskDefinition(taskDefinitionReference);
+        }
+        return reference;
+    }
+
+    private void cacheWorkflowDef(String workflowName, WorkflowDef workflowDef, String hash, byte[] bytes) {
+        if (cachedDefinitions.getIfPresent(workflowName + ":" + hash) == null) {
+            workflowDefs.put(hash, bytes);
+            cacheWorkflowTasks(workflowName, workflowDef);
+            cachedDefinitions.put(workflowName + ":" + hash, true);
+        }
+    }
+
+    private void cacheWorkflowTasks(String workflowName, WorkflowDef workflowDef) {
+        for (WorkflowTask workflowTask : workflowDef.collectTasks()) {
+            byte[] workflowTaskBytes = serialize(workflowTask);
+            workflowTasks.put(workflowTaskKey(workflowName, hash(workflowTaskBytes)), workflowTaskBytes);
+        }
+    }
+
+    private static String workflowTaskKey(String workflowName, String hash) {
+        return workflowName + ":" + hash;
+    }
+
+    private static String hash(byte[] bytes) {
+        return Hashing.murmur3_128().hashBytes(bytes).toString();
+    }
+
+    private byte[] serialize(Object definition) {
+        try {
+            return hashWriter.writeValueAsBytes(definition);
+        } catch (IOException e) {
+            throw new ApplicationException(Code.INTERNAL_ERROR, e);
+        }
+    }
+
+    private <T> T deserialize(byte[] bytes, Class<T> clazz) {
+        try {
+            return objectMapper.readValue(bytes, clazz);
+        } catch (IOException e) {
+            throw new ApplicationException(Code.INTERNAL_ERROR, e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.metadata;
+
+import com.netflix.conductor.common.metadata.tasks.Task;
+
+/**
+ * A task as persisted when its workflow task is replaced with a reference, see {@link DefinitionCache}. It carries
+ * the content hash of the workflow task, which is not part of the {@link Task} model.
+ * <p>
+ * The stored tasks are copies of the tasks, built when the tasks are written, and read by the DAOs in place of the
+ * tasks persisted with a hash.
+ */
+public class StoredTask extends Task {
+
+    private static final FieldCopier<Task> copier = new FieldCopier<>(Task.class);
+
+    private String workflowTaskHash;
+
+    public StoredTask() {
+    }
+
+    /**
+     * @return a copy of the task, to be persisted with the given reference to its workflow task
+     */
+    public static StoredTask of(Task task, String workflowTaskHash) {
+        StoredTask stored = copier.copy(task, new StoredTask());
+        stored.setWorkflowTask(DefinitionCache.toReference(task.getWorkflowTask()));
+        stored.setWorkflowTaskHash(workflowTaskHash);
+        return stored;
+    }
+
+    /**
+     * @return a {@link Task} copy of the stored task
+     */
+    public Task toTask() {
+        return copier.copy(this, new Task());
+    }
+
+    /**
+     * @return the content hash of the workflow task the task refers to, in place of embedding the workflow task
+     */
+    public String getWorkflowTaskHash() {
+        return workflowTaskHash;
+    }
+
+    public void setWorkflowTaskHash(String workflowTaskHash) {
+        this.workflowTaskHash = workflowTaskHash;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.metadata;
+
+import com.netflix.conductor.common.metadata.workflow.WorkflowDef;
+import com.netflix.conductor.common.run.Workflow;
+
+/**
+ * A workflow as persisted when its definition is replaced with a reference to a snapshot, see
+ * {@link DefinitionCache}. It carries the content hash of the definition, which is not part of the {@link Workflow}
+ * model.
+ * <p>
+ * The stored workflows are copies of the workflows, built when the workflows are written, and read by the DAOs in
+ * place of the workflows persisted with a hash.
+ */
+public class StoredWorkflow extends Workflow {
+
+    private static final FieldCopier<Workflow> copier = new FieldCopier<>(Workflow.class);
+
+    private String workflowDefinitionHash;
+
+    public StoredWorkflow() {
+    }
+
+    /**
+     * @return a copy of the workflow, to be persisted with the given reference to its definition
+     */
+    public static StoredWorkflow of(Workflow workflow, String workflowDefinitionHash) {
+        StoredWorkflow stored = copier.copy(workflow, new StoredWorkflow());
+        WorkflowDef workflowDefinition = workflow.getWorkflowDefinition();
+        stored.setWorkflowType(workflowDefinition.getName());
+        stored.setVersion(workflowDefinition.getVersion());
+        stored.setWorkflowDefinition(null);
+        stored.setWorkflowDefinitionHash(workflowDefinitionHash);
+        return stored;
+    }
+
+    /**
+     * @return a {@link Workflow} copy of the stored workflow
+     */
+    public Workflow toWorkflow() {
+        return copier.copy(this, new Workflow());
+    }
+
+    /**
+     * @return the content hash of the workflow definition the workflow refers to, in place of embedding the
+     * definition
+     */
+    public String getWorkflowDefinitionHash() {
+        return workflowDefinitionHash;
+    }
+
+    public void setWorkflowDefinitionHash(String workflowDefinitionHash) {
+        this.workflowDefinitionHash = workflowDefinitionHash;
+    }
+}
@@ -0,0 +1,460 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.orchestration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.conductor.common.metadata.events.EventExecution;
+import com.netflix.conductor.common.metadata.tasks.Task;
+import com.netflix.conductor.common.run.Workflow;
+import com.netflix.conductor.core.config.Configuration;
+import com.netflix.conductor.core.execution.ApplicationException;
+import com.netflix.conductor.dao.IndexDAO;
+import com.netflix.conductor.metrics.Monitors;
+import com.netflix.conductor.service.Lifecycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Indexes the workflows, tasks and event executions in the {@link IndexDAO} in bulk, off the request threads.
+ * <p>
+ * The documents are buffered by id, so a document updated any number of times is indexed once per
+ * <code>workflow.index.flush.interval.ms</code>, with its latest state. A flush also starts as soon as
+ * <code>workflow.index.batch.size</code> documents of a type are buffered.
+ * <p>
+ * Once <code>workflow.index.buffer.capacity</code> documents of a type are buffered, and whenever a bulk write fails,
+ * the documents are appended to a spill file in <code>workflow.index.spill.dir</code>. The spill files are indexed,
+ * in order, before the buffered documents, skipping the spilled documents with a more recent state buffered. Without
+ * a spill directory, the documents of a failed write stay buffered and the documents over the capacity are indexed on
+ * the calling thread.
+ * <p>
+ * All the writes of a type of document, whether flushed, replayed from a spill file, written through or flushed on
+ * the request thread, go through one lock and pick the state to write once they hold it, so an older state of a
+ * document never lands after a newer one. The buffers are drained on shutdown.
+ * When the interval is not positive, every document is indexed through.
+ */
+@Singleton
+public class BulkIndexer implements Lifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkIndexer.class);
+
+    private static final String className = BulkIndexer.class.getSimpleName();
+
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+
+    private final ObjectMapper objectMapper;
+
+    private final int flushIntervalMs;
+    private final int batchSize;
+    private final int capacity;
+
+    private final List<DocumentBuffer<?>> buffers;
+    private final DocumentBuffer<Workflow> workflows;
+    private final DocumentBuffer<Task> tasks;
+    private final DocumentBuffer<EventExecution> eventExecutions;
+
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile boolean stopped;
+
+    @Inject
+    public BulkIndexer(IndexDAO indexDAO, ObjectMapper objectMapper, Configuration config) {
+        this.objectMapper = objectMapper;
+        this.flushIntervalMs = config.getIntProperty("workflow.index.flush.interval.ms", 0);
+        this.batchSize = Math.max(1, config.getIntProperty("workflow.index.batch.size", 500));
+        this.capacity = config.getIntProperty("workflow.index.buffer.capacity", 10_000);
+
+        File spillDirectory = null;
+        String spillDir = config.getProperty("workflow.index.spill.dir", null);
+        if (spillDir != null && !spillDir.isEmpty()) {
+            spillDirectory = new File(spillDir);
+            if (!spillDirectory.isDirectory() && !spillDirectory.mkdirs()) {
+                LOGGER.error("Cannot create the index spill directory {}, spilling is disabled", spillDir);
+                spillDirectory = null;
+            }
+        }
+
+        this.workflows = new DocumentBuffer<>("workflow", Workflow.class, Workflow::getWorkflowId,
+                indexDAO::indexWorkflow, indexDAO::indexWorkflows, spillDirectory);
+        this.tasks = new DocumentBuffer<>("task", Task.class, Task::getTaskId,
+                indexDAO::indexTask, indexDAO::indexTasks, spillDirectory);
+        this.eventExecutions = new DocumentBuffer<>("event", EventExecution.class, EventExecution::getId,
+                indexDAO::addEventExecution, indexDAO::addEventExecutions, spillDirectory);
+        this.buffers = Arrays.asList(workflows, tasks, eventExecutions);
+
+        if (flushIntervalMs > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("index-flusher")
+                    .setDaemon(true)
+                    .build());
+            flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+            registerShutdownHook();
+            LOGGER.info("Bulk indexer initialized, flushing every {} ms or {} documents", flushIntervalMs, batchSize);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    public void indexWorkflow(Workflow workflow) {
+        workflows.add(workflow);
+    }
+
+    public void indexTask(Task task) {
+        tasks.add(task);
+    }
+
+    public void addEventExecution(EventExecution eventExecution) {
+        eventExecutions.add(eventExecution);
+    }
+
+    /**
+     * Indexes the buffered state of the workflow, if any, on the calling thread, after any spilled state of the
+     * workflow and any write of the workflow in progress. Used before the workflow is updated in the index directly,
+     * so a later flush does not overwrite that update.
+     *
+     * @throws ApplicationException if the workflow could not be indexed
+     */
+    public void flushWorkflow(String workflowId) {
+        workflows.flush(workflowId);
+    }
+
+    /**
+     * Indexes the buffered documents, and the spilled documents before them.
+     */
+    @VisibleForTesting
+    void flush() {
+        flushRequested.set(false);
+        buffers.forEach(DocumentBuffer::flush);
+    }
+
+    /**
+     * Stops the scheduled flushes, then indexes the documents still buffered. The documents which cannot be indexed
+     * are left in the spill files, if any, to be indexed once restarted.
+     */
+    @Override
+    public void stop() throws Exception {
+        if (flusher == null || stopped) {
+            return;
+        }
+        stopped = true;
+        flusher.shutdown();
+        if (!flusher.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            LOGGER.warn("The index flusher did not stop within {} ms", SHUTDOWN_TIMEOUT_MS);
+        }
+        flush();
+        buffers.forEach(DocumentBuffer::drained);
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // shutting down, the buffers are drained by stop
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * The documents of one type not yet indexed, as snapshots of the documents when they were added, since the
+     * documents keep being updated by the request threads while they are buffered.
+     */
+    private class DocumentBuffer<T> {
+
+        private final String docType;
+        private final Class<T> documentClass;
+        private final Function<T, String> idFunction;
+        private final Consumer<T> writeThrough;
+        private final Consumer<List<T>> bulkWrite;
+        private final Map<String, byte[]> pending = new ConcurrentHashMap<>();
+        private final File spillFile;
+        private final File replayFile;
+        // held by every write to the index, and by the replay of the spill file
+        private final Object writeLock = new Object();
+
+        DocumentBuffer(String docType, Class<T> documentClass, Function<T, String> idFunction,
+                       Consumer<T> writeThrough, Consumer<List<T>> bulkWrite, File spillDirectory) {
+            this.docType = docType;
+            this.documentClass = documentClass;
+            this.idFunction = idFunction;
+            this.writeThrough = writeThrough;
+            this.bulkWrite = bulkWrite;
+            this.spillFile = spillDirectory == null ? null : new File(spillDirectory, docType + ".spill");
+            this.replayFile = spillDirectory == null ? null : new File(spillDirectory, docType + ".replay");
+        }
+
+        void add(T document) {
+            if (flushIntervalMs <= 0) {
+                writeThrough.accept(document);
+                return;
+            }
+
+            byte[] snapshot;
+            try {
+                snapshot = objectMapper.writeValueAsBytes(document);
+            } catch (IOException e) {
+                LOGGER.error("Error buffering {}: {}, indexing it instead", docType, idFunction.apply(document), e);
+                synchronized (writeLock) {
+                    writeThrough.accept(document);
+                }
+                return;
+            }
+
+            String id = idFunction.apply(document);
+            if ((pending.size() >= capacity || stopped) && !pending.containsKey(id)) {
+                if (spillFile != null) {
+                    if (spill(Collections.singletonList(snapshot))) {
+                        return;
+                    }
+                } else {
+                    // no spilled state of the document can be replayed over this one
+                    Monitors.recordIndexWriteThrough(docType);
+                    synchronized (writeLock) {
+                        writeThrough.accept(document);
+                    }
+                    return;
+                }
+                // buffered over the capacity rather than written before its spilled states
+            }
+            pending.put(id, snapshot);
+            if (pending.size() >= batchSize && !stopped) {
+                requestFlush();
+            }
+        }
+
+        void flush(String id) {
+            if (flushIntervalMs <= 0) {
+                return;
+            }
+            synchronized (writeLock) {
+                try {
+                    if (!replaySpill()) {
+                        throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR,
+                                String.format("Unable to index the spilled %s documents before %s", docType, id));
+                    }
+                } catch (IOException e) {
+                    throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR,
+                            String.format("Unable to read the spilled %s documents before %s", docType, id), e);
+                }
+                byte[] snapshot = pending.get(id);
+                if (snapshot == null) {
+                    return;
+                }
+                try {
+                    writeThrough.accept(objectMapper.readValue(snapshot, documentClass));
+                } catch (IOException e) {
+                    Monitors.error(className, "flush");
+                    LOGGER.error("Error reading the buffered {}: {}", docType, id, e);
+                }
+                pending.remove(id, snapshot);
+            }
+        }
+
+        void flush() {
+            synchronized (writeLock) {
+                try {
+                    if (!replaySpill()) {
+                        return;
+                    }
+                    List<Map.Entry<String, byte[]>> batch = new ArrayList<>(batchSize);
+                    for (Map.Entry<String, byte[]> entry : pending.entrySet()) {
+                        batch.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+                        if (batch.size() == batchSize) {
+                            if (!write(batch)) {
+                                return;
+                            }
+                            batch.clear();
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        write(batch);
+                    }
+                } catch (Exception e) {
+                    Monitors.error(className, "flush");
+                    LOGGER.error("Error indexing the buffered {} documents", docType, e);
+                } finally {
+                    Monitors.recordIndexBufferDepth(docType, pending.size());
+                }
+            }
+        }
+
+        /**
+         * Logs the documents left buffered once drained on shutdown, which are lost.
+         */
+        void drained() {
+            if (!pending.isEmpty()) {
+                Monitors.error(className, "stop");
+                LOGGER.error("{} {} documents could not be indexed before shutdown", pending.size(), docType);
+            }
+        }
+
+        /**
+         * Writes the batch. If the write fails, the batch is spilled, unless a more recent state of its documents
+         * was added since.
+         *
+         * @return true if the batch was indexed
+         */
+        private boolean write(List<Map.Entry<String, byte[]>> batch) throws IOException {
+            long start = System.currentTimeMillis();
+            List<T> documents = new ArrayList<>(batch.size());
+            for (Map.Entry<String, byte[]> entry : batch) {
+                documents.add(objectMapper.readValue(entry.getValue(), documentClass));
+            }
+            try {
+                bulkWrite.accept(documents);
+            } catch (Exception e) {
+                Monitors.error(className, "flush");
+                LOGGER.error("Error indexing {} {} documents", batch.size(), docType, e);
+                if (spillFile != null) {
+                    List<byte[]> snapshots = new ArrayList<>(batch.size());
+                    batch.forEach(entry -> snapshots.add(entry.getValue()));
+                    if (spill(snapshots)) {
+                        batch.forEach(entry -> pending.remove(entry.getKey(), entry.getValue()));
+                    }
+                }
+                return false;
+            }
+            batch.forEach(entry -> pending.remove(entry.getKey(), entry.getValue()));
+            Monitors.recordIndexFlushTime(docType, System.currentTimeMillis() - start);
+            return true;
+        }
+
+        /**
+         * Appends the snapshots to the spill file, one JSON document per line.
+         *
+         * @return true if the snapshots were spilled
+         */
+        private synchronized boolean spill(List<byte[]> snapshots) {
+            try (FileOutputStream out = new FileOutputStream(spillFile, true)) {
+                for (byte[] snapshot : snapshots) {
+                    out.write(snapshot);
+                    out.write('\n');
+                }
+                out.getFD().sync();
+                snapshots.forEach(snapshot -> Monitors.recordIndexSpilled(docType));
+                return true;
+            } catch (IOException e) {
+                Monitors.error(className, "spill");
+                LOGGER.error("Error spilling {} {} documents to {}", snapshots.size(), docType, spillFile, e);
+                return false;
+            }
+        }
+
+        /**
+         * Indexes the spilled documents, which are older than the buffered ones. The spill file is renamed before
+         * it is read, so the documents spilled meanwhile go to a new spill file, indexed next. A spilled document
+         * is indexed with the latest state spilled in its batch, and not at all if a state is buffered, as the
+         * buffered state is more recent and indexed next. Called with the write lock held.
+         *
+         * @return true if no spilled documents are left
+         */
+        private boolean replaySpill() throws IOException {
+            if (spillFile == null) {
+                return true;
+            }
+            while (true) {
+                synchronized (this) {
+                    if (!replayFile.exists()) {
+                        if (!spillFile.exists()) {
+                            return true;
+                        }
+                        Files.move(spillFile.toPath(), replayFile.toPath());
+                    }
+                }
+
+                int replayed = 0;
+                try (BufferedReader reader = Files.newBufferedReader(replayFile.toPath(), StandardCharsets.UTF_8)) {
+                    Map<String, T> batch = new LinkedHashMap<>();
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        T document = readSpilled(line);
+                        if (document != null) {
+                            String id = idFunction.apply(document);
+                            // the later lines hold the later states
+                            batch.remove(id);
+                            batch.put(id, document);
+                        }
+                        if (batch.size() == batchSize) {
+                            // the replay file is read again by the next flush if the index is still down
+                            if (!replay(batch)) {
+                                return false;
+                            }
+                            replayed += batch.size();
+                            batch = new LinkedHashMap<>();
+                        }
+                    }
+                    if (!replay(batch)) {
+                        return false;
+                    }
+                    replayed += batch.size();
+                }
+                Files.delete(replayFile.toPath());
+                LOGGER.info("Indexed {} spilled {} documents", replayed, docType);
+            }
+        }
+
+        private T readSpilled(String line) {
+            if (line.isEmpty()) {
+                return null;
+            }
+            try {
+                return objectMapper.readValue(line, documentClass);
+            } catch (IOException e) {
+                Monitors.error(className, "replaySpill");
+                LOGGER.error("Skipping an unreadable spilled {} document in {}", docType, replayFile, e);
+                return null;
+            }
+        }
+
+        private boolean replay(Map<String, T> batch) {
+            batch.keySet().removeIf(pending::containsKey);
+            if (batch.isEmpty()) {
+                return true;
+            }
+            try {
+                bulkWrite.accept(new ArrayList<>(batch.values()));
+                return true;
+            } catch (Exception e) {
+                Monitors.error(className, "replaySpill");
+                LOGGER.error("Error indexing {} spilled {} documents", batch.size(), docType, e);
+                return false;
+            }
+        }
+    }
+}
@@ -17,10 +17,15 @@ import com.netflix.conductor.common.metadata.events.EventExecution;
 import com.netflix.conductor.common.metadata.tasks.PollData;
 import com.netflix.conductor.common.metadata.tasks.Task;
 import com.netflix.conductor.common.metadata.tasks.TaskExecLog;
+import com.netflix.conductor.common.metadata.workflow.WorkflowDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowTask;
 import com.netflix.conductor.common.run.SearchResult;
 import com.netflix.conductor.common.run.Workflow;
 import com.netflix.conductor.core.events.queue.Message;
 import com.netflix.conductor.core.execution.ApplicationException;
+import com.netflix.conductor.core.metadata.DefinitionCache;
+import com.netflix.conductor.core.metadata.StoredTask;
+import com.netflix.conductor.core.metadata.StoredWorkflow;
 import com.netflix.conductor.dao.ExecutionDAO;
 import com.netflix.conductor.dao.IndexDAO;
 import com.netflix.conductor.metrics.Monitors;
@@ -30,8 +35,20 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Service that acts as a facade for accessing execution data from the {@link ExecutionDAO} and {@link IndexDAO} storage layers
@@ -46,12 +63,24 @@ public class ExecutionDAOFacade {
     private final ExecutionDAO executionDAO;
     private final IndexDAO indexDAO;
     private final ObjectMapper objectMapper;
+    private final PollDataAggregator pollDataAggregator;
+    private final DefinitionCache definitionCache;
+    private final BulkIndexer bulkIndexer;
+
+    // the workflow and task updates buffered by the decide running on the thread, if any
+    private final ThreadLocal<WriteBuffer> writeBuffer = new ThreadLocal<>();
+    private final Set<WriteBuffer> openWriteBuffers = ConcurrentHashMap.newKeySet();
 
     @Inject
-    public ExecutionDAOFacade(ExecutionDAO executionDAO, IndexDAO indexDAO, ObjectMapper objectMapper) {
+    public ExecutionDAOFacade(ExecutionDAO executionDAO, IndexDAO indexDAO, ObjectMapper objectMapper,
+                              PollDataAggregator pollDataAggregator, DefinitionCache definitionCache,
+                              BulkIndexer bulkIndexer) {
         this.executionDAO = executionDAO;
         this.indexDAO = indexDAO;
         this.objectMapper = objectMapper;
+        this.pollDataAggregator = pollDataAggregator;
+        this.definitionCache = definitionCache;
+        this.bulkIndexer = bulkIndexer;
     }
 
     /**
@@ -69,7 +98,12 @@ public class ExecutionDAOFacade {
      *                              </ul>
      */
     public Workflow getWorkflowById(String workflowId, boolean includeTasks) {
-        Workflow workflow = executionDAO.getWorkflow(workflowId, includeTasks);
+        Workflow buffered = getBufferedWorkflow(workflowId, includeTasks);
+        if (buffered != null) {
+            return buffered;
+        }
+        flushWriteBuffer(w -> false, task -> includeTasks && workflowId.equals(task.getWorkflowInstanceId()));
+        Workflow workflow = rehydrate(executionDAO.getWorkflow(workflowId, includeTasks));
         if (workflow == null) {
             LOGGER.debug("Workflow {} not found in executionDAO, checking indexDAO", workflowId);
             String json = indexDAO.get(workflowId, RAW_JSON_FIELD);
@@ -102,6 +136,8 @@ public class ExecutionDAOFacade {
      * @return the list of {@link Workflow} executions matching the correlationId
      */
     public List<Workflow> getWorkflowsByCorrelationId(String correlationId, boolean includeTasks) {
+        flushWriteBuffer(workflow -> correlationId.equals(workflow.getCorrelationId()),
+                task -> includeTasks && correlationId.equals(task.getCorrelationId()));
         if (!executionDAO.canSearchAcrossWorkflows()) {
             List<Workflow> workflows = new LinkedList<>();
             SearchResult<String> result = indexDAO.searchWorkflows("correlationId='" + correlationId + "'", "*", 0, 10000, null);
@@ -116,15 +152,17 @@ public class ExecutionDAOFacade {
             });
             return workflows;
         }
-        return executionDAO.getWorkflowsByCorrelationId(correlationId, includeTasks);
+        return rehydrateWorkflows(executionDAO.getWorkflowsByCorrelationId(correlationId, includeTasks));
     }
 
     public List<Workflow> getWorkflowsByName(String workflowName, Long startTime, Long endTime) {
-        return executionDAO.getWorkflowsByType(workflowName, startTime, endTime);
+        flushWriteBuffer(workflowName);
+        return rehydrateWorkflows(executionDAO.getWorkflowsByType(workflowName, startTime, endTime));
     }
 
     public List<Workflow> getPendingWorkflowsByName(String workflowName) {
-        return executionDAO.getPendingWorkflowsByType(workflowName);
+        flushWriteBuffer(workflowName);
+        return rehydrateWorkflows(executionDAO.getPendingWorkflowsByType(workflowName));
     }
 
     public List<String> getRunningWorkflowIdsByName(String workflowName) {
@@ -142,8 +180,8 @@ public class ExecutionDAOFacade {
      * @return the id of the created workflow
      */
     public String createWorkflow(Workflow workflow) {
-        executionDAO.createWorkflow(workflow);
-        indexDAO.indexWorkflow(workflow);
+        writeWorkflow(workflow, executionDAO::createWorkflow);
+        bulkIndexer.indexWorkflow(workflow);
         return workflow.getWorkflowId();
     }
 
@@ -154,12 +192,17 @@ public class ExecutionDAOFacade {
      * @return the id of the updated workflow
      */
     public String updateWorkflow(Workflow workflow) {
-        executionDAO.updateWorkflow(workflow);
-        indexDAO.indexWorkflow(workflow);
+        WriteBuffer buffer = writeBuffer.get();
+        if (buffer != null) {
+            buffer.workflows.put(workflow.getWorkflowId(), workflow);
+            return workflow.getWorkflowId();
+        }
+        persistWorkflow(workflow);
         return workflow.getWorkflowId();
     }
 
     public void removeFromPendingWorkflow(String workflowType, String workflowId) {
+        flushWriteBufferForWorkflow(workflowId);
         executionDAO.removeFromPendingWorkflow(workflowType, workflowId);
     }
 
@@ -170,10 +213,12 @@ public class ExecutionDAOFacade {
      * @param archiveWorkflow if true, the workflow will be archived in the {@link IndexDAO} after removal from  {@link ExecutionDAO}
      */
     public void removeWorkflow(String workflowId, boolean archiveWorkflow) {
+        flushWriteBufferForWorkflow(workflowId);
         try {
             Workflow workflow = getWorkflowById(workflowId, true);
 
             // remove workflow from ES
+            bulkIndexer.flushWorkflow(workflowId);
             if (archiveWorkflow) {
                 //Add to elasticsearch
                 indexDAO.updateWorkflow(workflowId,
@@ -198,23 +243,46 @@ public class ExecutionDAOFacade {
     }
 
     public List<Task> createTasks(List<Task> tasks) {
-        return executionDAO.createTasks(tasks);
+        List<Task> storedTasks = toStoredTasks(tasks);
+        List<Task> created = executionDAO.createTasks(storedTasks);
+        if (storedTasks == tasks) {
+            return created;
+        }
+        Map<Task, Task> originals = new IdentityHashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            copyWrittenTimes(tasks.get(i), storedTasks.get(i));
+            originals.put(storedTasks.get(i), tasks.get(i));
+        }
+        return created.stream()
+                .map(task -> originals.getOrDefault(task, task))
+                .collect(Collectors.toList());
     }
 
     public List<Task> getTasksForWorkflow(String workflowId) {
-        return executionDAO.getTasksForWorkflow(workflowId);
+        flushWriteBuffer(workflow -> false, task -> workflowId.equals(task.getWorkflowInstanceId()));
+        return rehydrateTasks(executionDAO.getTasksForWorkflow(workflowId), null);
     }
 
     public Task getTaskById(String taskId) {
-        return executionDAO.getTask(taskId);
+        flushWriteBuffer(workflow -> false, task -> taskId.equals(task.getTaskId()));
+        Task task = executionDAO.getTask(taskId);
+        return task == null ? null : rehydrateTasks(Collections.singletonList(task), null).get(0);
+    }
+
+    public List<Task> getTasks(List<String> taskIds) {
+        Set<String> ids = new HashSet<>(taskIds);
+        flushWriteBuffer(workflow -> false, task -> ids.contains(task.getTaskId()));
+        return rehydrateTasks(executionDAO.getTasks(taskIds), null);
     }
 
     public List<Task> getTasksByName(String taskName, String startKey, int count) {
-        return executionDAO.getTasks(taskName, startKey, count);
+        flushWriteBuffer(workflow -> false, task -> taskName.equals(task.getTaskDefName()));
+        return rehydrateTasks(executionDAO.getTasks(taskName, startKey, count), null);
     }
 
     public List<Task> getPendingTasksForTaskType(String taskType) {
-        return executionDAO.getPendingTasksForTaskType(taskType);
+        flushWriteBuffer(workflow -> false, task -> taskType.equals(task.getTaskDefName()));
+        return rehydrateTasks(executionDAO.getPendingTasksForTaskType(taskType), null);
     }
 
     public long getInProgressTaskCount(String taskDefName) {
@@ -224,15 +292,24 @@ public class ExecutionDAOFacade {
     /**
      * Sets the update time for the task.
      * Sets the end time for the task (if task is in terminal state and end time is not set).
-     * Updates the task in the {@link ExecutionDAO} first, then stores it in the {@link IndexDAO}.
+     * Updates the task in the {@link ExecutionDAO} first, then stores it in the {@link IndexDAO} through the
+     * {@link BulkIndexer}.
      *
      * @param task the task to be updated in the data store
      * @throws ApplicationException if the dao operations fail
      */
     public void updateTask(Task task) {
+        WriteBuffer buffer = writeBuffer.get();
+        if (buffer != null) {
+            buffer.putTask(task);
+            return;
+        }
+        evictTask(task);
         try {
-            executionDAO.updateTask(task);
-            indexDAO.indexTask(task);
+            Task storedTask = toStoredTask(task);
+            executionDAO.updateTask(storedTask);
+            copyWrittenTimes(task, storedTask);
+            bulkIndexer.indexTask(task);
         } catch (Exception e) {
             String errorMsg = String.format("Error updating task: %s in workflow: %s", task.getTaskId(), task.getWorkflowInstanceId());
             LOGGER.error(errorMsg, e);
@@ -240,24 +317,173 @@ public class ExecutionDAOFacade {
         }
     }
 
+    /**
+     * Updates the tasks in the {@link ExecutionDAO} in bulk, then stores them in the {@link IndexDAO}.
+     *
+     * @param tasks the tasks to be updated in the data store
+     * @throws ApplicationException if the dao operations fail
+     */
     public void updateTasks(List<Task> tasks) {
-        tasks.forEach(this::updateTask);
+        if (tasks.isEmpty()) {
+            return;
+        }
+        WriteBuffer buffer = writeBuffer.get();
+        if (buffer != null) {
+            tasks.forEach(buffer::putTask);
+            return;
+        }
+        tasks.forEach(this::evictTask);
+        persistTasks(tasks);
+    }
+
+    /**
+     * Drops the task from the buffers of the decides running on other threads, as it is written directly, e.g. by a
+     * worker updating it, so that it is not overwritten by their stale instance once they flush. The decide the
+     * direct update triggers is run as a follow-up of theirs, which reads the task from the store.
+     */
+    private void evictTask(Task task) {
+        openWriteBuffers.forEach(buffer -> buffer.evictTask(task.getTaskId()));
+    }
+
+    private void persistTasks(List<Task> tasks) {
+        try {
+            List<Task> storedTasks = toStoredTasks(tasks);
+            executionDAO.updateTasks(storedTasks);
+            for (int i = 0; i < tasks.size(); i++) {
+                copyWrittenTimes(tasks.get(i), storedTasks.get(i));
+            }
+            tasks.forEach(bulkIndexer::indexTask);
+        } catch (Exception e) {
+            String errorMsg = String.format("Error updating tasks: %s", tasks.stream().map(Task::getTaskId).collect(Collectors.toList()));
+            LOGGER.error(errorMsg, e);
+            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, errorMsg, e);
+        }
     }
 
     public void removeTask(String taskId) {
+        flushWriteBuffer(workflow -> false, task -> taskId.equals(task.getTaskId()));
         executionDAO.removeTask(taskId);
     }
 
+    /**
+     * Starts buffering the workflow and task updates of the calling thread, for the decide of the given workflow,
+     * so that a workflow or task updated several times by a run of the decide and the decides it triggers, is written
+     * and indexed once. While buffering, the buffered workflows are read from the buffer, and the buffer is flushed
+     * before any other read or write of the executions which may involve a buffered workflow or task.
+     * <p>
+     * The buffer is flushed after each run, so that a follow-up run reads the workflow from the store, with the
+     * updates made by other threads meanwhile. A task written directly by another thread is dropped from the buffer.
+     * <p>
+     * If the thread is already buffering for another workflow, its buffered updates are flushed instead, so they are
+     * visible to the decide of this workflow, which may run on another thread.
+     *
+     * @param workflowId the id of the workflow to be decided
+     * @return true if the buffer was opened by this call, and must be closed by the caller
+     * @see #closeWriteBuffer()
+     */
+    public boolean openWriteBuffer(String workflowId) {
+        WriteBuffer buffer = writeBuffer.get();
+        if (buffer == null) {
+            buffer = new WriteBuffer(workflowId);
+            writeBuffer.set(buffer);
+            openWriteBuffers.add(buffer);
+            return true;
+        }
+        if (!buffer.workflowId.equals(workflowId)) {
+            flushWriteBuffer();
+        }
+        return false;
+    }
+
+    /**
+     * Writes the workflow and task updates buffered by the calling thread, tasks first, and keeps buffering. The
+     * workflows and tasks written are no longer buffered, so they are read from the store again.
+     */
+    public void flushWriteBuffer() {
+        WriteBuffer buffer = writeBuffer.get();
+        if (buffer == null || buffer.isEmpty()) {
+            return;
+        }
+        List<Task> tasks = buffer.takeTasks();
+        List<Workflow> workflows = new ArrayList<>(buffer.workflows.values());
+        buffer.workflows.clear();
+        if (!tasks.isEmpty()) {
+            persistTasks(tasks);
+        }
+        workflows.forEach(this::persistWorkflow);
+    }
+
+    /**
+     * Writes the workflow and task updates buffered by the calling thread and stops buffering. Called once the
+     * decide succeeded.
+     */
+    public void closeWriteBuffer() {
+        try {
+            flushWriteBuffer();
+        } finally {
+            openWriteBuffers.remove(writeBuffer.get());
+            writeBuffer.remove();
+        }
+    }
+
+    /**
+     * Drops the workflow and task updates buffered by the calling thread without writing them and stops buffering.
+     * Called once the decide failed, so that none of its partial updates is written after the workflow has been
+     * released, the workflow being decided again from its last written state.
+     */
+    public void discardWriteBuffer() {
+        WriteBuffer buffer = writeBuffer.get();
+        if (buffer == null) {
+            return;
+        }
+        if (!buffer.isEmpty()) {
+            LOGGER.debug("Discarding {} workflow and {} task updates buffered for workflow {}",
+                    buffer.workflows.size(), buffer.taskCount(), buffer.workflowId);
+        }
+        openWriteBuffers.remove(buffer);
+        writeBuffer.remove();
+    }
+
+    /**
+     * Flushes the write buffer of the calling thread if any of the buffered workflows or tasks matches.
+     */
+    private void flushWriteBuffer(Predicate<Workflow> workflowFilter, Predicate<Task> taskFilter) {
+        WriteBuffer buffer = writeBuffer.get();
+        if (buffer == null || buffer.isEmpty()) {
+            return;
+        }
+        if (buffer.workflows.values().stream().anyMatch(workflowFilter) || buffer.anyTask(taskFilter)) {
+            flushWriteBuffer();
+        }
+    }
+
+    private void flushWriteBufferForWorkflow(String workflowId) {
+        flushWriteBuffer(workflow -> workflowId.equals(workflow.getWorkflowId()),
+                task -> workflowId.equals(task.getWorkflowInstanceId()));
+    }
+
+    /**
+     * Flushes the buffered workflows of the given type, with their tasks, before the workflows of the type are read.
+     */
+    private void flushWriteBuffer(String workflowName) {
+        flushWriteBuffer(workflow -> workflowName.equals(workflow.getWorkflowName()),
+                task -> workflowName.equals(task.getWorkflowType()));
+    }
+
     public List<PollData> getTaskPollData(String taskName) {
-        return executionDAO.getPollData(taskName);
+        return pollDataAggregator.getPollData(taskName);
     }
 
     public PollData getTaskPollDataByDomain(String taskName, String domain) {
-        return executionDAO.getPollData(taskName, domain);
+        return pollDataAggregator.getPollData(taskName, domain);
     }
 
+    /**
+     * Records the poll in the {@link PollDataAggregator}, which writes the latest polls to the {@link ExecutionDAO}
+     * in batches.
+     */
     public void updateTaskLastPoll(String taskName, String domain, String workerId) {
-        executionDAO.updateLastPoll(taskName, domain, workerId);
+        pollDataAggregator.recordPoll(taskName, domain, workerId);
     }
 
     /**
@@ -270,14 +496,14 @@ public class ExecutionDAOFacade {
     public boolean addEventExecution(EventExecution eventExecution) {
         boolean added = executionDAO.addEventExecution(eventExecution);
         if (added) {
-            indexDAO.addEventExecution(eventExecution);
+            bulkIndexer.addEventExecution(eventExecution);
         }
         return added;
     }
 
     public void updateEventExecution(EventExecution eventExecution) {
         executionDAO.updateEventExecution(eventExecution);
-        indexDAO.addEventExecution(eventExecution);
+        bulkIndexer.addEventExecution(eventExecution);
     }
 
     public void removeEventExecution(EventExecution eventExecution) {
@@ -288,6 +514,10 @@ public class ExecutionDAOFacade {
         return executionDAO.exceedsInProgressLimit(task);
     }
 
+    public Set<String> getTasksExceedingInProgressLimit(List<Task> tasks) {
+        return executionDAO.getTasksExceedingInProgressLimit(tasks);
+    }
+
     public boolean exceedsRateLimitPerFrequency(Task task) {
         return executionDAO.exceedsRateLimitPerFrequency(task);
     }
@@ -311,4 +541,208 @@ public class ExecutionDAOFacade {
     public List<TaskExecLog> getTaskExecutionLogs(String taskId) {
         return indexDAO.getTaskExecutionLogs(taskId);
     }
+
+    private void persistWorkflow(Workflow workflow) {
+        writeWorkflow(workflow, executionDAO::updateWorkflow);
+        bulkIndexer.indexWorkflow(workflow);
+    }
+
+    /**
+     * The buffered workflow is the instance being decided, so it is returned as is rather than copied: changes to it
+     * are written with the buffer. It keeps its tasks even when they are not requested.
+     *
+     * @return the buffered workflow, with its buffered tasks, null if the workflow is not buffered
+     */
+    private Workflow getBufferedWorkflow(String workflowId, boolean includeTasks) {
+        WriteBuffer buffer = writeBuffer.get();
+        Workflow workflow = buffer == null ? null : buffer.workflows.get(workflowId);
+        if (workflow == null || !includeTasks) {
+            return workflow;
+        }
+        List<Task> tasks = workflow.getTasks();
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = buffer.getTask(tasks.get(i).getTaskId());
+            if (task != null && task != tasks.get(i)) {
+                tasks.set(i, task);
+            }
+        }
+        return workflow;
+    }
+
+    /**
+     * The workflow and task updates buffered by a decide, by id, so each is written once. The workflows are only
+     * accessed by the thread of the decide, the tasks may also be evicted by the threads writing them directly.
+     */
+    private static class WriteBuffer {
+        private final String workflowId;
+        private final Map<String, Workflow> workflows = new LinkedHashMap<>();
+        private final Map<String, Task> tasks = new LinkedHashMap<>();
+
+        private WriteBuffer(String workflowId) {
+            this.workflowId = workflowId;
+        }
+
+        private synchronized boolean isEmpty() {
+            return workflows.isEmpty() && tasks.isEmpty();
+        }
+
+        private synchronized void putTask(Task task) {
+            tasks.put(task.getTaskId(), task);
+        }
+
+        private synchronized Task getTask(String taskId) {
+            return tasks.get(taskId);
+        }
+
+        private synchronized void evictTask(String taskId) {
+            tasks.remove(taskId);
+        }
+
+        private synchronized boolean anyTask(Predicate<Task> taskFilter) {
+            return tasks.values().stream().anyMatch(taskFilter);
+        }
+
+        private synchronized int taskCount() {
+            return tasks.size();
+        }
+
+        private synchronized List<Task> takeTasks() {
+            List<Task> taken = new ArrayList<>(tasks.values());
+            tasks.clear();
+            return taken;
+        }
+    }
+
+    /**
+     * Writes the workflow, or a copy referring to the snapshot of its definition when the definition references are
+     * enabled. The DAOs do not write the tasks with the workflow.
+     *
+     * @see DefinitionCache
+     */
+    private void writeWorkflow(Workflow workflow, Consumer<Workflow> write) {
+        WorkflowDef workflowDefinition = workflow.getWorkflowDefinition();
+        if (!definitionCache.isEnabled() || workflowDefinition == null || workflowDefinition.getName() == null) {
+            write.accept(workflow);
+            return;
+        }
+        // also caches the workflow tasks the tasks of the workflow refer to
+        String hash = definitionCache.storeWorkflowDef(workflowDefinition);
+        StoredWorkflow storedWorkflow = StoredWorkflow.of(workflow, hash);
+        write.accept(storedWorkflow);
+        // the DAOs set the times of the workflow written
+        workflow.setCreateTime(storedWorkflow.getCreateTime());
+        workflow.setUpdateTime(storedWorkflow.getUpdateTime());
+        workflow.setEndTime(storedWorkflow.getEndTime());
+    }
+
+    /**
+     * @return the task to be written: a copy of the task referring to its workflow task, when the references are
+     * enabled and the workflow task is part of the definition of the workflow, the task itself otherwise
+     */
+    private Task toStoredTask(Task task) {
+        WorkflowTask workflowTask = task.getWorkflowTask();
+        if (!definitionCache.isEnabled() || workflowTask == null) {
+            return task;
+        }
+        String hash = definitionCache.getWorkflowTaskHash(task.getWorkflowType(), workflowTask);
+        return hash == null ? task : StoredTask.of(task, hash);
+    }
+
+    private List<Task> toStoredTasks(List<Task> tasks) {
+        if (!definitionCache.isEnabled()) {
+            return tasks;
+        }
+        return tasks.stream().map(this::toStoredTask).collect(Collectors.toList());
+    }
+
+    /**
+     * Copies the times set by the DAOs on the copy of a task written, to the task.
+     */
+    private static void copyWrittenTimes(Task task, Task storedTask) {
+        if (storedTask != task) {
+            task.setScheduledTime(storedTask.getScheduledTime());
+            task.setUpdateTime(storedTask.getUpdateTime());
+            task.setEndTime(storedTask.getEndTime());
+        }
+    }
+
+    private List<Workflow> rehydrateWorkflows(List<Workflow> workflows) {
+        return workflows.stream().map(this::rehydrate).collect(Collectors.toList());
+    }
+
+    /**
+     * Replaces the workflow read with its definition references, and its tasks, with copies embedding the
+     * definitions. The references are rehydrated even if they are no longer enabled.
+     */
+    private Workflow rehydrate(Workflow workflow) {
+        if (workflow == null) {
+            return null;
+        }
+        if (workflow instanceof StoredWorkflow) {
+            StoredWorkflow storedWorkflow = (StoredWorkflow) workflow;
+            workflow = storedWorkflow.toWorkflow();
+            workflow.setWorkflowDefinition(definitionCache.getWorkflowDef(storedWorkflow.getWorkflowName(),
+                    storedWorkflow.getWorkflowVersion(), storedWorkflow.getWorkflowDefinitionHash()));
+        }
+        workflow.setTasks(rehydrateTasks(workflow.getTasks(), workflow));
+        return workflow;
+    }
+
+    /**
+     * @param workflow the workflow of the tasks, null if the tasks are not read with their workflow
+     * @return the tasks, the tasks read with a reference to their workflow task replaced with copies embedding it
+     */
+    private List<Task> rehydrateTasks(List<Task> tasks, Workflow workflow) {
+        if (tasks.stream().noneMatch(StoredTask.class::isInstance)) {
+            return tasks;
+        }
+        Map<String, WorkflowDef> workflowDefinitions = new HashMap<>();
+        List<Task> rehydrated = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (!(task instanceof StoredTask)) {
+                rehydrated.add(task);
+                continue;
+            }
+            StoredTask storedTask = (StoredTask) task;
+            WorkflowTask workflowTask = definitionCache.getWorkflowTask(task.getWorkflowType(), storedTask.getWorkflowTaskHash());
+            if (workflowTask == null) {
+                WorkflowDef workflowDefinition = workflowDefinitions.computeIfAbsent(task.getWorkflowInstanceId(),
+                        workflowId -> getWorkflowDefinition(workflowId, workflow));
+                workflowTask = getWorkflowTask(storedTask, workflowDefinition);
+            }
+            Task rehydratedTask = storedTask.toTask();
+            if (workflowTask != null) {
+                rehydratedTask.setWorkflowTask(workflowTask);
+            }
+            rehydrated.add(rehydratedTask);
+        }
+        return rehydrated;
+    }
+
+    private WorkflowDef getWorkflowDefinition(String workflowId, Workflow workflow) {
+        if (workflow != null) {
+            return workflow.getWorkflowDefinition();
+        }
+        Workflow stored = rehydrate(executionDAO.getWorkflow(workflowId, false));
+        return stored == null ? null : stored.getWorkflowDefinition();
+    }
+
+    /**
+     * Loads the workflow task of the task from the definition of its workflow, by content hash, or by reference name
+     * if the definition of the workflow changed since the task was written, e.g. when the workflow was rerun.
+     */
+    private WorkflowTask getWorkflowTask(StoredTask task, WorkflowDef workflowDefinition) {
+        if (workflowDefinition == null) {
+            Monitors.error(ExecutionDAOFacade.class.getSimpleName(), "getWorkflowTask");
+            LOGGER.error("No workflow definition found for task: {} of workflow: {}", task.getTaskId(), task.getWorkflowInstanceId());
+            return null;
+        }
+        WorkflowTask workflowTask = definitionCache.getWorkflowTask(task.getWorkflowType(), workflowDefinition, task.getWorkflowTaskHash());
+        if (workflowTask == null) {
+            Monitors.error(ExecutionDAOFacade.class.getSimpleName(), "getWorkflowTask");
+            LOGGER.warn("The workflow task of task: {} was updated in the definition of workflow: {}", task.getTaskId(), task.getWorkflowInstanceId());
+            workflowTask = workflowDefinition.getTaskByRefName(task.getReferenceTaskName());
+        }
+        return workflowTask;
+    }
 }
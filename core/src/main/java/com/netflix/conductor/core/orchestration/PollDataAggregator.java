@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.orchestration;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.conductor.common.metadata.tasks.PollData;
+import com.netflix.conductor.core.config.Configuration;
+import com.netflix.conductor.dao.ExecutionDAO;
+import com.netflix.conductor.metrics.Monitors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the polls of the workers in memory and writes them to the {@link ExecutionDAO} in batches.
+ * <p>
+ * Like the {@link ExecutionDAO}, the aggregator keeps the latest poll of each task queue and domain, so a queue
+ * polled by any number of workers is written at most once per <code>tasks.poll.data.flush.interval.ms</code>.
+ * The polls not yet written are merged with the stored poll data when read.
+ * When the interval is not positive, every poll is written through.
+ */
+@Singleton
+public class PollDataAggregator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PollDataAggregator.class);
+
+    private static final String className = PollDataAggregator.class.getSimpleName();
+
+    private static final String DEFAULT_DOMAIN = "DEFAULT";
+
+    private final ExecutionDAO executionDAO;
+
+    private final int flushIntervalMs;
+
+    // the polls not yet written, by queue name and domain
+    private final Map<String, Map<String, PollData>> pendingPolls = new ConcurrentHashMap<>();
+
+    @Inject
+    public PollDataAggregator(ExecutionDAO executionDAO, Configuration config) {
+        this.executionDAO = executionDAO;
+        this.flushIntervalMs = config.getIntProperty("tasks.poll.data.flush.interval.ms", 1_000);
+        if (flushIntervalMs > 0) {
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("poll-data-flusher")
+                    .setDaemon(true)
+                    .build())
+                    .scheduleWithFixedDelay(this::flushPolls, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+            LOGGER.info("Poll data aggregator initialized, flushing every {} ms", flushIntervalMs);
+        }
+    }
+
+    public void recordPoll(String taskName, String domain, String workerId) {
+        PollData pollData = new PollData(taskName, domain, workerId, System.currentTimeMillis());
+        if (flushIntervalMs <= 0) {
+            executionDAO.updateLastPolls(Collections.singletonList(pollData));
+            return;
+        }
+        pendingPolls.computeIfAbsent(taskName, queueName -> new ConcurrentHashMap<>())
+                .merge(getDomainKey(domain), pollData, PollDataAggregator::latest);
+    }
+
+    public PollData getPollData(String taskName, String domain) {
+        PollData stored = executionDAO.getPollData(taskName, domain);
+        PollData pending = pendingPolls.getOrDefault(taskName, Collections.emptyMap()).get(getDomainKey(domain));
+        return latest(stored, pending);
+    }
+
+    public List<PollData> getPollData(String taskName) {
+        Map<String, PollData> pollDataByDomain = new LinkedHashMap<>();
+        executionDAO.getPollData(taskName)
+                .forEach(pollData -> pollDataByDomain.merge(getDomainKey(pollData.getDomain()), pollData, PollDataAggregator::latest));
+        pendingPolls.getOrDefault(taskName, Collections.emptyMap())
+                .forEach((domainKey, pollData) -> pollDataByDomain.merge(domainKey, pollData, PollDataAggregator::latest));
+        return new ArrayList<>(pollDataByDomain.values());
+    }
+
+    /**
+     * Writes the pending polls. A poll recorded while flushing is kept for the next flush, and the polls are kept
+     * if the write fails, unless a more recent poll of the same queue and domain replaces them.
+     */
+    @VisibleForTesting
+    void flushPolls() {
+        try {
+            List<PollData> polls = new ArrayList<>();
+            pendingPolls.values().forEach(queuePolls -> polls.addAll(queuePolls.values()));
+            if (polls.isEmpty()) {
+                return;
+            }
+            executionDAO.updateLastPolls(polls);
+            for (PollData pollData : polls) {
+                Map<String, PollData> queuePolls = pendingPolls.get(pollData.getQueueName());
+                if (queuePolls != null) {
+                    queuePolls.remove(getDomainKey(pollData.getDomain()), pollData);
+                }
+            }
+            LOGGER.debug("Flushed {} poll data", polls.size());
+        } catch (Exception e) {
+            Monitors.error(className, "flushPolls");
+            LOGGER.error("Error flushing the poll data", e);
+        }
+    }
+
+    private static String getDomainKey(String domain) {
+        return domain == null ? DEFAULT_DOMAIN : domain;
+    }
+
+    private static PollData latest(PollData pollData, PollData other) {
+        if (pollData == null) {
+            return other;
+        }
+        if (other == null) {
+            return pollData;
+        }
+        return other.getLastPollTime() >= pollData.getLastPollTime() ? other : pollData;
+    }
+}
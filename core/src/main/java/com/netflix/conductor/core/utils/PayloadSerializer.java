@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.netflix.conductor.common.metadata.tasks.Task;
+import com.netflix.conductor.common.run.Workflow;
+import com.netflix.conductor.core.config.Configuration;
+import com.netflix.conductor.core.metadata.StoredTask;
+import com.netflix.conductor.core.metadata.StoredWorkflow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Serializes the payloads persisted by the DAOs, e.g. the tasks and the workflows.
+ * <p>
+ * The payloads are written in the format set by <code>workflow.payload.format</code>:
+ * <ul>
+ * <li><code>json</code>, the default: plain JSON, as written by the previous versions</li>
+ * <li><code>smile</code>: the binary Smile encoding of the same JSON document, which shares the repeated field names
+ * and values. When <code>workflow.payload.compression.enabled</code> is set, the Smile document is also deflated.</li>
+ * </ul>
+ * The stores keep the payloads as text, so a binary payload is Base64 encoded behind a header naming its format and
+ * version. The header starts with a character no JSON document starts with, so the payloads of every format, and the
+ * existing JSON payloads, are read regardless of the format written.
+ * <p>
+ * The tasks and the workflows are read as {@link StoredTask} and {@link StoredWorkflow}, so that the references to
+ * their definitions are read along with them. The tasks and workflows persisted without a reference are returned as
+ * plain {@link Task} and {@link Workflow}.
+ */
+public class PayloadSerializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayloadSerializer.class);
+
+    public static final String PAYLOAD_FORMAT_PROPERTY_NAME = "workflow.payload.format";
+    public static final String PAYLOAD_COMPRESSION_PROPERTY_NAME = "workflow.payload.compression.enabled";
+
+    static final String SMILE_HEADER = "#smile1:";
+    static final String SMILE_DEFLATE_HEADER = "#smile1z:";
+
+    public enum Format {
+        JSON, SMILE
+    }
+
+    private final ObjectMapper objectMapper;
+    private final SmileFactory smileFactory;
+    private final Format format;
+    private final boolean compressionEnabled;
+
+    public PayloadSerializer(ObjectMapper objectMapper, Configuration config) {
+        this(objectMapper, getFormat(config), config.getBooleanProperty(PAYLOAD_COMPRESSION_PROPERTY_NAME, false));
+    }
+
+    public PayloadSerializer(ObjectMapper objectMapper, Format format, boolean compressionEnabled) {
+        this.objectMapper = objectMapper;
+        this.format = format;
+        this.compressionEnabled = compressionEnabled;
+        this.smileFactory = new SmileFactory();
+        this.smileFactory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        this.smileFactory.setCodec(objectMapper);
+    }
+
+    private static Format getFormat(Configuration config) {
+        String format = config.getProperty(PAYLOAD_FORMAT_PROPERTY_NAME, Format.JSON.name());
+        for (Format value : Format.values()) {
+            if (value.name().equalsIgnoreCase(format)) {
+                return value;
+            }
+        }
+        logger.warn("Unknown payload format: {}, the payloads are written as JSON", format);
+        return Format.JSON;
+    }
+
+    public String serialize(Object value) throws IOException {
+        if (format == Format.JSON) {
+            return objectMapper.writeValueAsString(value);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        // a deflater passed to a DeflaterOutputStream is not ended when the stream is closed
+        Deflater deflater = compressionEnabled ? new Deflater(Deflater.BEST_SPEED) : null;
+        try {
+            OutputStream outputStream = compressionEnabled ? new DeflaterOutputStream(bytes, deflater) : bytes;
+            try (JsonGenerator generator = smileFactory.createGenerator(outputStream)) {
+                objectMapper.writeValue(generator, value);
+            }
+            outputStream.close();
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        String header = compressionEnabled ? SMILE_DEFLATE_HEADER : SMILE_HEADER;
+        return header + new String(Base64.getEncoder().encode(bytes.toByteArray()), StandardCharsets.US_ASCII);
+    }
+
+    public <T> T deserialize(String payload, Class<T> clazz) throws IOException {
+        if (clazz == Task.class) {
+            StoredTask task = read(payload, StoredTask.class);
+            return clazz.cast(task == null || task.getWorkflowTaskHash() != null ? task : task.toTask());
+        }
+        if (clazz == Workflow.class) {
+            StoredWorkflow workflow = read(payload, StoredWorkflow.class);
+            return clazz.cast(workflow == null || workflow.getWorkflowDefinitionHash() != null ? workflow : workflow.toWorkflow());
+        }
+        return read(payload, clazz);
+    }
+
+    private <T> T read(String payload, Class<T> clazz) throws IOException {
+        if (payload == null) {
+            return null;
+        }
+        if (payload.startsWith(SMILE_HEADER)) {
+            return readSmile(decode(payload, SMILE_HEADER), clazz);
+        }
+        if (payload.startsWith(SMILE_DEFLATE_HEADER)) {
+            return readSmile(new InflaterInputStream(decode(payload, SMILE_DEFLATE_HEADER)), clazz);
+        }
+        return objectMapper.readValue(payload, clazz);
+    }
+
+    private static InputStream decode(String payload, String header) {
+        byte[] encoded = payload.substring(header.length()).getBytes(StandardCharsets.US_ASCII);
+        return new ByteArrayInputStream(Base64.getDecoder().decode(encoded));
+    }
+
+    private <T> T readSmile(InputStream inputStream, Class<T> clazz) throws IOException {
+        try (InputStream in = inputStream) {
+            return objectMapper.readValue(smileFactory.createParser(in), clazz);
+        }
+    }
+}
@@ -17,6 +17,9 @@ package com.netflix.conductor.core.utils;
 
 import com.netflix.conductor.common.metadata.tasks.Task;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  *
  * @author visingh
@@ -26,6 +29,10 @@ public class QueueUtils {
 
     public static final String DOMAIN_SEPARATOR = ":";
 
+    public static final String DECIDER_QUEUE = "_deciderQueue";
+
+    private static final String SHARD_SEPARATOR = "_";
+
     public static String getQueueName(Task task) {
         return getQueueName(task.getTaskType(), task.getDomain());
     }
@@ -44,4 +51,26 @@ public class QueueUtils {
         return queueName.substring(queueName.indexOf(DOMAIN_SEPARATOR) + 1);
     }
 
+    /**
+     * @param workflowId id of the workflow
+     * @param shards     number of decider queues
+     * @return the decider queue the workflow is swept from. The first shard is the unsharded decider queue, so
+     * that workflows queued before the queue was sharded are still swept.
+     */
+    public static String getDeciderQueueName(String workflowId, int shards) {
+        return getDeciderQueueName(shards <= 1 ? 0 : Math.floorMod(workflowId.hashCode(), shards));
+    }
+
+    public static String getDeciderQueueName(int shard) {
+        return shard == 0 ? DECIDER_QUEUE : DECIDER_QUEUE + SHARD_SEPARATOR + shard;
+    }
+
+    public static List<String> getDeciderQueueNames(int shards) {
+        List<String> queueNames = new ArrayList<>();
+        for (int shard = 0; shard < Math.max(1, shards); shard++) {
+            queueNames.add(getDeciderQueueName(shard));
+        }
+        return queueNames;
+    }
+
 }
@@ -27,6 +27,8 @@ import com.netflix.conductor.common.run.Workflow;
 import com.netflix.conductor.core.events.queue.Message;
 
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * @author Viren
@@ -81,6 +83,20 @@ public interface ExecutionDAO {
 	 */
 	boolean exceedsInProgressLimit(Task task);
 
+	/**
+	 * Checks the in progress limits for a batch of tasks about to be in progress, such as the tasks of a poll.
+	 * Implementations should check the limit of each task definition once for all its tasks.
+	 * @param tasks The tasks to be executed, of one or more task definitions.
+	 * @return the ids of the tasks which would breach the limit of their task definition if executed.
+	 * @see #exceedsInProgressLimit(Task)
+	 */
+	default Set<String> getTasksExceedingInProgressLimit(List<Task> tasks) {
+		return tasks.stream()
+				.filter(this::exceedsInProgressLimit)
+				.map(Task::getTaskId)
+				.collect(Collectors.toSet());
+	}
+
 	/**
 	 * Checks if the Task is rate limited or not based on the {@link Task#getRateLimitPerFrequency()} and {@link Task#getRateLimitFrequencyInSeconds()}
 	 * @param task: which needs to be evaluated whether it is rateLimited or not
@@ -267,6 +283,16 @@ public interface ExecutionDAO {
 	List<EventExecution> getEventExecutions(String eventHandlerName, String eventName, String messageId, int max);
 	
 	void updateLastPoll(String taskDefName, String domain, String workerId);
+
+	/**
+	 * Stores a batch of polls. The implementations keep the poll times of the given polls, except for this default
+	 * implementation which stores each poll with {@link #updateLastPoll(String, String, String)}, i.e. with the
+	 * current time as its poll time.
+	 * @param pollData the latest polls of one or more task queues and domains
+	 */
+	default void updateLastPolls(List<PollData> pollData) {
+		pollData.forEach(pd -> updateLastPoll(pd.getQueueName(), pd.getDomain(), pd.getWorkerId()));
+	}
 	
 	PollData getPollData(String taskDefName, String domain);
 
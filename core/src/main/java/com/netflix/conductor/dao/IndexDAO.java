@@ -63,6 +63,26 @@ public interface IndexDAO {
      */
     CompletableFuture<Void> asyncIndexTask(Task task);
 
+    /**
+     * Indexes the workflows in bulk. Unlike {@link #indexWorkflow(Workflow)}, implementations should throw if the
+     * workflows could not be indexed, so they can be retried.
+     *
+     * @param workflows Workflows to be indexed
+     */
+    default void indexWorkflows(List<Workflow> workflows) {
+        workflows.forEach(this::indexWorkflow);
+    }
+
+    /**
+     * Indexes the tasks in bulk. Unlike {@link #indexTask(Task)}, implementations should throw if the tasks could
+     * not be indexed, so they can be retried.
+     *
+     * @param tasks Tasks to be indexed
+     */
+    default void indexTasks(List<Task> tasks) {
+        tasks.forEach(this::indexTask);
+    }
+
     /**
      *
      * @param query SQL like query for workflow search parameters.
@@ -148,6 +168,16 @@ public interface IndexDAO {
      */
     void addEventExecution(EventExecution eventExecution);
 
+    /**
+     * Indexes the event executions in bulk. Unlike {@link #addEventExecution(EventExecution)}, implementations should
+     * throw if the event executions could not be indexed, so they can be retried.
+     *
+     * @param eventExecutions Event Executions to be indexed
+     */
+    default void addEventExecutions(List<EventExecution> eventExecutions) {
+        eventExecutions.forEach(this::addEventExecution);
+    }
+
     /**
      *
      * @param eventExecution Event Execution to be indexed
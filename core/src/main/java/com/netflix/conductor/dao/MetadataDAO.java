@@ -88,6 +88,21 @@ public interface MetadataDAO {
      */
     void removeWorkflowDef(String name, Integer version);
 
+    /**
+     * Stores a snapshot of a workflow definition, as used by running workflows. A snapshot is immutable, and is kept
+     * when the definition is updated or removed. Storing a snapshot that already exists is a no-op.
+     *
+     * @param hash the content hash of the workflow definition
+     * @param def  workflow definition
+     */
+    void createWorkflowDefSnapshot(String hash, WorkflowDef def);
+
+    /**
+     * @param hash the content hash of the workflow definition
+     * @return the snapshot of the workflow definition with the content hash
+     */
+    Optional<WorkflowDef> getWorkflowDefSnapshot(String hash);
+
     /**
      * @return Names of all the workflows
      */
@@ -17,6 +17,7 @@ package com.netflix.conductor.dao;
 
 import com.netflix.conductor.core.events.queue.Message;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -42,6 +43,20 @@ public interface QueueDAO {
 	 */
 	void push(String queueName, List<Message> messages);
 
+	/**
+	 * Pushes several messages with the same offset time. The default implementation pushes the messages one after the
+	 * other.
+	 *
+	 * @param queueName Name of the queue
+	 * @param ids message ids
+	 * @param offsetTimeInSecond time in seconds, after which the messages should be marked visible.  (for timed queues)
+	 */
+	default void push(String queueName, List<String> ids, long offsetTimeInSecond) {
+		for (String id : ids) {
+			push(queueName, id, offsetTimeInSecond);
+		}
+	}
+
 	/**
 	 * 
 	 * @param queueName Name of the queue
@@ -60,7 +75,26 @@ public interface QueueDAO {
 	 */
 	List<String> pop(String queueName, int count, int timeout);
 
-	
+	/**
+	 * Pops several queues at once. The default implementation pops the queues one after the other, waiting for the
+	 * timeout on the last one only if the others are empty.
+	 *
+	 * @param counts number of messages to be read, by queue name
+	 * @param timeout timeout in milliseconds, waited for only if all the queues are empty
+	 * @return the elements read, by queue name
+	 */
+	default Map<String, List<String>> pop(Map<String, Integer> counts, int timeout) {
+		Map<String, List<String>> popped = new HashMap<>();
+		int remaining = counts.size();
+		boolean empty = true;
+		for (Map.Entry<String, Integer> count : counts.entrySet()) {
+			List<String> elements = pop(count.getKey(), count.getValue(), --remaining == 0 && empty ? timeout : 0);
+			empty &= elements.isEmpty();
+			popped.put(count.getKey(), elements);
+		}
+		return popped;
+	}
+
 	/**
 	 * 
 	 * @param queueName Name of the queue
@@ -77,6 +111,18 @@ public interface QueueDAO {
 	 */
 	void remove(String queueName, String messageId);
 
+	/**
+	 * Removes several messages. The default implementation removes the messages one after the other.
+	 *
+	 * @param queueName Name of the queue
+	 * @param messageIds Message ids
+	 */
+	default void remove(String queueName, List<String> messageIds) {
+		for (String messageId : messageIds) {
+			remove(queueName, messageId);
+		}
+	}
+
 	/**
 	 * 
 	 * @param queueName Name of the queue
@@ -91,6 +137,18 @@ public interface QueueDAO {
 	 * @return true if the message was found and ack'ed
 	 */
 	boolean ack(String queueName, String messageId);
+
+	/**
+	 * Acknowledges several messages. The default implementation acknowledges the messages one after the other.
+	 *
+	 * @param queueName Name of the queue
+	 * @param messageIds Message ids
+	 */
+	default void ack(String queueName, List<String> messageIds) {
+		for (String messageId : messageIds) {
+			ack(queueName, messageId);
+		}
+	}
 	
 	/**
 	 * Extend the lease of the unacknowledged message for longer period.
@@ -101,6 +159,20 @@ public interface QueueDAO {
 	 */
 	boolean setUnackTimeout(String queueName, String messageId, long unackTimeout);
 
+	/**
+	 * Extends the lease of several unacknowledged messages. The default implementation extends the leases one after
+	 * the other.
+	 *
+	 * @param queueName Name of the queue
+	 * @param messageIds Message ids
+	 * @param unackTimeout timeout in milliseconds for which the unack lease should be extended. (replaces the current value with this value)
+	 */
+	default void setUnackTimeout(String queueName, List<String> messageIds, long unackTimeout) {
+		for (String messageId : messageIds) {
+			setUnackTimeout(queueName, messageId, unackTimeout);
+		}
+	}
+
 	/**
 	 * 
 	 * @param queueName Name of the queue
@@ -132,6 +204,20 @@ public interface QueueDAO {
 	 */
 	boolean setOffsetTime(String queueName, String id, long offsetTimeInSecond);
 
+	/**
+	 * Sets the offset time of several messages without pulling them out of the queue. The default implementation sets
+	 * the offset times one after the other.
+	 *
+	 * @param queueName name of the queue
+	 * @param ids message ids
+	 * @param offsetTimeInSecond time in seconds, after which the messages should be marked visible.  (for timed queues)
+	 */
+	default void setOffsetTime(String queueName, List<String> ids, long offsetTimeInSecond) {
+		for (String id : ids) {
+			setOffsetTime(queueName, id, offsetTimeInSecond);
+		}
+	}
+
 	/**
 	 * Checks if a message with the given id exists on the queue
 	 * @param queueName name of the queue
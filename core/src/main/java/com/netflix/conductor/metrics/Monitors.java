@@ -216,6 +216,62 @@ public class Monitors {
 		getTimer(classQualifier, "workflow_execution", "workflowName", workflowType, "ownerApp", ""+ownerApp).record(duration, TimeUnit.MILLISECONDS);
 	}
 
+	public static void recordDecideExecuted() {
+		counter(classQualifier, "workflow_decide_executed");
+	}
+
+	public static void recordDecideCoalesced() {
+		counter(classQualifier, "workflow_decide_coalesced");
+	}
+
+	public static void recordDeciderQueueDepth(String queueName, long size) {
+		gauge(classQualifier, "decider_queue_depth", size, "queueName", queueName);
+	}
+
+	public static void recordSweeperInProgress(String queueName, long count) {
+		gauge(classQualifier, "sweeper_in_progress", count, "queueName", queueName);
+	}
+
+	public static void recordSweeperBatchSize(String queueName, long batchSize) {
+		gauge(classQualifier, "sweeper_batch_size", batchSize, "queueName", queueName);
+	}
+
+	public static void recordSweeperDecideTime(String queueName, long duration) {
+		getTimer(classQualifier, "sweeper_decide", "queueName", queueName).record(duration, TimeUnit.MILLISECONDS);
+	}
+
+	public static void recordIndexBufferDepth(String docType, long size) {
+		gauge(classQualifier, "index_buffer_depth", size, "docType", docType);
+	}
+
+	public static void recordIndexFlushTime(String docType, long duration) {
+		getTimer(classQualifier, "index_flush", "docType", docType).record(duration, TimeUnit.MILLISECONDS);
+	}
+
+	public static void recordIndexSpilled(String docType) {
+		counter(classQualifier, "index_spilled", "docType", docType);
+	}
+
+	public static void recordIndexWriteThrough(String docType) {
+		counter(classQualifier, "index_write_through", "docType", docType);
+	}
+
+	public static void recordSystemTaskWorkerQueueWait(String taskType, long queueWaitTime) {
+		getTimer(classQualifier, "system_task_worker_queue_wait", "taskType", taskType).record(queueWaitTime, TimeUnit.MILLISECONDS);
+	}
+
+	public static void recordSystemTaskWorkerExecutionTime(String taskType, long duration) {
+		getTimer(classQualifier, "system_task_worker_execution", "taskType", taskType).record(duration, TimeUnit.MILLISECONDS);
+	}
+
+	public static void recordSystemTaskWorkerRejected(String taskType) {
+		counter(classQualifier, "system_task_worker_rejected", "taskType", taskType);
+	}
+
+	public static void recordSystemTaskWorkerQueueDepth(String taskType, long size) {
+		gauge(classQualifier, "system_task_worker_queue_depth", size, "taskType", taskType);
+	}
+
 	public static void recordTaskRateLimited(String taskDefName, int limit) {
 		gauge(classQualifier, "task_rate_limited", limit, "taskType", taskDefName);
 	}
@@ -19,7 +19,7 @@ import com.netflix.conductor.annotations.Audit;
 import com.netflix.conductor.annotations.Trace;
 import com.netflix.conductor.common.metadata.tasks.Task;
 import com.netflix.conductor.core.config.Configuration;
-import com.netflix.conductor.core.execution.WorkflowExecutor;
+import com.netflix.conductor.core.utils.QueueUtils;
 import com.netflix.conductor.dao.QueueDAO;
 import com.netflix.conductor.service.utils.ServiceUtils;
 import org.slf4j.Logger;
@@ -105,7 +105,7 @@ public class AdminServiceImpl implements AdminService {
      */
     public String requeueSweep(String workflowId) {
         ServiceUtils.checkNotNullOrEmpty(workflowId, "WorkflowId cannot be null or empty.");
-        boolean pushed = queueDAO.pushIfNotExists(WorkflowExecutor.DECIDER_QUEUE, workflowId, config.getSweepFrequency());
+        boolean pushed = queueDAO.pushIfNotExists(QueueUtils.getDeciderQueueName(workflowId, config.getDeciderQueueShards()), workflowId, config.getSweepFrequency());
         return pushed + "." + workflowId;
     }
 }
@@ -55,6 +55,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -123,26 +124,26 @@ public class ExecutionService {
 
 		List<String> taskIds = queueDAO.pop(queueName, count, timeoutInMilliSecond);
 		List<Task> tasks = new LinkedList<>();
-		for(String taskId : taskIds) {
-			Task task = getTask(taskId);
-			if(task == null) {
-				continue;
-			}
-
-			if(executionDAOFacade.exceedsInProgressLimit(task)) {
-				continue;
-			}
+		if (!taskIds.isEmpty()) {
+			// the tasks are loaded, checked against the concurrency limits and updated in bulk
+			List<Task> polledTasks = workflowExecutor.getTasks(taskIds);
+			Set<String> limitedTaskIds = executionDAOFacade.getTasksExceedingInProgressLimit(polledTasks);
+			for (Task task : polledTasks) {
+				if (limitedTaskIds.contains(task.getTaskId())) {
+					continue;
+				}
 
-			task.setStatus(Status.IN_PROGRESS);
-			if (task.getStartTime() == 0) {
-				task.setStartTime(System.currentTimeMillis());
-				Monitors.recordQueueWaitTime(task.getTaskDefName(), task.getQueueWaitTime());
+				task.setStatus(Status.IN_PROGRESS);
+				if (task.getStartTime() == 0) {
+					task.setStartTime(System.currentTimeMillis());
+					Monitors.recordQueueWaitTime(task.getTaskDefName(), task.getQueueWaitTime());
+				}
+				task.setCallbackAfterSeconds(0);	// reset callbackAfterSeconds when giving the task to the worker
+				task.setWorkerId(workerId);
+				task.setPollCount(task.getPollCount() + 1);
+				tasks.add(task);
 			}
-			task.setCallbackAfterSeconds(0);	// reset callbackAfterSeconds when giving the task to the worker
-			task.setWorkerId(workerId);
-			task.setPollCount(task.getPollCount() + 1);
-			executionDAOFacade.updateTask(task);
-			tasks.add(task);
+			executionDAOFacade.updateTasks(tasks);
 		}
 		executionDAOFacade.updateTaskLastPoll(taskType, domain, workerId);
 		Monitors.recordTaskPoll(queueName);
@@ -189,6 +190,10 @@ public class ExecutionService {
 		workflowExecutor.updateTask(taskResult);
 	}
 
+	public void updateTasks(List<TaskResult> taskResults) {
+		workflowExecutor.updateTasks(taskResults);
+	}
+
 	public List<Task> getTasks(String taskType, String startKey, int count) {
 		return workflowExecutor.getTasks(taskType, startKey, count);
 	}
@@ -27,6 +27,7 @@ import com.netflix.conductor.core.WorkflowContext;
 import com.netflix.conductor.core.events.EventQueues;
 import com.netflix.conductor.core.execution.ApplicationException;
 import com.netflix.conductor.core.execution.ApplicationException.Code;
+import com.netflix.conductor.core.metadata.CompiledWorkflowDefCache;
 import com.netflix.conductor.dao.MetadataDAO;
 import com.netflix.conductor.service.utils.ServiceUtils;
 
@@ -41,11 +42,13 @@ import java.util.Optional;
 public class MetadataServiceImpl implements MetadataService {
     private final MetadataDAO metadataDAO;
     private final EventQueues eventQueues;
+    private final CompiledWorkflowDefCache compiledWorkflowDefCache;
 
     @Inject
-    public MetadataServiceImpl(MetadataDAO metadataDAO, EventQueues eventQueues) {
+    public MetadataServiceImpl(MetadataDAO metadataDAO, EventQueues eventQueues, CompiledWorkflowDefCache compiledWorkflowDefCache) {
         this.metadataDAO = metadataDAO;
         this.eventQueues = eventQueues;
+        this.compiledWorkflowDefCache = compiledWorkflowDefCache;
     }
 
     /**
@@ -113,6 +116,7 @@ public class MetadataServiceImpl implements MetadataService {
         Preconditions.checkNotNull(def, "WorkflowDef object cannot be null");
         Preconditions.checkNotNull(def.getName(), "WorkflowDef name cannot be null");
         metadataDAO.update(def);
+        compiledWorkflowDefCache.invalidate(def.getName(), def.getVersion());
     }
 
     /**
@@ -126,6 +130,7 @@ public class MetadataServiceImpl implements MetadataService {
             ServiceUtils.checkNotNull(workflowDef, "WorkflowDef cannot be null");
             ServiceUtils.checkNotNullOrEmpty(workflowDef.getName(), "WorkflowDef name cannot be null");
             metadataDAO.update(workflowDef);
+            compiledWorkflowDefCache.invalidate(workflowDef.getName(), workflowDef.getVersion());
         }
     }
 
@@ -168,6 +173,7 @@ public class MetadataServiceImpl implements MetadataService {
             workflowDef.setSchemaVersion(2);
         }
         metadataDAO.create(workflowDef);
+        compiledWorkflowDefCache.invalidate(workflowDef.getName(), workflowDef.getVersion());
     }
 
     /**
@@ -179,6 +185,7 @@ public class MetadataServiceImpl implements MetadataService {
         ServiceUtils.checkNotNullOrEmpty(name, "Workflow name cannot be null");
         ServiceUtils.checkNotNull(version, "Version is not valid");
         metadataDAO.removeWorkflowDef(name, version);
+        compiledWorkflowDefCache.invalidate(name, version);
     }
 
     /**
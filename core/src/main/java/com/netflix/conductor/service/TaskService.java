@@ -79,6 +79,14 @@ public interface TaskService {
      */
     String updateTask(TaskResult taskResult);
 
+    /**
+     * Updates a batch of tasks, of one or more workflows.
+     *
+     * @param taskResults Instances of {@link TaskResult}
+     * @return task Ids of the updated tasks.
+     */
+    List<String> updateTasks(List<TaskResult> taskResults);
+
     /**
      * Ack Task is received.
      *
@@ -140,6 +140,25 @@ public class TaskServiceImpl implements TaskService {
         return taskResult.getTaskId();
     }
 
+    /**
+     * Updates a batch of tasks, of one or more workflows.
+     *
+     * @param taskResults Instances of {@link TaskResult}
+     * @return task Ids of the updated tasks.
+     */
+    public List<String> updateTasks(List<TaskResult> taskResults) {
+        ServiceUtils.checkNotNullOrEmpty(taskResults, "TaskResults cannot be null or empty.");
+        for (TaskResult taskResult : taskResults) {
+            ServiceUtils.checkNotNull(taskResult, "TaskResult cannot be null or empty.");
+            ServiceUtils.checkNotNullOrEmpty(taskResult.getWorkflowInstanceId(), "Workflow Id cannot be null or empty");
+            ServiceUtils.checkNotNullOrEmpty(taskResult.getTaskId(), "Task ID cannot be null or empty");
+        }
+        LOGGER.debug("Update Tasks: {}", taskResults);
+        executionService.updateTasks(taskResults);
+        LOGGER.debug("Tasks: {} updated successfully", taskResults);
+        return taskResults.stream().map(TaskResult::getTaskId).collect(Collectors.toList());
+    }
+
     /**
      * Ack Task is received.
      *
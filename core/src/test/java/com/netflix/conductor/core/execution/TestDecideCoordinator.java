@@ -0,0 +1,159 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.execution;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestDecideCoordinator {
+
+    private DecideCoordinator decideCoordinator;
+
+    @Before
+    public void init() {
+        decideCoordinator = new DecideCoordinator();
+    }
+
+    @Test
+    public void testSingleDecide() {
+        assertTrue(decideCoordinator.decide("wf1", () -> true));
+        assertEquals(1, decideCoordinator.getExecutedCount());
+        assertEquals(0, decideCoordinator.getCoalescedCount());
+        assertFalse(decideCoordinator.isRunning("wf1"));
+    }
+
+    @Test
+    public void testReentrantDecideIsRunAsFollowUp() {
+        AtomicInteger runs = new AtomicInteger();
+        boolean completed = decideCoordinator.decide("wf1", () -> {
+            if (runs.incrementAndGet() == 1) {
+                assertFalse(decideCoordinator.decide("wf1", () -> {
+                    fail("must not run nested");
+                    return false;
+                }));
+                assertFalse(decideCoordinator.decide("wf1", () -> {
+                    fail("must not run nested");
+                    return false;
+                }));
+                return false;
+            }
+            return true;
+        });
+        assertTrue(completed);
+        assertEquals(2, runs.get());
+        assertEquals(2, decideCoordinator.getExecutedCount());
+        assertEquals(2, decideCoordinator.getCoalescedCount());
+        assertFalse(decideCoordinator.isRunning("wf1"));
+    }
+
+    @Test
+    public void testAfterDecideRunsAfterEachRun() {
+        AtomicInteger runs = new AtomicInteger();
+        AtomicInteger afterDecide = new AtomicInteger();
+        decideCoordinator.decide("wf1", () -> {
+            if (runs.incrementAndGet() == 1) {
+                decideCoordinator.decide("wf1", () -> false);
+            }
+            // the workflow is still held while the hook runs
+            assertTrue(decideCoordinator.isRunning("wf1"));
+            return false;
+        }, () -> {
+            // each run is followed by the hook, before the follow-up run reads the workflow again
+            assertEquals(afterDecide.get() + 1, runs.get());
+            assertTrue(decideCoordinator.isRunning("wf1"));
+            afterDecide.incrementAndGet();
+        });
+        assertEquals(2, runs.get());
+        assertEquals(2, afterDecide.get());
+        assertFalse(decideCoordinator.isRunning("wf1"));
+    }
+
+    @Test
+    public void testConcurrentDecidesAreCoalesced() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            Future<Boolean> owner = executorService.submit(() -> decideCoordinator.decide("wf1", () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            for (int i = 0; i < 3; i++) {
+                assertFalse(executorService.submit(() -> decideCoordinator.decide("wf1", () -> {
+                    runs.incrementAndGet();
+                    return false;
+                })).get());
+            }
+            // a different workflow is not serialized behind wf1
+            assertTrue(executorService.submit(() -> decideCoordinator.decide("wf2", () -> true)).get());
+
+            release.countDown();
+            owner.get(5, TimeUnit.SECONDS);
+
+            // the three requests for wf1 are collapsed into one follow-up run
+            assertEquals(2, runs.get());
+            assertEquals(3, decideCoordinator.getCoalescedCount());
+            assertEquals(3, decideCoordinator.getExecutedCount());
+            assertFalse(decideCoordinator.isRunning("wf1"));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedDecideReleasesWorkflow() {
+        try {
+            decideCoordinator.decide("wf1", () -> {
+                throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, "error");
+            });
+            fail("expected exception");
+        } catch (ApplicationException e) {
+            assertFalse(decideCoordinator.isRunning("wf1"));
+        }
+        assertTrue(decideCoordinator.decide("wf1", () -> true));
+    }
+
+    @Test
+    public void testDecideFailingWithErrorReleasesWorkflow() {
+        try {
+            decideCoordinator.decide("wf1", () -> {
+                throw new StackOverflowError();
+            });
+            fail("expected error");
+        } catch (StackOverflowError e) {
+            assertFalse(decideCoordinator.isRunning("wf1"));
+        }
+        assertTrue(decideCoordinator.decide("wf1", () -> true));
+    }
+}
@@ -39,6 +39,7 @@ import com.netflix.conductor.core.execution.mapper.TaskMapper;
 import com.netflix.conductor.core.execution.mapper.UserDefinedTaskMapper;
 import com.netflix.conductor.core.execution.mapper.WaitTaskMapper;
 import com.netflix.conductor.core.execution.tasks.Join;
+import com.netflix.conductor.core.metadata.CompiledWorkflowDefCache;
 import com.netflix.conductor.core.utils.ExternalPayloadStorageUtils;
 import com.netflix.conductor.dao.MetadataDAO;
 import com.netflix.conductor.dao.QueueDAO;
@@ -71,6 +72,10 @@ public class TestDeciderOutcomes {
 
     private MetadataDAO metadataDAO;
     private DeciderService deciderService;
+    private QueueDAO queueDAO;
+    private ExternalPayloadStorageUtils externalPayloadStorageUtils;
+    private ParametersUtils parametersUtils;
+    private Map<String, TaskMapper> taskMappers;
 
     private static ObjectMapper objectMapper = new ObjectMapper();
 
@@ -85,8 +90,8 @@ public class TestDeciderOutcomes {
     @Before
     public void init() {
         metadataDAO = mock(MetadataDAO.class);
-        QueueDAO queueDAO = mock(QueueDAO.class);
-        ExternalPayloadStorageUtils externalPayloadStorageUtils = mock(ExternalPayloadStorageUtils.class);
+        queueDAO = mock(QueueDAO.class);
+        externalPayloadStorageUtils = mock(ExternalPayloadStorageUtils.class);
         Configuration configuration = mock(Configuration.class);
         when(configuration.getTaskInputPayloadSizeThresholdKB()).thenReturn(10L);
         when(configuration.getMaxTaskInputPayloadSizeThresholdKB()).thenReturn(10240L);
@@ -96,8 +101,8 @@ public class TestDeciderOutcomes {
         taskDef.setName("mockTaskDef");
         taskDef.setResponseTimeoutSeconds(60 * 60);
         when(metadataDAO.getTaskDef(anyString())).thenReturn(taskDef);
-        ParametersUtils parametersUtils = new ParametersUtils();
-        Map<String, TaskMapper> taskMappers = new HashMap<>();
+        parametersUtils = new ParametersUtils();
+        taskMappers = new HashMap<>();
         taskMappers.put("DECISION", new DecisionTaskMapper());
         taskMappers.put("DYNAMIC", new DynamicTaskMapper(parametersUtils, metadataDAO));
         taskMappers.put("FORK_JOIN", new ForkJoinTaskMapper());
@@ -109,7 +114,7 @@ public class TestDeciderOutcomes {
         taskMappers.put("EVENT", new EventTaskMapper(parametersUtils));
         taskMappers.put("WAIT", new WaitTaskMapper(parametersUtils));
 
-        this.deciderService = new DeciderService(parametersUtils, queueDAO, externalPayloadStorageUtils, taskMappers);
+        this.deciderService = new DeciderService(parametersUtils, queueDAO, externalPayloadStorageUtils, taskMappers, new CompiledWorkflowDefCache(configuration));
     }
 
     @Test
@@ -261,6 +266,39 @@ public class TestDeciderOutcomes {
 
     }
 
+    @Test
+    public void testSequentialTasksComplete() {
+        WorkflowDef def = new WorkflowDef();
+        def.setName("test");
+        def.setSchemaVersion(2);
+        for (int i = 0; i < 3; i++) {
+            WorkflowTask workflowTask = new WorkflowTask();
+            workflowTask.setName("task" + i);
+            workflowTask.setType("SIMPLE");
+            workflowTask.setTaskReferenceName("t" + i);
+            workflowTask.setTaskDefinition(new TaskDef("task" + i));
+            def.getTasks().add(workflowTask);
+        }
+
+        Workflow workflow = new Workflow();
+        workflow.setWorkflowId("sequential");
+        workflow.setWorkflowDefinition(def);
+        workflow.setStartTime(System.currentTimeMillis());
+
+        DeciderOutcome outcome = deciderService.decide(workflow);
+        for (int i = 0; i < 3; i++) {
+            assertFalse(outcome.isComplete);
+            assertEquals(1, outcome.tasksToBeScheduled.size());
+            assertEquals("t" + i, outcome.tasksToBeScheduled.get(0).getReferenceTaskName());
+            workflow.getTasks().addAll(outcome.tasksToBeScheduled);
+            outcome.tasksToBeScheduled.get(0).setStatus(Status.COMPLETED);
+            outcome = deciderService.decide(workflow);
+        }
+
+        assertTrue(outcome.isComplete);
+        assertTrue(outcome.tasksToBeScheduled.isEmpty());
+    }
+
     @Test
     public void testOptional() {
         WorkflowDef def = new WorkflowDef();
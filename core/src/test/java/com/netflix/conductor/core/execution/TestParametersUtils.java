@@ -1,11 +1,17 @@
 package com.netflix.conductor.core.execution;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.conductor.common.metadata.tasks.Task;
+import com.netflix.conductor.common.metadata.tasks.TaskDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowTask;
+import com.netflix.conductor.common.run.Workflow;
 import com.netflix.conductor.core.utils.JsonUtils;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -95,4 +101,97 @@ public class TestParametersUtils {
 		assertEquals("conductor", replaced.get("k4"));
 		assertEquals(2, replaced.get("k5"));
     }
+
+    @Test
+    public void testTaskInputTemplateIsCompiledOnce() {
+        Workflow workflow = createWorkflow();
+
+        Map<String, Object> input = new HashMap<>();
+		input.put("workflowInput", "${workflow.input.requestId}");
+		input.put("taskOutput", "${task_1.output.result}");
+		input.put("status", "${task_1.status}");
+		input.put("concatenated", "id-${workflow.workflowId}-${task_1.output.missing}-${CPEWF_TASK_ID}");
+		input.put("list", Arrays.asList("${task_2.output.result}", 1, "literal"));
+		input.put("deepScan", "${$..result}");
+        WorkflowTask workflowTask = new WorkflowTask();
+        workflowTask.setTaskReferenceName("task_3");
+        workflowTask.setInputParameters(input);
+
+        TaskDef taskDef = new TaskDef("task_3");
+        Map<String, Object> inputTemplate = new HashMap<>();
+        inputTemplate.put("templated", "${workflow.input.requestId}");
+        taskDef.setInputTemplate(inputTemplate);
+
+        Map<String, Object> taskInput = parametersUtils.getTaskInputV2(workflowTask, workflow, "t3", taskDef);
+        assertEquals("r1", taskInput.get("workflowInput"));
+        // the last task with a given reference name is used
+        assertEquals("second", taskInput.get("taskOutput"));
+        assertEquals("COMPLETED", taskInput.get("status"));
+        assertEquals("id-w1--t3", taskInput.get("concatenated"));
+        assertEquals(Arrays.asList("other", 1, "literal"), taskInput.get("list"));
+        assertEquals(new HashSet<>(Arrays.asList("second", "other")), new HashSet<>((List<?>) taskInput.get("deepScan")));
+        assertEquals("r1", taskInput.get("templated"));
+        assertEquals(1, parametersUtils.getCompiledTemplateCount());
+
+        // resolved values are not shared across evaluations, and the runtime values are not part of the cache key
+        taskInput.put("workflowInput", "modified");
+        workflow.getInput().put("requestId", "r2");
+        taskInput = parametersUtils.getTaskInputV2(workflowTask, workflow, "t4", taskDef);
+        assertEquals("r2", taskInput.get("workflowInput"));
+        assertEquals("id-w1--t4", taskInput.get("concatenated"));
+        assertEquals(1, parametersUtils.getCompiledTemplateCount());
+
+        // modifying the definition in place recompiles the template under the same key
+        input.put("workflowInput", "${workflow.correlationId}");
+        taskInput = parametersUtils.getTaskInputV2(workflowTask, workflow, "t3", taskDef);
+        assertEquals("c1", taskInput.get("workflowInput"));
+        assertEquals(1, parametersUtils.getCompiledTemplateCount());
+
+        // another task reference name is compiled separately
+        workflowTask.setTaskReferenceName("task_4");
+        parametersUtils.getTaskInputV2(workflowTask, workflow, "t5", taskDef);
+        assertEquals(2, parametersUtils.getCompiledTemplateCount());
+
+        // ad-hoc input is not cached
+        parametersUtils.getTaskInputV2(new HashMap<>(input), workflow, "t6", taskDef);
+        assertEquals(2, parametersUtils.getCompiledTemplateCount());
+    }
+
+    @Test
+    public void testSystemParameters() {
+        System.setProperty("TEST_PARAMETERS_UTILS_PROPERTY", "value");
+        try {
+            Map<String, Object> input = new HashMap<>();
+			input.put("property", "${TEST_PARAMETERS_UTILS_PROPERTY}");
+			input.put("taskId", "${CPEWF_TASK_ID}");
+
+            Map<String, Object> taskInput = parametersUtils.getTaskInputV2(input, createWorkflow(), null, null);
+            assertEquals("value", taskInput.get("property"));
+            // a system parameter without a value is left as is
+            assertEquals("${CPEWF_TASK_ID}", taskInput.get("taskId"));
+        } finally {
+            System.clearProperty("TEST_PARAMETERS_UTILS_PROPERTY");
+        }
+    }
+
+    private Workflow createWorkflow() {
+        Workflow workflow = new Workflow();
+        workflow.setWorkflowId("w1");
+        workflow.setCorrelationId("c1");
+        workflow.getInput().put("requestId", "r1");
+
+        Task task1 = createTask("task_1", "first");
+        task1.setStatus(Task.Status.FAILED);
+        Task retried = createTask("task_1", "second");
+        retried.setStatus(Task.Status.COMPLETED);
+        workflow.getTasks().addAll(Arrays.asList(task1, retried, createTask("task_2", "other")));
+        return workflow;
+    }
+
+    private Task createTask(String referenceTaskName, String result) {
+        Task task = new Task();
+        task.setReferenceTaskName(referenceTaskName);
+        task.getOutputData().put("result", result);
+        return task;
+    }
 }
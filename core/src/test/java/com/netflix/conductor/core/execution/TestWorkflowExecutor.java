@@ -21,6 +21,7 @@ import com.netflix.conductor.common.metadata.tasks.PollData;
 import com.netflix.conductor.common.metadata.tasks.Task;
 import com.netflix.conductor.common.metadata.tasks.Task.Status;
 import com.netflix.conductor.common.metadata.tasks.TaskDef;
+import com.netflix.conductor.common.metadata.tasks.TaskResult;
 import com.netflix.conductor.common.metadata.workflow.TaskType;
 import com.netflix.conductor.common.metadata.workflow.WorkflowDef;
 import com.netflix.conductor.common.metadata.workflow.WorkflowTask;
@@ -38,6 +39,7 @@ import com.netflix.conductor.core.execution.mapper.UserDefinedTaskMapper;
 import com.netflix.conductor.core.execution.mapper.WaitTaskMapper;
 import com.netflix.conductor.core.execution.tasks.Wait;
 import com.netflix.conductor.core.execution.tasks.WorkflowSystemTask;
+import com.netflix.conductor.core.metadata.CompiledWorkflowDefCache;
 import com.netflix.conductor.core.metadata.MetadataMapperService;
 import com.netflix.conductor.core.orchestration.ExecutionDAOFacade;
 import com.netflix.conductor.core.utils.ExternalPayloadStorageUtils;
@@ -69,11 +71,15 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -112,9 +118,9 @@ public class TestWorkflowExecutor {
         taskMappers.put("EVENT", new EventTaskMapper(parametersUtils));
         taskMappers.put("WAIT", new WaitTaskMapper(parametersUtils));
 
-        deciderService = new DeciderService(parametersUtils, queueDAO, externalPayloadStorageUtils, taskMappers);
+        deciderService = new DeciderService(parametersUtils, queueDAO, externalPayloadStorageUtils, taskMappers, new CompiledWorkflowDefCache(config));
         MetadataMapperService metadataMapperService = new MetadataMapperService(metadataDAO);
-        workflowExecutor = new WorkflowExecutor(deciderService, metadataDAO, queueDAO, metadataMapperService, workflowStatusListener, executionDAOFacade, config);
+        workflowExecutor = new WorkflowExecutor(deciderService, metadataDAO, queueDAO, metadataMapperService, workflowStatusListener, executionDAOFacade, new DecideCoordinator(), config);
     }
 
     @Test
@@ -224,10 +230,10 @@ public class TestWorkflowExecutor {
         doAnswer(invocation -> {
             String queueName = invocation.getArgumentAt(0, String.class);
             System.out.println(queueName);
-            queuedTaskCount.incrementAndGet();
+            queuedTaskCount.addAndGet(invocation.getArgumentAt(1, List.class).size());
             return null;
         }).when(queueDAO)
-                .push(any(), any(), anyInt());
+                .push(anyString(), anyListOf(String.class), anyLong());
 
         boolean stateChanged = workflowExecutor.scheduleTask(workflow, tasks);
         assertEquals(2, startedTaskCount.get());
@@ -667,4 +673,59 @@ public class TestWorkflowExecutor {
         assertEquals(newTask, taskList.get(0));
         assertEquals(3, workflow.getTasks().size());
     }
+
+    @Test
+    public void testUpdateTasks() {
+        WorkflowDef workflowDef = new WorkflowDef();
+        workflowDef.setName("testDef");
+        workflowDef.setVersion(1);
+
+        Workflow workflow = new Workflow();
+        workflow.setWorkflowId("wf1");
+        workflow.setWorkflowDefinition(workflowDef);
+        workflow.setStatus(Workflow.WorkflowStatus.RUNNING);
+
+        Task task1 = new Task();
+        task1.setTaskId("task1");
+        task1.setTaskType("SIMPLE");
+        task1.setReferenceTaskName("task1");
+        task1.setStatus(Status.IN_PROGRESS);
+
+        Task task2 = new Task();
+        task2.setTaskId("task2");
+        task2.setTaskType("SIMPLE");
+        task2.setReferenceTaskName("task2");
+        task2.setStatus(Status.IN_PROGRESS);
+        workflow.setTasks(Arrays.asList(task1, task2));
+
+        when(executionDAOFacade.getWorkflowById("wf1", true)).thenReturn(workflow);
+        WorkflowExecutor executor = spy(workflowExecutor);
+        doReturn(false).when(executor).decide(anyString());
+
+        TaskResult taskResult1 = new TaskResult(task1);
+        taskResult1.setWorkflowInstanceId("wf1");
+        taskResult1.setStatus(TaskResult.Status.COMPLETED);
+        TaskResult taskResult2 = new TaskResult(task2);
+        taskResult2.setWorkflowInstanceId("wf1");
+        taskResult2.setStatus(TaskResult.Status.FAILED);
+
+        executor.updateTasks(Arrays.asList(taskResult1, taskResult2));
+
+        // the workflow is loaded, written and decided once for all its results
+        verify(executionDAOFacade, times(1)).getWorkflowById("wf1", true);
+        verify(executionDAOFacade, never()).getTaskById(anyString());
+        verify(executionDAOFacade, times(1)).updateTasks(Arrays.asList(task1, task2));
+        verify(executionDAOFacade, times(1)).updateWorkflow(workflow);
+        verify(executor, times(1)).decide("wf1");
+        verify(queueDAO, times(1)).remove("SIMPLE", "task1");
+        verify(queueDAO, times(1)).remove("SIMPLE", "task2");
+        assertEquals(Status.COMPLETED, task1.getStatus());
+        assertEquals(Status.FAILED, task2.getStatus());
+        assertEquals(Collections.singletonList("task2"), new ArrayList<>(workflow.getFailedReferenceTaskNames()));
+    }
+
+    @Test(expected = ApplicationException.class)
+    public void testUpdateTasksNullResult() {
+        workflowExecutor.updateTasks(Collections.singletonList(null));
+    }
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.execution;
+
+import com.netflix.conductor.core.config.Configuration;
+import com.netflix.conductor.core.utils.QueueUtils;
+import com.netflix.conductor.dao.QueueDAO;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TestWorkflowSweeper {
+
+    private Configuration config;
+    private QueueDAO queueDAO;
+    private WorkflowExecutor workflowExecutor;
+
+    @Before
+    public void init() {
+        config = mock(Configuration.class);
+        queueDAO = mock(QueueDAO.class);
+        workflowExecutor = mock(WorkflowExecutor.class);
+        when(config.getDeciderQueueShards()).thenReturn(4);
+        when(config.getIntProperty("workflow.sweeper.thread.count", 5)).thenReturn(2);
+        // the scheduled polls must not run during the tests
+        when(config.getIntProperty("workflow.sweeper.poll.interval.ms", 500)).thenReturn(60_000);
+    }
+
+    @Test
+    public void testDeciderQueueSharding() {
+        assertEquals(WorkflowExecutor.DECIDER_QUEUE, QueueUtils.getDeciderQueueName("workflowId", 1));
+        assertEquals(Arrays.asList("_deciderQueue", "_deciderQueue_1", "_deciderQueue_2"), QueueUtils.getDeciderQueueNames(3));
+
+        String queueName = QueueUtils.getDeciderQueueName("workflowId", 3);
+        assertEquals(queueName, QueueUtils.getDeciderQueueName("workflowId", 3));
+        assertEquals(QueueUtils.getDeciderQueueName(Math.floorMod("workflowId".hashCode(), 3)), queueName);
+    }
+
+    @Test
+    public void testOwnedShards() {
+        when(config.getProperty("workflow.sweeper.shards", "")).thenReturn("1, 3,7,x");
+        assertEquals(Arrays.asList(1, 3), WorkflowSweeper.getOwnedShards(config));
+
+        when(config.getProperty("workflow.sweeper.shards", "")).thenReturn("");
+        assertEquals(Arrays.asList(0, 1, 2, 3), WorkflowSweeper.getOwnedShards(config));
+
+        when(config.getDeciderQueueShards()).thenReturn(0);
+        assertEquals(Collections.singletonList(0), WorkflowSweeper.getOwnedShards(config));
+        assertEquals(Collections.singletonList(WorkflowExecutor.DECIDER_QUEUE), QueueUtils.getDeciderQueueNames(0));
+    }
+
+    @Test
+    public void testBatchSizeAdaptsToDecideTime() {
+        WorkflowSweeper.Shard shard = new WorkflowSweeper.Shard("queue", 2, 8, 500);
+        assertEquals(8, shard.getBatchSize(100));
+        assertEquals(3, shard.getBatchSize(3));
+        assertEquals(0, shard.getBatchSize(0));
+
+        // 2 threads taking 250ms per decide complete 4 decides per poll interval
+        shard.started();
+        shard.completed(250);
+        assertEquals(4, shard.getBatchSize(100));
+
+        shard.started();
+        shard.started();
+        shard.started();
+        shard.started();
+        shard.started();
+        assertEquals(3, shard.getBatchSize(100));
+    }
+
+    @Test
+    public void testPollDoesNotWaitForBatch() {
+        WorkflowSweeper workflowSweeper = new WorkflowSweeper(workflowExecutor, config, queueDAO);
+        WorkflowSweeper.Shard shard = new WorkflowSweeper.Shard("_deciderQueue_1", 2, 4, 500);
+
+        when(queueDAO.getSize("_deciderQueue_1")).thenReturn(2);
+        when(queueDAO.pop(Collections.singletonMap("_deciderQueue_1", 2), 200))
+                .thenReturn(Collections.singletonMap("_deciderQueue_1", Arrays.asList("wf1", "wf2")));
+        when(workflowExecutor.decide("wf1")).thenReturn(true);
+        when(workflowExecutor.decide("wf2")).thenReturn(false);
+
+        workflowSweeper.poll(Collections.singletonList(shard), workflowExecutor);
+
+        verify(queueDAO, timeout(1000)).remove("_deciderQueue_1", Collections.singletonList("wf1"));
+        verify(queueDAO, timeout(1000)).setUnackTimeout(eq("_deciderQueue_1"), eq(Collections.singletonList("wf2")), anyLong());
+        verify(queueDAO, never()).remove(eq(WorkflowExecutor.DECIDER_QUEUE), anyListOf(String.class));
+        verify(queueDAO, never()).remove(anyString(), anyString());
+        verify(queueDAO, never()).setUnackTimeout(anyString(), anyString(), anyLong());
+
+        when(queueDAO.getSize("_deciderQueue_1")).thenReturn(0);
+        workflowSweeper.poll(Collections.singletonList(shard), workflowExecutor);
+        verify(queueDAO, times(1)).pop(anyMapOf(String.class, Integer.class), anyInt());
+    }
+
+    @Test
+    public void testPollPopsAllTheShardsAtOnce() {
+        WorkflowSweeper workflowSweeper = new WorkflowSweeper(workflowExecutor, config, queueDAO);
+        WorkflowSweeper.Shard shard1 = new WorkflowSweeper.Shard("_deciderQueue_1", 2, 4, 500);
+        WorkflowSweeper.Shard shard2 = new WorkflowSweeper.Shard("_deciderQueue_2", 2, 4, 500);
+        WorkflowSweeper.Shard shard3 = new WorkflowSweeper.Shard("_deciderQueue_3", 2, 4, 500);
+
+        when(queueDAO.getSize("_deciderQueue_1")).thenReturn(1);
+        when(queueDAO.getSize("_deciderQueue_2")).thenReturn(0);
+        when(queueDAO.getSize("_deciderQueue_3")).thenReturn(2);
+        Map<String, Integer> batchSizes = new HashMap<>();
+        batchSizes.put("_deciderQueue_1", 1);
+        batchSizes.put("_deciderQueue_3", 2);
+        Map<String, List<String>> popped = new HashMap<>();
+        popped.put("_deciderQueue_1", Collections.singletonList("wf1"));
+        popped.put("_deciderQueue_3", Collections.singletonList("wf3"));
+        when(queueDAO.pop(batchSizes, 200)).thenReturn(popped);
+        when(workflowExecutor.decide("wf1")).thenReturn(true);
+        when(workflowExecutor.decide("wf3")).thenReturn(true);
+
+        workflowSweeper.poll(Arrays.asList(shard1, shard2, shard3), workflowExecutor);
+
+        verify(queueDAO, timeout(1000)).remove("_deciderQueue_1", Collections.singletonList("wf1"));
+        verify(queueDAO, timeout(1000)).remove("_deciderQueue_3", Collections.singletonList("wf3"));
+        verify(queueDAO, never()).pop(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testPollDoesNotWaitForSlowDecides() throws Exception {
+        WorkflowSweeper workflowSweeper = new WorkflowSweeper(workflowExecutor, config, queueDAO);
+        WorkflowSweeper.Shard shard = new WorkflowSweeper.Shard("_deciderQueue_1", 2, 4, 500);
+        CountDownLatch slowDecide = new CountDownLatch(1);
+
+        when(queueDAO.getSize("_deciderQueue_1")).thenReturn(2);
+        when(queueDAO.pop(Collections.singletonMap("_deciderQueue_1", 2), 200))
+                .thenReturn(Collections.singletonMap("_deciderQueue_1", Arrays.asList("wf1", "wf2")));
+        when(workflowExecutor.decide("wf1")).thenAnswer(invocation -> slowDecide.await(5, TimeUnit.SECONDS));
+        when(workflowExecutor.decide("wf2")).thenReturn(true);
+
+        workflowSweeper.poll(Collections.singletonList(shard), workflowExecutor);
+
+        verify(queueDAO, timeout(1000)).remove("_deciderQueue_1", Collections.singletonList("wf2"));
+        verify(queueDAO, never()).remove("_deciderQueue_1", Collections.singletonList("wf1"));
+
+        slowDecide.countDown();
+        verify(queueDAO, timeout(1000)).remove("_deciderQueue_1", Collections.singletonList("wf1"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSweepUpdatesQueueInBulk() throws Exception {
+        when(config.getDeciderQueueShards()).thenReturn(1);
+        WorkflowSweeper workflowSweeper = new WorkflowSweeper(workflowExecutor, config, queueDAO);
+
+        when(workflowExecutor.decide("wf1")).thenReturn(true);
+        when(workflowExecutor.decide("wf2")).thenReturn(false);
+        when(workflowExecutor.decide("wf3")).thenReturn(false);
+        when(workflowExecutor.decide("wf4")).thenThrow(new ApplicationException(ApplicationException.Code.NOT_FOUND, "not found"));
+
+        workflowSweeper.sweep(Arrays.asList("wf1", "wf2", "wf3", "wf4"), workflowExecutor);
+
+        ArgumentCaptor<List> removed = ArgumentCaptor.forClass(List.class);
+        verify(queueDAO).remove(eq(WorkflowExecutor.DECIDER_QUEUE), removed.capture());
+        assertEquals(new HashSet<>(Arrays.asList("wf1", "wf4")), new HashSet<>(removed.getValue()));
+
+        ArgumentCaptor<List> pending = ArgumentCaptor.forClass(List.class);
+        verify(queueDAO).setUnackTimeout(eq(WorkflowExecutor.DECIDER_QUEUE), pending.capture(), anyLong());
+        assertEquals(new HashSet<>(Arrays.asList("wf2", "wf3")), new HashSet<>(pending.getValue()));
+        verify(queueDAO, never()).remove(anyString(), anyString());
+        verify(queueDAO, never()).setUnackTimeout(anyString(), anyString(), anyLong());
+    }
+}
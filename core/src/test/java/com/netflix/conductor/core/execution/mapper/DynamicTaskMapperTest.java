@@ -35,7 +35,6 @@ import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -71,7 +70,7 @@ public class DynamicTaskMapperTest {
         Map<String, Object> taskInput = new HashMap<>();
         taskInput.put("dynamicTaskName", "DynoTask");
 
-        when(parametersUtils.getTaskInput(anyMap(), any(Workflow.class), any(TaskDef.class), anyString())).thenReturn(taskInput);
+        when(parametersUtils.getTaskInput(any(WorkflowTask.class), any(Workflow.class), any(TaskDef.class), anyString())).thenReturn(taskInput);
 
         String taskId = IDGenerator.generate();
 
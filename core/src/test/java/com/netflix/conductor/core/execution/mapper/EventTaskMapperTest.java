@@ -16,7 +16,6 @@ import java.util.Map;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.when;
 
@@ -34,7 +33,7 @@ public class EventTaskMapperTest {
         Map<String, Object> eventTaskInput = new HashMap<>();
         eventTaskInput.put("sink","SQSSINK");
 
-        when(parametersUtils.getTaskInput(anyMap(), any(Workflow.class), any(TaskDef.class), anyString())).thenReturn(eventTaskInput);
+        when(parametersUtils.getTaskInput(any(WorkflowTask.class), any(Workflow.class), any(TaskDef.class), anyString())).thenReturn(eventTaskInput);
 
         WorkflowDef  wd = new WorkflowDef();
         Workflow w = new Workflow();
@@ -106,7 +106,7 @@ public class ForkJoinDynamicTaskMapperTest {
         dynamicTasksInput.put("dynamicTasksInput", dynamicTasksInput);
 
         //when
-        when(parametersUtils.getTaskInput(anyMap(), any(Workflow.class), any(TaskDef.class), anyString()))
+        when(parametersUtils.getTaskInput(any(WorkflowTask.class), any(Workflow.class), any(TaskDef.class), anyString()))
                 .thenReturn(dynamicTasksInput);
 
         when(objectMapper.convertValue(anyMap(),any(TypeReference.class))).thenReturn(Arrays.asList(wt2, wt3));
@@ -186,7 +186,7 @@ public class ForkJoinDynamicTaskMapperTest {
         dynamicTasksInput.put("dynamicTasksInput", dynamicTasksInput);
 
         //when
-        when(parametersUtils.getTaskInput(anyMap(), any(Workflow.class), any(TaskDef.class), anyString()))
+        when(parametersUtils.getTaskInput(any(WorkflowTask.class), any(Workflow.class), any(TaskDef.class), anyString()))
                 .thenReturn(dynamicTasksInput);
         when(objectMapper.convertValue(anyMap(),any(TypeReference.class))).thenReturn(Arrays.asList(wt2, wt3));
 
@@ -247,7 +247,7 @@ public class ForkJoinDynamicTaskMapperTest {
         dynamicTasksInput.put("dynamicTasks", dtasks);
 
         //when
-        when(parametersUtils.getTaskInput(anyMap(), any(Workflow.class), any(TaskDef.class), anyString()))
+        when(parametersUtils.getTaskInput(any(WorkflowTask.class), any(Workflow.class), any(TaskDef.class), anyString()))
                 .thenReturn(dynamicTasksInput);
 
         when(objectMapper.convertValue(anyObject(),any(Class.class))).thenReturn(dtasks);
@@ -285,7 +285,7 @@ public class ForkJoinDynamicTaskMapperTest {
         dynamicTasksInput.put("dynamicTasks", dtasks);
 
         //when
-        when(parametersUtils.getTaskInput(anyMap(), any(Workflow.class), any(TaskDef.class), anyString()))
+        when(parametersUtils.getTaskInput(any(WorkflowTask.class), any(Workflow.class), any(TaskDef.class), anyString()))
                 .thenReturn(dynamicTasksInput);
 
         when(objectMapper.convertValue(anyObject(),any(Class.class))).thenReturn(null);
@@ -329,7 +329,7 @@ public class ForkJoinDynamicTaskMapperTest {
         dynamicTasksInput.put("dynamicTasksInput", dynamicTasksInput);
 
         //when
-        when(parametersUtils.getTaskInput(anyMap(), any(Workflow.class), any(TaskDef.class), anyString()))
+        when(parametersUtils.getTaskInput(any(WorkflowTask.class), any(Workflow.class), any(TaskDef.class), anyString()))
                 .thenReturn(dynamicTasksInput);
 
         when(objectMapper.convertValue(anyMap(),any(TypeReference.class))).thenReturn(Arrays.asList(wt2, wt3));
@@ -371,7 +371,7 @@ public class ForkJoinDynamicTaskMapperTest {
         dynamicTasksInput.put("dynamicTasks", Arrays.asList(wt2, wt3));
         dynamicTasksInput.put("dynamicTasksInput", null);
 
-        when(parametersUtils.getTaskInput(anyMap(), any(Workflow.class), any(TaskDef.class), anyString()))
+        when(parametersUtils.getTaskInput(any(WorkflowTask.class), any(Workflow.class), any(TaskDef.class), anyString()))
                 .thenReturn(dynamicTasksInput);
 
         when(objectMapper.convertValue(anyMap(),any(TypeReference.class))).thenReturn(Arrays.asList(wt2, wt3));
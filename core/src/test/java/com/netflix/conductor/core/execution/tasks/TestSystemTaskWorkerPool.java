@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.execution.tasks;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestSystemTaskWorkerPool {
+
+    private SystemTaskWorkerPool createPool(int threadCount) {
+        return new SystemTaskWorkerPool(threadCount, new ThreadFactoryBuilder().setDaemon(true).build());
+    }
+
+    @Test
+    public void testFloodDoesNotStarveOtherTaskTypes() throws Exception {
+        SystemTaskWorkerPool workerPool = createPool(2);
+        workerPool.register("HTTP", 1, 2, 100);
+        workerPool.register("EVENT", 1, 2, 100);
+
+        Semaphore httpPermits = new Semaphore(0);
+        CountDownLatch httpStarted = new CountDownLatch(2);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(workerPool.submit("HTTP", () -> {
+                httpStarted.countDown();
+                httpPermits.acquireUninterruptibly();
+            }));
+        }
+        // without competition, HTTP uses all the workers
+        assertTrue(httpStarted.await(1, TimeUnit.SECONDS));
+
+        CountDownLatch eventExecuted = new CountDownLatch(1);
+        assertTrue(workerPool.submit("EVENT", eventExecuted::countDown));
+        assertEquals(99, workerPool.remainingCapacity("EVENT"));
+
+        // the first worker available goes to EVENT, ahead of the 8 pending HTTP executions
+        httpPermits.release();
+        assertTrue(eventExecuted.await(1, TimeUnit.SECONDS));
+        httpPermits.release(100);
+    }
+
+    @Test
+    public void testMaxWorkersAndQueueSize() throws Exception {
+        SystemTaskWorkerPool workerPool = createPool(4);
+        workerPool.register("HTTP", 1, 1, 1);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(2);
+        Runnable execution = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            started.countDown();
+            try {
+                release.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            completed.countDown();
+        };
+
+        assertTrue(workerPool.submit("HTTP", execution));
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        assertTrue(workerPool.submit("HTTP", execution));
+        // one execution running and one pending, the queue is full
+        assertEquals(0, workerPool.remainingCapacity("HTTP"));
+        assertFalse(workerPool.submit("HTTP", execution));
+
+        release.countDown();
+        assertTrue(completed.await(2, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    public void testErrorDoesNotKillTheWorker() throws Exception {
+        SystemTaskWorkerPool workerPool = createPool(1);
+        workerPool.register("HTTP", 1, 1, 10);
+
+        CountDownLatch executed = new CountDownLatch(1);
+        assertTrue(workerPool.submit("HTTP", () -> {
+            throw new AssertionError("failed");
+        }));
+        assertTrue(workerPool.submit("HTTP", executed::countDown));
+        // the only worker survived the error
+        assertTrue(executed.await(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.metadata;
+
+import com.netflix.conductor.common.metadata.workflow.TaskType;
+import com.netflix.conductor.common.metadata.workflow.WorkflowDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowTask;
+import com.netflix.conductor.core.execution.TestConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class CompiledWorkflowDefTest {
+
+    private CompiledWorkflowDefCache compiledWorkflowDefCache;
+
+    @Before
+    public void setUp() {
+        compiledWorkflowDefCache = new CompiledWorkflowDefCache(new TestConfiguration());
+    }
+
+    @Test
+    public void testMatchesDefinitionTraversal() {
+        WorkflowDef workflowDef = createWorkflowDef();
+        CompiledWorkflowDef compiledWorkflowDef = compiledWorkflowDefCache.get(workflowDef);
+
+        for (WorkflowTask workflowTask : workflowDef.collectTasks()) {
+            String taskReferenceName = workflowTask.getTaskReferenceName();
+            assertSame(workflowDef.getTaskByRefName(taskReferenceName), compiledWorkflowDef.getTaskByRefName(taskReferenceName));
+            assertSame(taskReferenceName, workflowDef.getNextTask(taskReferenceName), compiledWorkflowDef.getNextTask(taskReferenceName));
+        }
+        assertNull(compiledWorkflowDef.getNextTask("dynamically_forked_task"));
+        assertNull(compiledWorkflowDef.getTaskByRefName("dynamically_forked_task"));
+    }
+
+    @Test
+    public void testGraphIsSharedByNameAndVersion() {
+        WorkflowDef workflowDef = createWorkflowDef();
+        WorkflowDef sameDefinition = createWorkflowDef();
+
+        compiledWorkflowDefCache.get(workflowDef);
+        CompiledWorkflowDef other = compiledWorkflowDefCache.get(sameDefinition);
+        assertEquals(1, compiledWorkflowDefCache.getGraphCount());
+        // the tasks are always the ones of the definition instance
+        assertSame(sameDefinition.getTasks().get(1), other.getNextTask("simple_task_1"));
+        assertSame(sameDefinition.getTaskByRefName("fork_task_2"), other.getTaskByRefName("fork_task_2"));
+
+        WorkflowDef otherVersion = createWorkflowDef();
+        otherVersion.setVersion(2);
+        compiledWorkflowDefCache.get(otherVersion);
+        assertEquals(2, compiledWorkflowDefCache.getGraphCount());
+
+        compiledWorkflowDefCache.invalidate("compiled_workflow", 2);
+        assertEquals(1, compiledWorkflowDefCache.getGraphCount());
+    }
+
+    @Test
+    public void testDefinitionNotMatchingTheGraph() {
+        compiledWorkflowDefCache.get(createWorkflowDef());
+
+        // an ad-hoc definition with the same name and version
+        WorkflowDef otherStructure = createWorkflowDef();
+        otherStructure.getTasks().add(create("simple_task_3"));
+        CompiledWorkflowDef compiledWorkflowDef = compiledWorkflowDefCache.get(otherStructure);
+        assertEquals("simple_task_3", compiledWorkflowDef.getNextTask("join").getTaskReferenceName());
+        assertSame(otherStructure.getTasks().get(4), compiledWorkflowDef.getTaskByRefName("simple_task_3"));
+
+        WorkflowDef reordered = createWorkflowDef();
+        reordered.getTasks().add(0, reordered.getTasks().remove(3));
+        compiledWorkflowDef = compiledWorkflowDefCache.get(reordered);
+        assertSame(reordered.getTasks().get(0), compiledWorkflowDef.getTaskByRefName("join"));
+        assertEquals("simple_task_1", compiledWorkflowDef.getNextTask("join").getTaskReferenceName());
+        assertEquals(1, compiledWorkflowDefCache.getGraphCount());
+    }
+
+    private WorkflowDef createWorkflowDef() {
+        WorkflowDef workflowDef = new WorkflowDef();
+        workflowDef.setName("compiled_workflow");
+        workflowDef.setVersion(1);
+        workflowDef.getTasks().add(create("simple_task_1"));
+
+        WorkflowTask decision = create("decision");
+        decision.setType(TaskType.DECISION.name());
+        decision.getDecisionCases().put("case1", Arrays.asList(create("case_1_task_1"), create("case_1_task_2")));
+        decision.getDecisionCases().put("case2", Collections.singletonList(create("case_2_task_1")));
+        decision.setDefaultCase(Collections.singletonList(create("default_task")));
+        workflowDef.getTasks().add(decision);
+
+        WorkflowTask fork = create("fork");
+        fork.setType(TaskType.FORK_JOIN.name());
+        fork.getForkTasks().add(Collections.singletonList(create("fork_task_1")));
+        fork.getForkTasks().add(Collections.singletonList(create("fork_task_2")));
+        workflowDef.getTasks().add(fork);
+
+        WorkflowTask join = create("join");
+        join.setType(TaskType.JOIN.name());
+        join.setJoinOn(Arrays.asList("fork_task_1", "fork_task_2"));
+        workflowDef.getTasks().add(join);
+        return workflowDef;
+    }
+
+    private WorkflowTask create(String name) {
+        WorkflowTask workflowTask = new WorkflowTask();
+        workflowTask.setName(name);
+        workflowTask.setTaskReferenceName(name);
+        return workflowTask;
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.orchestration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.conductor.common.metadata.tasks.Task;
+import com.netflix.conductor.common.run.Workflow;
+import com.netflix.conductor.common.utils.JsonMapperProvider;
+import com.netflix.conductor.core.config.Configuration;
+import com.netflix.conductor.dao.IndexDAO;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BulkIndexerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private IndexDAO indexDAO;
+    private ObjectMapper objectMapper;
+    private Configuration config;
+
+    @Before
+    public void setUp() {
+        indexDAO = mock(IndexDAO.class);
+        objectMapper = new JsonMapperProvider().get();
+        config = mock(Configuration.class);
+        // the scheduled flushes must not run during the tests
+        when(config.getIntProperty("workflow.index.flush.interval.ms", 0)).thenReturn(60_000);
+        when(config.getIntProperty("workflow.index.batch.size", 500)).thenReturn(500);
+        when(config.getIntProperty("workflow.index.buffer.capacity", 10_000)).thenReturn(10_000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDocumentsAreCoalescedAndFlushedInBulk() {
+        BulkIndexer bulkIndexer = new BulkIndexer(indexDAO, objectMapper, config);
+        Workflow workflow = createWorkflow("workflow1");
+        bulkIndexer.indexWorkflow(workflow);
+        workflow.setStatus(Workflow.WorkflowStatus.COMPLETED);
+        bulkIndexer.indexWorkflow(workflow);
+        bulkIndexer.indexTask(createTask("task1"));
+        bulkIndexer.indexTask(createTask("task2"));
+        verify(indexDAO, never()).indexWorkflow(any());
+        verify(indexDAO, never()).indexTask(any());
+
+        bulkIndexer.flush();
+        ArgumentCaptor<List> workflowCaptor = ArgumentCaptor.forClass(List.class);
+        verify(indexDAO, times(1)).indexWorkflows(workflowCaptor.capture());
+        List<Workflow> workflows = workflowCaptor.getValue();
+        // the latest state of the workflow
+        assertEquals(1, workflows.size());
+        assertEquals(Workflow.WorkflowStatus.COMPLETED, workflows.get(0).getStatus());
+        ArgumentCaptor<List> taskCaptor = ArgumentCaptor.forClass(List.class);
+        verify(indexDAO, times(1)).indexTasks(taskCaptor.capture());
+        assertEquals(2, taskCaptor.getValue().size());
+
+        // nothing left to flush
+        bulkIndexer.flush();
+        verify(indexDAO, times(1)).indexWorkflows(anyListOf(Workflow.class));
+        verify(indexDAO, times(1)).indexTasks(anyListOf(Task.class));
+    }
+
+    @Test
+    public void testFailedFlushIsKeptWithoutSpill() {
+        BulkIndexer bulkIndexer = new BulkIndexer(indexDAO, objectMapper, config);
+        doThrow(new RuntimeException("index down")).doNothing().when(indexDAO).indexTasks(anyListOf(Task.class));
+        bulkIndexer.indexTask(createTask("task1"));
+
+        bulkIndexer.flush();
+        bulkIndexer.flush();
+        bulkIndexer.flush();
+        verify(indexDAO, times(2)).indexTasks(anyListOf(Task.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFailedFlushIsSpilledAndReplayed() throws Exception {
+        File spillDir = temporaryFolder.newFolder("spill");
+        when(config.getProperty("workflow.index.spill.dir", null)).thenReturn(spillDir.getAbsolutePath());
+        BulkIndexer bulkIndexer = new BulkIndexer(indexDAO, objectMapper, config);
+        doThrow(new RuntimeException("index down")).doThrow(new RuntimeException("index down")).doNothing()
+                .when(indexDAO).indexTasks(anyListOf(Task.class));
+        bulkIndexer.indexTask(createTask("task1"));
+        bulkIndexer.indexTask(createTask("task2"));
+
+        // the failed write is spilled
+        bulkIndexer.flush();
+        assertTrue(new File(spillDir, "task.spill").exists());
+
+        // the replay fails, and the buffered task is not written before the spilled ones
+        Task updated = createTask("task1");
+        updated.setStatus(Task.Status.COMPLETED);
+        bulkIndexer.indexTask(updated);
+        bulkIndexer.flush();
+        verify(indexDAO, times(2)).indexTasks(anyListOf(Task.class));
+
+        // the spilled task is indexed, then the buffered one, which supersedes its spilled state
+        bulkIndexer.flush();
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(indexDAO, times(4)).indexTasks(captor.capture());
+        List<List> writes = captor.getAllValues();
+        assertEquals(1, writes.get(2).size());
+        assertEquals("task2", ((Task) writes.get(2).get(0)).getTaskId());
+        assertEquals(1, writes.get(3).size());
+        assertEquals(Task.Status.COMPLETED, ((Task) writes.get(3).get(0)).getStatus());
+        assertFalse(new File(spillDir, "task.spill").exists());
+        assertFalse(new File(spillDir, "task.replay").exists());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testWorkflowFlushWaitsForTheWriteInProgress() throws Exception {
+        BulkIndexer bulkIndexer = new BulkIndexer(indexDAO, objectMapper, config);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        List<Workflow.WorkflowStatus> indexed = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            writing.countDown();
+            written.await(5, TimeUnit.SECONDS);
+            ((List<Workflow>) invocation.getArguments()[0]).forEach(workflow -> indexed.add(workflow.getStatus()));
+            return null;
+        }).when(indexDAO).indexWorkflows(anyListOf(Workflow.class));
+        doAnswer(invocation -> indexed.add(((Workflow) invocation.getArguments()[0]).getStatus()))
+                .when(indexDAO).indexWorkflow(any());
+
+        Workflow workflow = createWorkflow("workflow1");
+        bulkIndexer.indexWorkflow(workflow);
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> flush = executorService.submit(bulkIndexer::flush);
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+            // the newer state flushed on the request thread lands after the older one being written
+            workflow.setStatus(Workflow.WorkflowStatus.COMPLETED);
+            bulkIndexer.indexWorkflow(workflow);
+            Future<?> flushWorkflow = executorService.submit(() -> bulkIndexer.flushWorkflow("workflow1"));
+            written.countDown();
+            flush.get();
+            flushWorkflow.get();
+        } finally {
+            executorService.shutdownNow();
+        }
+        assertEquals(Arrays.asList(Workflow.WorkflowStatus.RUNNING, Workflow.WorkflowStatus.COMPLETED), indexed);
+    }
+
+    @Test
+    public void testStopDrainsTheBuffers() throws Exception {
+        BulkIndexer bulkIndexer = new BulkIndexer(indexDAO, objectMapper, config);
+        bulkIndexer.indexTask(createTask("task1"));
+
+        bulkIndexer.stop();
+        verify(indexDAO, times(1)).indexTasks(anyListOf(Task.class));
+
+        // written through once stopped
+        bulkIndexer.indexTask(createTask("task2"));
+        verify(indexDAO, times(1)).indexTask(any());
+    }
+
+    @Test
+    public void testDocumentsOverCapacityAreWrittenThrough() {
+        when(config.getIntProperty("workflow.index.buffer.capacity", 10_000)).thenReturn(1);
+        BulkIndexer bulkIndexer = new BulkIndexer(indexDAO, objectMapper, config);
+        Task task = createTask("task1");
+        bulkIndexer.indexTask(task);
+        bulkIndexer.indexTask(task);
+        verify(indexDAO, never()).indexTask(any());
+
+        bulkIndexer.indexTask(createTask("task2"));
+        verify(indexDAO, times(1)).indexTask(any());
+    }
+
+    @Test
+    public void testWriteThrough() {
+        when(config.getIntProperty("workflow.index.flush.interval.ms", 0)).thenReturn(0);
+        BulkIndexer bulkIndexer = new BulkIndexer(indexDAO, objectMapper, config);
+        Workflow workflow = createWorkflow("workflow1");
+        bulkIndexer.indexWorkflow(workflow);
+        verify(indexDAO, times(1)).indexWorkflow(workflow);
+        verify(indexDAO, never()).indexWorkflows(anyListOf(Workflow.class));
+    }
+
+    private Workflow createWorkflow(String workflowId) {
+        Workflow workflow = new Workflow();
+        workflow.setWorkflowId(workflowId);
+        workflow.setStatus(Workflow.WorkflowStatus.RUNNING);
+        workflow.setCreateTime(System.currentTimeMillis());
+        return workflow;
+    }
+
+    private Task createTask(String taskId) {
+        Task task = new Task();
+        task.setTaskId(taskId);
+        task.setStatus(Task.Status.SCHEDULED);
+        return task;
+    }
+}
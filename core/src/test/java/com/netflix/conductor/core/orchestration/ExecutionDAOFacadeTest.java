@@ -15,28 +15,47 @@ package com.netflix.conductor.core.orchestration;
 import com.amazonaws.util.IOUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.conductor.common.metadata.events.EventExecution;
+import com.netflix.conductor.common.metadata.tasks.Task;
+import com.netflix.conductor.common.metadata.tasks.TaskDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowTask;
 import com.netflix.conductor.common.run.SearchResult;
 import com.netflix.conductor.common.run.Workflow;
 import com.netflix.conductor.common.utils.JsonMapperProvider;
+import com.netflix.conductor.core.config.Configuration;
 import com.netflix.conductor.core.execution.TestDeciderService;
+import com.netflix.conductor.core.metadata.DefinitionCache;
+import com.netflix.conductor.core.metadata.StoredTask;
+import com.netflix.conductor.core.utils.PayloadSerializer;
 import com.netflix.conductor.dao.ExecutionDAO;
 import com.netflix.conductor.dao.IndexDAO;
+import com.netflix.conductor.dao.MetadataDAO;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -55,7 +74,8 @@ public class ExecutionDAOFacadeTest {
         executionDAO = mock(ExecutionDAO.class);
         indexDAO = mock(IndexDAO.class);
         objectMapper = new JsonMapperProvider().get();
-        executionDAOFacade = new ExecutionDAOFacade(executionDAO, indexDAO, objectMapper);
+        executionDAOFacade = new ExecutionDAOFacade(executionDAO, indexDAO, objectMapper, mock(PollDataAggregator.class),
+                mock(DefinitionCache.class), new BulkIndexer(indexDAO, objectMapper, mock(Configuration.class)));
     }
 
     @Test
@@ -127,4 +147,226 @@ public class ExecutionDAOFacadeTest {
         assertTrue(added);
         verify(indexDAO, times(1)).addEventExecution(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testWriteBuffer() throws Exception {
+        InputStream stream = TestDeciderService.class.getResourceAsStream("/test.json");
+        Workflow workflow = objectMapper.readValue(stream, Workflow.class);
+        Task task = workflow.getTasks().get(0);
+
+        assertTrue(executionDAOFacade.openWriteBuffer(workflow.getWorkflowId()));
+        // already buffering for the workflow
+        assertFalse(executionDAOFacade.openWriteBuffer(workflow.getWorkflowId()));
+        executionDAOFacade.updateTasks(Collections.singletonList(task));
+        executionDAOFacade.updateWorkflow(workflow);
+        task.setStatus(Task.Status.CANCELED);
+        executionDAOFacade.updateTask(task);
+        executionDAOFacade.updateWorkflow(workflow);
+        verify(executionDAO, never()).updateTasks(any());
+        verify(executionDAO, never()).updateWorkflow(any());
+
+        // the buffered workflow is read with its buffered tasks
+        Workflow buffered = executionDAOFacade.getWorkflowById(workflow.getWorkflowId(), true);
+        verify(executionDAO, never()).getWorkflow(anyString(), anyBoolean());
+        assertEquals(workflow.getTasks().size(), buffered.getTasks().size());
+        assertEquals(Task.Status.CANCELED, buffered.getTasks().get(0).getStatus());
+        // the buffered instance is returned as is
+        assertSame(workflow, executionDAOFacade.getWorkflowById(workflow.getWorkflowId(), false));
+
+        // reads not involving a buffered workflow or task do not flush the buffer
+        when(executionDAO.getWorkflow("unbuffered_workflow", true)).thenReturn(new Workflow());
+        executionDAOFacade.getTaskById("unbuffered_task");
+        executionDAOFacade.getWorkflowById("unbuffered_workflow", true);
+        verify(executionDAO, never()).updateTasks(any());
+        verify(executionDAO, never()).updateWorkflow(any());
+
+        // each update is written and indexed once
+        executionDAOFacade.closeWriteBuffer();
+        verify(executionDAO, times(1)).updateTasks(any());
+        verify(executionDAO, times(1)).updateWorkflow(any());
+        verify(indexDAO, times(1)).indexTask(task);
+        verify(indexDAO, times(1)).indexWorkflow(workflow);
+
+        executionDAOFacade.updateWorkflow(workflow);
+        verify(executionDAO, times(2)).updateWorkflow(any());
+    }
+
+    @Test
+    public void testWriteBufferIsDiscarded() {
+        Workflow workflow = new Workflow();
+        workflow.setWorkflowId("workflow1");
+        workflow.setCreateTime(System.currentTimeMillis());
+        Task task = new Task();
+        task.setTaskId("task1");
+        task.setWorkflowInstanceId("workflow1");
+
+        assertTrue(executionDAOFacade.openWriteBuffer("workflow1"));
+        executionDAOFacade.updateWorkflow(workflow);
+        executionDAOFacade.updateTask(task);
+        executionDAOFacade.discardWriteBuffer();
+        verify(executionDAO, never()).updateTasks(any());
+        verify(executionDAO, never()).updateWorkflow(any());
+
+        // no longer buffering
+        executionDAOFacade.updateWorkflow(workflow);
+        verify(executionDAO, times(1)).updateWorkflow(any());
+    }
+
+    @Test
+    public void testWriteBufferIsFlushedForAnotherWorkflow() {
+        Workflow workflow = new Workflow();
+        workflow.setWorkflowId("workflow1");
+        workflow.setCreateTime(System.currentTimeMillis());
+
+        assertTrue(executionDAOFacade.openWriteBuffer("workflow1"));
+        executionDAOFacade.updateWorkflow(workflow);
+        // the decide of another workflow sees the buffered updates
+        assertFalse(executionDAOFacade.openWriteBuffer("workflow2"));
+        verify(executionDAO, times(1)).updateWorkflow(any());
+
+        executionDAOFacade.closeWriteBuffer();
+        verify(executionDAO, times(1)).updateWorkflow(any());
+    }
+
+    @Test
+    public void testTaskWrittenByAnotherThreadIsEvictedFromTheWriteBuffer() throws Exception {
+        Task task = new Task();
+        task.setTaskId("task1");
+        task.setWorkflowInstanceId("workflow1");
+        task.setStatus(Task.Status.SCHEDULED);
+        Task completed = new Task();
+        completed.setTaskId("task1");
+        completed.setWorkflowInstanceId("workflow1");
+        completed.setStatus(Task.Status.COMPLETED);
+
+        assertTrue(executionDAOFacade.openWriteBuffer("workflow1"));
+        executionDAOFacade.updateTask(task);
+
+        // a worker completes the task while the decide is running
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(() -> executionDAOFacade.updateTask(completed)).get(5, TimeUnit.SECONDS);
+        } finally {
+            executorService.shutdownNow();
+        }
+        verify(executionDAO, times(1)).updateTask(completed);
+
+        // the task is read from the store, and the stale instance is not written over the update of the worker
+        when(executionDAO.getTask("task1")).thenReturn(completed);
+        assertEquals(Task.Status.COMPLETED, executionDAOFacade.getTaskById("task1").getStatus());
+        executionDAOFacade.closeWriteBuffer();
+        verify(executionDAO, never()).updateTasks(any());
+        verify(executionDAO, times(1)).updateTask(any());
+    }
+
+    private WorkflowDef createWorkflowDef() {
+        WorkflowTask workflowTask = new WorkflowTask();
+        workflowTask.setName("task");
+        workflowTask.setTaskReferenceName("task_ref");
+        for (int i = 0; i < 10; i++) {
+            workflowTask.getInputParameters().put("input" + i, "${workflow.input.input" + i + "}");
+        }
+        WorkflowDef workflowDef = new WorkflowDef();
+        workflowDef.setName("workflow");
+        workflowDef.setVersion(1);
+        workflowDef.getTasks().add(workflowTask);
+        return workflowDef;
+    }
+
+    private MetadataDAO createMetadataDAOWithSnapshots() {
+        TaskDef taskDef = new TaskDef("task");
+        taskDef.setConcurrentExecLimit(2);
+        taskDef.setDescription("the full task definition");
+        MetadataDAO metadataDAO = mock(MetadataDAO.class);
+        when(metadataDAO.get("workflow", 1)).thenAnswer(invocation -> Optional.of(createWorkflowDef()));
+        when(metadataDAO.getTaskDef("task")).thenReturn(taskDef);
+        Map<String, String> snapshots = new HashMap<>();
+        doAnswer(invocation -> snapshots.putIfAbsent((String) invocation.getArguments()[0],
+                objectMapper.writeValueAsString(invocation.getArguments()[1])))
+                .when(metadataDAO).createWorkflowDefSnapshot(anyString(), any());
+        when(metadataDAO.getWorkflowDefSnapshot(anyString())).thenAnswer(invocation -> {
+            String snapshot = snapshots.get((String) invocation.getArguments()[0]);
+            return Optional.ofNullable(snapshot == null ? null : objectMapper.readValue(snapshot, WorkflowDef.class));
+        });
+        return metadataDAO;
+    }
+
+    private ExecutionDAOFacade createFacadeWithDefinitionReferences(MetadataDAO metadataDAO) {
+        Configuration config = mock(Configuration.class);
+        when(config.getBooleanProperty(DefinitionCache.DEFINITION_REFERENCES_PROPERTY_NAME, false)).thenReturn(true);
+        when(config.getIntProperty("workflow.definition.cache.size", 10_000)).thenReturn(100);
+        DefinitionCache definitionCache = new DefinitionCache(metadataDAO, objectMapper, config);
+        return new ExecutionDAOFacade(executionDAO, indexDAO, objectMapper, mock(PollDataAggregator.class), definitionCache,
+                new BulkIndexer(indexDAO, objectMapper, mock(Configuration.class)));
+    }
+
+    @Test
+    public void testDefinitionReferences() throws Exception {
+        MetadataDAO metadataDAO = createMetadataDAOWithSnapshots();
+        ExecutionDAOFacade facade = createFacadeWithDefinitionReferences(metadataDAO);
+
+        Workflow workflow = new Workflow();
+        workflow.setWorkflowId("workflowId");
+        workflow.setWorkflowDefinition(createWorkflowDef());
+        TaskDef taskDef = new TaskDef("task");
+        taskDef.setConcurrentExecLimit(2);
+        taskDef.setDescription("the full task definition");
+        workflow.getWorkflowDefinition().getTasks().get(0).setTaskDefinition(taskDef);
+        WorkflowDef workflowDef = workflow.getWorkflowDefinition();
+
+        Task task = new Task();
+        task.setTaskId("taskId");
+        task.setWorkflowInstanceId("workflowId");
+        task.setWorkflowType("workflow");
+        task.setReferenceTaskName("task_ref");
+        task.setWorkflowTask(workflowDef.getTasks().get(0));
+
+        AtomicReference<String> storedWorkflow = new AtomicReference<>();
+        doAnswer(invocation -> {
+            Workflow persisted = (Workflow) invocation.getArguments()[0];
+            assertNull(persisted.getWorkflowDefinition());
+            assertEquals("workflow", persisted.getWorkflowName());
+            storedWorkflow.set(objectMapper.writeValueAsString(persisted));
+            return persisted.getWorkflowId();
+        }).when(executionDAO).createWorkflow(any());
+        AtomicReference<String> storedTask = new AtomicReference<>();
+        doAnswer(invocation -> {
+            StoredTask persisted = (StoredTask) invocation.getArguments()[0];
+            assertNotNull(persisted.getWorkflowTaskHash());
+            // the DAOs check the concurrency limit of the task
+            assertEquals(2, persisted.getTaskDefinition().get().concurrencyLimit());
+            storedTask.set(objectMapper.writeValueAsString(persisted));
+            return null;
+        }).when(executionDAO).updateTask(any());
+
+        facade.createWorkflow(workflow);
+        facade.updateTask(task);
+        // copies are written, the workflow and the task are left untouched
+        assertEquals(workflowDef, workflow.getWorkflowDefinition());
+        assertEquals(workflowDef.getTasks().get(0), task.getWorkflowTask());
+        assertTrue(storedTask.get().length() < objectMapper.writeValueAsString(task).length());
+        assertFalse(objectMapper.writeValueAsString(task).contains("workflowTaskHash"));
+
+        PayloadSerializer payloadSerializer = new PayloadSerializer(objectMapper, PayloadSerializer.Format.JSON, false);
+        when(executionDAO.getWorkflow("workflowId", false)).thenAnswer(invocation -> payloadSerializer.deserialize(storedWorkflow.get(), Workflow.class));
+        when(executionDAO.getTask("taskId")).thenAnswer(invocation -> payloadSerializer.deserialize(storedTask.get(), Task.class));
+        Workflow readWorkflow = facade.getWorkflowById("workflowId", false);
+        assertEquals(Workflow.class, readWorkflow.getClass());
+        assertEquals(workflowDef, readWorkflow.getWorkflowDefinition());
+        Task read = facade.getTaskById("taskId");
+        assertEquals(Task.class, read.getClass());
+        assertEquals(workflowDef.getTasks().get(0), read.getWorkflowTask());
+        assertEquals(task, read);
+
+        // the snapshot of the definition is stored once
+        facade.updateWorkflow(workflow);
+        verify(metadataDAO, times(1)).createWorkflowDefSnapshot(anyString(), any());
+
+        // not cached, the definitions are loaded from the snapshot and from the workflow of the task, even though
+        // the registered definition was removed since
+        when(metadataDAO.get("workflow", 1)).thenReturn(Optional.empty());
+        ExecutionDAOFacade restarted = createFacadeWithDefinitionReferences(metadataDAO);
+        assertEquals(workflowDef.getTasks().get(0), restarted.getTaskById("taskId").getWorkflowTask());
+        assertEquals(workflowDef, restarted.getWorkflowById("workflowId", false).getWorkflowDefinition());
+    }
+}
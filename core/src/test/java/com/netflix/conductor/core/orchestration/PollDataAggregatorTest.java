@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.orchestration;
+
+import com.netflix.conductor.common.metadata.tasks.PollData;
+import com.netflix.conductor.core.config.Configuration;
+import com.netflix.conductor.dao.ExecutionDAO;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PollDataAggregatorTest {
+
+    private ExecutionDAO executionDAO;
+    private Configuration config;
+
+    @Before
+    public void setUp() {
+        executionDAO = mock(ExecutionDAO.class);
+        config = mock(Configuration.class);
+        // the scheduled flushes must not run during the tests
+        when(config.getIntProperty("tasks.poll.data.flush.interval.ms", 1_000)).thenReturn(60_000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPollsAreFlushedInBatches() {
+        PollDataAggregator pollDataAggregator = new PollDataAggregator(executionDAO, config);
+        pollDataAggregator.recordPoll("task1", null, "worker1");
+        pollDataAggregator.recordPoll("task1", null, "worker2");
+        pollDataAggregator.recordPoll("task1", "domain1", "worker1");
+        pollDataAggregator.recordPoll("task2", null, "worker1");
+        verify(executionDAO, never()).updateLastPolls(any());
+        verify(executionDAO, never()).updateLastPoll(any(), any(), any());
+
+        pollDataAggregator.flushPolls();
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(executionDAO, times(1)).updateLastPolls(captor.capture());
+        List<PollData> flushed = captor.getValue();
+        // the latest poll of each queue and domain
+        assertEquals(3, flushed.size());
+        assertTrue(flushed.stream().anyMatch(pd -> pd.getQueueName().equals("task1") && pd.getDomain() == null && pd.getWorkerId().equals("worker2")));
+
+        // nothing left to flush
+        pollDataAggregator.flushPolls();
+        verify(executionDAO, times(1)).updateLastPolls(anyListOf(PollData.class));
+    }
+
+    @Test
+    public void testReadsMergePendingPolls() {
+        PollDataAggregator pollDataAggregator = new PollDataAggregator(executionDAO, config);
+        PollData stored = new PollData("task1", null, "worker1", 1L);
+        PollData storedWithDomain = new PollData("task1", "domain1", "worker1", 1L);
+        when(executionDAO.getPollData("task1", null)).thenReturn(stored);
+        when(executionDAO.getPollData("task1")).thenReturn(Arrays.asList(stored, storedWithDomain));
+        assertEquals(stored, pollDataAggregator.getPollData("task1", null));
+        assertNull(pollDataAggregator.getPollData("task2", null));
+
+        pollDataAggregator.recordPoll("task1", null, "worker2");
+        assertEquals("worker2", pollDataAggregator.getPollData("task1", null).getWorkerId());
+
+        List<PollData> pollData = pollDataAggregator.getPollData("task1");
+        assertEquals(2, pollData.size());
+        assertEquals("worker2", pollData.get(0).getWorkerId());
+        assertEquals(storedWithDomain, pollData.get(1));
+    }
+
+    @Test
+    public void testFailedFlushIsRetried() {
+        PollDataAggregator pollDataAggregator = new PollDataAggregator(executionDAO, config);
+        doThrow(new RuntimeException("backend error")).doNothing().when(executionDAO).updateLastPolls(anyListOf(PollData.class));
+        pollDataAggregator.recordPoll("task1", null, "worker1");
+
+        pollDataAggregator.flushPolls();
+        pollDataAggregator.flushPolls();
+        pollDataAggregator.flushPolls();
+        verify(executionDAO, times(2)).updateLastPolls(anyListOf(PollData.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testWriteThrough() {
+        when(config.getIntProperty("tasks.poll.data.flush.interval.ms", 1_000)).thenReturn(0);
+        PollDataAggregator pollDataAggregator = new PollDataAggregator(executionDAO, config);
+        pollDataAggregator.recordPoll("task1", null, "worker1");
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(executionDAO, times(1)).updateLastPolls(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals("worker1", ((PollData) captor.getValue().get(0)).getWorkerId());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.core.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.conductor.common.metadata.tasks.Task;
+import com.netflix.conductor.common.metadata.tasks.TaskDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowTask;
+import com.netflix.conductor.common.utils.JsonMapperProvider;
+import com.netflix.conductor.core.config.Configuration;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PayloadSerializerTest {
+
+    private final ObjectMapper objectMapper = new JsonMapperProvider().get();
+
+    private Task createTask() {
+        Task task = new Task();
+        task.setTaskId("taskId");
+        task.setTaskType("HTTP");
+        task.setStatus(Task.Status.IN_PROGRESS);
+        Map<String, Object> input = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            input.put("key" + i, "a repeated input value");
+        }
+        task.setInputData(input);
+        WorkflowTask workflowTask = new WorkflowTask();
+        workflowTask.setName("http_task");
+        workflowTask.setTaskReferenceName("http_task_ref");
+        workflowTask.setTaskDefinition(new TaskDef("http_task"));
+        task.setWorkflowTask(workflowTask);
+        return task;
+    }
+
+    @Test
+    public void testJsonIsTheDefault() throws Exception {
+        Configuration config = mock(Configuration.class);
+        when(config.getProperty(PayloadSerializer.PAYLOAD_FORMAT_PROPERTY_NAME, "JSON")).thenReturn("JSON");
+        PayloadSerializer serializer = new PayloadSerializer(objectMapper, config);
+
+        Task task = createTask();
+        String payload = serializer.serialize(task);
+        assertEquals(objectMapper.writeValueAsString(task), payload);
+        assertEquals(task, serializer.deserialize(payload, Task.class));
+    }
+
+    @Test
+    public void testSmile() throws Exception {
+        Task task = createTask();
+        String json = objectMapper.writeValueAsString(task);
+
+        PayloadSerializer smile = new PayloadSerializer(objectMapper, PayloadSerializer.Format.SMILE, false);
+        String smilePayload = smile.serialize(task);
+        assertTrue(smilePayload.startsWith(PayloadSerializer.SMILE_HEADER));
+        assertEquals(task, smile.deserialize(smilePayload, Task.class));
+
+        PayloadSerializer compressed = new PayloadSerializer(objectMapper, PayloadSerializer.Format.SMILE, true);
+        String compressedPayload = compressed.serialize(task);
+        assertTrue(compressedPayload.startsWith(PayloadSerializer.SMILE_DEFLATE_HEADER));
+        assertEquals(task, compressed.deserialize(compressedPayload, Task.class));
+        assertTrue(compressedPayload.length() < json.length());
+
+        // every format is read, whatever the format written
+        PayloadSerializer jsonSerializer = new PayloadSerializer(objectMapper, PayloadSerializer.Format.JSON, false);
+        assertEquals(task, jsonSerializer.deserialize(compressedPayload, Task.class));
+        assertEquals(task, smile.deserialize(json, Task.class));
+        assertEquals(task, compressed.deserialize(smilePayload, Task.class));
+    }
+}
@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -83,6 +84,41 @@ public abstract class ExecutionDAOTest {
         }
     }
 
+    @Test
+    public void testTasksExceedingInProgressLimit() {
+        TaskDef taskDefinition = new TaskDef();
+        taskDefinition.setName("task_limited");
+        taskDefinition.setConcurrentExecLimit(2);
+
+        WorkflowTask workflowTask = new WorkflowTask();
+        workflowTask.setName("task_limited");
+        workflowTask.setTaskDefinition(taskDefinition);
+
+        List<Task> tasks = new LinkedList<>();
+        for (int i = 0; i < 5; i++) {
+            Task task = new Task();
+            task.setScheduledTime(1L);
+            task.setSeq(i + 1);
+            task.setTaskId("tl_" + i);
+            task.setWorkflowInstanceId("workflow_limited_" + i);
+            task.setReferenceTaskName("task_limited");
+            task.setTaskDefName("task_limited");
+            task.setStatus(Task.Status.SCHEDULED);
+            task.setWorkflowTask(workflowTask);
+            tasks.add(task);
+        }
+        getExecutionDAO().createTasks(tasks);
+
+        // the first tasks to arrive are within the limit
+        Set<String> limitedTaskIds = getExecutionDAO().getTasksExceedingInProgressLimit(tasks);
+        assertEquals(new HashSet<>(Arrays.asList("tl_2", "tl_3", "tl_4")), limitedTaskIds);
+
+        tasks.get(0).setStatus(Task.Status.IN_PROGRESS);
+        tasks.get(1).setStatus(Task.Status.IN_PROGRESS);
+        getExecutionDAO().updateTasks(tasks.subList(0, 2));
+        assertEquals(3, getExecutionDAO().getTasksExceedingInProgressLimit(tasks.subList(2, 5)).size());
+    }
+
     @Test
     public void testCreateTaskException() {
         Task task = new Task();
@@ -5,6 +5,7 @@ import com.netflix.conductor.common.metadata.tasks.TaskDef;
 import com.netflix.conductor.common.metadata.workflow.WorkflowDef;
 import com.netflix.conductor.core.events.EventQueues;
 import com.netflix.conductor.core.execution.ApplicationException;
+import com.netflix.conductor.core.metadata.CompiledWorkflowDefCache;
 import com.netflix.conductor.dao.MetadataDAO;
 import org.junit.Before;
 import org.junit.Test;
@@ -22,12 +23,14 @@ public class MetadataServiceTest {
     private MetadataServiceImpl metadataService;
     private MetadataDAO metadataDAO;
     private EventQueues eventQueues;
+    private CompiledWorkflowDefCache compiledWorkflowDefCache;
 
     @Before
     public void before() {
         metadataDAO = Mockito.mock(MetadataDAO.class);
         eventQueues = Mockito.mock(EventQueues.class);
-        metadataService = new MetadataServiceImpl(metadataDAO, eventQueues);
+        compiledWorkflowDefCache = Mockito.mock(CompiledWorkflowDefCache.class);
+        metadataService = new MetadataServiceImpl(metadataDAO, eventQueues, compiledWorkflowDefCache);
     }
 
     @Test(expected = ApplicationException.class)
@@ -65,6 +68,7 @@ public class MetadataServiceTest {
         workflowDef.setName("somename");
         metadataService.updateWorkflowDef(Arrays.asList(workflowDef));
         verify(metadataDAO, times(1)).update(workflowDef);
+        verify(compiledWorkflowDefCache, times(1)).invalidate("somename", 1);
     }
 
     @Test(expected = ApplicationException.class)
@@ -104,6 +108,7 @@ public class MetadataServiceTest {
     public void testUnregisterWorkflowDef() {
         metadataService.unregisterWorkflowDef("somename", 111);
         verify(metadataDAO, times(1)).removeWorkflowDef("somename", 111);
+        verify(compiledWorkflowDefCache, times(1)).invalidate("somename", 111);
     }
 
     @Test(expected = ApplicationException.class)
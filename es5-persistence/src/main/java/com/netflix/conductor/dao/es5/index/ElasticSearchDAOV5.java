@@ -316,6 +316,25 @@ public class ElasticSearchDAOV5 implements IndexDAO {
         return CompletableFuture.runAsync(() -> indexTask(task), executorService);
     }
 
+    @Override
+    public void indexWorkflows(List<Workflow> workflows) {
+        BulkRequestBuilder bulkRequestBuilder = elasticSearchClient.prepareBulk();
+        for (Workflow workflow : workflows) {
+            addUpsertRequest(bulkRequestBuilder, indexName, WORKFLOW_DOC_TYPE, workflow.getWorkflowId(),
+                new WorkflowSummary(workflow));
+        }
+        bulkUpdateWithRetry(bulkRequestBuilder, "Index workflows into doc_type workflow");
+    }
+
+    @Override
+    public void indexTasks(List<Task> tasks) {
+        BulkRequestBuilder bulkRequestBuilder = elasticSearchClient.prepareBulk();
+        for (Task task : tasks) {
+            addUpsertRequest(bulkRequestBuilder, indexName, TASK_DOC_TYPE, task.getTaskId(), new TaskSummary(task));
+        }
+        bulkUpdateWithRetry(bulkRequestBuilder, "Index tasks into doc_type task");
+    }
+
     @Override
     public void addTaskExecutionLogs(List<TaskExecLog> taskExecLogs) {
         if (taskExecLogs.isEmpty()) {
@@ -414,9 +433,7 @@ public class ElasticSearchDAOV5 implements IndexDAO {
     public void addEventExecution(EventExecution eventExecution) {
         try {
             byte[] doc = objectMapper.writeValueAsBytes(eventExecution);
-            String id =
-                eventExecution.getName() + "." + eventExecution.getEvent() + "." + eventExecution
-                    .getMessageId() + "." + eventExecution.getId();
+            String id = getEventExecutionDocId(eventExecution);
             UpdateRequest req = new UpdateRequest(logIndexName, EVENT_DOC_TYPE, id);
             req.doc(doc, XContentType.JSON);
             req.upsert(doc, XContentType.JSON);
@@ -432,6 +449,57 @@ public class ElasticSearchDAOV5 implements IndexDAO {
         return CompletableFuture.runAsync(() -> addEventExecution(eventExecution), executorService);
     }
 
+    @Override
+    public void addEventExecutions(List<EventExecution> eventExecutions) {
+        BulkRequestBuilder bulkRequestBuilder = elasticSearchClient.prepareBulk();
+        for (EventExecution eventExecution : eventExecutions) {
+            addUpsertRequest(bulkRequestBuilder, logIndexName, EVENT_DOC_TYPE,
+                getEventExecutionDocId(eventExecution), eventExecution);
+        }
+        bulkUpdateWithRetry(bulkRequestBuilder, "Update Event executions for doc_type event");
+    }
+
+    private static String getEventExecutionDocId(EventExecution eventExecution) {
+        return eventExecution.getName() + "." + eventExecution.getEvent() + "." + eventExecution
+            .getMessageId() + "." + eventExecution.getId();
+    }
+
+    private void addUpsertRequest(BulkRequestBuilder bulkRequestBuilder, String index, String docType, String id,
+        Object document) {
+        try {
+            byte[] doc = objectMapper.writeValueAsBytes(document);
+            UpdateRequest req = new UpdateRequest(index, docType, id);
+            req.doc(doc, XContentType.JSON);
+            req.upsert(doc, XContentType.JSON);
+            req.retryOnConflict(5);
+            bulkRequestBuilder.add(req);
+        } catch (Exception e) {
+            logger.error("Failed to convert {}: {} to JSON", docType, id, e);
+        }
+    }
+
+    /**
+     * @throws ApplicationException if the documents could not be indexed
+     */
+    private void bulkUpdateWithRetry(BulkRequestBuilder bulkRequestBuilder, String operationDescription) {
+        if (bulkRequestBuilder.numberOfActions() == 0) {
+            return;
+        }
+        try {
+            new RetryUtil<BulkResponse>().retryOnException(
+                () -> bulkRequestBuilder.execute().actionGet(),
+                null,
+                BulkResponse::hasFailures,
+                RETRY_COUNT,
+                operationDescription,
+                "bulkUpdateWithRetry"
+            );
+        } catch (Exception e) {
+            Monitors.error(className, "bulkIndex");
+            throw new ApplicationException(Code.BACKEND_ERROR, "Failed: " + operationDescription, e);
+        }
+    }
+
     private void updateWithRetry(UpdateRequest request, String operationDescription) {
         try {
             new RetryUtil<UpdateResponse>().retryOnException(
@@ -327,6 +327,24 @@ public class ElasticSearchRestDAOV5 implements IndexDAO {
         return CompletableFuture.runAsync(() -> indexTask(task), executorService);
     }
 
+    @Override
+    public void indexWorkflows(List<Workflow> workflows) {
+        BulkRequest bulkRequest = new BulkRequest();
+        for (Workflow workflow : workflows) {
+            addIndexRequest(bulkRequest, indexName, WORKFLOW_DOC_TYPE, workflow.getWorkflowId(), new WorkflowSummary(workflow));
+        }
+        bulkIndexWithRetry(bulkRequest, "Indexing workflows into doc_type workflow");
+    }
+
+    @Override
+    public void indexTasks(List<Task> tasks) {
+        BulkRequest bulkRequest = new BulkRequest();
+        for (Task task : tasks) {
+            addIndexRequest(bulkRequest, indexName, TASK_DOC_TYPE, task.getTaskId(), new TaskSummary(task));
+        }
+        bulkIndexWithRetry(bulkRequest, "Indexing tasks into doc_type task");
+    }
+
     @Override
     public void addTaskExecutionLogs(List<TaskExecLog> taskExecLogs) {
         if (taskExecLogs.isEmpty()) {
@@ -424,9 +442,20 @@ public class ElasticSearchRestDAOV5 implements IndexDAO {
 
     @Override
     public void addEventExecution(EventExecution eventExecution) {
-        String id = eventExecution.getName() + "." + eventExecution.getEvent() + "." + eventExecution.getMessageId() + "." + eventExecution.getId();
+        indexObject(logIndexName, EVENT_DOC_TYPE, getEventExecutionDocId(eventExecution), eventExecution);
+    }
 
-        indexObject(logIndexName, EVENT_DOC_TYPE, id, eventExecution);
+    @Override
+    public void addEventExecutions(List<EventExecution> eventExecutions) {
+        BulkRequest bulkRequest = new BulkRequest();
+        for (EventExecution eventExecution : eventExecutions) {
+            addIndexRequest(bulkRequest, logIndexName, EVENT_DOC_TYPE, getEventExecutionDocId(eventExecution), eventExecution);
+        }
+        bulkIndexWithRetry(bulkRequest, "Indexing event executions into doc_type event");
+    }
+
+    private static String getEventExecutionDocId(EventExecution eventExecution) {
+        return eventExecution.getName() + "." + eventExecution.getEvent() + "." + eventExecution.getMessageId() + "." + eventExecution.getId();
     }
 
     @Override
@@ -654,6 +683,45 @@ public class ElasticSearchRestDAOV5 implements IndexDAO {
         indexWithRetry(request, "Indexing " + docType + ": " + docId);
     }
 
+    private void addIndexRequest(BulkRequest bulkRequest, String index, String docType, String docId, Object doc) {
+        byte[] docBytes;
+        try {
+            docBytes = objectMapper.writeValueAsBytes(doc);
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to convert {} '{}' to byte string", docType, docId);
+            return;
+        }
+
+        IndexRequest request = new IndexRequest(index, docType, docId);
+        request.source(docBytes, XContentType.JSON);
+        bulkRequest.add(request);
+    }
+
+    /**
+     * Performs a bulk index operation with a retry.
+     * @param bulkRequest The bulk request that we want to perform.
+     * @param operationDescription The type of operation that we are performing.
+     * @throws ApplicationException if the documents could not be indexed.
+     */
+    private void bulkIndexWithRetry(final BulkRequest bulkRequest, final String operationDescription) {
+        if (bulkRequest.numberOfActions() == 0) {
+            return;
+        }
+
+        try {
+            new RetryUtil<BulkResponse>().retryOnException(() -> {
+                try {
+                    return elasticSearchClient.bulk(bulkRequest);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }, null, BulkResponse::hasFailures, RETRY_COUNT, operationDescription, "bulkIndexWithRetry");
+        } catch (Exception e) {
+            Monitors.error(className, "bulkIndex");
+            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, "Failed: " + operationDescription, e);
+        }
+    }
+
     /**
      * Performs an index operation with a retry.
      * @param request The index request that we want to perform.
@@ -147,6 +147,20 @@ public class TaskClient extends ClientBase {
         );
     }
 
+    /**
+     * Updates the result of a batch of tasks, of one or more workflows.
+     *
+     * @param taskResults TaskResults to be updated.
+     * @return the ids of the tasks updated
+     */
+    public List<String> updateTasks(List<TaskResult> taskResults) {
+        Preconditions.checkNotNull(taskResults, "Task results cannot be null");
+        return stub.updateTasks(TaskServicePb.UpdateTasksRequest.newBuilder()
+                .addAllResults(taskResults.stream().map(protoMapper::toProto).collect(Collectors.toList()))
+                .build()
+        ).getTaskIdsList();
+    }
+
     /**
      * Ack for the task poll.
      *
@@ -17,6 +17,7 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 public class TaskServiceImpl extends TaskServiceGrpc.TaskServiceImplBase {
     private static final Logger LOGGER = LoggerFactory.getLogger(TaskServiceImpl.class);
@@ -130,6 +131,25 @@ public class TaskServiceImpl extends TaskServiceGrpc.TaskServiceImplBase {
         }
     }
 
+    @Override
+    public void updateTasks(TaskServicePb.UpdateTasksRequest req, StreamObserver<TaskServicePb.UpdateTasksResponse> response) {
+        try {
+            List<TaskResult> tasks = req.getResultsList().stream()
+                    .map(PROTO_MAPPER::fromProto)
+                    .collect(Collectors.toList());
+            List<String> taskIds = taskService.updateTasks(tasks);
+
+            response.onNext(
+                    TaskServicePb.UpdateTasksResponse.newBuilder()
+                            .addAllTaskIds(taskIds)
+                            .build()
+            );
+            response.onCompleted();
+        } catch (Exception e) {
+            GRPC_HELPER.onError(response, e);
+        }
+    }
+
     @Override
     public void ackTask(TaskServicePb.AckTaskRequest req, StreamObserver<TaskServicePb.AckTaskResponse> response) {
         try {
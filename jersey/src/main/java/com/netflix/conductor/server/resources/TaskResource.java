@@ -107,6 +107,13 @@ public class TaskResource {
 		return taskService.updateTask(taskResult);
 	}
 
+	@POST
+	@Path("/batch")
+	@ApiOperation("Update a batch of tasks, of one or more workflows")
+	public List<String> updateTasks(List<TaskResult> taskResults) {
+		return taskService.updateTasks(taskResults);
+	}
+
 	@POST
 	@Path("/{taskId}/ack")
 	@ApiOperation("Ack Task is received")
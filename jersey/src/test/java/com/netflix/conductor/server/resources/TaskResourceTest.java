@@ -12,6 +12,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -97,6 +98,16 @@ public class TaskResourceTest {
         assertEquals("123", taskResource.updateTask(taskResult));
     }
 
+    @Test
+    public void testUpdateTasks() throws Exception {
+        TaskResult taskResult = new TaskResult();
+        taskResult.setStatus(TaskResult.Status.COMPLETED);
+        taskResult.setTaskId("123");
+        List<TaskResult> taskResults = Collections.singletonList(taskResult);
+        when(mockTaskService.updateTasks(taskResults)).thenReturn(Collections.singletonList("123"));
+        assertEquals(Collections.singletonList("123"), taskResource.updateTasks(taskResults));
+    }
+
     @Test
     public void testAck() throws Exception {
         String acked = "true";
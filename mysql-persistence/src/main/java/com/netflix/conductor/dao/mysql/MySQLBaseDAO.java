@@ -5,6 +5,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.netflix.conductor.core.execution.ApplicationException;
+import com.netflix.conductor.core.utils.PayloadSerializer;
 import com.netflix.conductor.sql.ExecuteFunction;
 import com.netflix.conductor.sql.QueryFunction;
 import com.netflix.conductor.sql.TransactionalFunction;
@@ -30,10 +31,16 @@ public abstract class MySQLBaseDAO {
     protected final Logger logger = LoggerFactory.getLogger(getClass());
     protected final ObjectMapper objectMapper;
     protected final DataSource dataSource;
+    protected final PayloadSerializer payloadSerializer;
 
     protected MySQLBaseDAO(ObjectMapper om, DataSource dataSource) {
+        this(om, dataSource, new PayloadSerializer(om, PayloadSerializer.Format.JSON, false));
+    }
+
+    protected MySQLBaseDAO(ObjectMapper om, DataSource dataSource, PayloadSerializer payloadSerializer) {
         this.objectMapper = om;
         this.dataSource = dataSource;
+        this.payloadSerializer = payloadSerializer;
     }
 
     protected final LazyToString getCallingMethod() {
@@ -68,6 +75,14 @@ public abstract class MySQLBaseDAO {
         }
     }
 
+    protected <T> T readPayload(String payload, Class<T> tClass) {
+        try {
+            return payloadSerializer.deserialize(payload, tClass);
+        } catch (IOException ex) {
+            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, ex);
+        }
+    }
+
     /**
      * Initialize a new transactional {@link Connection} from {@link #dataSource} and pass it to {@literal function}.
      * <p>
@@ -112,12 +127,26 @@ public abstract class MySQLBaseDAO {
     }
 
     protected <R> R getWithTransactionWithOutErrorPropagation(TransactionalFunction<R> function) {
+        return getWithTransactionWithOutErrorPropagation(-1, function);
+    }
+
+    /**
+     * Same as {@link #getWithTransactionWithOutErrorPropagation(TransactionalFunction)}, running the transaction with
+     * the given isolation level instead of the default one of the connection.
+     *
+     * @param transactionIsolation One of the <code>Connection.TRANSACTION_*</code> levels, or -1 for the default one.
+     */
+    protected <R> R getWithTransactionWithOutErrorPropagation(int transactionIsolation, TransactionalFunction<R> function) {
         Instant start = Instant.now();
         LazyToString callingMethod = getCallingMethod();
         logger.trace("{} : starting transaction", callingMethod);
 
         try(Connection tx = dataSource.getConnection()) {
             boolean previousAutoCommitMode = tx.getAutoCommit();
+            int previousTransactionIsolation = tx.getTransactionIsolation();
+            if (transactionIsolation >= 0 && transactionIsolation != previousTransactionIsolation) {
+                tx.setTransactionIsolation(transactionIsolation);
+            }
             tx.setAutoCommit(false);
             try {
                 R result = function.apply(tx);
@@ -129,6 +158,9 @@ public abstract class MySQLBaseDAO {
                 return null;
             } finally {
                 tx.setAutoCommit(previousAutoCommitMode);
+                if (tx.getTransactionIsolation() != previousTransactionIsolation) {
+                    tx.setTransactionIsolation(previousTransactionIsolation);
+                }
             }
         } catch (SQLException ex) {
             throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, ex.getMessage(), ex);
@@ -178,7 +210,7 @@ public abstract class MySQLBaseDAO {
      * @return The results of applying {@literal function}.
      */
     protected <R> R query(Connection tx, String query, QueryFunction<R> function) {
-        try (Query q = new Query(objectMapper, tx, query)) {
+        try (Query q = new Query(objectMapper, payloadSerializer, tx, query)) {
             return function.apply(q);
         } catch (SQLException ex) {
             throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, ex);
@@ -193,7 +225,7 @@ public abstract class MySQLBaseDAO {
      * @param function The functional callback to pass a {@link Query} to.
      */
     protected void execute(Connection tx, String query, ExecuteFunction function) {
-        try (Query q = new Query(objectMapper, tx, query)) {
+        try (Query q = new Query(objectMapper, payloadSerializer, tx, query)) {
             function.apply(q);
         } catch (SQLException ex) {
             throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, ex);
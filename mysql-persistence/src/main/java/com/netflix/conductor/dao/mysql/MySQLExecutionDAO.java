@@ -21,7 +21,9 @@ import com.netflix.conductor.common.metadata.tasks.PollData;
 import com.netflix.conductor.common.metadata.tasks.Task;
 import com.netflix.conductor.common.metadata.tasks.TaskDef;
 import com.netflix.conductor.common.run.Workflow;
+import com.netflix.conductor.core.config.Configuration;
 import com.netflix.conductor.core.execution.ApplicationException;
+import com.netflix.conductor.core.utils.PayloadSerializer;
 import com.netflix.conductor.dao.ExecutionDAO;
 import com.netflix.conductor.metrics.Monitors;
 
@@ -31,22 +33,45 @@ import javax.sql.DataSource;
 import java.sql.Connection;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Singleton
 public class MySQLExecutionDAO extends MySQLBaseDAO implements ExecutionDAO {
 
+    /**
+     * When enabled, workflows and tasks are looked up through the typed columns added in V5 (the type and start time
+     * of workflows, the workflow of tasks) instead of the workflow_to_task and workflow_def_to_workflow mapping
+     * tables. Rows written before V5 have no typed columns, so only enable this once they have been rewritten or
+     * archived.
+     */
+    public static final String TYPED_COLUMN_QUERIES_PROPERTY_NAME = "conductor.mysql.execution.typed.queries.enabled";
+    public static final boolean TYPED_COLUMN_QUERIES_DEFAULT_VALUE = false;
+
     private static final String ARCHIVED_FIELD = "archived";
     private static final String RAW_JSON_FIELD = "rawJSON";
 
+    // the maximum number of workflows whose tasks are read by a single query
+    private static final int MAX_WORKFLOWS_PER_TASK_QUERY = 500;
+
+    private static final Comparator<Task> TASK_ORDER =
+            Comparator.comparingLong(Task::getScheduledTime).thenComparingInt(Task::getSeq);
+
+    private final boolean typedColumnQueries;
+
     @Inject
-    public MySQLExecutionDAO(ObjectMapper objectMapper, DataSource dataSource) {
-        super(objectMapper, dataSource);
+    public MySQLExecutionDAO(ObjectMapper objectMapper, DataSource dataSource, Configuration config) {
+        super(objectMapper, dataSource, new PayloadSerializer(objectMapper, config));
+        this.typedColumnQueries = config.getBooleanProperty(TYPED_COLUMN_QUERIES_PROPERTY_NAME,
+                TYPED_COLUMN_QUERIES_DEFAULT_VALUE);
     }
 
     private static String dateStr(Long timeInMs) {
@@ -62,8 +87,8 @@ public class MySQLExecutionDAO extends MySQLBaseDAO implements ExecutionDAO {
     @Override
     public List<Task> getPendingTasksByWorkflow(String taskDefName, String workflowId) {
         // @formatter:off
-        String GET_IN_PROGRESS_TASKS_FOR_WORKFLOW = "SELECT json_data FROM task_in_progress tip "
-                + "INNER JOIN task t ON t.task_id = tip.task_id " + "WHERE task_def_name = ? AND workflow_id = ?";
+        String GET_IN_PROGRESS_TASKS_FOR_WORKFLOW = "SELECT t.json_data FROM task_in_progress tip "
+                + "INNER JOIN task t ON t.task_id = tip.task_id " + "WHERE tip.task_def_name = ? AND tip.workflow_id = ?";
         // @formatter:on
 
         return queryWithTransaction(GET_IN_PROGRESS_TASKS_FOR_WORKFLOW,
@@ -151,42 +176,50 @@ public class MySQLExecutionDAO extends MySQLBaseDAO implements ExecutionDAO {
 
     @Override
     public boolean exceedsInProgressLimit(Task task) {
+        return !getTasksExceedingInProgressLimit(Collections.singletonList(task)).isEmpty();
+    }
 
-        Optional<TaskDef> taskDefinition = task.getTaskDefinition();
-        if (!taskDefinition.isPresent()) {
-            return false;
-        }
-
-        TaskDef taskDef = taskDefinition.get();
+    @Override
+    public Set<String> getTasksExceedingInProgressLimit(List<Task> tasks) {
+        Map<String, List<Task>> limitedTasksByDefName = tasks.stream()
+                .filter(task -> task.getTaskDefinition().map(TaskDef::concurrencyLimit).orElse(0) > 0)
+                .collect(Collectors.groupingBy(Task::getTaskDefName));
 
-        int limit = taskDef.concurrencyLimit();
-        if (limit <= 0) {
-            return false;
-        }
+        Set<String> limitedTaskIds = new HashSet<>();
+        limitedTasksByDefName.forEach((taskDefName, tasksOfDef) -> {
+            int limit = tasksOfDef.get(0).getTaskDefinition().get().concurrencyLimit();
+            limitedTaskIds.addAll(getTasksExceedingInProgressLimit(taskDefName, limit, tasksOfDef));
+        });
+        return limitedTaskIds;
+    }
 
-        long current = getInProgressTaskCount(task.getTaskDefName());
+    /**
+     * Checks the limit of a task definition once for all the given tasks of the definition.
+     */
+    private Set<String> getTasksExceedingInProgressLimit(String taskDefName, int limit, List<Task> tasks) {
+        List<String> taskIds = tasks.stream().map(Task::getTaskId).collect(Collectors.toList());
+        long current = getInProgressTaskCount(taskDefName);
 
         if (current >= limit) {
-            Monitors.recordTaskConcurrentExecutionLimited(task.getTaskDefName(), limit);
-            return true;
+            Monitors.recordTaskConcurrentExecutionLimited(taskDefName, limit);
+            return new HashSet<>(taskIds);
         }
 
-        logger.info("Task execution count for {}: limit={}, current={}", task.getTaskDefName(), limit,
-                getInProgressTaskCount(task.getTaskDefName()));
-
-        String taskId = task.getTaskId();
+        logger.info("Task execution count for {}: limit={}, current={}", taskDefName, limit, current);
 
-        List<String> tasksInProgressInOrderOfArrival = findAllTasksInProgressInOrderOfArrival(task, limit);
+        List<String> tasksInProgressInOrderOfArrival = findAllTasksInProgressInOrderOfArrival(taskDefName, limit);
 
-        boolean rateLimited = !tasksInProgressInOrderOfArrival.contains(taskId);
+        Set<String> rateLimitedTaskIds = taskIds.stream()
+                .filter(taskId -> !tasksInProgressInOrderOfArrival.contains(taskId))
+                .collect(Collectors.toSet());
 
-        if (rateLimited) {
-            logger.info("Task execution count limited. {}, limit {}, current {}", task.getTaskDefName(), limit,
-                    getInProgressTaskCount(task.getTaskDefName()));
-            Monitors.recordTaskConcurrentExecutionLimited(task.getTaskDefName(), limit);
+        if (!rateLimitedTaskIds.isEmpty()) {
+            logger.info("Task execution count limited. {}, limit {}, current {}, tasks {}", taskDefName, limit,
+                    current, rateLimitedTaskIds);
+            Monitors.recordTaskConcurrentExecutionLimited(taskDefName, limit);
         }
 
-        return rateLimited;
+        return rateLimitedTaskIds;
     }
 
     @Override
@@ -231,8 +264,8 @@ public class MySQLExecutionDAO extends MySQLBaseDAO implements ExecutionDAO {
     public List<Task> getPendingTasksForTaskType(String taskName) {
         Preconditions.checkNotNull(taskName, "task name cannot be null");
         // @formatter:off
-        String GET_IN_PROGRESS_TASKS_FOR_TYPE = "SELECT json_data FROM task_in_progress tip "
-                + "INNER JOIN task t ON t.task_id = tip.task_id " + "WHERE task_def_name = ?";
+        String GET_IN_PROGRESS_TASKS_FOR_TYPE = "SELECT t.json_data FROM task_in_progress tip "
+                + "INNER JOIN task t ON t.task_id = tip.task_id " + "WHERE tip.task_def_name = ?";
         // @formatter:on
 
         return queryWithTransaction(GET_IN_PROGRESS_TASKS_FOR_TYPE,
@@ -241,11 +274,13 @@ public class MySQLExecutionDAO extends MySQLBaseDAO implements ExecutionDAO {
 
     @Override
     public List<Task> getTasksForWorkflow(String workflowId) {
-        String GET_TASKS_FOR_WORKFLOW = "SELECT task_id FROM workflow_to_task WHERE workflow_id = ?";
-        return getWithTransaction(tx -> query(tx, GET_TASKS_FOR_WORKFLOW, q -> {
-            List<String> taskIds = q.addParameter(workflowId).executeScalarList(String.class);
-            return getTasks(tx, taskIds);
-        }));
+        String GET_TASKS_FOR_WORKFLOW = typedColumnQueries
+                ? "SELECT json_data FROM task WHERE workflow_id = ?"
+                : "SELECT t.json_data FROM workflow_to_task wt INNER JOIN task t ON t.task_id = wt.task_id "
+                + "WHERE wt.workflow_id = ?";
+
+        return queryWithTransaction(GET_TASKS_FOR_WORKFLOW,
+                q -> q.addParameter(workflowId).executeAndFetch(Task.class));
     }
 
     @Override
@@ -287,16 +322,12 @@ public class MySQLExecutionDAO extends MySQLBaseDAO implements ExecutionDAO {
 
     @Override
     public Workflow getWorkflow(String workflowId, boolean includeTasks) {
-        Workflow workflow = getWithTransaction(tx -> readWorkflow(tx, workflowId));
-
-        if (workflow != null) {
-            if (includeTasks) {
-                List<Task> tasks = getTasksForWorkflow(workflowId);
-                tasks.sort(Comparator.comparingLong(Task::getScheduledTime).thenComparingInt(Task::getSeq));
-                workflow.setTasks(tasks);
-            }
+        if (!includeTasks) {
+            return getWithTransaction(tx -> readWorkflow(tx, workflowId));
         }
-        return workflow;
+
+        List<Workflow> workflows = getWithTransaction(tx -> readWorkflows(tx, "w.workflow_id = ?", true, false, workflowId));
+        return workflows.isEmpty() ? null : workflows.get(0);
     }
 
     @Override
@@ -311,7 +342,9 @@ public class MySQLExecutionDAO extends MySQLBaseDAO implements ExecutionDAO {
     @Override
     public List<Workflow> getPendingWorkflowsByType(String workflowName) {
         Preconditions.checkNotNull(workflowName, "workflowName cannot be null");
-        return getRunningWorkflowIds(workflowName).stream().map(this::getWorkflow).collect(Collectors.toList());
+        String PENDING_WORKFLOWS = "w.workflow_id IN (SELECT workflow_id FROM workflow_pending WHERE workflow_type = ?)";
+
+        return getWithTransaction(tx -> readWorkflows(tx, PENDING_WORKFLOWS, true, false, workflowName));
     }
 
     @Override
@@ -335,39 +368,32 @@ public class MySQLExecutionDAO extends MySQLBaseDAO implements ExecutionDAO {
         Preconditions.checkNotNull(startTime, "startTime cannot be null");
         Preconditions.checkNotNull(endTime, "endTime cannot be null");
 
-        List<Workflow> workflows = new LinkedList<>();
+        List<Workflow> workflows;
+        if (typedColumnQueries) {
+            String WORKFLOWS_FOR_WORKFLOW_DEF = "w.workflow_type = ? AND w.start_time BETWEEN ? AND ?";
 
-        withTransaction(tx -> {
+            // a workflow which cannot be read is skipped rather than failing the whole lookup
+            workflows = getWithTransaction(tx -> readWorkflows(tx, WORKFLOWS_FOR_WORKFLOW_DEF, true, true,
+                    workflowName, startTime, endTime));
+        } else {
             // @formatter:off
-            String GET_ALL_WORKFLOWS_FOR_WORKFLOW_DEF = "SELECT workflow_id FROM workflow_def_to_workflow "
-                    + "WHERE workflow_def = ? AND date_str BETWEEN ? AND ?";
+            String WORKFLOWS_FOR_WORKFLOW_DEF = "w.workflow_id IN (SELECT workflow_id FROM workflow_def_to_workflow "
+                    + "WHERE workflow_def = ? AND date_str BETWEEN ? AND ?)";
             // @formatter:on
 
-            List<String> workflowIds = query(tx, GET_ALL_WORKFLOWS_FOR_WORKFLOW_DEF, q -> q.addParameter(workflowName)
-                    .addParameter(dateStr(startTime)).addParameter(dateStr(endTime)).executeScalarList(String.class));
-            workflowIds.forEach(workflowId -> {
-                try {
-                    Workflow wf = getWorkflow(workflowId);
-                    if (wf.getCreateTime() >= startTime && wf.getCreateTime() <= endTime) {
-                        workflows.add(wf);
-                    }
-                } catch (Exception e) {
-                    logger.error("Unable to load workflow id {} with name {}", workflowId, workflowName, e);
-                }
-            });
-        });
+            workflows = getWithTransaction(tx -> readWorkflows(tx, WORKFLOWS_FOR_WORKFLOW_DEF, true, true,
+                    workflowName, dateStr(startTime), dateStr(endTime)));
+        }
 
-        return workflows;
+        return workflows.stream()
+                .filter(wf -> wf.getCreateTime() >= startTime && wf.getCreateTime() <= endTime)
+                .collect(Collectors.toList());
     }
 
     @Override
     public List<Workflow> getWorkflowsByCorrelationId(String correlationId, boolean includeTasks) {
         Preconditions.checkNotNull(correlationId, "correlationId cannot be null");
-        String GET_WORKFLOWS_BY_CORRELATION_ID = "SELECT workflow_id FROM workflow WHERE correlation_id = ?";
-
-        return queryWithTransaction(GET_WORKFLOWS_BY_CORRELATION_ID,
-                q -> q.addParameter(correlationId).executeScalarList(String.class).stream()
-                        .map(workflowId -> getWorkflow(workflowId, includeTasks)).collect(Collectors.toList()));
+        return getWithTransaction(tx -> readWorkflows(tx, "w.correlation_id = ?", includeTasks, false, correlationId));
     }
 
     @Override
@@ -438,6 +464,18 @@ public class MySQLExecutionDAO extends MySQLBaseDAO implements ExecutionDAO {
         withTransaction(tx -> insertOrUpdatePollData(tx, pollData, effectiveDomain));
     }
 
+    @Override
+    public void updateLastPolls(List<PollData> pollData) {
+        if (pollData.isEmpty()) {
+            return;
+        }
+        withTransaction(tx -> pollData.forEach(pd -> {
+            Preconditions.checkNotNull(pd.getQueueName(), "taskDefName name cannot be null");
+            String effectiveDomain = (pd.getDomain() == null) ? "DEFAULT" : pd.getDomain();
+            insertOrUpdatePollData(tx, pd, effectiveDomain);
+        }));
+    }
+
     @Override
     public PollData getPollData(String taskDefName, String domain) {
         Preconditions.checkNotNull(taskDefName, "taskDefName name cannot be null");
@@ -524,18 +562,94 @@ public class MySQLExecutionDAO extends MySQLBaseDAO implements ExecutionDAO {
         return query(connection, GET_WORKFLOW, q -> q.addParameter(workflowId).executeAndFetchFirst(Workflow.class));
     }
 
+    /**
+     * Reads the workflows matching {@code condition} on the workflow table (aliased {@code w}) with one query, then
+     * their tasks when {@code includeTasks} is set with one query per {@link #MAX_WORKFLOWS_PER_TASK_QUERY} workflows,
+     * rather than one blob read per workflow and task. When {@code skipUnreadable} is set, a workflow whose data or
+     * task data cannot be read is logged and left out of the results instead of failing the whole read.
+     */
+    private List<Workflow> readWorkflows(Connection connection, String condition, boolean includeTasks,
+                                         boolean skipUnreadable, Object... parameters) {
+        String READ_WORKFLOWS = "SELECT w.workflow_id, w.json_data FROM workflow w WHERE " + condition;
+
+        Map<String, Workflow> workflows = query(connection, READ_WORKFLOWS, q -> q.addParameters(parameters)
+                .executeAndFetch(rs -> {
+                    Map<String, Workflow> results = new LinkedHashMap<>();
+                    while (rs.next()) {
+                        String workflowId = rs.getString(1);
+                        try {
+                            results.put(workflowId, readPayload(rs.getString(2), Workflow.class));
+                        } catch (RuntimeException e) {
+                            if (!skipUnreadable) {
+                                throw e;
+                            }
+                            logger.error("Unable to read workflow {}", workflowId, e);
+                        }
+                    }
+                    return results;
+                }));
+        if (!includeTasks || workflows.isEmpty()) {
+            return new ArrayList<>(workflows.values());
+        }
+
+        workflows.values().forEach(workflow -> workflow.setTasks(new ArrayList<>()));
+        for (List<String> workflowIds : Lists.partition(new ArrayList<>(workflows.keySet()), MAX_WORKFLOWS_PER_TASK_QUERY)) {
+            readTasks(connection, workflowIds, workflows, skipUnreadable);
+        }
+        workflows.values().forEach(workflow -> workflow.getTasks().sort(TASK_ORDER));
+        return new ArrayList<>(workflows.values());
+    }
+
+    /**
+     * Adds their tasks to the given workflows, removing the workflows with a task which cannot be read when
+     * {@code skipUnreadable} is set.
+     */
+    private void readTasks(Connection connection, List<String> workflowIds, Map<String, Workflow> workflows,
+                           boolean skipUnreadable) {
+        String READ_TASKS = typedColumnQueries
+                ? "SELECT workflow_id, json_data FROM task WHERE workflow_id IN (%s)"
+                : "SELECT wt.workflow_id, t.json_data FROM workflow_to_task wt INNER JOIN task t ON t.task_id = wt.task_id "
+                + "WHERE wt.workflow_id IN (%s)";
+        String query = String.format(READ_TASKS, Query.generateInBindings(workflowIds.size()));
+
+        query(connection, query, q -> q.addParameters(workflowIds).executeAndFetch(rs -> {
+            while (rs.next()) {
+                String workflowId = rs.getString(1);
+                Workflow workflow = workflows.get(workflowId);
+                String taskData = rs.getString(2);
+                if (workflow == null || taskData == null) {
+                    continue;
+                }
+                try {
+                    workflow.getTasks().add(readPayload(taskData, Task.class));
+                } catch (RuntimeException e) {
+                    if (!skipUnreadable) {
+                        throw e;
+                    }
+                    logger.error("Unable to read a task of workflow {}", workflowId, e);
+                    workflows.remove(workflowId);
+                }
+            }
+            return null;
+        }));
+    }
+
     private void addWorkflow(Connection connection, Workflow workflow) {
-        String INSERT_WORKFLOW = "INSERT INTO workflow (workflow_id, correlation_id, json_data) VALUES (?, ?, ?)";
+        String INSERT_WORKFLOW = "INSERT INTO workflow (workflow_id, correlation_id, workflow_type, start_time, "
+                + "json_data) VALUES (?, ?, ?, ?, ?)";
 
         execute(connection, INSERT_WORKFLOW, q -> q.addParameter(workflow.getWorkflowId())
-                .addParameter(workflow.getCorrelationId()).addJsonParameter(workflow).executeUpdate());
+                .addParameter(workflow.getCorrelationId()).addParameter(workflow.getWorkflowName())
+                .addParameter(workflow.getStartTime()).addPayloadParameter(workflow).executeUpdate());
     }
 
     private void updateWorkflow(Connection connection, Workflow workflow) {
-        String UPDATE_WORKFLOW = "UPDATE workflow SET json_data = ?, modified_on = CURRENT_TIMESTAMP WHERE workflow_id = ?";
+        String UPDATE_WORKFLOW = "UPDATE workflow SET workflow_type = ?, start_time = ?, json_data = ?, "
+                + "modified_on = CURRENT_TIMESTAMP WHERE workflow_id = ?";
 
-        execute(connection, UPDATE_WORKFLOW,
-                q -> q.addJsonParameter(workflow).addParameter(workflow.getWorkflowId()).executeUpdate());
+        execute(connection, UPDATE_WORKFLOW, q -> q.addParameter(workflow.getWorkflowName())
+                .addParameter(workflow.getStartTime()).addPayloadParameter(workflow)
+                .addParameter(workflow.getWorkflowId()).executeUpdate());
     }
 
     private void removeWorkflow(Connection connection, String workflowId) {
@@ -561,8 +675,14 @@ public class MySQLExecutionDAO extends MySQLBaseDAO implements ExecutionDAO {
 
     private void insertOrUpdateTaskData(Connection connection, Task task) {
 
-        String INSERT_TASK = "INSERT INTO task (task_id, json_data, modified_on) VALUES (?, ?, CURRENT_TIMESTAMP) ON DUPLICATE KEY UPDATE json_data=VALUES(json_data), modified_on=VALUES(modified_on)";
-        execute(connection, INSERT_TASK, q -> q.addParameter(task.getTaskId()).addJsonParameter(task).executeUpdate());
+        // @formatter:off
+        String INSERT_TASK = "INSERT INTO task (task_id, workflow_id, json_data, modified_on) "
+                + "VALUES (?, ?, ?, CURRENT_TIMESTAMP) ON DUPLICATE KEY UPDATE "
+                + "workflow_id=VALUES(workflow_id), json_data=VALUES(json_data), modified_on=VALUES(modified_on)";
+        // @formatter:on
+
+        execute(connection, INSERT_TASK, q -> q.addParameter(task.getTaskId())
+                .addParameter(task.getWorkflowInstanceId()).addPayloadParameter(task).executeUpdate());
 
     }
 
@@ -711,11 +831,11 @@ public class MySQLExecutionDAO extends MySQLBaseDAO implements ExecutionDAO {
         return queryWithTransaction(GET_ALL_POLL_DATA, q -> q.addParameter(queueName).executeAndFetch(PollData.class));
     }
 
-    private List<String> findAllTasksInProgressInOrderOfArrival(Task task, int limit) {
+    private List<String> findAllTasksInProgressInOrderOfArrival(String taskDefName, int limit) {
         String GET_IN_PROGRESS_TASKS_WITH_LIMIT = "SELECT task_id FROM task_in_progress WHERE task_def_name = ? ORDER BY id LIMIT ?";
 
         return queryWithTransaction(GET_IN_PROGRESS_TASKS_WITH_LIMIT,
-                q -> q.addParameter(task.getTaskDefName()).addParameter(limit).executeScalarList(String.class));
+                q -> q.addParameter(taskDefName).addParameter(limit).executeScalarList(String.class));
     }
 
     private void validate(Task task) {
@@ -145,6 +145,29 @@ public class MySQLMetadataDAO extends MySQLBaseDAO implements MetadataDAO {
         });
     }
 
+    @Override
+    public void createWorkflowDefSnapshot(String hash, WorkflowDef def) {
+        Preconditions.checkNotNull(hash, "WorkflowDef hash cannot be null");
+        // the snapshots are immutable, a snapshot stored concurrently has the same content
+        final String INSERT_WORKFLOW_DEF_SNAPSHOT_QUERY = "INSERT IGNORE INTO meta_workflow_def_snapshot (hash, name, " +
+                "version, json_data) VALUES (?, ?, ?, ?)";
+
+        executeWithTransaction(INSERT_WORKFLOW_DEF_SNAPSHOT_QUERY, q -> q.addParameter(hash)
+                .addParameter(def.getName())
+                .addParameter(def.getVersion())
+                .addJsonParameter(def)
+                .executeUpdate());
+    }
+
+    @Override
+    public Optional<WorkflowDef> getWorkflowDefSnapshot(String hash) {
+        final String GET_WORKFLOW_DEF_SNAPSHOT_QUERY = "SELECT json_data FROM meta_workflow_def_snapshot WHERE hash = ?";
+        return Optional.ofNullable(
+                queryWithTransaction(GET_WORKFLOW_DEF_SNAPSHOT_QUERY, q -> q.addParameter(hash)
+                        .executeAndFetchFirst(WorkflowDef.class))
+        );
+    }
+
     @Override
     public List<String> findAll() {
         final String FIND_ALL_WORKFLOW_DEF_QUERY = "SELECT DISTINCT name FROM meta_workflow_def";
@@ -3,9 +3,8 @@ package com.netflix.conductor.dao.mysql;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
-import com.google.common.util.concurrent.Uninterruptibles;
+import com.netflix.conductor.core.config.Configuration;
 import com.netflix.conductor.core.events.queue.Message;
-import com.netflix.conductor.core.execution.ApplicationException;
 import com.netflix.conductor.dao.QueueDAO;
 
 import javax.inject.Inject;
@@ -14,20 +13,71 @@ import javax.sql.DataSource;
 import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+/**
+ * A {@link QueueDAO} on the <code>queue_message</code> table.
+ * <p>
+ * Messages are popped in a <code>READ COMMITTED</code> transaction, so that a pop locks only the messages it pops and
+ * no gap of the queue index. On MySQL 8.0.1 and MariaDB 10.6 onwards, the visible messages are selected
+ * <code>FOR UPDATE SKIP LOCKED</code> and marked as popped, so that concurrent pollers skip the messages being popped
+ * by others. Older servers have no <code>SKIP LOCKED</code>: the messages are claimed with a single
+ * <code>UPDATE ... ORDER BY ... LIMIT</code> setting a token, then read back by token, and a pop reaching a message
+ * being claimed by a concurrent pop waits for that pop to commit, then skips the message as it is no longer visible.
+ * Either way, <code>READ COMMITTED</code> needs row based binary logging when the binary log is enabled. A poll
+ * finding the queue empty waits outside of any transaction until a message is pushed to the queue by this instance,
+ * querying the queue again at most every {@link #POLL_INTERVAL_MS} for the messages pushed by other instances or
+ * becoming visible.
+ * <p>
+ * The sizes of the queues are a sampled view: the messages and the popped messages of all the queues are counted by a
+ * single query, at most every <code>conductor.mysql.queue.size.refresh.time.ms</code>, and the counts are served from
+ * memory in the meantime. The sizes may be behind by that time, but reading them scans the table once per refresh
+ * rather than once per queue and call, and the transactions pushing, popping and removing messages lock no row but
+ * the rows of their messages. The row of a queue in the <code>queue</code> table, listing the queues, is created once
+ * per instance in its own transaction.
+ */
 @Singleton
 public class MySQLQueueDAO extends MySQLBaseDAO implements QueueDAO {
     private static final Long UNACK_SCHEDULE_MS = 60_000L;
 
+    private static final long POLL_INTERVAL_MS = 500;
+
+    public static final String PROP_QUEUE_SIZE_REFRESH = "conductor.mysql.queue.size.refresh.time.ms";
+    public static final int DEFAULT_QUEUE_SIZE_REFRESH_MS = 1000;
+
+    // the number of times messages were made visible in a queue by this instance, by queue name
+    private final ConcurrentHashMap<String, AtomicLong> visibilityChanges = new ConcurrentHashMap<>();
+
+    private final boolean skipLocked;
+
+    // the queues known to have a row in the queue table
+    private final Set<String> queues = ConcurrentHashMap.newKeySet();
+
+    private final long sizesRefreshMs;
+
+    // the sizes of the queues, by queue name, and the time they were counted
+    private volatile Map<String, QueueSize> sizes = Collections.emptyMap();
+    private volatile long sizesCountedAt;
+
     @Inject
-    public MySQLQueueDAO(ObjectMapper om, DataSource ds) {
+    public MySQLQueueDAO(ObjectMapper om, DataSource ds, Configuration config) {
         super(om, ds);
 
+        this.sizesRefreshMs = config.getIntProperty(PROP_QUEUE_SIZE_REFRESH, DEFAULT_QUEUE_SIZE_REFRESH_MS);
+
+        String version = queryWithTransaction("SELECT VERSION()", q -> q.executeScalar(String.class));
+        this.skipLocked = supportsSkipLocked(version);
+        logger.info("Popping messages {} SKIP LOCKED on {}", skipLocked ? "with" : "without", version);
+
         Executors.newSingleThreadScheduledExecutor()
                 .scheduleAtFixedRate(this::processAllUnacks,
                         UNACK_SCHEDULE_MS, UNACK_SCHEDULE_MS, TimeUnit.MILLISECONDS);
@@ -36,54 +86,89 @@ public class MySQLQueueDAO extends MySQLBaseDAO implements QueueDAO {
 
     @Override
     public void push(String queueName, String messageId, long offsetTimeInSecond) {
+        createQueueIfNotExists(queueName);
         withTransaction(tx -> pushMessage(tx, queueName, messageId, null, offsetTimeInSecond));
+        if (offsetTimeInSecond <= 0) {
+            notifyVisible(queueName);
+        }
     }
 
     @Override
     public void push(String queueName, List<Message> messages) {
-        withTransaction(tx -> messages
-                .forEach(message -> pushMessage(tx, queueName, message.getId(), message.getPayload(), 0)));
+        createQueueIfNotExists(queueName);
+        withTransaction(tx -> {
+            for (Message message : messages) {
+                pushMessage(tx, queueName, message.getId(), message.getPayload(), 0);
+            }
+        });
+        notifyVisible(queueName);
+    }
+
+    @Override
+    public void push(String queueName, List<String> messageIds, long offsetTimeInSecond) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        createQueueIfNotExists(queueName);
+        withTransaction(tx -> pushMessages(tx, queueName, messageIds, offsetTimeInSecond));
+        if (offsetTimeInSecond <= 0) {
+            notifyVisible(queueName);
+        }
     }
 
     @Override
     public boolean pushIfNotExists(String queueName, String messageId, long offsetTimeInSecond) {
-        return getWithTransaction(tx -> {
+        createQueueIfNotExists(queueName);
+        boolean pushed = getWithTransaction(tx -> {
             if (!existsMessage(tx, queueName, messageId)) {
                 pushMessage(tx, queueName, messageId, null, offsetTimeInSecond);
                 return true;
             }
             return false;
         });
+        if (pushed && offsetTimeInSecond <= 0) {
+            notifyVisible(queueName);
+        }
+        return pushed;
     }
 
     @Override
     public List<String> pop(String queueName, int count, int timeout) {
-        List<Message> messages = getWithTransactionWithOutErrorPropagation(tx -> popMessages(tx, queueName, count, timeout));
-        if(messages == null) return new ArrayList<>();
-        return messages.stream().map(Message::getId).collect(Collectors.toList());
+        return popMessages(queueName, count, timeout).stream().map(Message::getId).collect(Collectors.toList());
     }
 
     @Override
     public List<Message> pollMessages(String queueName, int count, int timeout) {
-        List<Message> messages = getWithTransactionWithOutErrorPropagation(tx -> popMessages(tx, queueName, count, timeout));
-        if(messages == null) return new ArrayList<>();
-        return messages;
+        return popMessages(queueName, count, timeout);
     }
 
     @Override
     public void remove(String queueName, String messageId) {
-        withTransaction(tx -> removeMessage(tx, queueName, messageId));
+        withTransaction(tx -> removeMessages(tx, queueName, Collections.singletonList(messageId)));
+    }
+
+    @Override
+    public void remove(String queueName, List<String> messageIds) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        withTransaction(tx -> removeMessages(tx, queueName, messageIds));
     }
 
     @Override
     public int getSize(String queueName) {
-        final String GET_QUEUE_SIZE = "SELECT COUNT(*) FROM queue_message WHERE queue_name = ?";
-        return queryWithTransaction(GET_QUEUE_SIZE, q -> ((Long) q.addParameter(queueName).executeCount()).intValue());
+        QueueSize size = getSizes().get(queueName);
+        return size == null ? 0 : (int) size.messages;
     }
 
     @Override
     public boolean ack(String queueName, String messageId) {
-        return getWithTransaction(tx -> removeMessage(tx, queueName, messageId));
+        return getWithTransaction(tx -> removeMessages(tx, queueName, Collections.singletonList(messageId)) > 0);
+    }
+
+    @Override
+    public void ack(String queueName, List<String> messageIds) {
+        remove(queueName, messageIds);
     }
 
     @Override
@@ -97,6 +182,11 @@ public class MySQLQueueDAO extends MySQLBaseDAO implements QueueDAO {
                         .addParameter(queueName).addParameter(messageId).executeUpdate()) == 1;
     }
 
+    @Override
+    public void setUnackTimeout(String queueName, List<String> messageIds, long unackTimeout) {
+        setOffsetTime(queueName, messageIds, unackTimeout / 1000);
+    }
+
     @Override
     public void flush(String queueName) {
         final String FLUSH_QUEUE = "DELETE FROM queue_message WHERE queue_name = ?";
@@ -105,39 +195,18 @@ public class MySQLQueueDAO extends MySQLBaseDAO implements QueueDAO {
 
     @Override
     public Map<String, Long> queuesDetail() {
-        final String GET_QUEUES_DETAIL = "SELECT queue_name, (SELECT count(*) FROM queue_message WHERE popped = false AND queue_name = q.queue_name) AS size FROM queue q";
-        return queryWithTransaction(GET_QUEUES_DETAIL, q -> q.executeAndFetch(rs -> {
-            Map<String, Long> detail = Maps.newHashMap();
-            while (rs.next()) {
-                String queueName = rs.getString("queue_name");
-                Long size = rs.getLong("size");
-                detail.put(queueName, size);
-            }
-            return detail;
-        }));
+        Map<String, Long> detail = Maps.newHashMap();
+        getSizes().forEach((queueName, size) -> detail.put(queueName, size.messages - size.popped));
+        return detail;
     }
 
     @Override
     public Map<String, Map<String, Map<String, Long>>> queuesDetailVerbose() {
-        // @formatter:off
-        final String GET_QUEUES_DETAIL_VERBOSE = "SELECT queue_name, \n"
-                + "       (SELECT count(*) FROM queue_message WHERE popped = false AND queue_name = q.queue_name) AS size,\n"
-                + "       (SELECT count(*) FROM queue_message WHERE popped = true AND queue_name = q.queue_name) AS uacked \n"
-                + "FROM queue q";
-        // @formatter:on
-
-        return queryWithTransaction(GET_QUEUES_DETAIL_VERBOSE, q -> q.executeAndFetch(rs -> {
-            Map<String, Map<String, Map<String, Long>>> result = Maps.newHashMap();
-            while (rs.next()) {
-                String queueName = rs.getString("queue_name");
-                Long size = rs.getLong("size");
-                Long queueUnacked = rs.getLong("uacked");
-                result.put(queueName, ImmutableMap.of("a", ImmutableMap.of( // sharding not implemented, returning only
-                        // one shard with all the info
-                        "size", size, "uacked", queueUnacked)));
-            }
-            return result;
-        }));
+        Map<String, Map<String, Map<String, Long>>> result = Maps.newHashMap();
+        getSizes().forEach((queueName, size) -> result.put(queueName, ImmutableMap.of("a", ImmutableMap.of( // sharding not implemented, returning only
+                // one shard with all the info
+                "size", size.messages - size.popped, "uacked", size.popped))));
+        return result;
     }
 
     /**
@@ -149,15 +218,21 @@ public class MySQLQueueDAO extends MySQLBaseDAO implements QueueDAO {
 
         logger.trace("processAllUnacks started");
 
-
-        final String PROCESS_ALL_UNACKS = "UPDATE queue_message SET popped = false WHERE popped = true AND TIMESTAMPADD(SECOND,60,CURRENT_TIMESTAMP) > deliver_on";
-        executeWithTransaction(PROCESS_ALL_UNACKS, Query::executeUpdate);
+        // queue by queue, to wake up the polls of each queue
+        getSizes().forEach((queueName, size) -> {
+            if (size.popped > 0) {
+                processUnacks(queueName);
+            }
+        });
     }
 
     @Override
     public void processUnacks(String queueName) {
         final String PROCESS_UNACKS = "UPDATE queue_message SET popped = false WHERE queue_name = ? AND popped = true AND TIMESTAMPADD(SECOND,60,CURRENT_TIMESTAMP)  > deliver_on";
-        executeWithTransaction(PROCESS_UNACKS, q -> q.addParameter(queueName).executeUpdate());
+        int unacked = queryWithTransaction(PROCESS_UNACKS, q -> q.addParameter(queueName).executeUpdate());
+        if (unacked > 0) {
+            notifyVisible(queueName);
+        }
     }
 
     @Override
@@ -165,8 +240,28 @@ public class MySQLQueueDAO extends MySQLBaseDAO implements QueueDAO {
         final String SET_OFFSET_TIME = "UPDATE queue_message SET offset_time_seconds = ?, deliver_on = TIMESTAMPADD(SECOND,?,CURRENT_TIMESTAMP) \n"
                 + "WHERE queue_name = ? AND message_id = ?";
 
-        return queryWithTransaction(SET_OFFSET_TIME, q -> q.addParameter(offsetTimeInSecond)
+        boolean updated = queryWithTransaction(SET_OFFSET_TIME, q -> q.addParameter(offsetTimeInSecond)
                 .addParameter(offsetTimeInSecond).addParameter(queueName).addParameter(messageId).executeUpdate() == 1);
+        if (updated && offsetTimeInSecond <= 0) {
+            notifyVisible(queueName);
+        }
+        return updated;
+    }
+
+    @Override
+    public void setOffsetTime(String queueName, List<String> messageIds, long offsetTimeInSecond) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        final String SET_OFFSET_TIMES = "UPDATE queue_message SET offset_time_seconds = ?, deliver_on = TIMESTAMPADD(SECOND,?,CURRENT_TIMESTAMP) \n"
+                + "WHERE queue_name = ? AND message_id IN (%s)";
+
+        final String query = String.format(SET_OFFSET_TIMES, Query.generateInBindings(messageIds.size()));
+        executeWithTransaction(query, q -> q.addParameter(offsetTimeInSecond).addParameter(offsetTimeInSecond)
+                .addParameter(queueName).addParameters(messageIds).executeUpdate());
+        if (offsetTimeInSecond <= 0) {
+            notifyVisible(queueName);
+        }
     }
 
     @Override
@@ -179,34 +274,131 @@ public class MySQLQueueDAO extends MySQLBaseDAO implements QueueDAO {
         return query(connection, EXISTS_MESSAGE, q -> q.addParameter(queueName).addParameter(messageId).exists());
     }
 
-    private void pushMessage(Connection connection, String queueName, String messageId, String payload,
+    /**
+     * @return the number of messages inserted, 0 if the message was already in the queue
+     */
+    private int pushMessage(Connection connection, String queueName, String messageId, String payload,
+                            long offsetTimeInSecond) {
+
+        final String PUSH_MESSAGE = "INSERT IGNORE INTO queue_message (deliver_on, queue_name, message_id, offset_time_seconds, payload) VALUES (TIMESTAMPADD(SECOND,?,CURRENT_TIMESTAMP), ?, ?,?,?)";
+        final String UPDATE_MESSAGE = "UPDATE queue_message SET payload = ?, deliver_on = TIMESTAMPADD(SECOND,?,CURRENT_TIMESTAMP) WHERE queue_name = ? AND message_id = ?";
+
+        int inserted = query(connection, PUSH_MESSAGE, q -> q.addParameter(offsetTimeInSecond).addParameter(queueName)
+                .addParameter(messageId).addParameter(offsetTimeInSecond).addParameter(payload).executeUpdate());
+        if (inserted == 0) {
+            execute(connection, UPDATE_MESSAGE, q -> q.addParameter(payload).addParameter(offsetTimeInSecond)
+                    .addParameter(queueName).addParameter(messageId).executeUpdate());
+        }
+        return inserted;
+    }
+
+    /**
+     * @return the number of messages inserted, not counting the messages already in the queue
+     */
+    private int pushMessages(Connection connection, String queueName, List<String> messageIds,
                              long offsetTimeInSecond) {
 
-        String PUSH_MESSAGE = "INSERT INTO queue_message (deliver_on, queue_name, message_id, offset_time_seconds, payload) VALUES (TIMESTAMPADD(SECOND,?,CURRENT_TIMESTAMP), ?, ?,?,?) ON DUPLICATE KEY UPDATE payload=VALUES(payload), deliver_on=VALUES(deliver_on)";
+        final String PUSH_MESSAGES = "INSERT IGNORE INTO queue_message (deliver_on, queue_name, message_id, offset_time_seconds, payload) VALUES %s";
+        final String UPDATE_MESSAGES = "UPDATE queue_message SET payload = NULL, deliver_on = TIMESTAMPADD(SECOND,?,CURRENT_TIMESTAMP) WHERE queue_name = ? AND message_id IN (%s)";
 
-        createQueueIfNotExists(connection, queueName);
+        final String values = String.join(", ",
+                Collections.nCopies(messageIds.size(), "(TIMESTAMPADD(SECOND,?,CURRENT_TIMESTAMP), ?, ?, ?, NULL)"));
+        int inserted = query(connection, String.format(PUSH_MESSAGES, values), q -> {
+            messageIds.forEach(messageId -> q.addParameter(offsetTimeInSecond).addParameter(queueName)
+                    .addParameter(messageId).addParameter(offsetTimeInSecond));
+            return q.executeUpdate();
+        });
+        if (inserted < messageIds.size()) {
+            final String query = String.format(UPDATE_MESSAGES, Query.generateInBindings(messageIds.size()));
+            execute(connection, query, q -> q.addParameter(offsetTimeInSecond).addParameter(queueName)
+                    .addParameters(messageIds).executeUpdate());
+        }
+        return inserted;
+    }
 
-        execute(connection, PUSH_MESSAGE, q -> q.addParameter(offsetTimeInSecond).addParameter(queueName)
-                .addParameter(messageId).addParameter(offsetTimeInSecond).addParameter(payload).executeUpdate());
+    /**
+     * @return the number of messages removed
+     */
+    private int removeMessages(Connection connection, String queueName, List<String> messageIds) {
+        final String REMOVE_MESSAGES = "DELETE FROM queue_message WHERE queue_name = ? AND message_id IN (%s)";
+        final String query = String.format(REMOVE_MESSAGES, Query.generateInBindings(messageIds.size()));
+        return query(connection, query, q -> q.addParameter(queueName).addParameters(messageIds).executeUpdate());
+    }
 
+    /**
+     * @return the sizes of the queues, counted again if they were counted more than
+     * <code>conductor.mysql.queue.size.refresh.time.ms</code> ago
+     */
+    private Map<String, QueueSize> getSizes() {
+        if (System.currentTimeMillis() - sizesCountedAt >= sizesRefreshMs) {
+            synchronized (this) {
+                if (System.currentTimeMillis() - sizesCountedAt >= sizesRefreshMs) {
+                    sizes = countSizes();
+                    sizesCountedAt = System.currentTimeMillis();
+                }
+            }
+        }
+        return sizes;
     }
 
-    private boolean removeMessage(Connection connection, String queueName, String messageId) {
-        final String REMOVE_MESSAGE = "DELETE FROM queue_message WHERE queue_name = ? AND message_id = ?";
-        return query(connection, REMOVE_MESSAGE,
-                q -> q.addParameter(queueName).addParameter(messageId).executeDelete());
+    private Map<String, QueueSize> countSizes() {
+        final String COUNT_SIZES = "SELECT q.queue_name, COUNT(m.id) AS messages, COALESCE(SUM(m.popped), 0) AS popped "
+                + "FROM queue q LEFT JOIN queue_message m ON m.queue_name = q.queue_name GROUP BY q.queue_name";
+        return queryWithTransaction(COUNT_SIZES, q -> q.executeAndFetch(rs -> {
+            Map<String, QueueSize> counted = new HashMap<>();
+            while (rs.next()) {
+                counted.put(rs.getString("queue_name"), new QueueSize(rs.getLong("messages"), rs.getLong("popped")));
+            }
+            return counted;
+        }));
     }
 
-    private List<Message> peekMessages(Connection connection, String queueName, int count) {
-        if (count < 1)
+    /**
+     * Pops the queue until a message is popped, or the timeout expires.
+     */
+    private List<Message> popMessages(String queueName, int count, int timeout) {
+        if (count < 1) {
             return Collections.emptyList();
+        }
+        long deadline = System.currentTimeMillis() + timeout;
+        AtomicLong changes = visibilityChanges(queueName);
+        while (true) {
+            long changesBeforeClaim = changes.get();
+            List<Message> messages = getWithTransactionWithOutErrorPropagation(Connection.TRANSACTION_READ_COMMITTED,
+                    tx -> skipLocked ? lockMessages(tx, queueName, count) : claimMessages(tx, queueName, count));
+            if (messages == null) {
+                messages = new ArrayList<>();
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (!messages.isEmpty() || remaining <= 0) {
+                return messages;
+            }
+            synchronized (changes) {
+                try {
+                    if (changes.get() == changesBeforeClaim) {
+                        changes.wait(Math.min(remaining, POLL_INTERVAL_MS));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return messages;
+                }
+            }
+        }
+    }
 
-        final String PEEK_MESSAGES = "SELECT message_id, payload FROM queue_message use index(combo_queue_message) WHERE queue_name = ? AND popped = false AND deliver_on <= TIMESTAMPADD(MICROSECOND, 1000, CURRENT_TIMESTAMP) ORDER BY deliver_on, created_on LIMIT ?";
+    /**
+     * Selects the visible messages, skipping the messages locked by concurrent pops, then marks them as popped.
+     */
+    private List<Message> lockMessages(Connection connection, String queueName, int count) {
+        final String LOCK_MESSAGES = "SELECT id, message_id, payload FROM queue_message WHERE queue_name = ? AND popped = false AND deliver_on <= TIMESTAMPADD(MICROSECOND, 1000, CURRENT_TIMESTAMP) ORDER BY deliver_on, created_on LIMIT ? FOR UPDATE SKIP LOCKED";
+        final String POP_MESSAGES = "UPDATE queue_message SET popped = true WHERE id IN (%s)";
 
-        List<Message> messages = query(connection, PEEK_MESSAGES, p -> p.addParameter(queueName)
-                .addParameter(count).executeAndFetch(rs -> {
+        List<Long> ids = new ArrayList<>();
+        List<Message> messages = query(connection, LOCK_MESSAGES, q -> q.addParameter(queueName).addParameter(count)
+                .executeAndFetch(rs -> {
                     List<Message> results = new ArrayList<>();
                     while (rs.next()) {
+                        ids.add(rs.getLong("id"));
                         Message m = new Message();
                         m.setId(rs.getString("message_id"));
                         m.setPayload(rs.getString("payload"));
@@ -214,42 +406,103 @@ public class MySQLQueueDAO extends MySQLBaseDAO implements QueueDAO {
                     }
                     return results;
                 }));
+        if (messages.isEmpty()) {
+            return messages;
+        }
 
+        final String query = String.format(POP_MESSAGES, Query.generateInBindings(ids.size()));
+        execute(connection, query, q -> q.addParameters(ids).executeUpdate());
         return messages;
     }
 
-    private List<Message> popMessages(Connection connection, String queueName, int count, int timeout) {
-        long start = System.currentTimeMillis();
-        List<Message> messages = peekMessages(connection, queueName, count);
-
-        while (messages.size() < count && ((System.currentTimeMillis() - start) < timeout)) {
-            Uninterruptibles.sleepUninterruptibly(200, TimeUnit.MILLISECONDS);
-            messages = peekMessages(connection, queueName, count);
-        }
-
-        if (messages.isEmpty()) {
-            return messages;
+    /**
+     * Claims the visible messages with a single update, then reads the messages claimed. Without
+     * <code>SKIP LOCKED</code>, the update waits for the concurrent claims of the same messages to commit.
+     */
+    private List<Message> claimMessages(Connection connection, String queueName, int count) {
+        final String CLAIM_MESSAGES = "UPDATE queue_message SET popped = true, claim_token = ? WHERE queue_name = ? AND popped = false AND deliver_on <= TIMESTAMPADD(MICROSECOND, 1000, CURRENT_TIMESTAMP) ORDER BY deliver_on, created_on LIMIT ?";
+        final String GET_CLAIMED_MESSAGES = "SELECT message_id, payload FROM queue_message WHERE queue_name = ? AND claim_token = ? ORDER BY deliver_on, created_on";
+
+        String claimToken = UUID.randomUUID().toString();
+        int claimed = query(connection, CLAIM_MESSAGES, q -> q.addParameter(claimToken).addParameter(queueName)
+                .addParameter(count).executeUpdate());
+        if (claimed == 0) {
+            return new ArrayList<>();
         }
 
-        final String POP_MESSAGES = "UPDATE queue_message SET popped = true WHERE queue_name = ? AND message_id IN (%s) AND popped = false";
+        List<Message> messages = query(connection, GET_CLAIMED_MESSAGES, q -> q.addParameter(queueName).addParameter(claimToken)
+                .executeAndFetch(rs -> {
+                    List<Message> results = new ArrayList<>();
+                    while (rs.next()) {
+                        Message m = new Message();
+                        m.setId(rs.getString("message_id"));
+                        m.setPayload(rs.getString("payload"));
+                        results.add(m);
+                    }
+                    return results;
+                }));
+        return messages;
+    }
 
-        final List<String> Ids = messages.stream().map(Message::getId).collect(Collectors.toList());
-        final String query = String.format(POP_MESSAGES, Query.generateInBindings(messages.size()));
+    /**
+     * @return whether the server of the given <code>VERSION()</code> supports <code>SKIP LOCKED</code>
+     */
+    static boolean supportsSkipLocked(String version) {
+        if (version == null) {
+            return false;
+        }
+        String[] numbers = version.split("[^0-9]+", 4);
+        if (numbers.length < 3) {
+            return false;
+        }
+        int major = Integer.parseInt(numbers[0]);
+        int minor = Integer.parseInt(numbers[1]);
+        int patch = Integer.parseInt(numbers[2]);
+        if (version.toLowerCase().contains("mariadb")) {
+            return major > 10 || (major == 10 && minor >= 6);
+        }
+        return major > 8 || (major == 8 && (minor > 0 || patch >= 1));
+    }
 
-        int result = query(connection, query, q -> q.addParameter(queueName).addParameters(Ids).executeUpdate());
+    private AtomicLong visibilityChanges(String queueName) {
+        return visibilityChanges.computeIfAbsent(queueName, name -> new AtomicLong());
+    }
 
-        if (result != messages.size()) {
-            String message = String.format("Could not pop all messages for given ids: %s (%d messages were popped)",
-                    Ids, result);
-            throw new ApplicationException(ApplicationException.Code.BACKEND_ERROR, message);
+    /**
+     * Wakes up the polls of this instance waiting on the queue.
+     */
+    private void notifyVisible(String queueName) {
+        AtomicLong changes = visibilityChanges(queueName);
+        synchronized (changes) {
+            changes.incrementAndGet();
+            changes.notifyAll();
         }
-        return messages;
     }
 
-
-    private void createQueueIfNotExists(Connection connection, String queueName) {
+    /**
+     * Creates the row of the queue in its own transaction, the first time the queue is pushed to by this instance.
+     */
+    private void createQueueIfNotExists(String queueName) {
+        if (queues.contains(queueName)) {
+            return;
+        }
         logger.trace("Creating new queue '{}'", queueName);
         final String CREATE_QUEUE = "INSERT IGNORE INTO queue (queue_name) VALUES (?)";
-        execute(connection, CREATE_QUEUE, q -> q.addParameter(queueName).executeUpdate());
+        executeWithTransaction(CREATE_QUEUE, q -> q.addParameter(queueName).executeUpdate());
+        queues.add(queueName);
+    }
+
+    /**
+     * The number of messages and of popped messages of a queue.
+     */
+    private static class QueueSize {
+
+        private final long messages;
+        private final long popped;
+
+        QueueSize(long messages, long popped) {
+            this.messages = messages;
+            this.popped = popped;
+        }
     }
 }
@@ -4,6 +4,7 @@ package com.netflix.conductor.dao.mysql;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.conductor.core.execution.ApplicationException;
+import com.netflix.conductor.core.utils.PayloadSerializer;
 import com.netflix.conductor.sql.ResultSetHandler;
 
 import org.apache.commons.lang3.math.NumberUtils;
@@ -40,6 +41,11 @@ public class Query implements AutoCloseable {
      */
     protected final ObjectMapper om;
 
+    /**
+     * The {@link PayloadSerializer} instance to use for serializing/deserializing the payloads.
+     */
+    protected final PayloadSerializer payloadSerializer;
+
     /**
      * The initial supplied query String that was used to prepare {@link #statement}.
      */
@@ -57,8 +63,13 @@ public class Query implements AutoCloseable {
     private final PreparedStatement statement;
 
     public Query(ObjectMapper objectMapper, Connection connection, String query) {
+        this(objectMapper, new PayloadSerializer(objectMapper, PayloadSerializer.Format.JSON, false), connection, query);
+    }
+
+    public Query(ObjectMapper objectMapper, PayloadSerializer payloadSerializer, Connection connection, String query) {
         this.rawQuery = query;
         this.om = objectMapper;
+        this.payloadSerializer = payloadSerializer;
 
         try {
             this.statement = connection.prepareStatement(query);
@@ -121,6 +132,20 @@ public class Query implements AutoCloseable {
         return addParameter(toJson(value));
     }
 
+    /**
+     * Serializes {@literal value} in the format of the {@link #payloadSerializer} for persistence.
+     *
+     * @param value The value to serialize.
+     * @return {@literal this}
+     */
+    public Query addPayloadParameter(Object value) {
+        try {
+            return addParameter(payloadSerializer.serialize(value));
+        } catch (IOException ex) {
+            throw new ApplicationException(Code.BACKEND_ERROR, ex);
+        }
+    }
+
     /**
      * Bind the given {@link java.util.Date} to the PreparedStatement as a {@link java.sql.Date}.
      * @param date The {@literal java.util.Date} to bind.
@@ -588,7 +613,7 @@ public class Query implements AutoCloseable {
         }
 
         try {
-            return om.readValue(value, returnType);
+            return payloadSerializer.deserialize(value, returnType);
         } catch (IOException ex) {
             throw new ApplicationException(Code.BACKEND_ERROR,
                     "Could not convert JSON '" + value + "' to " + returnType.getName(), ex);
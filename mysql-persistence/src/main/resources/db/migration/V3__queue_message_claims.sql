@@ -0,0 +1,3 @@
+-- The token of the pop that claimed a message, to read back the messages claimed by a single UPDATE
+ALTER TABLE queue_message ADD COLUMN claim_token varchar(36) DEFAULT NULL;
+CREATE INDEX queue_message_claim ON queue_message (queue_name, claim_token);
@@ -0,0 +1,8 @@
+-- Typed copies of the workflow and task fields queried by MySQLExecutionDAO, written alongside json_data
+ALTER TABLE workflow ADD COLUMN workflow_type varchar(255) DEFAULT NULL;
+ALTER TABLE workflow ADD COLUMN start_time bigint DEFAULT NULL;
+CREATE INDEX workflow_correlation_id ON workflow (correlation_id);
+CREATE INDEX workflow_type_start_time ON workflow (workflow_type, start_time);
+
+ALTER TABLE task ADD COLUMN workflow_id varchar(255) DEFAULT NULL;
+CREATE INDEX task_workflow_id ON task (workflow_id);
@@ -0,0 +1,9 @@
+-- The snapshots of the workflow definitions used by running workflows, by content hash, written by MySQLMetadataDAO
+CREATE TABLE meta_workflow_def_snapshot (
+  hash varchar(64) NOT NULL,
+  created_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  name varchar(255) NOT NULL,
+  version int(11) NOT NULL,
+  json_data mediumtext NOT NULL,
+  PRIMARY KEY (hash)
+);
@@ -22,7 +22,11 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.HashSet;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -41,7 +45,8 @@ public class MySQLExecutionDAOTest extends ExecutionDAOTest {
         testMySQL = new MySQLDAOTestUtil(name.getMethodName());
         executionDAO = new MySQLExecutionDAO(
                 testMySQL.getObjectMapper(),
-                testMySQL.getDataSource()
+                testMySQL.getDataSource(),
+                testMySQL.getTestConfiguration()
         );
         testMySQL.resetAllData();
     }
@@ -68,6 +73,30 @@ public class MySQLExecutionDAOTest extends ExecutionDAOTest {
         assertEquals(10, bycorrelationId.size());
     }
 
+    @Test
+    public void testWorkflowsByTypeSkipUnreadableWorkflows() throws Exception {
+
+        WorkflowDef def = new WorkflowDef();
+        def.setName("workflows_by_type_unreadable_jtest");
+
+        Workflow workflow = createTestWorkflow();
+        workflow.setWorkflowDefinition(def);
+        long startTime = System.currentTimeMillis();
+        workflow.setStartTime(startTime);
+
+        List<String> workflowIds = generateWorkflows(workflow, 3);
+        try (Connection connection = testMySQL.getDataSource().getConnection();
+             PreparedStatement corrupt = connection.prepareStatement("UPDATE workflow SET json_data = '{' WHERE workflow_id = ?")) {
+            corrupt.setString(1, workflowIds.get(0));
+            corrupt.executeUpdate();
+            connection.commit();
+        }
+
+        List<Workflow> workflows = getExecutionDAO().getWorkflowsByType(def.getName(), startTime, System.currentTimeMillis());
+        assertEquals(new HashSet<>(workflowIds.subList(1, 3)),
+                workflows.stream().map(Workflow::getWorkflowId).collect(Collectors.toSet()));
+    }
+
     @Override
     public ExecutionDAO getExecutionDAO() {
         return executionDAO;
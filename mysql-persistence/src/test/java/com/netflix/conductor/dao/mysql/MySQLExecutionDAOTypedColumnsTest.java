@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.dao.mysql;
+
+import com.netflix.conductor.config.TestConfiguration;
+import org.junit.After;
+import org.junit.Before;
+
+/**
+ * Runs the execution DAO tests with lookups going through the typed columns instead of the mapping tables.
+ */
+public class MySQLExecutionDAOTypedColumnsTest extends MySQLExecutionDAOTest {
+
+    private final TestConfiguration configuration = new TestConfiguration();
+
+    @Before
+    @Override
+    public void setup() throws Exception {
+        configuration.setProperty(MySQLExecutionDAO.TYPED_COLUMN_QUERIES_PROPERTY_NAME, "true");
+        super.setup();
+    }
+
+    @After
+    @Override
+    public void teardown() {
+        configuration.setProperty(MySQLExecutionDAO.TYPED_COLUMN_QUERIES_PROPERTY_NAME, "false");
+        super.teardown();
+    }
+}
@@ -14,8 +14,14 @@ import org.slf4j.LoggerFactory;
 import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
@@ -41,7 +47,9 @@ public class MySQLQueueDAOTest {
 	@Before
 	public void setup() throws Exception {
         testUtil = new MySQLDAOTestUtil(name.getMethodName());
-		dao = new MySQLQueueDAO(testUtil.getObjectMapper(), testUtil.getDataSource());
+		// the sizes of the queues are counted again at each read
+		testUtil.getTestConfiguration().setProperty(MySQLQueueDAO.PROP_QUEUE_SIZE_REFRESH, "0");
+		dao = new MySQLQueueDAO(testUtil.getObjectMapper(), testUtil.getDataSource(), testUtil.getTestConfiguration());
 	}
 
 	@After
@@ -119,6 +127,173 @@ public class MySQLQueueDAOTest {
 		assertEquals(0, size);
 	}
 
+	@Test
+	public void bulkOperationsTest() {
+		String queueName = "BulkQueue";
+		List<String> messageIds = Arrays.asList("msg0", "msg1", "msg2", "msg3");
+
+		dao.push(queueName, messageIds, 60);
+		assertEquals(4, dao.getSize(queueName));
+		assertTrue(dao.pop(queueName, 10, 0).isEmpty());
+
+		dao.setOffsetTime(queueName, Arrays.asList("msg0", "msg1", "msg2"), 0);
+		List<String> popped = dao.pop(queueName, 10, 100);
+		assertEquals(3, popped.size());
+		assertFalse(popped.contains("msg3"));
+
+		dao.setUnackTimeout(queueName, Arrays.asList("msg0", "msg1"), 60_000);
+		dao.ack(queueName, ImmutableList.of("msg2"));
+		assertFalse(dao.exists(queueName, "msg2"));
+
+		dao.remove(queueName, Arrays.asList("msg1", "msg3"));
+		assertFalse(dao.exists(queueName, "msg1"));
+		assertFalse(dao.exists(queueName, "msg3"));
+		assertTrue(dao.exists(queueName, "msg0"));
+		assertEquals(1, dao.getSize(queueName));
+	}
+
+	@Test
+	public void queueSizesTest() {
+		final String queueName = "queue_sizes_test";
+
+		dao.push(queueName, "msg0", 0);
+		dao.push(queueName, "msg0", 0);
+		dao.push(queueName, Arrays.asList("msg0", "msg1", "msg2"), 0);
+		dao.push(queueName, ImmutableList.of(new Message("msg2", "payload", null), new Message("msg3", "payload", null)));
+		assertFalse(dao.pushIfNotExists(queueName, "msg3", 0));
+		assertEquals(4, dao.getSize(queueName));
+
+		assertEquals(2, dao.pop(queueName, 2, 0).size());
+		Map<String, Long> sizes = dao.queuesDetailVerbose().get(queueName).get("a");
+		assertEquals(2L, sizes.get("size").longValue());
+		assertEquals(2L, sizes.get("uacked").longValue());
+		assertEquals(2L, dao.queuesDetail().get(queueName).longValue());
+
+		dao.remove(queueName, Arrays.asList("msg0", "msg1", "msg2", "unknown"));
+		assertFalse(dao.ack(queueName, "msg0"));
+		sizes = dao.queuesDetailVerbose().get(queueName).get("a");
+		assertEquals(1L, sizes.get("size").longValue());
+		assertEquals(0L, sizes.get("uacked").longValue());
+		assertEquals(1, dao.getSize(queueName));
+
+		dao.flush(queueName);
+		assertEquals(0, dao.getSize(queueName));
+		assertEquals(0L, dao.queuesDetail().get(queueName).longValue());
+		assertEquals(0, dao.getSize("unknown_queue"));
+	}
+
+	@Test
+	public void sampledQueueSizesTest() {
+		final String queueName = "sampled_queue_sizes_test";
+		testUtil.getTestConfiguration().setProperty(MySQLQueueDAO.PROP_QUEUE_SIZE_REFRESH, "60000");
+		MySQLQueueDAO sampledDAO = new MySQLQueueDAO(testUtil.getObjectMapper(), testUtil.getDataSource(), testUtil.getTestConfiguration());
+
+		dao.push(queueName, Arrays.asList("msg0", "msg1"), 0);
+		assertEquals(2, sampledDAO.getSize(queueName));
+
+		// served from the sizes counted by the first read until they are counted again
+		dao.push(queueName, "msg2", 0);
+		assertEquals(1, dao.pop(queueName, 1, 0).size());
+		assertEquals(2, sampledDAO.getSize(queueName));
+		assertEquals(2L, sampledDAO.queuesDetail().get(queueName).longValue());
+		assertEquals(3, dao.getSize(queueName));
+		assertEquals(2L, dao.queuesDetail().get(queueName).longValue());
+	}
+
+	@Test
+	public void concurrentPollersTest() throws Exception {
+		final String queueName = "concurrent_pollers_test";
+		final int totalSize = 100;
+		for (int i = 0; i < totalSize; i++) {
+			dao.push(queueName, "msg" + i, 0);
+		}
+
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<List<String>>> futures = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				futures.add(executorService.submit(() -> {
+					List<String> popped = new ArrayList<>();
+					List<String> batch;
+					while (!(batch = dao.pop(queueName, 7, 0)).isEmpty()) {
+						popped.addAll(batch);
+					}
+					return popped;
+				}));
+			}
+			List<String> popped = new ArrayList<>();
+			for (Future<List<String>> future : futures) {
+				popped.addAll(future.get());
+			}
+			assertEquals(totalSize, popped.size());
+			assertEquals(totalSize, new HashSet<>(popped).size());
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	public void supportsSkipLockedTest() {
+		assertTrue(MySQLQueueDAO.supportsSkipLocked("8.0.11"));
+		assertTrue(MySQLQueueDAO.supportsSkipLocked("8.0.1-log"));
+		assertFalse(MySQLQueueDAO.supportsSkipLocked("8.0.0-dmr"));
+		assertFalse(MySQLQueueDAO.supportsSkipLocked("5.7.22-log"));
+		assertTrue(MySQLQueueDAO.supportsSkipLocked("10.6.4-MariaDB"));
+		assertFalse(MySQLQueueDAO.supportsSkipLocked("10.2.14-MariaDB"));
+		assertFalse(MySQLQueueDAO.supportsSkipLocked(null));
+	}
+
+	@Test
+	public void concurrentPushersTest() throws Exception {
+		final String queueName = "concurrent_pushers_test";
+		final int pushers = 8;
+		final int pushesPerPusher = 25;
+		final AtomicInteger removed = new AtomicInteger();
+
+		ExecutorService executorService = Executors.newFixedThreadPool(pushers);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < pushers; i++) {
+				final String pusher = "pusher" + i;
+				futures.add(executorService.submit(() -> {
+					for (int j = 0; j < pushesPerPusher; j++) {
+						// pushes of new and existing messages, racing with pops and removes of the same queue
+						dao.push(queueName, pusher + "_msg" + j, 0);
+						dao.push(queueName, Arrays.asList(pusher + "_msg" + j, pusher + "_bulk" + j), 0);
+						List<String> popped = dao.pop(queueName, 1, 0);
+						dao.remove(queueName, popped);
+						removed.addAndGet(popped.size());
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+
+		int remaining = 2 * pushers * pushesPerPusher - removed.get();
+		assertEquals(remaining, dao.getSize(queueName));
+		assertEquals(remaining, dao.pop(queueName, 2 * remaining, 0).size());
+	}
+
+	@Test
+	public void longPollWakesUpOnPushTest() throws Exception {
+		final String queueName = "long_poll_test";
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			long start = System.currentTimeMillis();
+			Future<List<String>> poll = executorService.submit(() -> dao.pop(queueName, 10, 10_000));
+			Thread.sleep(200);
+			dao.push(queueName, "msg", 0);
+			assertEquals(Collections.singletonList("msg"), poll.get());
+			assertTrue(System.currentTimeMillis() - start < 5_000);
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
 	/**
 	 * Test fix for https://github.com/Netflix/conductor/issues/399
 	 * @since 1.8.2-rc5
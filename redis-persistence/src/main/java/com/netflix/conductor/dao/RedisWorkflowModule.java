@@ -13,9 +13,15 @@
 package com.netflix.conductor.dao;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Provider;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.netflix.conductor.core.config.Configuration;
 import com.netflix.conductor.dao.dynomite.RedisExecutionDAO;
 import com.netflix.conductor.dao.dynomite.RedisMetadataDAO;
+import com.netflix.conductor.dao.dynomite.WorkflowTaskLinkRepair;
 import com.netflix.conductor.dao.dynomite.queue.DynoQueueDAO;
+import com.netflix.conductor.dao.dynomite.queue.RedisQueueDAO;
 import com.netflix.conductor.dyno.DynoProxy;
 import com.netflix.conductor.dyno.RedisQueuesProvider;
 import com.netflix.dyno.queues.redis.RedisQueues;
@@ -28,9 +34,18 @@ public class RedisWorkflowModule extends AbstractModule {
     protected void configure() {
         bind(MetadataDAO.class).to(RedisMetadataDAO.class);
         bind(ExecutionDAO.class).to(RedisExecutionDAO.class);
-        bind(QueueDAO.class).to(DynoQueueDAO.class);
 
         bind(RedisQueues.class).toProvider(RedisQueuesProvider.class).asEagerSingleton();
         bind(DynoProxy.class).asEagerSingleton();
+        bind(WorkflowTaskLinkRepair.class).asEagerSingleton();
+    }
+
+    @Provides
+    @Singleton
+    public QueueDAO getQueueDAO(Configuration config, Provider<DynoQueueDAO> dynoQueueDAO, Provider<RedisQueueDAO> redisQueueDAO) {
+        if (config.getBooleanProperty(RedisQueueDAO.NATIVE_QUEUES_PROPERTY_NAME, false)) {
+            return redisQueueDAO.get();
+        }
+        return dynoQueueDAO.get();
     }
 }
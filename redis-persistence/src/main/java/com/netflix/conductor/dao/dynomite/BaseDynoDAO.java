@@ -18,6 +18,7 @@ package com.netflix.conductor.dao.dynomite;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.conductor.core.config.Configuration;
+import com.netflix.conductor.core.utils.PayloadSerializer;
 import com.netflix.conductor.dyno.DynoProxy;
 import com.netflix.conductor.metrics.Monitors;
 import org.apache.commons.lang3.StringUtils;
@@ -28,6 +29,8 @@ import java.io.IOException;
 
 public class BaseDynoDAO {
 
+    public static final String HASH_TAGS_PROPERTY_NAME = "workflow.redis.hash.tags.enabled";
+
     private static final String NAMESPACE_SEP = ".";
     private static final String DAO_NAME = "redis";
 
@@ -35,17 +38,24 @@ public class BaseDynoDAO {
 
     protected ObjectMapper objectMapper;
 
+    private final PayloadSerializer payloadSerializer;
+
     private String domain;
 
     private Configuration config;
 
+    // whether the keys grouped by workflow or by task definition are hash-tagged with their group
+    private final boolean hashTags;
+
     protected Logger logger = LoggerFactory.getLogger(getClass());
 
     protected BaseDynoDAO(DynoProxy dynoClient, ObjectMapper objectMapper, Configuration config) {
         this.dynoClient = dynoClient;
         this.objectMapper = objectMapper;
         this.config = config;
+        this.payloadSerializer = new PayloadSerializer(objectMapper, config);
         this.domain = config.getProperty("workflow.dyno.keyspace.domain", null);
+        this.hashTags = config.getBooleanProperty(HASH_TAGS_PROPERTY_NAME, false);
     }
 
     String nsKey(String... nsValues) {
@@ -67,6 +77,29 @@ public class BaseDynoDAO {
         return StringUtils.removeEnd(namespacedKey.toString(), NAMESPACE_SEP);
     }
 
+    /**
+     * @return the key of a family of keys grouped by workflow or by task definition. When
+     * <code>workflow.redis.hash.tags.enabled</code> is set, the group is hash-tagged, e.g. <code>{workflowId}</code>,
+     * so that the keys of a group are in the same slot of a redis cluster.
+     */
+    String groupKey(String family, String group) {
+        return nsKey(family, hashTags ? "{" + group + "}" : group);
+    }
+
+    boolean isHashTagged() {
+        return hashTags;
+    }
+
+    /**
+     * @return true if the namespace of the keys contains a hash tag, in which case all the keys are in the same slot
+     * of a redis cluster, regardless of their own hash tags
+     */
+    boolean isNamespaceHashTagged() {
+        String namespace = nsKey();
+        int start = namespace.indexOf('{');
+        return start >= 0 && namespace.indexOf('}', start + 2) > 0;
+    }
+
     public DynoProxy getDyno() {
         return dynoClient;
     }
@@ -79,9 +112,25 @@ public class BaseDynoDAO {
         }
     }
 
+    /**
+     * Serializes the tasks and the workflows in the configured payload format.
+     *
+     * @see PayloadSerializer
+     */
+    String serialize(Object value) {
+        try {
+            return payloadSerializer.serialize(value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the JSON documents, and the payloads written by {@link #serialize(Object)}.
+     */
     <T> T readValue(String json, Class<T> clazz) {
         try {
-            return objectMapper.readValue(json, clazz);
+            return payloadSerializer.deserialize(json, clazz);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -39,10 +39,15 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -75,9 +80,28 @@ public class RedisExecutionDAO extends BaseDynoDAO implements ExecutionDAO {
 
 	private final static String EVENT_EXECUTION = "EVENT_EXECUTION";
 
+	public static final String TASK_SCRIPTS_PROPERTY_NAME = "workflow.redis.task.scripts.enabled";
+
+	// whether the task state transitions run as Lua scripts
+	private final boolean taskScriptsEnabled;
+
 	@Inject
 	public RedisExecutionDAO(DynoProxy dynoClient, ObjectMapper objectMapper, Configuration config) {
 		super(dynoClient, objectMapper, config);
+		boolean taskScripts = config.getBooleanProperty(TASK_SCRIPTS_PROPERTY_NAME, false);
+		if (taskScripts && !dynoClient.supportsScripts()) {
+			logger.warn("The redis client does not support scripts, the task state transitions run as separate commands");
+			taskScripts = false;
+		}
+		if (taskScripts && dynoClient.isCluster() && !isHashTagged() && !isNamespaceHashTagged()) {
+			logger.warn("The keys of a task are spread over the slots of the redis cluster, set {} to run the task state transitions as scripts",
+					HASH_TAGS_PROPERTY_NAME);
+			taskScripts = false;
+		}
+		if (isHashTagged() && isNamespaceHashTagged()) {
+			logger.warn("The namespace of the keys is hash-tagged, all the keys are in the same slot of the redis cluster");
+		}
+		this.taskScriptsEnabled = taskScripts;
 	}
 
 	@Override
@@ -120,6 +144,9 @@ public class RedisExecutionDAO extends BaseDynoDAO implements ExecutionDAO {
 
 	@Override
 	public List<Task> createTasks(List<Task> tasks) {
+		if (taskScriptsEnabled) {
+			return createTasksWithScript(tasks);
+		}
 
 		List<Task> tasksCreated = new LinkedList<>();
 
@@ -131,7 +158,7 @@ public class RedisExecutionDAO extends BaseDynoDAO implements ExecutionDAO {
 			task.setScheduledTime(System.currentTimeMillis());
 
 			String taskKey = task.getReferenceTaskName() + "" + task.getRetryCount();
-			Long added = dynoClient.hset(nsKey(SCHEDULED_TASKS, task.getWorkflowInstanceId()), taskKey, task.getTaskId());
+			Long added = dynoClient.hset(groupKey(SCHEDULED_TASKS, task.getWorkflowInstanceId()), taskKey, task.getTaskId());
 			if (added < 1) {
 				logger.debug("Task already scheduled, skipping the run " + task.getTaskId() + ", ref=" + task.getReferenceTaskName() + ", key=" + taskKey);
 				continue;
@@ -141,14 +168,15 @@ public class RedisExecutionDAO extends BaseDynoDAO implements ExecutionDAO {
 			logger.debug("Scheduled task added to WORKFLOW_TO_TASKS workflowId: {}, taskId: {}, taskType: {} during createTasks",
                     task.getWorkflowInstanceId(), task.getTaskId(), task.getTaskType());
 
-			String inProgressTaskKey = nsKey(IN_PROGRESS_TASKS, task.getTaskDefName());
+			String inProgressTaskKey = groupKey(IN_PROGRESS_TASKS, task.getTaskDefName());
 			dynoClient.sadd(inProgressTaskKey, task.getTaskId());
 			logger.debug("Scheduled task added to IN_PROGRESS_TASKS with inProgressTaskKey: {}, workflowId: {}, taskId: {}, taskType: {} during createTasks",
                     inProgressTaskKey, task.getWorkflowInstanceId(), task.getTaskId(), task.getTaskType());
 
-			updateTask(task);
 			tasksCreated.add(task);
 		}
+		// the tasks created are already linked to their workflow
+		updateTasks(tasksCreated, false);
 
 		return tasksCreated;
 
@@ -156,56 +184,186 @@ public class RedisExecutionDAO extends BaseDynoDAO implements ExecutionDAO {
 
 	@Override
 	public void updateTasks(List<Task> tasks) {
-		for (Task task : tasks) {
-			updateTask(task);
-		}
+		updateTasks(tasks, true);
 	}
 
 	@Override
 	public void updateTask(Task task) {
-		task.setUpdateTime(System.currentTimeMillis());
-		if (task.getStatus() != null && task.getStatus().isTerminal() && task.getEndTime() == 0) {
-			task.setEndTime(System.currentTimeMillis());
+		updateTasks(Collections.singletonList(task), true);
+	}
+
+	/**
+	 * @param linkToWorkflow whether the tasks may not be linked to their workflow yet. The link is an idempotent
+	 *                       SADD, so that the cost of an update does not depend on the number of tasks of the workflow.
+	 */
+	private void updateTasks(List<Task> tasks, boolean linkToWorkflow) {
+		if (tasks.isEmpty()) {
+			return;
 		}
+		if (taskScriptsEnabled) {
+			updateTasksWithScript(tasks, false);
+			return;
+		}
+		Map<String, String> payloads = new LinkedHashMap<>();
+		for (Task task : tasks) {
+			payloads.put(nsKey(TASK, task.getTaskId()), prepareTaskUpdate(task));
+		}
+		// the payloads of the batch are written in as few round trips as the client allows
+		dynoClient.mset(payloads);
+		for (Task task : tasks) {
+			completeTaskUpdate(task, linkToWorkflow);
+		}
+	}
+
+	/**
+	 * Updates the in progress status of the task and serializes it.
+	 *
+	 * @return the payload of the task
+	 */
+	private String prepareTaskUpdate(Task task) {
+		String payload = serializeTaskUpdate(task);
 
 		Optional<TaskDef> taskDefinition = task.getTaskDefinition();
 
 		if(taskDefinition.isPresent() && taskDefinition.get().concurrencyLimit() > 0) {
 
 			if(task.getStatus() != null && task.getStatus().equals(Status.IN_PROGRESS)) {
-				dynoClient.sadd(nsKey(TASKS_IN_PROGRESS_STATUS, task.getTaskDefName()), task.getTaskId());
+				dynoClient.sadd(groupKey(TASKS_IN_PROGRESS_STATUS, task.getTaskDefName()), task.getTaskId());
 				logger.debug("Workflow Task added to TASKS_IN_PROGRESS_STATUS with tasksInProgressKey: {}, workflowId: {}, taskId: {}, taskType: {}, taskStatus: {} during updateTask",
 						nsKey(TASKS_IN_PROGRESS_STATUS, task.getTaskDefName(), task.getWorkflowInstanceId(), task.getTaskId(), task.getTaskType(), task.getStatus().name()));
 			}else {
-				dynoClient.srem(nsKey(TASKS_IN_PROGRESS_STATUS, task.getTaskDefName()), task.getTaskId());
+				dynoClient.srem(groupKey(TASKS_IN_PROGRESS_STATUS, task.getTaskDefName()), task.getTaskId());
 				logger.debug("Workflow Task removed from TASKS_IN_PROGRESS_STATUS with tasksInProgressKey: {}, workflowId: {}, taskId: {}, taskType: {}, taskStatus: {} during updateTask",
 						nsKey(TASKS_IN_PROGRESS_STATUS, task.getTaskDefName(), task.getWorkflowInstanceId(), task.getTaskId(), task.getTaskType(), task.getStatus().name()));
-				String key = nsKey(TASK_LIMIT_BUCKET, task.getTaskDefName());
+				String key = groupKey(TASK_LIMIT_BUCKET, task.getTaskDefName());
 				dynoClient.zrem(key, task.getTaskId());
 				logger.debug("Workflow Task removed from TASK_LIMIT_BUCKET with taskLimitBucketKey: {}, workflowId: {}, taskId: {}, taskType: {}, taskStatus: {} during updateTask",
 						key, task.getWorkflowInstanceId(), task.getTaskId(), task.getTaskType(), task.getStatus().name());
 			}
 		}
+		return payload;
+	}
+
+	/**
+	 * Sets the update time, and the end time of a terminal task, and serializes it.
+	 *
+	 * @return the payload of the task
+	 */
+	private String serializeTaskUpdate(Task task) {
+		task.setUpdateTime(System.currentTimeMillis());
+		if (task.getStatus() != null && task.getStatus().isTerminal() && task.getEndTime() == 0) {
+			task.setEndTime(System.currentTimeMillis());
+		}
 
-		String payload = toJson(task);
-		recordRedisDaoPayloadSize("updateTask", payload.length(), taskDefinition
+		String payload = serialize(task);
+		recordRedisDaoPayloadSize("updateTask", payload.length(), task.getTaskDefinition()
 				.map(TaskDef::getName)
 				.orElse("n/a"), task.getWorkflowType());
 
 		recordRedisDaoRequests("updateTask", task.getTaskType(), task.getWorkflowType());
-		dynoClient.set(nsKey(TASK, task.getTaskId()), payload);
+		return payload;
+	}
+
+	/**
+	 * Creates the tasks with a script per workflow, then writes their payloads, then updates their indexes with a
+	 * script per task definition.
+	 *
+	 * @see RedisTaskScripts#SCHEDULE_TASKS
+	 */
+	private List<Task> createTasksWithScript(List<Task> tasks) {
+		Map<String, List<Task>> tasksByWorkflowId = new LinkedHashMap<>();
+		for (Task task : tasks) {
+			validate(task);
+			recordRedisDaoRequests("createTask", task.getTaskType(), task.getWorkflowType());
+			task.setScheduledTime(System.currentTimeMillis());
+			tasksByWorkflowId.computeIfAbsent(task.getWorkflowInstanceId(), workflowId -> new ArrayList<>()).add(task);
+		}
+
+		Set<String> createdTaskIds = new HashSet<>();
+		tasksByWorkflowId.forEach((workflowId, tasksOfWorkflow) -> {
+			List<String> keys = Arrays.asList(groupKey(SCHEDULED_TASKS, workflowId), groupKey(WORKFLOW_TO_TASKS, workflowId));
+			List<String> args = new ArrayList<>(tasksOfWorkflow.size() * 2);
+			for (Task task : tasksOfWorkflow) {
+				args.add(task.getReferenceTaskName() + "" + task.getRetryCount());
+				args.add(task.getTaskId());
+			}
+			@SuppressWarnings("unchecked")
+			List<String> created = (List<String>) dynoClient.evalScript(RedisTaskScripts.SCHEDULE_TASKS, keys, args);
+			createdTaskIds.addAll(created);
+		});
+
+		List<Task> tasksCreated = new LinkedList<>();
+		for (Task task : tasks) {
+			if (createdTaskIds.contains(task.getTaskId())) {
+				tasksCreated.add(task);
+			} else {
+				logger.debug("Task already scheduled, skipping the run " + task.getTaskId() + ", ref=" + task.getReferenceTaskName());
+			}
+		}
+		updateTasksWithScript(tasksCreated, true);
+		return tasksCreated;
+	}
+
+	/**
+	 * Writes the payloads of the tasks, then updates their indexes with a script per task definition. The tasks are
+	 * linked to their workflow when they are created.
+	 *
+	 * @param created whether the tasks are being created, and are to be added to the pending tasks
+	 * @see RedisTaskScripts#UPDATE_TASK_INDEXES
+	 */
+	private void updateTasksWithScript(List<Task> tasks, boolean created) {
+		if (tasks.isEmpty()) {
+			return;
+		}
+		Map<String, String> payloads = new LinkedHashMap<>();
+		Map<String, List<String>> indexArgsByTaskDefName = new LinkedHashMap<>();
+		for (Task task : tasks) {
+			payloads.put(nsKey(TASK, task.getTaskId()), serializeTaskUpdate(task));
+
+			boolean terminal = task.getStatus() != null && task.getStatus().isTerminal();
+			String pending = terminal ? "0" : created ? "1" : "";
+			String inProgressStatus = "";
+			if (task.getTaskDefinition().map(TaskDef::concurrencyLimit).orElse(0) > 0) {
+				inProgressStatus = task.getStatus() == Status.IN_PROGRESS ? "1" : "0";
+			}
+			if (pending.isEmpty() && inProgressStatus.isEmpty()) {
+				continue;
+			}
+			List<String> args = indexArgsByTaskDefName.computeIfAbsent(task.getTaskDefName(), taskDefName -> new ArrayList<>());
+			args.add(task.getTaskId());
+			args.add(pending);
+			args.add(inProgressStatus);
+		}
+		dynoClient.mset(payloads);
+		indexArgsByTaskDefName.forEach((taskDefName, args) ->
+				dynoClient.evalScript(RedisTaskScripts.UPDATE_TASK_INDEXES, taskIndexKeys(taskDefName), args));
+	}
+
+	/**
+	 * @return the keys of the indexes of a task definition, in the order of {@link RedisTaskScripts#UPDATE_TASK_INDEXES}
+	 */
+	private List<String> taskIndexKeys(String taskDefName) {
+		return Arrays.asList(
+				groupKey(IN_PROGRESS_TASKS, taskDefName),
+				groupKey(TASKS_IN_PROGRESS_STATUS, taskDefName),
+				groupKey(TASK_LIMIT_BUCKET, taskDefName));
+	}
+
+	/**
+	 * Updates the indexes of the task, once its payload is written.
+	 */
+	private void completeTaskUpdate(Task task, boolean linkToWorkflow) {
 		logger.debug("Workflow task payload saved to TASK with taskKey: {}, workflowId: {}, taskId: {}, taskType: {} during updateTask",
 				nsKey(TASK, task.getTaskId()), task.getWorkflowInstanceId(), task.getTaskId(), task.getTaskType());
 		if (task.getStatus() != null && task.getStatus().isTerminal()) {
-			dynoClient.srem(nsKey(IN_PROGRESS_TASKS, task.getTaskDefName()), task.getTaskId());
+			dynoClient.srem(groupKey(IN_PROGRESS_TASKS, task.getTaskDefName()), task.getTaskId());
 			logger.debug("Workflow Task removed from TASKS_IN_PROGRESS_STATUS with tasksInProgressKey: {}, workflowId: {}, taskId: {}, taskType: {}, taskStatus: {} during updateTask",
-					nsKey(IN_PROGRESS_TASKS, task.getTaskDefName()), task.getWorkflowInstanceId(), task.getTaskId(), task.getTaskType(), task.getStatus().name());
+					groupKey(IN_PROGRESS_TASKS, task.getTaskDefName()), task.getWorkflowInstanceId(), task.getTaskId(), task.getTaskType(), task.getStatus().name());
 		}
 
-        Set<String> taskIds = dynoClient.smembers(nsKey(WORKFLOW_TO_TASKS, task.getWorkflowInstanceId()));
-		if (!taskIds.contains(task.getTaskId())) {
-		    correlateTaskToWorkflowInDS(task.getTaskId(), task.getWorkflowInstanceId());
-        }
+		if (linkToWorkflow) {
+			correlateTaskToWorkflowInDS(task.getTaskId(), task.getWorkflowInstanceId());
+		}
 	}
 
 	/**
@@ -262,40 +420,98 @@ public class RedisExecutionDAO extends BaseDynoDAO implements ExecutionDAO {
 
 	@Override
 	public boolean exceedsInProgressLimit(Task task) {
-		Optional<TaskDef> taskDefinition = task.getTaskDefinition();
-		if(!taskDefinition.isPresent()) {
-			return false;
-		}
-		int limit = taskDefinition.get().concurrencyLimit();
-		if(limit <= 0) {
-			return false;
-		}
+		return !getTasksExceedingInProgressLimit(Collections.singletonList(task)).isEmpty();
+	}
 
-		long current = getInProgressTaskCount(task.getTaskDefName());
+	@Override
+	public Set<String> getTasksExceedingInProgressLimit(List<Task> tasks) {
+		Map<String, List<Task>> limitedTasksByDefName = tasks.stream()
+				.filter(task -> task.getTaskDefinition().map(TaskDef::concurrencyLimit).orElse(0) > 0)
+				.collect(Collectors.groupingBy(Task::getTaskDefName));
+
+		Set<String> limitedTaskIds = new HashSet<>();
+		limitedTasksByDefName.forEach((taskDefName, tasksOfDef) -> {
+			int limit = tasksOfDef.get(0).getTaskDefinition().get().concurrencyLimit();
+			limitedTaskIds.addAll(getTasksExceedingInProgressLimit(taskDefName, limit, tasksOfDef));
+		});
+		return limitedTaskIds;
+	}
+
+	/**
+	 * Checks the limit of a task definition once for all the given tasks of the definition.
+	 */
+	private Set<String> getTasksExceedingInProgressLimit(String taskDefName, int limit, List<Task> tasks) {
+		if (taskScriptsEnabled) {
+			return getTasksExceedingInProgressLimitWithScript(taskDefName, limit, tasks);
+		}
+		List<String> taskIds = tasks.stream().map(Task::getTaskId).collect(Collectors.toList());
+		long current = getInProgressTaskCount(taskDefName);
 		if(current >= limit) {
-			logger.info("Task execution count limited. task - {}:{}, limit: {}, current: {}", task.getTaskId(), task.getTaskDefName(), limit, current);
-			Monitors.recordTaskConcurrentExecutionLimited(task.getTaskDefName(), limit);
-			return true;
+			logger.info("Task execution count limited. tasks - {}:{}, limit: {}, current: {}", taskIds, taskDefName, limit, current);
+			Monitors.recordTaskConcurrentExecutionLimited(taskDefName, limit);
+			return new HashSet<>(taskIds);
 		}
 
-		String rateLimitKey = nsKey(TASK_LIMIT_BUCKET, task.getTaskDefName());
+		String rateLimitKey = groupKey(TASK_LIMIT_BUCKET, taskDefName);
 		double score = System.currentTimeMillis();
-		String taskId = task.getTaskId();
-		dynoClient.zaddnx(rateLimitKey, score, taskId);
-		recordRedisDaoRequests("checkTaskRateLimiting", task.getTaskType(), task.getWorkflowType());
+		Map<String, Double> scoreMembers = new HashMap<>();
+		for (Task task : tasks) {
+			scoreMembers.put(task.getTaskId(), score);
+			recordRedisDaoRequests("checkTaskRateLimiting", task.getTaskType(), task.getWorkflowType());
+		}
+		dynoClient.zaddnx(rateLimitKey, scoreMembers);
 
 		Set<String> ids = dynoClient.zrangeByScore(rateLimitKey, 0, score + 1, limit);
-		boolean rateLimited = !ids.contains(taskId);
-		if(rateLimited) {
-			logger.info("Task execution count limited. task - {}:{}, limit: {}, current: {}", task.getTaskId(), task.getTaskDefName(), limit, current);
-			String inProgressKey = nsKey(TASKS_IN_PROGRESS_STATUS, task.getTaskDefName());
+		Set<String> rateLimitedTaskIds = taskIds.stream()
+				.filter(taskId -> !ids.contains(taskId))
+				.collect(Collectors.toSet());
+		if(!rateLimitedTaskIds.isEmpty()) {
+			logger.info("Task execution count limited. tasks - {}:{}, limit: {}, current: {}", rateLimitedTaskIds, taskDefName, limit, current);
+			String inProgressKey = groupKey(TASKS_IN_PROGRESS_STATUS, taskDefName);
 			//Cleanup any items that are still present in the rate limit bucket but not in progress anymore!
-			ids.stream()
+			String[] staleIds = ids.stream()
 					.filter(id -> !dynoClient.sismember(inProgressKey, id))
-					.forEach(id2 -> dynoClient.zrem(rateLimitKey, id2));
-			Monitors.recordTaskRateLimited(task.getTaskDefName(), limit);
+					.toArray(String[]::new);
+			if (staleIds.length > 0) {
+				dynoClient.zrem(rateLimitKey, staleIds);
+			}
+			Monitors.recordTaskRateLimited(taskDefName, limit);
+		}
+		return rateLimitedTaskIds;
+	}
+
+	/**
+	 * Checks the limit of a task definition, and updates its bucket, with a single script.
+	 *
+	 * @see RedisTaskScripts#CHECK_IN_PROGRESS_LIMIT
+	 */
+	private Set<String> getTasksExceedingInProgressLimitWithScript(String taskDefName, int limit, List<Task> tasks) {
+		List<String> keys = Arrays.asList(groupKey(TASKS_IN_PROGRESS_STATUS, taskDefName), groupKey(TASK_LIMIT_BUCKET, taskDefName));
+		long score = System.currentTimeMillis();
+		List<String> args = new ArrayList<>(tasks.size() + 3);
+		args.add(String.valueOf(limit));
+		args.add(String.valueOf(score));
+		args.add(String.valueOf(score + 1));
+		for (Task task : tasks) {
+			args.add(task.getTaskId());
+			recordRedisDaoRequests("checkTaskRateLimiting", task.getTaskType(), task.getWorkflowType());
+		}
+		@SuppressWarnings("unchecked")
+		List<Object> result = (List<Object>) dynoClient.evalScript(RedisTaskScripts.CHECK_IN_PROGRESS_LIMIT, keys, args);
+		Set<String> limitedTaskIds = result.stream()
+				.skip(1)
+				.map(String.class::cast)
+				.collect(Collectors.toSet());
+		long current = (Long) result.get(0);
+		if (!limitedTaskIds.isEmpty()) {
+			logger.info("Task execution count limited. tasks - {}:{}, limit: {}, current: {}", limitedTaskIds, taskDefName, limit, current);
+			if (current >= limit) {
+				Monitors.recordTaskConcurrentExecutionLimited(taskDefName, limit);
+			} else {
+				Monitors.recordTaskRateLimited(taskDefName, limit);
+			}
 		}
-		return rateLimited;
+		return limitedTaskIds;
 	}
 
 	@Override
@@ -308,12 +524,24 @@ public class RedisExecutionDAO extends BaseDynoDAO implements ExecutionDAO {
 		}
 		String taskKey = task.getReferenceTaskName() + "" + task.getRetryCount();
 
-		dynoClient.hdel(nsKey(SCHEDULED_TASKS, task.getWorkflowInstanceId()), taskKey);
-		dynoClient.srem(nsKey(IN_PROGRESS_TASKS, task.getTaskDefName()), task.getTaskId());
-		dynoClient.srem(nsKey(WORKFLOW_TO_TASKS, task.getWorkflowInstanceId()), task.getTaskId());
-		dynoClient.srem(nsKey(TASKS_IN_PROGRESS_STATUS, task.getTaskDefName()), task.getTaskId());
+		if (taskScriptsEnabled) {
+			List<String> keys = Arrays.asList(
+					groupKey(SCHEDULED_TASKS, task.getWorkflowInstanceId()),
+					groupKey(WORKFLOW_TO_TASKS, task.getWorkflowInstanceId()));
+			dynoClient.evalScript(RedisTaskScripts.UNSCHEDULE_TASK, keys, Arrays.asList(taskKey, task.getTaskId()));
+			dynoClient.evalScript(RedisTaskScripts.UPDATE_TASK_INDEXES, taskIndexKeys(task.getTaskDefName()),
+					Arrays.asList(task.getTaskId(), "0", "0"));
+			dynoClient.del(nsKey(TASK, task.getTaskId()));
+			recordRedisDaoRequests("removeTask", task.getTaskType(), task.getWorkflowType());
+			return;
+		}
+
+		dynoClient.hdel(groupKey(SCHEDULED_TASKS, task.getWorkflowInstanceId()), taskKey);
+		dynoClient.srem(groupKey(IN_PROGRESS_TASKS, task.getTaskDefName()), task.getTaskId());
+		dynoClient.srem(groupKey(WORKFLOW_TO_TASKS, task.getWorkflowInstanceId()), task.getTaskId());
+		dynoClient.srem(groupKey(TASKS_IN_PROGRESS_STATUS, task.getTaskDefName()), task.getTaskId());
 		dynoClient.del(nsKey(TASK, task.getTaskId()));
-		dynoClient.zrem(nsKey(TASK_LIMIT_BUCKET, task.getTaskDefName()), task.getTaskId());
+		dynoClient.zrem(groupKey(TASK_LIMIT_BUCKET, task.getTaskDefName()), task.getTaskId());
 		recordRedisDaoRequests("removeTask", task.getTaskType(), task.getWorkflowType());
 	}
 
@@ -332,9 +560,11 @@ public class RedisExecutionDAO extends BaseDynoDAO implements ExecutionDAO {
 
 	@Override
 	public List<Task> getTasks(List<String> taskIds) {
-		return taskIds.stream()
+		List<String> taskKeys = taskIds.stream()
 				.map(taskId -> nsKey(TASK, taskId))
-				.map(dynoClient::get)
+				.collect(Collectors.toList());
+		// the tasks are read in as few round trips as the client allows
+		return dynoClient.mget(taskKeys).stream()
 				.filter(Objects::nonNull)
 				.map(jsonString -> {
 					Task task = readValue(jsonString, Task.class);
@@ -348,7 +578,7 @@ public class RedisExecutionDAO extends BaseDynoDAO implements ExecutionDAO {
 	@Override
 	public List<Task> getTasksForWorkflow(String workflowId) {
 		Preconditions.checkNotNull(workflowId, "workflowId cannot be null");
-		Set<String> taskIds = dynoClient.smembers(nsKey(WORKFLOW_TO_TASKS, workflowId));
+		Set<String> taskIds = dynoClient.smembers(groupKey(WORKFLOW_TO_TASKS, workflowId));
 		recordRedisDaoRequests("getTasksForWorkflow");
 		return getTasks(new ArrayList<>(taskIds));
 	}
@@ -356,7 +586,7 @@ public class RedisExecutionDAO extends BaseDynoDAO implements ExecutionDAO {
 	@Override
 	public List<Task> getPendingTasksForTaskType(String taskName) {
 		Preconditions.checkNotNull(taskName, "task name cannot be null");
-		Set<String> taskIds = dynoClient.smembers(nsKey(IN_PROGRESS_TASKS, taskName));
+		Set<String> taskIds = dynoClient.smembers(groupKey(IN_PROGRESS_TASKS, taskName));
 		recordRedisDaoRequests("getPendingTasksForTaskType");
 		return getTasks(new ArrayList<>(taskIds));
 	}
@@ -496,7 +726,7 @@ public class RedisExecutionDAO extends BaseDynoDAO implements ExecutionDAO {
 		List<Task> tasks = workflow.getTasks();
 		workflow.setTasks(new LinkedList<>());
 
-		String payload = toJson(workflow);
+		String payload = serialize(workflow);
 		// Store the workflow object
 		dynoClient.set(nsKey(WORKFLOW, workflow.getWorkflowId()), payload);
 		recordRedisDaoRequests("storeWorkflow", "n/a", workflow.getWorkflowName());
@@ -529,12 +759,33 @@ public class RedisExecutionDAO extends BaseDynoDAO implements ExecutionDAO {
 	 */
 	@VisibleForTesting
     void correlateTaskToWorkflowInDS(String taskId, String workflowInstanceId) {
-        String workflowToTaskKey = nsKey(WORKFLOW_TO_TASKS, workflowInstanceId);
+        String workflowToTaskKey = groupKey(WORKFLOW_TO_TASKS, workflowInstanceId);
         dynoClient.sadd(workflowToTaskKey, taskId);
         logger.debug("Task mapped in WORKFLOW_TO_TASKS with workflowToTaskKey: {}, workflowId: {}, taskId: {}",
                 workflowToTaskKey, workflowInstanceId, taskId);
     }
 
+	/**
+	 * Links to the workflow the tasks scheduled for it but missing from its WORKFLOW_TO_TASKS set, as can be the case
+	 * for the workflows written before the tasks were linked on creation and update.
+	 *
+	 * @param workflowId the workflow to be repaired
+	 * @return the number of tasks linked
+	 */
+	public int linkScheduledTasks(String workflowId) {
+		Preconditions.checkNotNull(workflowId, "workflowId cannot be null");
+		Set<String> linkedTaskIds = dynoClient.smembers(groupKey(WORKFLOW_TO_TASKS, workflowId));
+		recordRedisDaoRequests("linkScheduledTasks");
+		int linked = 0;
+		for (String taskId : dynoClient.hvals(groupKey(SCHEDULED_TASKS, workflowId))) {
+			if (!linkedTaskIds.contains(taskId)) {
+				correlateTaskToWorkflowInDS(taskId, workflowId);
+				linked++;
+			}
+		}
+		return linked;
+	}
+
 	private static String dateStr(Long timeInMs) {
 		Date date = new Date(timeInMs);
 		return dateStr(date);
@@ -567,7 +818,7 @@ public class RedisExecutionDAO extends BaseDynoDAO implements ExecutionDAO {
 
 	@Override
 	public long getInProgressTaskCount(String taskDefName) {
-		String inProgressKey = nsKey(TASKS_IN_PROGRESS_STATUS, taskDefName);
+		String inProgressKey = groupKey(TASKS_IN_PROGRESS_STATUS, taskDefName);
 		recordRedisDaoRequests("getInProgressTaskCount");
 		return dynoClient.scard(inProgressKey);
 	}
@@ -639,15 +890,30 @@ public class RedisExecutionDAO extends BaseDynoDAO implements ExecutionDAO {
 	@Override
 	public void updateLastPoll(String taskDefName, String domain, String workerId) {
 		Preconditions.checkNotNull(taskDefName, "taskDefName name cannot be null");
-		PollData pollData = new PollData(taskDefName, domain, workerId, System.currentTimeMillis());
+		updatePollData(new PollData(taskDefName, domain, workerId, System.currentTimeMillis()));
+	}
 
-		String key = nsKey(POLL_DATA, pollData.getQueueName());
-		String field = (domain == null)?"DEFAULT":domain;
+	/**
+	 * Stores the polls with one HMSET per task queue, the domains being the fields of its hash.
+	 */
+	@Override
+	public void updateLastPolls(List<PollData> pollData) {
+		Map<String, Map<String, String>> payloadsByKey = new HashMap<>();
+		for (PollData pd : pollData) {
+			Preconditions.checkNotNull(pd.getQueueName(), "taskDefName name cannot be null");
+			String key = nsKey(POLL_DATA, pd.getQueueName());
+			String field = (pd.getDomain() == null)?"DEFAULT":pd.getDomain();
+
+			String payload = toJson(pd);
+			recordRedisDaoRequests("updatePollData");
+			recordRedisDaoPayloadSize("updatePollData", payload.length(),"n/a","n/a");
+			payloadsByKey.computeIfAbsent(key, k -> new HashMap<>()).put(field, payload);
+		}
+		payloadsByKey.forEach(dynoClient::hmset);
+	}
 
-		String payload = toJson(pollData);
-		recordRedisDaoRequests("updatePollData");
-		recordRedisDaoPayloadSize("updatePollData", payload.length(),"n/a","n/a");
-		dynoClient.hset(key, field, payload);
+	private void updatePollData(PollData pollData) {
+		updateLastPolls(Collections.singletonList(pollData));
 	}
 
 	@Override
@@ -151,7 +151,7 @@ public class RedisExecutionIndexer extends BaseDynoDAO {
 
 	public List<Task> getTasksForWorkflow(String workflowId) {
 		Preconditions.checkNotNull(workflowId, "workflowId cannot be null");
-		Set<String> taskIds = dynoClient.smembers(nsKey(WORKFLOW_TO_TASKS, workflowId));
+		Set<String> taskIds = dynoClient.smembers(groupKey(WORKFLOW_TO_TASKS, workflowId));
 		recordRedisDaoRequests("getTasksForWorkflow");
 		return getTasks(new ArrayList<>(taskIds));
 	}
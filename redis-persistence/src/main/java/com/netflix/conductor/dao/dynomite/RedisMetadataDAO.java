@@ -54,6 +54,7 @@ public class RedisMetadataDAO extends BaseDynoDAO implements MetadataDAO {
     private final static String ALL_TASK_DEFS = "TASK_DEFS";
     private final static String WORKFLOW_DEF_NAMES = "WORKFLOW_DEF_NAMES";
     private final static String WORKFLOW_DEF = "WORKFLOW_DEF";
+    private final static String WORKFLOW_DEF_SNAPSHOT = "WORKFLOW_DEF_SNAPSHOT";
     private final static String EVENT_HANDLERS = "EVENT_HANDLERS";
     private final static String EVENT_HANDLERS_BY_EVENT = "EVENT_HANDLERS_BY_EVENT";
     private final static String LATEST = "latest";
@@ -252,6 +253,29 @@ public class RedisMetadataDAO extends BaseDynoDAO implements MetadataDAO {
 		recordRedisDaoRequests("removeWorkflowDef");
 	}
 
+	@Override
+	public void createWorkflowDefSnapshot(String hash, WorkflowDef def) {
+		Preconditions.checkNotNull(hash, "WorkflowDef hash cannot be null");
+		String payload = toJson(def);
+		recordRedisDaoRequests("createWorkflowDefSnapshot");
+		recordRedisDaoPayloadSize("createWorkflowDefSnapshot", payload.length(), "n/a", def.getName());
+		dynoClient.setnx(nsKey(WORKFLOW_DEF_SNAPSHOT, hash), payload);
+	}
+
+	@Override
+	public Optional<WorkflowDef> getWorkflowDefSnapshot(String hash) {
+		Preconditions.checkNotNull(hash, "WorkflowDef hash cannot be null");
+		WorkflowDef def = null;
+
+		recordRedisDaoRequests("getWorkflowDefSnapshot");
+		String workflowDefJsonString = dynoClient.get(nsKey(WORKFLOW_DEF_SNAPSHOT, hash));
+		if (workflowDefJsonString != null) {
+			def = readValue(workflowDefJsonString, WorkflowDef.class);
+			recordRedisDaoPayloadSize("getWorkflowDefSnapshot", workflowDefJsonString.length(), "n/a", def.getName());
+		}
+		return Optional.ofNullable(def);
+	}
+
 	@Override
 	public List<String> findAll() {
 		Set<String> wfNames = dynoClient.smembers(nsKey(WORKFLOW_DEF_NAMES));
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.dao.dynomite;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.conductor.jedis.ScriptEmulator;
+import redis.clients.jedis.JedisCommands;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The Lua scripts running the task state transitions of the {@link RedisExecutionDAO} in few round trips, when
+ * <code>workflow.redis.task.scripts.enabled</code> is set.
+ * <p>
+ * A script updates the indexes of a single workflow, or of a single task definition, atomically: on a redis cluster,
+ * all the keys of a script must hash to the same slot, and the keys of a workflow, or of a task definition, are
+ * hash-tagged with its id or its name when <code>workflow.redis.hash.tags.enabled</code> is set. The task payloads,
+ * read by task id alone, are written outside of the scripts.
+ * <p>
+ * Each script comes with its equivalent on {@link JedisCommands}, run by the {@link ScriptEmulator}.
+ */
+public final class RedisTaskScripts {
+
+    /**
+     * Schedules a batch of tasks of a workflow: KEYS SCHEDULED_TASKS, WORKFLOW_TO_TASKS, ARGV the scheduled task key
+     * and the id, per task. The tasks already scheduled are skipped.
+     * <p>
+     * Returns the ids of the tasks scheduled.
+     */
+    public static final String SCHEDULE_TASKS = String.join("\n",
+            "local created = {}",
+            "for i = 1, #ARGV, 2 do",
+            "  if redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) == 1 then",
+            "    redis.call('SADD', KEYS[2], ARGV[i + 1])",
+            "    created[#created + 1] = ARGV[i + 1]",
+            "  end",
+            "end",
+            "return created");
+
+    static final int TASK_INDEX_ARGS = 3;
+
+    /**
+     * Updates the indexes of a batch of tasks of a task definition: KEYS IN_PROGRESS_TASKS, TASKS_IN_PROGRESS_STATUS,
+     * TASK_LIMIT_BUCKET, ARGV the task id, the pending operation, the in progress status operation, per task.
+     * <p>
+     * An operation is 1 to add the task to the index, 0 to remove it, empty to leave the index unchanged. A task
+     * removed from the in progress status is removed from the limit bucket as well.
+     */
+    public static final String UPDATE_TASK_INDEXES = String.join("\n",
+            "for i = 1, #ARGV, 3 do",
+            "  local taskId = ARGV[i]",
+            "  if ARGV[i + 1] == '1' then",
+            "    redis.call('SADD', KEYS[1], taskId)",
+            "  elseif ARGV[i + 1] == '0' then",
+            "    redis.call('SREM', KEYS[1], taskId)",
+            "  end",
+            "  if ARGV[i + 2] == '1' then",
+            "    redis.call('SADD', KEYS[2], taskId)",
+            "  elseif ARGV[i + 2] == '0' then",
+            "    redis.call('SREM', KEYS[2], taskId)",
+            "    redis.call('ZREM', KEYS[3], taskId)",
+            "  end",
+            "end");
+
+    /**
+     * Unschedules a task of a workflow: KEYS SCHEDULED_TASKS, WORKFLOW_TO_TASKS, ARGV the scheduled task key, the id
+     */
+    public static final String UNSCHEDULE_TASK = String.join("\n",
+            "redis.call('HDEL', KEYS[1], ARGV[1])",
+            "redis.call('SREM', KEYS[2], ARGV[2])");
+
+    /**
+     * Checks the in progress limit of a task definition for a batch of its tasks: KEYS TASKS_IN_PROGRESS_STATUS,
+     * TASK_LIMIT_BUCKET, ARGV the limit, the score of the tasks in the bucket, the maximum score, the task ids.
+     * <p>
+     * Returns the number of tasks in progress, followed by the ids of the tasks exceeding the limit.
+     */
+    public static final String CHECK_IN_PROGRESS_LIMIT = String.join("\n",
+            "local limit = tonumber(ARGV[1])",
+            "local current = redis.call('SCARD', KEYS[1])",
+            "local limited = {current}",
+            "if current >= limit then",
+            "  for i = 4, #ARGV do",
+            "    limited[#limited + 1] = ARGV[i]",
+            "  end",
+            "  return limited",
+            "end",
+            "for i = 4, #ARGV do",
+            "  redis.call('ZADD', KEYS[2], 'NX', ARGV[2], ARGV[i])",
+            "end",
+            "local ids = redis.call('ZRANGEBYSCORE', KEYS[2], 0, ARGV[3], 'LIMIT', 0, limit)",
+            "local allowed = {}",
+            "for _, id in ipairs(ids) do",
+            "  allowed[id] = true",
+            "end",
+            "for i = 4, #ARGV do",
+            "  if not allowed[ARGV[i]] then",
+            "    limited[#limited + 1] = ARGV[i]",
+            "  end",
+            "end",
+            "if #limited > 1 then",
+            "  for _, id in ipairs(ids) do",
+            "    if redis.call('SISMEMBER', KEYS[1], id) == 0 then",
+            "      redis.call('ZREM', KEYS[2], id)",
+            "    end",
+            "  end",
+            "end",
+            "return limited");
+
+    /**
+     * The equivalents of the scripts, by script.
+     */
+    public static final Map<String, ScriptEmulator.Emulation> EMULATIONS = ImmutableMap.of(
+            SCHEDULE_TASKS, RedisTaskScripts::scheduleTasks,
+            UPDATE_TASK_INDEXES, RedisTaskScripts::updateTaskIndexes,
+            UNSCHEDULE_TASK, RedisTaskScripts::unscheduleTask,
+            CHECK_IN_PROGRESS_LIMIT, RedisTaskScripts::checkInProgressLimit);
+
+    private RedisTaskScripts() {
+    }
+
+    private static Object scheduleTasks(JedisCommands redis, List<String> keys, List<String> args) {
+        List<Object> created = new ArrayList<>();
+        for (int i = 0; i < args.size(); i += 2) {
+            String taskId = args.get(i + 1);
+            if (redis.hset(keys.get(0), args.get(i), taskId) == 1) {
+                redis.sadd(keys.get(1), taskId);
+                created.add(taskId);
+            }
+        }
+        return created;
+    }
+
+    private static Object updateTaskIndexes(JedisCommands redis, List<String> keys, List<String> args) {
+        for (int i = 0; i < args.size(); i += TASK_INDEX_ARGS) {
+            String taskId = args.get(i);
+            if ("1".equals(args.get(i + 1))) {
+                redis.sadd(keys.get(0), taskId);
+            } else if ("0".equals(args.get(i + 1))) {
+                redis.srem(keys.get(0), taskId);
+            }
+            if ("1".equals(args.get(i + 2))) {
+                redis.sadd(keys.get(1), taskId);
+            } else if ("0".equals(args.get(i + 2))) {
+                redis.srem(keys.get(1), taskId);
+                redis.zrem(keys.get(2), taskId);
+            }
+        }
+        return null;
+    }
+
+    private static Object unscheduleTask(JedisCommands redis, List<String> keys, List<String> args) {
+        redis.hdel(keys.get(0), args.get(0));
+        redis.srem(keys.get(1), args.get(1));
+        return null;
+    }
+
+    private static Object checkInProgressLimit(JedisCommands redis, List<String> keys, List<String> args) {
+        int limit = Integer.parseInt(args.get(0));
+        long current = redis.scard(keys.get(0));
+        List<Object> limited = new ArrayList<>();
+        limited.add(current);
+        List<String> taskIds = args.subList(3, args.size());
+        if (current >= limit) {
+            limited.addAll(taskIds);
+            return limited;
+        }
+        double score = Double.parseDouble(args.get(1));
+        for (String taskId : taskIds) {
+            if (redis.zscore(keys.get(1), taskId) == null) {
+                redis.zadd(keys.get(1), score, taskId);
+            }
+        }
+        Set<String> ids = redis.zrangeByScore(keys.get(1), 0, Double.parseDouble(args.get(2)), 0, limit);
+        taskIds.stream()
+                .filter(taskId -> !ids.contains(taskId))
+                .forEach(limited::add);
+        if (limited.size() > 1) {
+            ids.stream()
+                    .filter(id -> !redis.sismember(keys.get(0), id))
+                    .forEach(id -> redis.zrem(keys.get(1), id));
+        }
+        return limited;
+    }
+}
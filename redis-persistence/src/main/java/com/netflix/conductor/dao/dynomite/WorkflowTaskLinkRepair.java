@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.dao.dynomite;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.netflix.conductor.core.config.Configuration;
+import com.netflix.conductor.dao.MetadataDAO;
+import com.netflix.conductor.metrics.Monitors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Repairs the links between the running workflows and their tasks, once at startup when
+ * <code>workflow.redis.task.link.repair.enabled</code> is set.
+ * <p>
+ * A task update no longer reads the whole task set of its workflow to check the link, the links are written when
+ * the tasks are created and updated. The repair links the tasks of the legacy workflows missing from their set.
+ *
+ * @see RedisExecutionDAO#linkScheduledTasks(String)
+ */
+@Singleton
+public class WorkflowTaskLinkRepair {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkflowTaskLinkRepair.class);
+
+    private static final String className = WorkflowTaskLinkRepair.class.getSimpleName();
+
+    private final RedisExecutionDAO executionDAO;
+
+    private final MetadataDAO metadataDAO;
+
+    @Inject
+    public WorkflowTaskLinkRepair(RedisExecutionDAO executionDAO, MetadataDAO metadataDAO, Configuration config) {
+        this.executionDAO = executionDAO;
+        this.metadataDAO = metadataDAO;
+        if (config.getBooleanProperty("workflow.redis.task.link.repair.enabled", false)) {
+            Thread repairThread = new Thread(this::repair, "workflow-task-link-repair");
+            repairThread.setDaemon(true);
+            repairThread.start();
+        }
+    }
+
+    /**
+     * @return the number of tasks linked to their workflow
+     */
+    @VisibleForTesting
+    int repair() {
+        logger.info("Repairing the task links of the running workflows");
+        int workflows = 0;
+        int linked = 0;
+        for (String workflowName : metadataDAO.findAll()) {
+            for (String workflowId : executionDAO.getRunningWorkflowIds(workflowName)) {
+                try {
+                    linked += executionDAO.linkScheduledTasks(workflowId);
+                    workflows++;
+                } catch (Exception e) {
+                    Monitors.error(className, "repair");
+                    logger.error("Error repairing the task links of workflow: {}", workflowId, e);
+                }
+            }
+        }
+        logger.info("Repaired the task links of {} running workflows, {} tasks linked", workflows, linked);
+        return linked;
+    }
+}
@@ -136,6 +136,21 @@ public class DynoQueueDAO implements QueueDAO {
         queues.get(queueName).push(msgs);
     }
 
+    @Override
+    public void push(String queueName, List<String> ids, long offsetTimeInSecond) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Message> msgs = ids.stream()
+                .map(id -> {
+                    Message msg = new Message(id, null);
+                    msg.setTimeout(offsetTimeInSecond, TimeUnit.SECONDS);
+                    return msg;
+                })
+                .collect(Collectors.toList());
+        queues.get(queueName).push(msgs);
+    }
+
     @Override
     public boolean pushIfNotExists(String queueName, String id, long offsetTimeInSecond) {
         DynoQueue queue = queues.get(queueName);
@@ -169,6 +184,12 @@ public class DynoQueueDAO implements QueueDAO {
         queues.get(queueName).remove(messageId);
     }
 
+    @Override
+    public void remove(String queueName, List<String> messageIds) {
+        DynoQueue queue = queues.get(queueName);
+        messageIds.forEach(queue::remove);
+    }
+
     @Override
     public int getSize(String queueName) {
         return (int) queues.get(queueName).size();
@@ -180,11 +201,28 @@ public class DynoQueueDAO implements QueueDAO {
 
     }
 
+    @Override
+    public void ack(String queueName, List<String> messageIds) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        List<Message> msgs = messageIds.stream()
+                .map(id -> new Message(id, null))
+                .collect(Collectors.toList());
+        queues.get(queueName).ack(msgs);
+    }
+
     @Override
     public boolean setUnackTimeout(String queueName, String messageId, long timeout) {
         return queues.get(queueName).setUnackTimeout(messageId, timeout);
     }
 
+    @Override
+    public void setUnackTimeout(String queueName, List<String> messageIds, long timeout) {
+        DynoQueue queue = queues.get(queueName);
+        messageIds.forEach(messageId -> queue.setUnackTimeout(messageId, timeout));
+    }
+
     @Override
     public void flush(String queueName) {
         DynoQueue queue = queues.get(queueName);
@@ -216,6 +254,12 @@ public class DynoQueueDAO implements QueueDAO {
 
     }
 
+    @Override
+    public void setOffsetTime(String queueName, List<String> ids, long offsetTimeInSecond) {
+        DynoQueue queue = queues.get(queueName);
+        ids.forEach(id -> queue.setTimeout(id, offsetTimeInSecond));
+    }
+
 	@Override
 	public boolean exists(String queueName, String id) {
 		DynoQueue queue = queues.get(queueName);
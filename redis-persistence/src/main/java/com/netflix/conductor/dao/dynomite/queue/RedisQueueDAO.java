@@ -0,0 +1,370 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.dao.dynomite.queue;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.netflix.conductor.core.config.Configuration;
+import com.netflix.conductor.core.events.queue.Message;
+import com.netflix.conductor.dao.QueueDAO;
+import com.netflix.conductor.dyno.DynoProxy;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link QueueDAO} on plain redis, redis sentinel and redis cluster, without dyno-queues, enabled by
+ * <code>workflow.redis.queue.native.enabled</code>.
+ * <p>
+ * A queue is a sorted set of message ids by visibility time. A popped message stays in the sorted set, hidden until
+ * its unack timeout, and is popped again unless acknowledged: there are no unack sets to scan. Each operation is a
+ * single command or Lua script, see {@link RedisQueueScripts}. The keys of a queue are hash-tagged with its name, so
+ * that they share a slot on a redis cluster. A message whose unack timeout expired is not counted in the size of the
+ * queue until popped again.
+ * <p>
+ * A pop finding no visible message blocks on the notifications of the queue until a message is made visible, the next
+ * message becomes visible, or the timeout expires. The notifications are waited for with a timeout in seconds, a
+ * shorter wait sleeps until the next message becomes visible or the timeout expires. A pop of several queues is a
+ * single script, or a script per queue on a redis cluster, and polls the queues until a message is visible.
+ * <p>
+ * The names of the queues are kept in a set, for {@link #queuesDetail()}.
+ */
+@Singleton
+public class RedisQueueDAO implements QueueDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisQueueDAO.class);
+
+    public static final String NATIVE_QUEUES_PROPERTY_NAME = "workflow.redis.queue.native.enabled";
+
+    private static final String SHARD_NAME = "redis";
+
+    // the polling interval of a pop waiting on several queues
+    private static final long POLL_INTERVAL_MS = 50;
+
+    private final DynoProxy dynoClient;
+
+    private final String prefix;
+
+    private final long unackTimeoutMs;
+
+    // the key of the set of queue names
+    private final String queueNamesKey;
+
+    // the queues known to be in the set of queue names
+    private final Set<String> queueNames = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    public RedisQueueDAO(DynoProxy dynoClient, Configuration config) {
+        Preconditions.checkState(dynoClient.supportsScripts(), "The redis queues require a client supporting scripts");
+        this.dynoClient = dynoClient;
+        this.prefix = Arrays.asList(
+                config.getProperty("workflow.namespace.queue.prefix", null),
+                config.getStack(),
+                config.getProperty("workflow.dyno.keyspace.domain", null)).stream()
+                .filter(StringUtils::isNotBlank)
+                .collect(Collectors.joining("."));
+        this.unackTimeoutMs = config.getIntProperty("workflow.redis.queue.unack.timeout.ms", 60_000);
+        this.queueNamesKey = prefix.isEmpty() ? "QUEUES" : prefix + ".QUEUES";
+        logger.info("RedisQueueDAO initialized with prefix {}", prefix);
+    }
+
+    @Override
+    public void push(String queueName, String id, long offsetTimeInSecond) {
+        evalScript(RedisQueueScripts.PUSH, queueName, Arrays.asList(now(), id, visibilityTime(offsetTimeInSecond), ""));
+    }
+
+    @Override
+    public void push(String queueName, List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        String visibilityTime = visibilityTime(0);
+        List<String> args = new ArrayList<>(messages.size() * 3 + 1);
+        args.add(now());
+        for (Message message : messages) {
+            args.add(message.getId());
+            args.add(visibilityTime);
+            args.add(StringUtils.defaultString(message.getPayload()));
+        }
+        evalScript(RedisQueueScripts.PUSH, queueName, args);
+    }
+
+    @Override
+    public void push(String queueName, List<String> ids, long offsetTimeInSecond) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String visibilityTime = visibilityTime(offsetTimeInSecond);
+        List<String> args = new ArrayList<>(ids.size() * 3 + 1);
+        args.add(now());
+        for (String id : ids) {
+            args.add(id);
+            args.add(visibilityTime);
+            args.add("");
+        }
+        evalScript(RedisQueueScripts.PUSH, queueName, args);
+    }
+
+    @Override
+    public boolean pushIfNotExists(String queueName, String id, long offsetTimeInSecond) {
+        List<String> args = Arrays.asList(now(), id, visibilityTime(offsetTimeInSecond));
+        return (Long) evalScript(RedisQueueScripts.PUSH_IF_NOT_EXISTS, queueName, args) > 0;
+    }
+
+    @Override
+    public List<String> pop(String queueName, int count, int timeout) {
+        return pop(Collections.singletonMap(queueName, count), timeout).get(queueName);
+    }
+
+    /**
+     * Pops the queues with a single script, or a script per queue on a redis cluster, where the keys of the queues
+     * are on different slots.
+     */
+    @Override
+    public Map<String, List<String>> pop(Map<String, Integer> counts, int timeout) {
+        Map<String, List<String>> popped = new HashMap<>();
+        popMessages(counts, timeout, false).forEach((queueName, messages) -> popped.put(queueName,
+                messages.stream().map(Message::getId).collect(Collectors.toList())));
+        return popped;
+    }
+
+    @Override
+    public List<Message> pollMessages(String queueName, int count, int timeout) {
+        return popMessages(Collections.singletonMap(queueName, count), timeout, true).get(queueName);
+    }
+
+    /**
+     * Pops the queues until a message is popped, or the timeout expires.
+     */
+    private Map<String, List<Message>> popMessages(Map<String, Integer> counts, int timeout, boolean withPayloads) {
+        counts.keySet().forEach(this::registerQueueName);
+        long deadline = System.currentTimeMillis() + timeout;
+        while (true) {
+            long now = System.currentTimeMillis();
+            Map<String, List<Message>> popped = new HashMap<>();
+            long nextVisibilityTime = Long.MAX_VALUE;
+            if (dynoClient.isCluster()) {
+                for (Map.Entry<String, Integer> count : counts.entrySet()) {
+                    nextVisibilityTime = Math.min(nextVisibilityTime,
+                            evalPop(Collections.singletonMap(count.getKey(), count.getValue()), now, withPayloads, popped));
+                }
+            } else {
+                nextVisibilityTime = evalPop(counts, now, withPayloads, popped);
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (popped.values().stream().anyMatch(messages -> !messages.isEmpty()) || remaining <= 0) {
+                return popped;
+            }
+            long wait = Math.min(remaining, Math.max(0, nextVisibilityTime - System.currentTimeMillis()));
+            if (counts.size() == 1) {
+                awaitVisibleMessage(counts.keySet().iterator().next(), wait);
+            } else {
+                Uninterruptibles.sleepUninterruptibly(Math.min(wait, POLL_INTERVAL_MS), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Runs {@link RedisQueueScripts#POP} on the queues, and adds the messages popped to the given map.
+     *
+     * @return the earliest visibility time of the next messages of the queues, {@link Long#MAX_VALUE} for none
+     */
+    @SuppressWarnings("unchecked")
+    private long evalPop(Map<String, Integer> counts, long now, boolean withPayloads, Map<String, List<Message>> popped) {
+        List<String> keys = new ArrayList<>(counts.size() * RedisQueueScripts.QUEUE_KEYS);
+        List<String> args = new ArrayList<>(counts.size() + 3);
+        args.add(String.valueOf(now));
+        args.add(String.valueOf(now + unackTimeoutMs));
+        args.add(withPayloads ? "1" : "0");
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            keys.addAll(keys(count.getKey()));
+            args.add(String.valueOf(count.getValue()));
+        }
+        List<Object> result = (List<Object>) dynoClient.evalScript(RedisQueueScripts.POP, keys, args);
+
+        long nextVisibilityTime = Long.MAX_VALUE;
+        int i = 0;
+        for (String queueName : counts.keySet()) {
+            String queueNextVisibilityTime = (String) result.get(i++);
+            if (!queueNextVisibilityTime.isEmpty()) {
+                nextVisibilityTime = Math.min(nextVisibilityTime, (long) Double.parseDouble(queueNextVisibilityTime));
+            }
+            long size = (Long) result.get(i++);
+            List<Message> messages = new ArrayList<>();
+            for (long m = 0; m < size; m++) {
+                String id = (String) result.get(i++);
+                String payload = withPayloads ? StringUtils.defaultIfEmpty((String) result.get(i++), null) : null;
+                messages.add(new Message(id, payload, null));
+            }
+            popped.put(queueName, messages);
+        }
+        return nextVisibilityTime;
+    }
+
+    /**
+     * Waits for the notification of a visible message, for at most the given time.
+     */
+    private void awaitVisibleMessage(String queueName, long waitMs) {
+        int waitSeconds = (int) TimeUnit.MILLISECONDS.toSeconds(waitMs);
+        if (waitSeconds > 0) {
+            dynoClient.blpop(waitSeconds, key(queueName, "NOTIFICATIONS"));
+        } else {
+            Uninterruptibles.sleepUninterruptibly(waitMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void remove(String queueName, String messageId) {
+        remove(queueName, Collections.singletonList(messageId));
+    }
+
+    @Override
+    public void remove(String queueName, List<String> messageIds) {
+        if (!messageIds.isEmpty()) {
+            evalScript(RedisQueueScripts.REMOVE, queueName, messageIds);
+        }
+    }
+
+    @Override
+    public int getSize(String queueName) {
+        return ((Long) evalScript(RedisQueueScripts.SIZE, queueName, Collections.emptyList())).intValue();
+    }
+
+    @Override
+    public boolean ack(String queueName, String messageId) {
+        return (Long) evalScript(RedisQueueScripts.ACK, queueName, Collections.singletonList(messageId)) > 0;
+    }
+
+    @Override
+    public void ack(String queueName, List<String> messageIds) {
+        if (!messageIds.isEmpty()) {
+            evalScript(RedisQueueScripts.ACK, queueName, messageIds);
+        }
+    }
+
+    @Override
+    public boolean setUnackTimeout(String queueName, String messageId, long unackTimeout) {
+        String visibilityTime = String.valueOf(System.currentTimeMillis() + unackTimeout);
+        return setVisibilityTime(RedisQueueScripts.SET_UNACK_TIMEOUT, queueName, visibilityTime, Collections.singletonList(messageId)) > 0;
+    }
+
+    @Override
+    public void setUnackTimeout(String queueName, List<String> messageIds, long unackTimeout) {
+        String visibilityTime = String.valueOf(System.currentTimeMillis() + unackTimeout);
+        setVisibilityTime(RedisQueueScripts.SET_UNACK_TIMEOUT, queueName, visibilityTime, messageIds);
+    }
+
+    @Override
+    public void flush(String queueName) {
+        keys(queueName).forEach(dynoClient::del);
+    }
+
+    /**
+     * @return the sizes of all the queues, including those used by the other instances only
+     */
+    @Override
+    public Map<String, Long> queuesDetail() {
+        return dynoClient.smembers(queueNamesKey).stream()
+                .collect(Collectors.toMap(queueName -> queueName, queueName -> (long) getSize(queueName)));
+    }
+
+    @Override
+    public Map<String, Map<String, Map<String, Long>>> queuesDetailVerbose() {
+        Map<String, Map<String, Map<String, Long>>> details = new HashMap<>();
+        for (String queueName : dynoClient.smembers(queueNamesKey)) {
+            Map<String, Long> sizes = new HashMap<>();
+            sizes.put("size", (long) getSize(queueName));
+            sizes.put("uacked", dynoClient.scard(key(queueName, "UNACKED")));
+            details.put(queueName, Collections.singletonMap(SHARD_NAME, sizes));
+        }
+        return details;
+    }
+
+    @Override
+    public boolean setOffsetTime(String queueName, String id, long offsetTimeInSecond) {
+        return setVisibilityTime(RedisQueueScripts.SET_OFFSET_TIME, queueName, visibilityTime(offsetTimeInSecond), Collections.singletonList(id)) > 0;
+    }
+
+    @Override
+    public void setOffsetTime(String queueName, List<String> ids, long offsetTimeInSecond) {
+        setVisibilityTime(RedisQueueScripts.SET_OFFSET_TIME, queueName, visibilityTime(offsetTimeInSecond), ids);
+    }
+
+    @Override
+    public boolean exists(String queueName, String id) {
+        return dynoClient.zscore(key(queueName, "QUEUE"), id) != null;
+    }
+
+    private Object evalScript(String script, String queueName, List<String> args) {
+        registerQueueName(queueName);
+        return dynoClient.evalScript(script, keys(queueName), args);
+    }
+
+    private void registerQueueName(String queueName) {
+        if (!queueNames.contains(queueName)) {
+            dynoClient.sadd(queueNamesKey, queueName);
+            queueNames.add(queueName);
+        }
+    }
+
+    /**
+     * Runs {@link RedisQueueScripts#SET_UNACK_TIMEOUT} or {@link RedisQueueScripts#SET_OFFSET_TIME} on the messages.
+     *
+     * @return the number of messages updated
+     */
+    private long setVisibilityTime(String script, String queueName, String visibilityTime, List<String> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<String> args = new ArrayList<>(ids.size() + 2);
+        args.add(visibilityTime);
+        args.add(now());
+        args.addAll(ids);
+        return (Long) evalScript(script, queueName, args);
+    }
+
+    private static String now() {
+        return String.valueOf(System.currentTimeMillis());
+    }
+
+    private static String visibilityTime(long offsetTimeInSecond) {
+        return String.valueOf(System.currentTimeMillis() + offsetTimeInSecond * 1000);
+    }
+
+    private List<String> keys(String queueName) {
+        return Arrays.asList(key(queueName, "QUEUE"), key(queueName, "UNACKED"), key(queueName, "PAYLOADS"),
+                key(queueName, "NOTIFICATIONS"));
+    }
+
+    /**
+     * @return the key of the queue, hash-tagged with the queue name
+     */
+    private String key(String queueName, String suffix) {
+        String key = "{" + queueName + "}." + suffix;
+        return prefix.isEmpty() ? key : prefix + "." + key;
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.dao.dynomite.queue;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.conductor.jedis.ScriptEmulator;
+import redis.clients.jedis.JedisCommands;
+import redis.clients.jedis.Tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The Lua scripts of the {@link RedisQueueDAO}. The keys of a queue are its sorted set of messages by visibility time,
+ * its set of unacknowledged messages, its hash of payloads and its list of notifications, in this order.
+ * <p>
+ * The scripts making messages visible push a notification per visible message, up to {@link #MAX_NOTIFICATIONS}, for
+ * the pops blocked on the list.
+ * <p>
+ * Each script comes with its equivalent on {@link JedisCommands}, run by the {@link ScriptEmulator}.
+ */
+public final class RedisQueueScripts {
+
+    static final int QUEUE_KEYS = 4;
+
+    static final int MAX_NOTIFICATIONS = 100;
+
+    /**
+     * Notifies the pops waiting for a message of the visible messages.
+     */
+    private static final String NOTIFY_FUNCTION = String.join("\n",
+            "local function notify(visible)",
+            "  if visible > 0 then",
+            "    for i = 1, math.min(visible, " + MAX_NOTIFICATIONS + ") do",
+            "      redis.call('RPUSH', KEYS[4], '1')",
+            "    end",
+            "    redis.call('LTRIM', KEYS[4], 0, " + (MAX_NOTIFICATIONS - 1) + ")",
+            "  end",
+            "end",
+            "");
+
+    /**
+     * Pushes messages, made visible again if already in the queue: ARGV the current time, then the id, visibility time
+     * and payload (empty for none) of each message.
+     */
+    public static final String PUSH = NOTIFY_FUNCTION + String.join("\n",
+            "local visible = 0",
+            "for i = 2, #ARGV, 3 do",
+            "  redis.call('ZADD', KEYS[1], ARGV[i + 1], ARGV[i])",
+            "  redis.call('SREM', KEYS[2], ARGV[i])",
+            "  if ARGV[i + 2] ~= '' then",
+            "    redis.call('HSET', KEYS[3], ARGV[i], ARGV[i + 2])",
+            "  end",
+            "  if tonumber(ARGV[i + 1]) <= tonumber(ARGV[1]) then",
+            "    visible = visible + 1",
+            "  end",
+            "end",
+            "notify(visible)");
+
+    /**
+     * Pushes a message not in the queue yet: ARGV the current time, the id, the visibility time. Returns 1 if pushed.
+     */
+    public static final String PUSH_IF_NOT_EXISTS = NOTIFY_FUNCTION + String.join("\n",
+            "local pushed = redis.call('ZADD', KEYS[1], 'NX', ARGV[3], ARGV[2])",
+            "if pushed == 1 and tonumber(ARGV[3]) <= tonumber(ARGV[1]) then",
+            "  notify(1)",
+            "end",
+            "return pushed");
+
+    /**
+     * Pops the visible messages of one or more queues, and hides them until their unack timeout: KEYS the keys of each
+     * queue, ARGV the current time, the visibility time of the popped messages, whether to return the payloads (1/0),
+     * then the maximum number of messages of each queue.
+     * <p>
+     * Returns, for each queue, the visibility time of its next message (empty for none) and the number of messages
+     * popped, followed by their ids, each followed by its payload if requested.
+     */
+    public static final String POP = String.join("\n",
+            "local popped = {}",
+            "for q = 0, #KEYS / " + QUEUE_KEYS + " - 1 do",
+            "  local base = q * " + QUEUE_KEYS,
+            "  local queue, unacked, payloads = KEYS[base + 1], KEYS[base + 2], KEYS[base + 3]",
+            "  local ids = redis.call('ZRANGEBYSCORE', queue, '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[q + 4]))",
+            "  local header = #popped + 1",
+            "  popped[header] = ''",
+            "  popped[header + 1] = #ids",
+            "  for _, id in ipairs(ids) do",
+            "    redis.call('ZADD', queue, ARGV[2], id)",
+            "    redis.call('SADD', unacked, id)",
+            "    popped[#popped + 1] = id",
+            "    if ARGV[3] == '1' then",
+            "      popped[#popped + 1] = redis.call('HGET', payloads, id) or ''",
+            "    end",
+            "  end",
+            "  local first = redis.call('ZRANGE', queue, 0, 0, 'WITHSCORES')",
+            "  if #first > 0 then",
+            "    popped[header] = first[2]",
+            "  end",
+            "end",
+            "return popped");
+
+    /**
+     * Acknowledges unacknowledged messages: ARGV the message ids. Returns the number of messages acknowledged.
+     */
+    public static final String ACK = String.join("\n",
+            "local acked = 0",
+            "for i = 1, #ARGV do",
+            "  if redis.call('SREM', KEYS[2], ARGV[i]) == 1 then",
+            "    redis.call('ZREM', KEYS[1], ARGV[i])",
+            "    redis.call('HDEL', KEYS[3], ARGV[i])",
+            "    acked = acked + 1",
+            "  end",
+            "end",
+            "return acked");
+
+    /**
+     * Removes messages: ARGV the message ids.
+     */
+    public static final String REMOVE = String.join("\n",
+            "for i = 1, #ARGV do",
+            "  redis.call('ZREM', KEYS[1], ARGV[i])",
+            "  redis.call('SREM', KEYS[2], ARGV[i])",
+            "  redis.call('HDEL', KEYS[3], ARGV[i])",
+            "end");
+
+    /**
+     * Sets the visibility time of unacknowledged messages: ARGV the visibility time, the current time, the message ids.
+     * Returns the number of messages updated.
+     */
+    public static final String SET_UNACK_TIMEOUT = NOTIFY_FUNCTION + String.join("\n",
+            "local updated = 0",
+            "for i = 3, #ARGV do",
+            "  if redis.call('SISMEMBER', KEYS[2], ARGV[i]) == 1 then",
+            "    redis.call('ZADD', KEYS[1], ARGV[1], ARGV[i])",
+            "    updated = updated + 1",
+            "  end",
+            "end",
+            "if tonumber(ARGV[1]) <= tonumber(ARGV[2]) then",
+            "  notify(updated)",
+            "end",
+            "return updated");
+
+    /**
+     * Sets the visibility time of messages not popped: ARGV the visibility time, the current time, the message ids.
+     * Returns the number of messages updated.
+     */
+    public static final String SET_OFFSET_TIME = NOTIFY_FUNCTION + String.join("\n",
+            "local updated = 0",
+            "for i = 3, #ARGV do",
+            "  if redis.call('ZSCORE', KEYS[1], ARGV[i]) and redis.call('SISMEMBER', KEYS[2], ARGV[i]) == 0 then",
+            "    redis.call('ZADD', KEYS[1], ARGV[1], ARGV[i])",
+            "    updated = updated + 1",
+            "  end",
+            "end",
+            "if tonumber(ARGV[1]) <= tonumber(ARGV[2]) then",
+            "  notify(updated)",
+            "end",
+            "return updated");
+
+    /**
+     * Returns the number of messages not popped.
+     */
+    public static final String SIZE = "return redis.call('ZCARD', KEYS[1]) - redis.call('SCARD', KEYS[2])";
+
+    /**
+     * The equivalents of the scripts, by script.
+     */
+    public static final Map<String, ScriptEmulator.Emulation> EMULATIONS = ImmutableMap.<String, ScriptEmulator.Emulation>builder()
+            .put(PUSH, RedisQueueScripts::push)
+            .put(PUSH_IF_NOT_EXISTS, RedisQueueScripts::pushIfNotExists)
+            .put(POP, RedisQueueScripts::pop)
+            .put(ACK, RedisQueueScripts::ack)
+            .put(REMOVE, RedisQueueScripts::remove)
+            .put(SET_UNACK_TIMEOUT, RedisQueueScripts::setUnackTimeout)
+            .put(SET_OFFSET_TIME, RedisQueueScripts::setOffsetTime)
+            .put(SIZE, (redis, keys, args) -> redis.zcard(keys.get(0)) - redis.scard(keys.get(1)))
+            .build();
+
+    private RedisQueueScripts() {
+    }
+
+    private static void notify(JedisCommands redis, List<String> keys, long visible) {
+        if (visible > 0) {
+            for (int i = 0; i < Math.min(visible, MAX_NOTIFICATIONS); i++) {
+                redis.rpush(keys.get(3), "1");
+            }
+            redis.ltrim(keys.get(3), 0, MAX_NOTIFICATIONS - 1);
+        }
+    }
+
+    private static Object push(JedisCommands redis, List<String> keys, List<String> args) {
+        double now = Double.parseDouble(args.get(0));
+        long visible = 0;
+        for (int i = 1; i < args.size(); i += 3) {
+            double visibilityTime = Double.parseDouble(args.get(i + 1));
+            redis.zadd(keys.get(0), visibilityTime, args.get(i));
+            redis.srem(keys.get(1), args.get(i));
+            if (!args.get(i + 2).isEmpty()) {
+                redis.hset(keys.get(2), args.get(i), args.get(i + 2));
+            }
+            if (visibilityTime <= now) {
+                visible++;
+            }
+        }
+        notify(redis, keys, visible);
+        return null;
+    }
+
+    private static Object pushIfNotExists(JedisCommands redis, List<String> keys, List<String> args) {
+        if (redis.zscore(keys.get(0), args.get(1)) != null) {
+            return 0L;
+        }
+        double visibilityTime = Double.parseDouble(args.get(2));
+        redis.zadd(keys.get(0), visibilityTime, args.get(1));
+        if (visibilityTime <= Double.parseDouble(args.get(0))) {
+            notify(redis, keys, 1);
+        }
+        return 1L;
+    }
+
+    private static Object pop(JedisCommands redis, List<String> keys, List<String> args) {
+        double now = Double.parseDouble(args.get(0));
+        double visibilityTime = Double.parseDouble(args.get(1));
+        List<Object> popped = new ArrayList<>();
+        for (int q = 0; q < keys.size() / QUEUE_KEYS; q++) {
+            String queue = keys.get(q * QUEUE_KEYS);
+            int count = Integer.parseInt(args.get(q + 3));
+            Set<String> ids = redis.zrangeByScore(queue, 0, now, 0, count);
+            int header = popped.size();
+            popped.add("");
+            popped.add((long) ids.size());
+            for (String id : ids) {
+                redis.zadd(queue, visibilityTime, id);
+                redis.sadd(keys.get(q * QUEUE_KEYS + 1), id);
+                popped.add(id);
+                if ("1".equals(args.get(2))) {
+                    String payload = redis.hget(keys.get(q * QUEUE_KEYS + 2), id);
+                    popped.add(payload == null ? "" : payload);
+                }
+            }
+            Set<Tuple> first = redis.zrangeWithScores(queue, 0, 0);
+            if (!first.isEmpty()) {
+                popped.set(header, String.valueOf((long) first.iterator().next().getScore()));
+            }
+        }
+        return popped;
+    }
+
+    private static Object ack(JedisCommands redis, List<String> keys, List<String> args) {
+        long acked = 0;
+        for (String id : args) {
+            if (redis.srem(keys.get(1), id) == 1) {
+                redis.zrem(keys.get(0), id);
+                redis.hdel(keys.get(2), id);
+                acked++;
+            }
+        }
+        return acked;
+    }
+
+    private static Object remove(JedisCommands redis, List<String> keys, List<String> args) {
+        for (String id : args) {
+            redis.zrem(keys.get(0), id);
+            redis.srem(keys.get(1), id);
+            redis.hdel(keys.get(2), id);
+        }
+        return null;
+    }
+
+    private static Object setUnackTimeout(JedisCommands redis, List<String> keys, List<String> args) {
+        long updated = 0;
+        for (String id : args.subList(2, args.size())) {
+            if (redis.sismember(keys.get(1), id)) {
+                redis.zadd(keys.get(0), Double.parseDouble(args.get(0)), id);
+                updated++;
+            }
+        }
+        notifyIfVisible(redis, keys, args, updated);
+        return updated;
+    }
+
+    private static Object setOffsetTime(JedisCommands redis, List<String> keys, List<String> args) {
+        long updated = 0;
+        for (String id : args.subList(2, args.size())) {
+            if (redis.zscore(keys.get(0), id) != null && !redis.sismember(keys.get(1), id)) {
+                redis.zadd(keys.get(0), Double.parseDouble(args.get(0)), id);
+                updated++;
+            }
+        }
+        notifyIfVisible(redis, keys, args, updated);
+        return updated;
+    }
+
+    private static void notifyIfVisible(JedisCommands redis, List<String> keys, List<String> args, long updated) {
+        if (Double.parseDouble(args.get(0)) <= Double.parseDouble(args.get(1))) {
+            notify(redis, keys, updated);
+        }
+    }
+}
@@ -12,9 +12,12 @@
  */
 package com.netflix.conductor.dyno;
 
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
 import com.google.inject.Singleton;
 
 import com.netflix.conductor.core.config.Configuration;
+import com.netflix.conductor.jedis.JedisClusterSentinel;
 import com.netflix.discovery.DiscoveryClient;
 import com.netflix.dyno.connectionpool.exception.DynoException;
 import com.netflix.dyno.jedis.DynoJedisClient;
@@ -22,6 +25,8 @@ import com.netflix.dyno.jedis.DynoJedisClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -29,14 +34,20 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 
 import javax.inject.Inject;
 
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisClusterScriptingCommands;
 import redis.clients.jedis.JedisCommands;
+import redis.clients.jedis.MultiKeyCommands;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.ScriptingCommands;
 import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisDataException;
 import redis.clients.jedis.params.sortedset.ZAddParams;
 
 /**
@@ -48,10 +59,16 @@ public class DynoProxy {
 
     private static Logger logger = LoggerFactory.getLogger(DynoProxy.class);
 
+    // the maximum number of keys read or written by a single multi-key command
+    private static final int MAX_KEYS_PER_COMMAND = 500;
+
     protected DiscoveryClient dc;
 
     protected JedisCommands dynoClient;
 
+    // the SHA1 digests of the scripts run, by source
+    private final Map<String, String> scriptDigests = new ConcurrentHashMap<>();
+
     @Inject
     public DynoProxy(JedisCommands dynoClient) {
         this.dynoClient = dynoClient;
@@ -96,6 +113,114 @@ public class DynoProxy {
         return dynoClient.get(key);
     }
 
+    /**
+     * Reads the values of the keys in as few round trips as the client allows: with MGET when the client supports
+     * multi-key commands (Dynomite fragments them across its shards), one GET per key otherwise.
+     *
+     * @return the values in the order of the keys, null for the keys not found
+     */
+    public List<String> mget(List<String> keys) {
+        List<String> values = new ArrayList<>(keys.size());
+        for (List<String> batch : Lists.partition(keys, MAX_KEYS_PER_COMMAND)) {
+            String[] batchKeys = batch.toArray(new String[0]);
+            if (dynoClient instanceof MultiKeyCommands) {
+                values.addAll(((MultiKeyCommands) dynoClient).mget(batchKeys));
+            } else if (dynoClient instanceof JedisClusterSentinel) {
+                values.addAll(((JedisClusterSentinel) dynoClient).mget(batchKeys));
+            } else {
+                // e.g. a redis cluster, where the keys of a batch span the hash slots
+                for (String key : batch) {
+                    values.add(dynoClient.get(key));
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Writes the values of the keys in as few round trips as the client allows: with MSET when the client supports
+     * multi-key commands, one SET per key otherwise.
+     */
+    public void mset(Map<String, String> keyValues) {
+        List<Entry<String, String>> entries = new ArrayList<>(keyValues.entrySet());
+        for (List<Entry<String, String>> batch : Lists.partition(entries, MAX_KEYS_PER_COMMAND)) {
+            String[] keysValues = new String[batch.size() * 2];
+            for (int i = 0; i < batch.size(); i++) {
+                keysValues[2 * i] = batch.get(i).getKey();
+                keysValues[2 * i + 1] = batch.get(i).getValue();
+            }
+            if (dynoClient instanceof MultiKeyCommands) {
+                ((MultiKeyCommands) dynoClient).mset(keysValues);
+            } else if (dynoClient instanceof JedisClusterSentinel) {
+                ((JedisClusterSentinel) dynoClient).mset(keysValues);
+            } else {
+                for (Entry<String, String> entry : batch) {
+                    dynoClient.set(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the client is a redis cluster client, whose multi-key commands and scripts are limited to the
+     * keys of a single slot
+     */
+    public boolean isCluster() {
+        return dynoClient instanceof JedisCluster;
+    }
+
+    /**
+     * @return true if the client runs Lua scripts, e.g. a redis server, sentinel or cluster client. The keys of a
+     * script must be on the same node, or in the same slot of a redis cluster.
+     */
+    public boolean supportsScripts() {
+        return dynoClient instanceof ScriptingCommands
+                || dynoClient instanceof JedisClusterScriptingCommands
+                || dynoClient instanceof JedisClusterSentinel;
+    }
+
+    /**
+     * Runs a Lua script in a single round trip: by its SHA1 digest, and with its source the first time the server
+     * runs it.
+     *
+     * @see #supportsScripts()
+     */
+    public Object evalScript(String script, List<String> keys, List<String> args) {
+        String sha1 = scriptDigests.computeIfAbsent(script,
+                source -> Hashing.sha1().hashString(source, StandardCharsets.UTF_8).toString());
+        try {
+            return evalsha(sha1, keys, args);
+        } catch (JedisDataException e) {
+            if (e.getMessage() == null || !e.getMessage().startsWith("NOSCRIPT")) {
+                throw e;
+            }
+            logger.debug("Script {} not cached by the server, sending its source", sha1);
+            return eval(script, keys, args);
+        }
+    }
+
+    private Object evalsha(String sha1, List<String> keys, List<String> args) {
+        if (dynoClient instanceof ScriptingCommands) {
+            return ((ScriptingCommands) dynoClient).evalsha(sha1, keys, args);
+        } else if (dynoClient instanceof JedisClusterScriptingCommands) {
+            return ((JedisClusterScriptingCommands) dynoClient).evalsha(sha1, keys, args);
+        } else if (dynoClient instanceof JedisClusterSentinel) {
+            return ((JedisClusterSentinel) dynoClient).evalsha(sha1, keys, args);
+        }
+        throw new UnsupportedOperationException("Scripts are not supported by " + dynoClient.getClass().getName());
+    }
+
+    private Object eval(String script, List<String> keys, List<String> args) {
+        if (dynoClient instanceof ScriptingCommands) {
+            return ((ScriptingCommands) dynoClient).eval(script, keys, args);
+        } else if (dynoClient instanceof JedisClusterScriptingCommands) {
+            return ((JedisClusterScriptingCommands) dynoClient).eval(script, keys, args);
+        } else if (dynoClient instanceof JedisClusterSentinel) {
+            return ((JedisClusterSentinel) dynoClient).eval(script, keys, args);
+        }
+        throw new UnsupportedOperationException("Scripts are not supported by " + dynoClient.getClass().getName());
+    }
+
     public Long zcard(String key) {
         return dynoClient.zcard(key);
     }
@@ -104,6 +229,10 @@ public class DynoProxy {
         return dynoClient.del(key);
     }
 
+    public Double zscore(String key, String member) {
+        return dynoClient.zscore(key, member);
+    }
+
     public Long zrem(String key, String member) {
         return dynoClient.zrem(key, member);
     }
@@ -133,11 +262,36 @@ public class DynoProxy {
         return retVal;
     }
 
+    /**
+     * Adds the members that are not in the sorted set yet, with a single command.
+     */
+    public Long zaddnx(String key, Map<String, Double> scoreMembers) {
+        ZAddParams params = ZAddParams.zAddParams().nx();
+        return dynoClient.zadd(key, scoreMembers, params);
+    }
+
+    public Long zrem(String key, String... members) {
+        return dynoClient.zrem(key, members);
+    }
+
+    /**
+     * Blocks until an element of the list is popped, or the timeout expires.
+     *
+     * @return the key and the element popped, null on timeout
+     */
+    public List<String> blpop(int timeoutSeconds, String key) {
+        return dynoClient.blpop(timeoutSeconds, key);
+    }
+
     public Long hset(String key, String field, String value) {
         Long retVal = dynoClient.hset(key, field, value);
         return retVal;
     }
 
+    public String hmset(String key, Map<String, String> hash) {
+        return dynoClient.hmset(key, hash);
+    }
+
     public Long hsetnx(String key, String field, String value) {
         Long retVal = dynoClient.hsetnx(key, field, value);
         return retVal;
@@ -77,6 +77,62 @@ public class JedisClusterSentinel implements JedisCommands {
     }
   }
 
+  /**
+   * Multi-key read on the master, in a single round trip.
+   */
+  public List<String> mget(String... keys) {
+    Jedis jedis = null;
+    try {
+      jedis = jedisPool.getResource();
+      return jedis.mget(keys);
+    } finally {
+      if (jedis != null)
+        jedis.close();
+    }
+  }
+
+  /**
+   * Multi-key write on the master, in a single round trip.
+   */
+  public String mset(String... keysvalues) {
+    Jedis jedis = null;
+    try {
+      jedis = jedisPool.getResource();
+      return jedis.mset(keysvalues);
+    } finally {
+      if (jedis != null)
+        jedis.close();
+    }
+  }
+
+  /**
+   * Runs a Lua script on the master.
+   */
+  public Object eval(String script, List<String> keys, List<String> args) {
+    Jedis jedis = null;
+    try {
+      jedis = jedisPool.getResource();
+      return jedis.eval(script, keys, args);
+    } finally {
+      if (jedis != null)
+        jedis.close();
+    }
+  }
+
+  /**
+   * Runs a Lua script cached on the master.
+   */
+  public Object evalsha(String sha1, List<String> keys, List<String> args) {
+    Jedis jedis = null;
+    try {
+      jedis = jedisPool.getResource();
+      return jedis.evalsha(sha1, keys, args);
+    } finally {
+      if (jedis != null)
+        jedis.close();
+    }
+  }
+
   @Override
   public Boolean exists(String key) {
     Jedis jedis = null;
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.jedis;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.conductor.dao.dynomite.RedisTaskScripts;
+import com.netflix.conductor.dao.dynomite.queue.RedisQueueScripts;
+import redis.clients.jedis.JedisCommands;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the equivalent of the Lua scripts of the redis DAOs on a client without a Lua interpreter, e.g. the in-memory
+ * {@link JedisMock}.
+ */
+public final class ScriptEmulator {
+
+    /**
+     * The equivalent of a script, run with the commands of the client.
+     */
+    public interface Emulation {
+        Object run(JedisCommands redis, List<String> keys, List<String> args);
+    }
+
+    private static final Map<String, Emulation> EMULATIONS = ImmutableMap.<String, Emulation>builder()
+            .putAll(RedisTaskScripts.EMULATIONS)
+            .putAll(RedisQueueScripts.EMULATIONS)
+            .build();
+
+    private ScriptEmulator() {
+    }
+
+    public static Object emulate(JedisCommands redis, String script, List<String> keys, List<String> args) {
+        Emulation emulation = EMULATIONS.get(script);
+        if (emulation == null) {
+            throw new JedisDataException("NOSCRIPT No matching script");
+        }
+        return emulation.run(redis, keys, args);
+    }
+}
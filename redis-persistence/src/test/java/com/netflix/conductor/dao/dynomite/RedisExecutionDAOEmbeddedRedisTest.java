@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.dao.dynomite;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.conductor.common.utils.JsonMapperProvider;
+import com.netflix.conductor.config.TestConfiguration;
+import com.netflix.conductor.dao.ExecutionDAO;
+import com.netflix.conductor.dao.ExecutionDAOTest;
+import com.netflix.conductor.dyno.DynoProxy;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import redis.clients.jedis.Jedis;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+/**
+ * Runs the {@link ExecutionDAOTest} on a redis server, with the task state transitions run as Lua scripts and the
+ * keys hash-tagged by workflow and by task definition.
+ */
+public class RedisExecutionDAOEmbeddedRedisTest extends ExecutionDAOTest {
+
+    private static ObjectMapper objectMapper = new JsonMapperProvider().get();
+
+    private static int port;
+
+    private static RedisServer redisServer;
+
+    private Jedis jedis;
+
+    private RedisExecutionDAO executionDAO;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+    }
+
+    @AfterClass
+    public static void stopServer() throws IOException {
+        redisServer.stop();
+    }
+
+    @Before
+    public void init() {
+        TestConfiguration config = new TestConfiguration() {
+            @Override
+            public boolean getBooleanProperty(String name, boolean defaultValue) {
+                return RedisExecutionDAO.TASK_SCRIPTS_PROPERTY_NAME.equals(name)
+                        || BaseDynoDAO.HASH_TAGS_PROPERTY_NAME.equals(name)
+                        || super.getBooleanProperty(name, defaultValue);
+            }
+        };
+        jedis = new Jedis("localhost", port);
+        jedis.flushAll();
+        executionDAO = new RedisExecutionDAO(new DynoProxy(jedis), objectMapper, config);
+    }
+
+    @After
+    public void close() {
+        jedis.close();
+    }
+
+    @Override
+    protected ExecutionDAO getExecutionDAO() {
+        return executionDAO;
+    }
+}
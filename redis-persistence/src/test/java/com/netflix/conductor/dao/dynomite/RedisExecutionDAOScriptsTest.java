@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.dao.dynomite;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.conductor.common.metadata.tasks.Task;
+import com.netflix.conductor.common.metadata.tasks.Task.Status;
+import com.netflix.conductor.common.metadata.tasks.TaskDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowTask;
+import com.netflix.conductor.common.utils.JsonMapperProvider;
+import com.netflix.conductor.config.TestConfiguration;
+import com.netflix.conductor.dao.ExecutionDAO;
+import com.netflix.conductor.dao.ExecutionDAOTest;
+import com.netflix.conductor.dao.redis.JedisMock;
+import com.netflix.conductor.dyno.DynoProxy;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.Invocation;
+import redis.clients.util.JedisClusterCRC16;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the {@link ExecutionDAOTest} with the task state transitions run as Lua scripts.
+ */
+public class RedisExecutionDAOScriptsTest extends ExecutionDAOTest {
+
+    private static ObjectMapper objectMapper = new JsonMapperProvider().get();
+
+    private JedisMock jedis;
+
+    private RedisExecutionDAO executionDAO;
+
+    @Before
+    public void init() {
+        jedis = Mockito.spy(new JedisMock());
+        executionDAO = createExecutionDAO(false);
+    }
+
+    private RedisExecutionDAO createExecutionDAO(boolean hashTags) {
+        TestConfiguration config = new TestConfiguration() {
+            @Override
+            public boolean getBooleanProperty(String name, boolean defaultValue) {
+                if (BaseDynoDAO.HASH_TAGS_PROPERTY_NAME.equals(name)) {
+                    return hashTags;
+                }
+                return RedisExecutionDAO.TASK_SCRIPTS_PROPERTY_NAME.equals(name) || super.getBooleanProperty(name, defaultValue);
+            }
+        };
+        return new RedisExecutionDAO(new DynoProxy(jedis), objectMapper, config);
+    }
+
+    private List<Task> createScheduledTasks(String workflowId, int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Task task = new Task();
+            task.setTaskId(workflowId + "_task_" + i);
+            task.setWorkflowInstanceId(workflowId);
+            task.setReferenceTaskName("script_ref_" + i);
+            task.setTaskDefName("script_task");
+            task.setTaskType("script_task");
+            task.setStatus(Status.SCHEDULED);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    @Test
+    public void testTransitionsAreSingleScripts() {
+        List<Task> tasks = createScheduledTasks("script_workflow", 3);
+        int scriptsBefore = countScripts();
+        assertEquals(3, executionDAO.createTasks(tasks).size());
+        // a script for the workflow, and a script for the task definition
+        assertEquals(2, countScripts() - scriptsBefore);
+        assertEquals(3, executionDAO.getPendingTasksForTaskType("script_task").size());
+
+        // the tasks already scheduled are skipped
+        assertTrue(executionDAO.createTasks(tasks.subList(0, 1)).isEmpty());
+
+        Task task = tasks.get(0);
+        task.setStatus(Status.COMPLETED);
+        scriptsBefore = countScripts();
+        executionDAO.updateTask(task);
+        assertEquals(1, countScripts() - scriptsBefore);
+        assertEquals(Status.COMPLETED, executionDAO.getTask(task.getTaskId()).getStatus());
+        assertEquals(2, executionDAO.getPendingTasksForTaskType("script_task").size());
+
+        executionDAO.removeTask(task.getTaskId());
+        assertNull(executionDAO.getTask(task.getTaskId()));
+        assertEquals(2, executionDAO.getTasksForWorkflow("script_workflow").size());
+        assertEquals(2, executionDAO.getPendingTasksForTaskType("script_task").size());
+    }
+
+    @Test
+    public void testScriptKeysShareASlot() {
+        RedisExecutionDAO executionDAO = createExecutionDAO(true);
+        List<Task> tasks = new ArrayList<>(createScheduledTasks("slot_workflow_1", 2));
+        tasks.addAll(createScheduledTasks("slot_workflow_2", 2));
+        Task task = tasks.get(0);
+        TaskDef taskDef = new TaskDef("script_task");
+        taskDef.setConcurrentExecLimit(1);
+        WorkflowTask workflowTask = new WorkflowTask();
+        workflowTask.setTaskDefinition(taskDef);
+        task.setWorkflowTask(workflowTask);
+
+        assertEquals(4, executionDAO.createTasks(tasks).size());
+        assertTrue(executionDAO.getTasksExceedingInProgressLimit(Collections.singletonList(task)).isEmpty());
+        task.setStatus(Status.IN_PROGRESS);
+        executionDAO.updateTask(task);
+        assertEquals(1, executionDAO.getInProgressTaskCount("script_task"));
+        executionDAO.removeTask(tasks.get(1).getTaskId());
+        assertEquals(3, executionDAO.getPendingTasksForTaskType("script_task").size());
+
+        Collection<Invocation> scripts = Mockito.mockingDetails(jedis).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("evalsha"))
+                .collect(Collectors.toList());
+        // a schedule script per workflow, an index script per batch, a limit check, an unschedule script
+        assertEquals(7, scripts.size());
+        for (Invocation script : scripts) {
+            @SuppressWarnings("unchecked")
+            List<String> keys = (List<String>) script.getArguments()[1];
+            Set<Integer> slots = keys.stream()
+                    .map(JedisClusterCRC16::getSlot)
+                    .collect(Collectors.toSet());
+            assertEquals(keys.toString(), 1, slots.size());
+        }
+        assertEquals("dummy.junit.dummy.WORKFLOW_TO_TASKS.{slot_workflow_1}", executionDAO.groupKey("WORKFLOW_TO_TASKS", "slot_workflow_1"));
+    }
+
+    /**
+     * @return the number of scripts run, the first run of each script is sent with its source
+     */
+    private int countScripts() {
+        Collection<Invocation> invocations = Mockito.mockingDetails(jedis).getInvocations();
+        return (int) invocations.stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("evalsha"))
+                .count();
+    }
+
+    @Override
+    protected ExecutionDAO getExecutionDAO() {
+        return executionDAO;
+    }
+}
@@ -13,6 +13,7 @@
 package com.netflix.conductor.dao.dynomite;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.conductor.common.metadata.tasks.PollData;
 import com.netflix.conductor.common.metadata.tasks.Task;
 import com.netflix.conductor.common.metadata.tasks.Task.Status;
 import com.netflix.conductor.common.metadata.tasks.TaskDef;
@@ -26,9 +27,13 @@ import com.netflix.conductor.dyno.DynoProxy;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 import redis.clients.jedis.JedisCommands;
+import redis.clients.jedis.ScanParams;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -36,6 +41,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 /**
  * @author Viren
@@ -86,6 +95,89 @@ public class RedisExecutionDAOTest extends ExecutionDAOTest {
         assertEquals(taskId, tasks.get(0).getTaskId());
     }
 
+    @Test
+    public void testTasksAreReadAndWrittenInBatches() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Task task = new Task();
+            task.setTaskId("batch_task_" + i);
+            task.setWorkflowInstanceId("batch_workflow");
+            task.setReferenceTaskName("batch_ref_" + i);
+            task.setTaskDefName("batch_task");
+            task.setTaskType("batch_task");
+            task.setStatus(Status.SCHEDULED);
+            tasks.add(task);
+        }
+        executionDAO.createTasks(tasks);
+
+        List<Task> found = executionDAO.getTasks(Arrays.asList("batch_task_2", "unknown_task", "batch_task_0"));
+        assertEquals(2, found.size());
+        assertEquals("batch_task_2", found.get(0).getTaskId());
+        assertEquals("batch_task_0", found.get(1).getTaskId());
+
+        tasks.forEach(task -> task.setStatus(Status.COMPLETED));
+        executionDAO.updateTasks(tasks);
+        assertTrue(executionDAO.getTasksForWorkflow("batch_workflow").stream()
+                .allMatch(task -> task.getStatus() == Status.COMPLETED));
+        assertTrue(executionDAO.getPendingTasksForTaskType("batch_task").isEmpty());
+    }
+
+    @Test
+    public void testUpdateTaskCostIsIndependentOfWorkflowSize() {
+        JedisMock jedis = Mockito.spy(new JedisMock());
+        RedisExecutionDAO dao = new RedisExecutionDAO(new DynoProxy(jedis), objectMapper, new TestConfiguration());
+
+        int smallWorkflowCost = getUpdateTaskCost(dao, jedis, "small_workflow", 10);
+        int largeWorkflowCost = getUpdateTaskCost(dao, jedis, "large_workflow", 2_000);
+        assertEquals(smallWorkflowCost, largeWorkflowCost);
+        // the task set of the workflow is not read on update
+        verify(jedis, never()).sscan(anyString(), anyString(), any(ScanParams.class));
+    }
+
+    /**
+     * @return the number of redis commands sent to update a task of a workflow of the given size
+     */
+    private int getUpdateTaskCost(RedisExecutionDAO dao, JedisMock jedis, String workflowId, int workflowSize) {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < workflowSize; i++) {
+            Task task = new Task();
+            task.setTaskId(workflowId + "_task_" + i);
+            task.setWorkflowInstanceId(workflowId);
+            task.setReferenceTaskName("ref_" + i);
+            task.setTaskDefName("task");
+            task.setTaskType("task");
+            task.setStatus(Status.SCHEDULED);
+            tasks.add(task);
+        }
+        dao.createTasks(tasks);
+
+        Task task = tasks.get(workflowSize / 2);
+        task.setStatus(Status.COMPLETED);
+        int commandsBefore = Mockito.mockingDetails(jedis).getInvocations().size();
+        dao.updateTask(task);
+        return Mockito.mockingDetails(jedis).getInvocations().size() - commandsBefore;
+    }
+
+    @Test
+    public void testLinkScheduledTasks() {
+        Task task = new Task();
+        task.setTaskId("unlinked_task");
+        task.setWorkflowInstanceId("legacy_workflow");
+        task.setReferenceTaskName("ref");
+        task.setTaskDefName("task");
+        task.setTaskType("task");
+        task.setStatus(Status.SCHEDULED);
+        executionDAO.createTasks(Collections.singletonList(task));
+        assertEquals(0, executionDAO.linkScheduledTasks("legacy_workflow"));
+
+        // a task of a legacy workflow, missing from the task set of its workflow
+        executionDAO.getDyno().srem(executionDAO.groupKey("WORKFLOW_TO_TASKS", "legacy_workflow"), "unlinked_task");
+        assertTrue(executionDAO.getTasksForWorkflow("legacy_workflow").isEmpty());
+
+        assertEquals(1, executionDAO.linkScheduledTasks("legacy_workflow"));
+        assertEquals(1, executionDAO.getTasksForWorkflow("legacy_workflow").size());
+    }
+
 	@Test
 	public void testExceedsRateLimitWhenNoRateLimitSet() {
 		Task task =new Task();
@@ -107,6 +199,17 @@ public class RedisExecutionDAOTest extends ExecutionDAOTest {
 		assertTrue(executionDAO.exceedsRateLimitPerFrequency(task));
 	}
 
+	@Test
+	public void testUpdateLastPollsKeepsPollTimes() {
+		executionDAO.updateLastPolls(Arrays.asList(new PollData("poll_task", "domain1", "worker1", 1000L),
+				new PollData("poll_task", null, "worker2", 2000L),
+				new PollData("other_task", null, "worker3", 3000L)));
+		assertEquals(1000L, executionDAO.getPollData("poll_task", "domain1").getLastPollTime());
+		assertEquals("worker2", executionDAO.getPollData("poll_task", null).getWorkerId());
+		assertEquals(2, executionDAO.getPollData("poll_task").size());
+		assertEquals(3000L, executionDAO.getPollData("other_task", null).getLastPollTime());
+	}
+
     @Override
     protected ExecutionDAO getExecutionDAO() {
         return executionDAO;
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.netflix.conductor.dao.dynomite;
+
+import com.netflix.conductor.config.TestConfiguration;
+import com.netflix.conductor.core.events.queue.Message;
+import com.netflix.conductor.dao.QueueDAO;
+import com.netflix.conductor.dao.dynomite.queue.DynoQueueDAO;
+import com.netflix.conductor.dao.dynomite.queue.RedisQueueDAO;
+import com.netflix.conductor.dao.redis.JedisMock;
+import com.netflix.conductor.dyno.DynoProxy;
+import com.netflix.dyno.queues.ShardSupplier;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.JedisCommands;
+import redis.clients.jedis.MultiKeyCommands;
+import redis.clients.jedis.ScriptingCommands;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RedisQueueDAOTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisQueueDAOTest.class);
+
+    private JedisMock jedis;
+
+    private QueueDAO dao;
+
+    @Before
+    public void init() {
+        jedis = new JedisMock();
+        dao = new RedisQueueDAO(new DynoProxy(jedis), new TestConfiguration());
+    }
+
+    @Test
+    public void test() {
+        String queueName = "TestQueue";
+
+        for (int i = 0; i < 10; i++) {
+            dao.push(queueName, "msg" + i, 0);
+        }
+        assertEquals(10, dao.getSize(queueName));
+        assertEquals(10L, dao.queuesDetail().get(queueName).longValue());
+
+        for (int i = 0; i < 10; i++) {
+            assertFalse(dao.pushIfNotExists(queueName, "msg" + i, 0));
+        }
+
+        List<String> popped = dao.pop(queueName, 10, 100);
+        assertEquals(10, popped.size());
+        assertEquals(0, dao.getSize(queueName));
+
+        Map<String, Map<String, Map<String, Long>>> verbose = dao.queuesDetailVerbose();
+        assertEquals(0L, verbose.get(queueName).get("redis").get("size").longValue());
+        assertEquals(10L, verbose.get(queueName).get("redis").get("uacked").longValue());
+
+        popped.forEach(messageId -> assertTrue(dao.ack(queueName, messageId)));
+        assertFalse(dao.ack(queueName, "msg0"));
+        assertEquals(0L, dao.queuesDetailVerbose().get(queueName).get("redis").get("uacked").longValue());
+        assertTrue(dao.pop(queueName, 10, 100).isEmpty());
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(dao.pushIfNotExists(queueName, "msg" + i, 0));
+        }
+        assertEquals(10, dao.getSize(queueName));
+        for (int i = 0; i < 10; i++) {
+            dao.remove(queueName, "msg" + i);
+        }
+        assertEquals(0, dao.getSize(queueName));
+
+        for (int i = 0; i < 10; i++) {
+            dao.pushIfNotExists(queueName, "msg" + i, 0);
+        }
+        dao.flush(queueName);
+        assertEquals(0, dao.getSize(queueName));
+    }
+
+    @Test
+    public void testVisibility() throws Exception {
+        String queueName = "VisibilityQueue";
+        dao.push(queueName, "delayed", 60);
+        dao.push(queueName, "visible", 0);
+        assertTrue(dao.exists(queueName, "delayed"));
+        assertEquals(Collections.singletonList("visible"), dao.pop(queueName, 10, 0));
+
+        // a message not acknowledged is popped again after its unack timeout, 100 ms in the test configuration
+        assertTrue(dao.pop(queueName, 10, 0).isEmpty());
+        Thread.sleep(150);
+        assertEquals(Collections.singletonList("visible"), dao.pop(queueName, 10, 0));
+
+        assertTrue(dao.setUnackTimeout(queueName, "visible", 0));
+        assertFalse(dao.setUnackTimeout(queueName, "delayed", 0));
+        assertTrue(dao.setOffsetTime(queueName, "delayed", 0));
+        assertFalse(dao.setOffsetTime(queueName, "unknown", 0));
+
+        List<String> popped = dao.pop(queueName, 10, 0);
+        assertEquals(2, popped.size());
+        assertTrue(popped.containsAll(Arrays.asList("visible", "delayed")));
+    }
+
+    @Test
+    public void testPollMessages() {
+        dao.push("queue1", Arrays.asList(new Message("m1", "payload1", null), new Message("m2", null, null)));
+
+        List<Message> messages = dao.pollMessages("queue1", 1, 0);
+        assertEquals(1, messages.size());
+        messages.addAll(dao.pollMessages("queue1", 10, 0));
+        assertEquals(2, messages.size());
+        for (Message message : messages) {
+            if (message.getId().equals("m1")) {
+                assertEquals("payload1", message.getPayload());
+            } else {
+                assertNull(message.getPayload());
+            }
+        }
+    }
+
+    @Test
+    public void testPopSeveralQueues() throws Exception {
+        dao.push("multi1", Arrays.asList("m1", "m2", "m3"), 0);
+        dao.push("multi2", "m4", 0);
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put("multi1", 2);
+        counts.put("multi2", 2);
+        counts.put("multi3", 2);
+
+        Map<String, List<String>> popped = dao.pop(counts, 0);
+        assertEquals(2, popped.get("multi1").size());
+        assertEquals(Collections.singletonList("m4"), popped.get("multi2"));
+        assertTrue(popped.get("multi3").isEmpty());
+        assertEquals(1, dao.pop(counts, 0).get("multi1").size());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Map<String, List<String>>> waiting = executor.submit(() -> dao.pop(counts, 5000));
+            Thread.sleep(100);
+            dao.push("multi3", "m5", 0);
+            assertEquals(Collections.singletonList("m5"), waiting.get(5, TimeUnit.SECONDS).get("multi3"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPopWaitsForAPush() throws Exception {
+        String queueName = "BlockingQueue";
+        dao.push(queueName, "delayed", 60);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            long start = System.currentTimeMillis();
+            Future<List<String>> popped = executor.submit(() -> dao.pop(queueName, 10, 5000));
+            Thread.sleep(100);
+            dao.push(queueName, "pushed", 0);
+            assertEquals(Collections.singletonList("pushed"), popped.get(5, TimeUnit.SECONDS));
+            assertTrue(System.currentTimeMillis() - start < 5000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testQueuesDetailIncludesTheQueuesOfOtherInstances() {
+        QueueDAO otherDAO = new RedisQueueDAO(new DynoProxy(jedis), new TestConfiguration());
+        otherDAO.push("OtherQueue", "msg", 0);
+        assertEquals(1L, dao.queuesDetail().get("OtherQueue").longValue());
+        assertEquals(1L, dao.queuesDetailVerbose().get("OtherQueue").get("redis").get("size").longValue());
+    }
+
+    @Test
+    public void testBulkOperations() {
+        String queueName = "BulkQueue";
+        dao.push(queueName, Arrays.asList("m1", "m2", "m3", "m4"), 60);
+        assertEquals(4, dao.getSize(queueName));
+        assertTrue(dao.pop(queueName, 10, 0).isEmpty());
+
+        dao.setOffsetTime(queueName, Arrays.asList("m1", "m2", "m3", "unknown"), 0);
+        List<String> popped = dao.pop(queueName, 10, 0);
+        assertEquals(3, popped.size());
+        assertFalse(popped.contains("m4"));
+
+        dao.setUnackTimeout(queueName, Arrays.asList("m1", "m2"), 60_000);
+        dao.ack(queueName, Collections.singletonList("m3"));
+        assertFalse(dao.exists(queueName, "m3"));
+
+        dao.remove(queueName, Arrays.asList("m2", "m4"));
+        assertFalse(dao.exists(queueName, "m2"));
+        assertFalse(dao.exists(queueName, "m4"));
+        assertEquals(0, dao.getSize(queueName));
+
+        // m1 stays hidden beyond the unack timeout of the test configuration
+        assertTrue(dao.exists(queueName, "m1"));
+        assertTrue(dao.pop(queueName, 10, 200).isEmpty());
+    }
+
+    /**
+     * Compares the round trips to redis of the {@link RedisQueueDAO} and the {@link DynoQueueDAO} for the same
+     * messages pushed, popped and acknowledged.
+     */
+    @Test
+    public void testRoundTripsComparedToDynoQueueDAO() {
+        AtomicInteger redisCommands = new AtomicInteger();
+        QueueDAO redisQueueDAO = new RedisQueueDAO(new DynoProxy(countingClient(redisCommands)), new TestConfiguration());
+
+        AtomicInteger dynoCommands = new AtomicInteger();
+        JedisCommands dynoClient = countingClient(dynoCommands);
+        QueueDAO dynoQueueDAO = new DynoQueueDAO(dynoClient, dynoClient, new ShardSupplier() {
+
+            @Override
+            public Set<String> getQueueShards() {
+                return Collections.singleton("a");
+            }
+
+            @Override
+            public String getCurrentShard() {
+                return "a";
+            }
+        }, new TestConfiguration());
+
+        int messages = 100;
+        runQueueOperations(redisQueueDAO, messages);
+        runQueueOperations(dynoQueueDAO, messages);
+        logger.info("Round trips for {} messages pushed, popped and acknowledged: RedisQueueDAO {}, DynoQueueDAO {}",
+                messages, redisCommands.get(), dynoCommands.get());
+        assertTrue(redisCommands.get() < dynoCommands.get());
+    }
+
+    private static void runQueueOperations(QueueDAO queueDAO, int messages) {
+        String queueName = "ComparedQueue";
+        for (int i = 0; i < messages; i++) {
+            queueDAO.push(queueName, "msg" + i, 0);
+        }
+        int popped = 0;
+        for (int i = 0; i < messages && popped < messages; i++) {
+            for (String messageId : queueDAO.pop(queueName, 10, 100)) {
+                assertTrue(queueDAO.ack(queueName, messageId));
+                popped++;
+            }
+        }
+        assertEquals(messages, popped);
+        assertEquals(0, queueDAO.getSize(queueName));
+    }
+
+    /**
+     * @return an in-memory client counting the commands sent to it
+     */
+    private static JedisCommands countingClient(AtomicInteger commands) {
+        JedisMock jedis = new JedisMock();
+        return (JedisCommands) Proxy.newProxyInstance(RedisQueueDAOTest.class.getClassLoader(),
+                new Class<?>[]{JedisCommands.class, MultiKeyCommands.class, ScriptingCommands.class},
+                (proxy, method, args) -> {
+                    commands.incrementAndGet();
+                    try {
+                        return method.invoke(jedis, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
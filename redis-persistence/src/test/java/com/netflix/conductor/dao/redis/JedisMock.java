@@ -18,23 +18,30 @@
  */
 package com.netflix.conductor.dao.redis;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.rarefiedredis.redis.IRedisClient;
 import org.rarefiedredis.redis.IRedisSortedSet.ZsetPair;
 import org.rarefiedredis.redis.RedisMock;
 
+import com.google.common.hash.Hashing;
+import com.netflix.conductor.jedis.ScriptEmulator;
+
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
 import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisDataException;
 import redis.clients.jedis.exceptions.JedisException;
 import redis.clients.jedis.params.sortedset.ZAddParams;
 
@@ -46,6 +53,9 @@ public class JedisMock extends Jedis {
 
     private IRedisClient redis;
 
+    // the scripts run, by SHA1 digest
+    private final Map<String, String> scripts = new ConcurrentHashMap<>();
+
     public JedisMock() {
         super("");
         this.redis = new RedisMock();
@@ -234,6 +244,23 @@ public class JedisMock extends Jedis {
         }
     }
 
+    /**
+     * Runs the equivalent of the script, the mock has no Lua interpreter.
+     */
+    @Override public Object eval(final String script, final List<String> keys, final List<String> args) {
+        Object result = ScriptEmulator.emulate(this, script, keys, args);
+        scripts.put(Hashing.sha1().hashString(script, StandardCharsets.UTF_8).toString(), script);
+        return result;
+    }
+
+    @Override public Object evalsha(final String sha1, final List<String> keys, final List<String> args) {
+        String script = scripts.get(sha1);
+        if (script == null) {
+            throw new JedisDataException("NOSCRIPT No matching script. Please use EVAL.");
+        }
+        return eval(script, keys, args);
+    }
+
     @Override public Long msetnx(final String... keysvalues) {
         try {
             return redis.msetnx(keysvalues) ? 1L : 0L;
@@ -750,6 +777,12 @@ public class JedisMock extends Jedis {
 					return 0L;
 				}
 				return redis.zadd(key, new ZsetPair(member, score));
+			}else if(params.contains("nx")) {
+				Double existing = redis.zscore(key, member);
+				if(existing != null) {
+					return 0L;
+				}
+				return redis.zadd(key, new ZsetPair(member, score));
 			}else {
 				return redis.zadd(key, new ZsetPair(member, score));
 			}
@@ -760,6 +793,14 @@ public class JedisMock extends Jedis {
 	}
 	
 
+    @Override public Long zadd(final String key, final Map<String, Double> scoreMembers, final ZAddParams params) {
+        long added = 0;
+        for (Map.Entry<String, Double> scoreMember : scoreMembers.entrySet()) {
+            added += zadd(key, scoreMember.getValue(), scoreMember.getKey(), params);
+        }
+        return added;
+    }
+
     @Override public Long zadd(final String key, final Map<String, Double> scoreMembers) {
         try {
             Double score = null;
@@ -1207,6 +1248,29 @@ public class JedisMock extends Jedis {
             throw new JedisException(e);
         }
     }
+
+    /**
+     * Polls the list until the timeout, the mock has no blocking commands.
+     */
+    @Override
+    public List<String> blpop(int timeout, String key) {
+        long deadline = System.currentTimeMillis() + timeout * 1000L;
+        while (true) {
+            String value = lpop(key);
+            if (value != null) {
+                return Arrays.asList(key, value);
+            }
+            if (timeout > 0 && System.currentTimeMillis() >= deadline) {
+                return null;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
     
     
     /*
@@ -1423,10 +1487,6 @@ public class JedisMock extends Jedis {
         return params;
     }
 
-    public Object eval(String script, List<String> keys, List<String> args) {
-        return eval(script, keys.size(), getParams(keys, args));
-    }
-
     public Object eval(String script) {
         return eval(script, 0);
     }
@@ -1455,10 +1515,6 @@ public class JedisMock extends Jedis {
         return result;
     }
 
-    public Object evalsha(String sha1, List<String> keys, List<String> args) {
-        return evalsha(sha1, keys.size(), getParams(keys, args));
-    }
-
     public Object evalsha(String sha1, int keyCount, String... params) {
         checkIsInMulti();
         client.evalsha(sha1, keyCount, params);
@@ -1703,19 +1759,6 @@ public class JedisMock extends Jedis {
         return sscan(key, cursor, new ScanParams());
     }
 
-    public ScanResult<String> sscan(final String key, final String cursor, final ScanParams params) {
-        checkIsInMulti();
-        client.sscan(key, cursor, params);
-        List<Object> result = client.getObjectMultiBulkReply();
-        String newcursor = new String((byte[]) result.get(0));
-        List<String> results = new ArrayList<String>();
-        List<byte[]> rawResults = (List<byte[]>) result.get(1);
-        for (byte[] bs : rawResults) {
-            results.add(SafeEncoder.encode(bs));
-        }
-        return new ScanResult<String>(newcursor, results);
-    }
-
     
 
     public ScanResult<Tuple> zscan(final String key, final String cursor, final ScanParams params) {
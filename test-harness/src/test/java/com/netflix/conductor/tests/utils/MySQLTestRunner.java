@@ -51,6 +51,8 @@ public class MySQLTestRunner extends BlockJUnit4ClassRunner {
         System.setProperty("conductor.mysql.connection.pool.size.min", "8");
         System.setProperty("conductor.mysql.connection.pool.size.max", "8");
         System.setProperty("conductor.mysql.connection.pool.idle.min", "300000");
+        // the tests check the sizes of the queues right after changing them
+        System.setProperty("conductor.mysql.queue.size.refresh.time.ms", "0");
 
     }
 